@@ -0,0 +1,88 @@
+/**
+ * Copyright (C) 2020 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.benchmarks;
+
+import org.bonitasoft.engine.archive.ArchiveInsertRecord;
+import org.bonitasoft.engine.archive.ArchiveService;
+import org.bonitasoft.engine.bpm.connector.ConnectorEvent;
+import org.bonitasoft.engine.core.process.instance.model.SAutomaticTaskInstance;
+import org.bonitasoft.engine.core.process.instance.model.SConnectorInstance;
+import org.bonitasoft.engine.core.process.instance.model.archive.SAAutomaticTaskInstance;
+import org.bonitasoft.engine.core.process.instance.model.archive.SAConnectorInstance;
+import org.bonitasoft.engine.service.TenantServiceSingleton;
+import org.bonitasoft.engine.test.TestEngine;
+import org.bonitasoft.engine.test.TestEngineImpl;
+import org.bonitasoft.engine.transaction.UserTransactionService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Archive, in a single transaction, the elements of a process instance having 10 000 flow nodes, each one with a
+ * connector.
+ */
+@State(Scope.Benchmark)
+public class ArchivingBenchmark {
+
+    private static final int NUMBER_OF_FLOW_NODES = 10_000;
+
+    private TestEngine engine;
+    private UserTransactionService userTransactionService;
+    private ArchiveService archiveService;
+
+    @Setup
+    public void setup() throws Exception {
+        engine = TestEngineImpl.getInstance();
+        engine.start();
+        userTransactionService = TenantServiceSingleton.getInstance().getUserTransactionService();
+        archiveService = TenantServiceSingleton.getInstance().getArchiveService();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        engine.stop();
+    }
+
+    @Benchmark
+    public void archive10000FlowNodes() throws Exception {
+        userTransactionService.executeInTransaction(() -> {
+            long archiveDate = System.currentTimeMillis();
+            for (int i = 0; i < NUMBER_OF_FLOW_NODES; i++) {
+                // flow nodes and connectors are interleaved and archived one by one, as when archiving a process
+                // instance
+                archiveService.recordInsert(archiveDate, new ArchiveInsertRecord(createArchivedFlowNode(i)));
+                archiveService.recordInsert(archiveDate, new ArchiveInsertRecord(createArchivedConnector(i)));
+            }
+            return null;
+        });
+    }
+
+    private SAAutomaticTaskInstance createArchivedFlowNode(int i) {
+        SAutomaticTaskInstance flowNode = new SAutomaticTaskInstance("task" + i, 1L, 2L, 2L, 3L, 2L);
+        flowNode.setId(i + 1);
+        flowNode.setStateId(2);
+        flowNode.setStateName("completed");
+        return new SAAutomaticTaskInstance(flowNode);
+    }
+
+    private SAConnectorInstance createArchivedConnector(int i) {
+        SConnectorInstance connector = new SConnectorInstance("connector" + i, i + 1, "flowNode", "connectorId",
+                "1.0", ConnectorEvent.ON_ENTER);
+        connector.setId(i + 1);
+        connector.setState("DONE");
+        return new SAConnectorInstance(connector);
+    }
+}
@@ -0,0 +1,104 @@
+/**
+ * Copyright (C) 2019 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.benchmarks;
+
+import static java.util.Arrays.asList;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.bonitasoft.engine.core.expression.control.api.ExpressionResolverService;
+import org.bonitasoft.engine.core.expression.control.model.SExpressionContext;
+import org.bonitasoft.engine.expression.model.SExpression;
+import org.bonitasoft.engine.expression.model.impl.SExpressionImpl;
+import org.bonitasoft.engine.service.TenantServiceSingleton;
+import org.bonitasoft.engine.test.TestEngine;
+import org.bonitasoft.engine.test.TestEngineImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Evaluate the conditions of the outgoing transitions of an exclusive gateway, like
+ * {@code 1000 <= amount < 5000}, either reusing the evaluation plan kept with the expressions
+ * ({@code reusePlan=true}) or computing it on each evaluation, as the resolver did before plans were kept
+ * ({@code reusePlan=false}).
+ */
+@State(Scope.Benchmark)
+public class ExpressionEvaluationBenchmark {
+
+    private static final int[] THRESHOLDS = { 0, 100, 1000, 5000, 10000 };
+
+    @Param({ "true", "false" })
+    public boolean reusePlan;
+
+    private TestEngine engine;
+    private ExpressionResolverService expressionResolverService;
+    private List<SExpression> transitionConditions;
+    private SExpressionContext context;
+
+    @Setup
+    public void setup() throws Exception {
+        engine = TestEngineImpl.getInstance();
+        engine.start();
+        expressionResolverService = TenantServiceSingleton.getInstance().getExpressionResolverService();
+        transitionConditions = new ArrayList<>();
+        for (int i = 0; i < THRESHOLDS.length - 1; i++) {
+            transitionConditions.add(between(THRESHOLDS[i], THRESHOLDS[i + 1]));
+        }
+        context = new SExpressionContext();
+        context.setInputValues(Collections.singletonMap("amount", 4200));
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        engine.stop();
+    }
+
+    @Benchmark
+    public void evaluateGatewayConditions(Blackhole blackhole) throws Exception {
+        for (SExpression condition : transitionConditions) {
+            if (!reusePlan) {
+                ((SExpressionImpl) condition).setEvaluationPlan(null);
+            }
+            blackhole.consume(expressionResolverService.evaluate(condition, context));
+        }
+    }
+
+    /**
+     * @return {@code (amount >= min) != (amount >= max)}, as a tree of condition expressions
+     */
+    private static SExpression between(int min, int max) {
+        SExpression amount = expression("amount", SExpression.TYPE_INPUT, Integer.class);
+        SExpression lowerBound = condition(">=", amount,
+                expression(String.valueOf(min), SExpression.TYPE_CONSTANT, Integer.class));
+        SExpression upperBound = condition(">=", amount,
+                expression(String.valueOf(max), SExpression.TYPE_CONSTANT, Integer.class));
+        return condition("!=", lowerBound, upperBound);
+    }
+
+    private static SExpression condition(String operator, SExpression... operands) {
+        return new SExpressionImpl(operator, operator, SExpression.TYPE_CONDITION, Boolean.class.getName(), null,
+                asList(operands));
+    }
+
+    private static SExpression expression(String content, String type, Class<?> returnType) {
+        return new SExpressionImpl(content, content, type, returnType.getName(), null, Collections.emptyList());
+    }
+}
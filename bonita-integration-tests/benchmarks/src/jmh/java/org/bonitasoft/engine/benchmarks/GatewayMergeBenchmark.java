@@ -0,0 +1,66 @@
+/**
+ * Copyright (C) 2019 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.benchmarks;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.bonitasoft.engine.core.process.instance.impl.GatewayTokens;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Tokens of all branches of a parallel join arriving one after the other: each arriving token is added to the merge
+ * state read from the hitBys column, the merge condition is checked, and the state is written back.
+ * <p>
+ * Compares the former comma separated list of transition indexes, that is parsed and scanned once per branch for each
+ * token, with {@link GatewayTokens}.
+ */
+@State(Scope.Benchmark)
+public class GatewayMergeBenchmark {
+
+    @Param({ "10", "100" })
+    private int numberOfBranches;
+
+    @Benchmark
+    public boolean commaSeparatedTokens() {
+        String hitBys = "";
+        boolean merged = false;
+        for (int transitionIndex = 1; transitionIndex <= numberOfBranches; transitionIndex++) {
+            hitBys = hitBys.isEmpty() ? String.valueOf(transitionIndex) : hitBys + "," + transitionIndex;
+            List<String> hits = Arrays.asList(hitBys.split(","));
+            merged = true;
+            for (int i = 1; merged && i <= numberOfBranches; i++) {
+                merged = hits.contains(String.valueOf(i));
+            }
+        }
+        return merged;
+    }
+
+    @Benchmark
+    public boolean bitsetTokens() {
+        String hitBys = "";
+        boolean merged = false;
+        for (int transitionIndex = 1; transitionIndex <= numberOfBranches; transitionIndex++) {
+            GatewayTokens tokens = GatewayTokens.parse(hitBys);
+            tokens.add(transitionIndex);
+            hitBys = tokens.toString();
+            merged = tokens.containsAll(numberOfBranches);
+        }
+        return merged;
+    }
+
+}
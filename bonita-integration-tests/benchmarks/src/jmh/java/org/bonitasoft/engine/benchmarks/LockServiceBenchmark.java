@@ -0,0 +1,84 @@
+/**
+ * Copyright (C) 2020 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.benchmarks;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.bonitasoft.engine.lock.BonitaLock;
+import org.bonitasoft.engine.lock.LockService;
+import org.bonitasoft.engine.lock.MemoryLockService;
+import org.bonitasoft.engine.lock.StripedMemoryLockService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Compare lock/unlock throughput of {@link MemoryLockService} and {@link StripedMemoryLockService} when many workers
+ * lock process instances concurrently. {@code numberOfProcessInstances} controls the contention on each lock.
+ */
+@State(Scope.Benchmark)
+public class LockServiceBenchmark {
+
+    private static final long TENANT_ID = 1L;
+    private static final String PROCESS = "PROCESS";
+
+    @Param({ "memory", "striped" })
+    public String implementation;
+
+    @Param({ "100", "100000" })
+    public int numberOfProcessInstances;
+
+    private LockService lockService;
+
+    @Setup
+    public void setup() {
+        lockService = "memory".equals(implementation) ? new MemoryLockService(60) : new StripedMemoryLockService(60);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void lockAndUnlock_8threads() throws Exception {
+        lockAndUnlock();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void lockAndUnlock_16threads() throws Exception {
+        lockAndUnlock();
+    }
+
+    @Benchmark
+    @Threads(32)
+    public void lockAndUnlock_32threads() throws Exception {
+        lockAndUnlock();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public void lockAndUnlock_64threads() throws Exception {
+        lockAndUnlock();
+    }
+
+    private void lockAndUnlock() throws Exception {
+        long processInstanceId = ThreadLocalRandom.current().nextInt(numberOfProcessInstances);
+        BonitaLock lock = lockService.tryLock(processInstanceId, PROCESS, 20, TimeUnit.MILLISECONDS, TENANT_ID);
+        if (lock != null) {
+            lockService.unlock(lock, TENANT_ID);
+        }
+    }
+}
@@ -13,10 +13,18 @@
  **/
 package org.bonitasoft.engine.benchmarks;
 
+import java.util.Collections;
+import java.util.Set;
+
+import org.bonitasoft.engine.api.permission.APICallContext;
+import org.bonitasoft.engine.authorization.PermissionService;
 import org.bonitasoft.engine.authorization.properties.ConfigurationFilesManager;
 import org.bonitasoft.engine.authorization.properties.ResourcesPermissionsMapping;
 import org.bonitasoft.engine.cache.CacheService;
+import org.bonitasoft.engine.service.TenantServiceAccessor;
 import org.bonitasoft.engine.service.TenantServiceSingleton;
+import org.bonitasoft.engine.session.SessionService;
+import org.bonitasoft.engine.session.model.SSession;
 import org.bonitasoft.engine.test.TestEngine;
 import org.bonitasoft.engine.test.TestEngineImpl;
 import org.openjdk.jmh.annotations.Benchmark;
@@ -25,24 +33,49 @@ import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
 import org.openjdk.jmh.annotations.TearDown;
 
+/**
+ * Resolution of the permissions of REST API resources, and full static authorization of REST API calls as done for
+ * each call by the REST API authorization filter: resource permissions lookup and check against the permissions of the
+ * session.
+ * <p>
+ * The session is attached to the thread running the setup, run it with a single thread.
+ */
 @State(Scope.Benchmark)
 public class PermissionCachingBenchmark {
 
+    private static final APICallContext GET_CASES = new APICallContext("GET", "bpm", "case", null);
+    private static final APICallContext GET_CASE_CONTEXT = new APICallContext("GET", "bpm", "case", "12/context");
+    private static final APICallContext START_PROCESS = new APICallContext("POST", "bpm", "process",
+            "7/instantiation");
+
     private TestEngine engine;
     private ResourcesPermissionsMapping resourcesPermissionsMapping;
     private CacheService cacheService;
+    private PermissionService permissionService;
+    private SessionService sessionService;
+    private SSession session;
 
     @Setup
     public void setup() throws Exception {
         engine = TestEngineImpl.getInstance();
         engine.start();
-        cacheService = TenantServiceSingleton.getInstance().getCacheService();
+        TenantServiceAccessor tenantServiceAccessor = TenantServiceSingleton.getInstance();
+        cacheService = tenantServiceAccessor.getCacheService();
         resourcesPermissionsMapping = new ResourcesPermissionsMapping(1L, cacheService,
                 new ConfigurationFilesManager());
+        permissionService = tenantServiceAccessor.getPermissionService();
+        sessionService = tenantServiceAccessor.getSessionService();
+        session = sessionService.createSession(tenantServiceAccessor.getTenantId(), -1L, "benchmark", false,
+                Collections.emptyList(), Set.of("case_visualization", "process_visualization", "task_visualization",
+                        "organization_visualization", "profile_visualization"));
+        tenantServiceAccessor.getSessionAccessor().setSessionInfo(session.getId(),
+                tenantServiceAccessor.getTenantId());
     }
 
     @TearDown
     public void tearDown() throws Exception {
+        TenantServiceSingleton.getInstance().getSessionAccessor().deleteSessionId();
+        sessionService.deleteSession(session.getId());
         engine.stop();
     }
 
@@ -57,4 +90,19 @@ public class PermissionCachingBenchmark {
             resourcesPermissionsMapping.getResourcePermissions("GET", "bpm", "case");
         }
     }
+
+    @Benchmark
+    public boolean isAuthorizedOnResource() throws Exception {
+        return permissionService.isAuthorized(GET_CASES);
+    }
+
+    @Benchmark
+    public boolean isAuthorizedOnResourceWithWildcard() throws Exception {
+        return permissionService.isAuthorized(GET_CASE_CONTEXT);
+    }
+
+    @Benchmark
+    public boolean isNotAuthorized() throws Exception {
+        return permissionService.isAuthorized(START_PROCESS);
+    }
 }
@@ -138,7 +138,8 @@ public class GatewayInstanceServiceIT extends CommonBPMServicesTest {
 
         final SGatewayInstance gatewayInstanceRes2 = getGatewayInstanceFromDB(gatewayInstance.getId());
         assertNotNull(gatewayInstanceRes2);
-        assertEquals("1,2,3,4", gatewayInstanceRes2.getHitBys());
+        // legacy tokens are rewritten as a bitset of transitions 1 to 4
+        assertEquals("#f", gatewayInstanceRes2.getHitBys());
 
         deleteGatewayInstance(gatewayInstanceRes);
     }
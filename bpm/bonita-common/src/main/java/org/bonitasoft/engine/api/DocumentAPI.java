@@ -321,6 +321,43 @@ public interface DocumentAPI {
      */
     byte[] getDocumentContent(String storageId) throws DocumentNotFoundException;
 
+    /**
+     * Get the size of the content of the document with the specified identifier, e.g. to read it by parts with
+     * {@link #getDocumentContent(String, long, int)}.
+     *
+     * @param storageId
+     *        The identifier of the document to retrieve the content size from
+     * @return size of the document content in bytes, 0 if the document has no content
+     * @throws DocumentNotFoundException
+     *         If the specified identifier does not refer to an existing document.
+     * @throws org.bonitasoft.engine.session.InvalidSessionException
+     *         when the session is note valid
+     * @since 7.16
+     */
+    long getDocumentContentSize(String storageId) throws DocumentNotFoundException;
+
+    /**
+     * Get part of the content of the document with the specified identifier. Only this part is loaded in memory, large
+     * documents should be read this way rather than with {@link #getDocumentContent(String)}.
+     *
+     * @param storageId
+     *        The identifier of the document to retrieve the content from
+     * @param offset
+     *        position in the content of the first byte to retrieve, starting at 0
+     * @param length
+     *        maximum number of bytes to retrieve
+     * @return bytes of the document content starting at offset, fewer than length bytes when the end of the content is
+     *         reached, an empty array when offset is after the end of the content
+     * @throws DocumentNotFoundException
+     *         If the specified identifier does not refer to an existing document.
+     * @throws IllegalArgumentException
+     *         If offset or length is negative.
+     * @throws org.bonitasoft.engine.session.InvalidSessionException
+     *         when the session is note valid
+     * @since 7.16
+     */
+    byte[] getDocumentContent(String storageId, long offset, int length) throws DocumentNotFoundException;
+
     /**
      * Get the last version of the named document for the specified process instance.
      * This method does not work on archived process instances.
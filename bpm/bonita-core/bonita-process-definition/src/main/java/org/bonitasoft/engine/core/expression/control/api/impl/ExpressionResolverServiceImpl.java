@@ -15,8 +15,6 @@ package org.bonitasoft.engine.core.expression.control.api.impl;
 
 import static org.bonitasoft.engine.classloader.ClassLoaderIdentifier.identifier;
 
-import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -32,19 +30,20 @@ import org.bonitasoft.engine.core.process.definition.ProcessDefinitionService;
 import org.bonitasoft.engine.core.process.definition.exception.SProcessDefinitionNotFoundException;
 import org.bonitasoft.engine.core.process.definition.model.SProcessDefinition;
 import org.bonitasoft.engine.dependency.model.ScopeType;
-import org.bonitasoft.engine.expression.ContainerState;
-import org.bonitasoft.engine.expression.ExpressionExecutorStrategy;
+import org.bonitasoft.engine.expression.ExpressionEvaluationPlan;
 import org.bonitasoft.engine.expression.ExpressionService;
-import org.bonitasoft.engine.expression.ExpressionType;
 import org.bonitasoft.engine.expression.exception.SExpressionDependencyMissingException;
 import org.bonitasoft.engine.expression.exception.SExpressionEvaluationException;
 import org.bonitasoft.engine.expression.exception.SExpressionTypeUnknownException;
 import org.bonitasoft.engine.expression.exception.SInvalidExpressionException;
-import org.bonitasoft.engine.expression.model.ExpressionKind;
 import org.bonitasoft.engine.expression.model.SExpression;
+import org.bonitasoft.engine.expression.model.impl.SExpressionImpl;
 import org.bonitasoft.engine.persistence.SBonitaReadException;
 import org.bonitasoft.engine.tracking.TimeTracker;
 import org.bonitasoft.engine.tracking.TimeTrackerRecords;
+import org.bonitasoft.engine.tracking.profiling.ElementProfiler;
+import org.bonitasoft.engine.tracking.profiling.ProfiledElement;
+import org.bonitasoft.engine.tracking.profiling.ProfiledElementType;
 
 /**
  * @author Zhao Na
@@ -64,13 +63,17 @@ public class ExpressionResolverServiceImpl implements ExpressionResolverService
 
     private final TimeTracker timeTracker;
 
+    private final ElementProfiler elementProfiler;
+
     public ExpressionResolverServiceImpl(final ExpressionService expressionService,
             final ProcessDefinitionService processDefinitionService,
-            final ClassLoaderService classLoaderService, final TimeTracker timeTracker) {
+            final ClassLoaderService classLoaderService, final TimeTracker timeTracker,
+            final ElementProfiler elementProfiler) {
         this.expressionService = expressionService;
         this.processDefinitionService = processDefinitionService;
         this.classLoaderService = classLoaderService;
         this.timeTracker = timeTracker;
+        this.elementProfiler = elementProfiler;
     }
 
     @Override
@@ -85,9 +88,18 @@ public class ExpressionResolverServiceImpl implements ExpressionResolverService
             throws SExpressionTypeUnknownException, SExpressionEvaluationException,
             SExpressionDependencyMissingException, SInvalidExpressionException {
         final long startTime = System.currentTimeMillis();
+        final long sampleStartTime = elementProfiler.startSample();
         try {
             return evaluateExpressionsFlatten(Collections.singletonList(expression), evaluationContext).get(0);
         } finally {
+            if (sampleStartTime != ElementProfiler.NOT_SAMPLED) {
+                final Long processDefinitionId = evaluationContext != null
+                        ? evaluationContext.getProcessDefinitionId()
+                        : null;
+                elementProfiler.stopSample(ProfiledElementType.EXPRESSION,
+                        processDefinitionId != null ? processDefinitionId : ProfiledElement.NO_PROCESS_DEFINITION,
+                        expression.getName(), sampleStartTime);
+            }
             if (timeTracker.isTrackable(TimeTrackerRecords.EVALUATE_EXPRESSION_INCLUDING_CONTEXT)) {
                 final long endTime = System.currentTimeMillis();
                 final StringBuilder desc = new StringBuilder();
@@ -117,36 +129,18 @@ public class ExpressionResolverServiceImpl implements ExpressionResolverService
 
             loadProcessClassLoader(newEvaluationContext);
 
-            final Map<SExpression, SExpression> dataReplacement = new HashMap<>();
-            // We incrementally build the Map of already resolved expressions:
-            final Map<Integer, Object> resolvedExpressions = new HashMap<>();
-            // Let's evaluate all expressions with no dependencies first:
-            resolvedExpressions.putAll(evaluateAllExpressionsWithNoDependencies(dependencyValues, dataReplacement,
-                    expressions, newEvaluationContext));
-
-            for (final SExpression sExpression : expressions) {
-                if (sExpression != null) {
-                    // Then evaluate recursively all remaining expressions:
-                    resolvedExpressions.putAll(evaluateExpressionWithResolvedDependencies(sExpression, dependencyValues,
-                            dataReplacement, resolvedExpressions,
-                            newEvaluationContext.getContainerState()));
-                }
-            }
-            final List<Object> results = new ArrayList<>(expressions.size());
-            for (final SExpression sExpression : expressions) {
-                if (sExpression != null) {
-                    final int key = sExpression.getDiscriminant();
-                    final Object res = resolvedExpressions.get(key);
-                    if (res == null && !resolvedExpressions.containsKey(key)) {
-                        throw new SExpressionEvaluationException("No result found for the expression " + sExpression,
-                                sExpression.getName());
-                    }
-                    results.add(res);
-                } else {
-                    results.add(null);
+            final ExpressionEvaluationPlan plan = getEvaluationPlan(expressions);
+            if (newEvaluationContext.isEvaluateInDefinition() && !plan.getVariableExpressions().isEmpty()) {
+                final SExpression expressionNotProvided = variablesAreAllProvided(plan.getVariableExpressions(),
+                        newEvaluationContext);
+                if (expressionNotProvided != null) {
+                    // We forbid the evaluation of expressions of type VARIABLE at process definition level:
+                    throw new SExpressionEvaluationException(
+                            "Evaluation of expressions of type VARIABLE is forbidden at process definition level.",
+                            expressionNotProvided.getName());
                 }
             }
-            return results;
+            return plan.evaluate(expressionService, dependencyValues, newEvaluationContext.getContainerState());
         } catch (final SProcessDefinitionNotFoundException | SBonitaReadException e) {
             throw buildSExpressionEvaluationExceptionWhenNotFindProcess(newEvaluationContext, e);
         } catch (final SClassLoaderException e) {
@@ -156,6 +150,24 @@ public class ExpressionResolverServiceImpl implements ExpressionResolverService
         }
     }
 
+    /**
+     * Expressions of process definitions are evaluated again and again: the plan is kept in the first expression of
+     * the list and is reused as long as the same expressions are evaluated together.
+     */
+    ExpressionEvaluationPlan getEvaluationPlan(final List<SExpression> expressions) {
+        final SExpression first = expressions.isEmpty() ? null : expressions.get(0);
+        if (!(first instanceof SExpressionImpl)) {
+            return ExpressionEvaluationPlan.compile(expressions);
+        }
+        final SExpressionImpl planHolder = (SExpressionImpl) first;
+        ExpressionEvaluationPlan plan = planHolder.getEvaluationPlan();
+        if (plan == null || !plan.isPlanOf(expressions)) {
+            plan = ExpressionEvaluationPlan.compile(expressions);
+            planHolder.setEvaluationPlan(plan);
+        }
+        return plan;
+    }
+
     private void loadProcessClassLoader(final SExpressionContext evaluationContext) throws SClassLoaderException {
         Long processId;
         if (evaluationContext.getParentProcessDefinitionId() != null) {
@@ -178,35 +190,6 @@ public class ExpressionResolverServiceImpl implements ExpressionResolverService
         return exception;
     }
 
-    private Map<Integer, Object> evaluateAllExpressionsWithNoDependencies(final Map<String, Object> dependencyValues,
-            final Map<SExpression, SExpression> dataReplacement, final List<SExpression> expressions,
-            final SExpressionContext evaluationContext)
-            throws SExpressionTypeUnknownException, SExpressionEvaluationException,
-            SExpressionDependencyMissingException, SInvalidExpressionException {
-        final Map<Integer, Object> resolvedExpressions = new HashMap<>();
-        final Map<ExpressionKind, List<SExpression>> expressionMapByKind = flattenDependencies(expressions);
-        final List<SExpression> variableExpressions = expressionMapByKind
-                .get(new ExpressionKind(ExpressionType.TYPE_VARIABLE.name()));
-
-        if (evaluationContext.isEvaluateInDefinition() && variableExpressions != null
-                && !variableExpressions.isEmpty()) {
-            final SExpression expressionNotProvided = variablesAreAllProvided(variableExpressions, evaluationContext);
-            if (expressionNotProvided != null) {
-                // We forbid the evaluation of expressions of type VARIABLE at process definition level:
-                throw new SExpressionEvaluationException(
-                        "Evaluation of expressions of type VARIABLE is forbidden at process definition level.",
-                        expressionNotProvided.getName());
-            }
-        }
-        for (final ExpressionKind kind : ExpressionExecutorStrategy.NO_DEPENDENCY_EXPRESSION_EVALUATION_ORDER) {
-            resolvedExpressions.putAll(evaluateExpressionsOfKind(dependencyValues, expressionMapByKind.get(kind), kind,
-                    dataReplacement, resolvedExpressions,
-                    evaluationContext.getContainerState()));
-            expressionMapByKind.remove(kind);
-        }
-        return resolvedExpressions;
-    }
-
     private SExpression variablesAreAllProvided(final List<SExpression> variableExpressions,
             final SExpressionContext evaluationContext) {
         final Iterator<SExpression> iterator = variableExpressions.iterator();
@@ -220,89 +203,6 @@ public class ExpressionResolverServiceImpl implements ExpressionResolverService
         return null;
     }
 
-    private Map<? extends Integer, ? extends Object> evaluateExpressionWithResolvedDependencies(
-            final SExpression sExpression,
-            final Map<String, Object> dependencyValues, final Map<SExpression, SExpression> dataReplacement,
-            final Map<Integer, Object> alreadyResolvedExpressions, final ContainerState containerState)
-            throws SExpressionTypeUnknownException,
-            SExpressionEvaluationException, SExpressionDependencyMissingException, SInvalidExpressionException {
-        final Map<Integer, Object> resolvedExpressions = new HashMap<>(alreadyResolvedExpressions);
-        // Evaluate the dependencies first:
-        for (final SExpression dep : sExpression.getDependencies()) {
-            resolvedExpressions.putAll(evaluateExpressionWithResolvedDependencies(dep, dependencyValues,
-                    dataReplacement, resolvedExpressions, containerState));
-        }
-        // Then evaluate the expression itself:
-        if (!resolvedExpressions.containsKey(sExpression.getDiscriminant())) {
-            // Let's evaluate the expression only if it is not already in the list of resolved dependencies:
-            final Object exprResult = expressionService.evaluate(sExpression, dependencyValues, resolvedExpressions,
-                    containerState);
-            addResultToMap(resolvedExpressions, dataReplacement, sExpression, exprResult, dependencyValues);
-        }
-        return resolvedExpressions;
-    }
-
-    private Map<Integer, Object> evaluateExpressionsOfKind(final Map<String, Object> dependencyValues,
-            final List<SExpression> expressionsOfKind,
-            final ExpressionKind kind, final Map<SExpression, SExpression> dataReplacement,
-            final Map<Integer, Object> alreadyResolvedExpressions,
-            final ContainerState containerState) throws SExpressionTypeUnknownException, SExpressionEvaluationException,
-            SExpressionDependencyMissingException, SInvalidExpressionException {
-        final Map<Integer, Object> resolvedExpressions = new HashMap<>();
-        if (expressionsOfKind != null) {
-            final List<Object> evaluationResults = expressionService.evaluate(kind, expressionsOfKind, dependencyValues,
-                    alreadyResolvedExpressions,
-                    containerState);
-            final Iterator<SExpression> variableIterator = expressionsOfKind.iterator();
-            for (final Object evaluationResult : evaluationResults) {
-                final SExpression expression = variableIterator.next();
-                addResultToMap(resolvedExpressions, dataReplacement, expression, evaluationResult, dependencyValues);
-            }
-        }
-        return resolvedExpressions;
-    }
-
-    private void addResultToMap(final Map<Integer, Object> resolvedExpressions,
-            final Map<SExpression, SExpression> dataReplacement,
-            final SExpression expression, final Object expressionResult, final Map<String, Object> dependencyValues) {
-        resolvedExpressions.put(expression.getDiscriminant(), expressionResult);
-        if (expressionService.mustPutEvaluatedExpressionInContext(expression.getExpressionKind())) {
-            dependencyValues.put(expression.getContent(), expressionResult);
-        }
-        final SExpression replacement = dataReplacement.get(expression);
-        if (replacement != null) {
-            resolvedExpressions.put(replacement.getDiscriminant(), expressionResult);
-            if (expressionService.mustPutEvaluatedExpressionInContext(expression.getExpressionKind())) {
-                dependencyValues.put(replacement.getContent(), expressionResult);
-            }
-        }
-    }
-
-    private Map<ExpressionKind, List<SExpression>> flattenDependencies(final Collection<SExpression> collection) {
-        final Map<ExpressionKind, List<SExpression>> expressionMapByKind = new HashMap<>();
-        for (final SExpression sExpression : collection) {
-            if (sExpression == null) {
-                continue;
-            }
-            final ExpressionKind expressionKind = sExpression.getExpressionKind();
-            // Get from the map the list of expressions of given ExpressionKind
-            List<SExpression> exprList = expressionMapByKind.get(expressionKind);
-
-            // If no present, put it in the map
-            if (exprList == null) {
-                exprList = new ArrayList<>();
-                expressionMapByKind.put(expressionKind, exprList);
-            }
-            if (!exprList.contains(sExpression)) {
-                exprList.add(sExpression);
-            }
-            if (sExpression.getDependencies() != null) {
-                expressionMapByKind.putAll(flattenDependencies(sExpression.getDependencies()));
-            }
-        }
-        return expressionMapByKind;
-    }
-
     private void fillContext(final SExpressionContext evaluationContext, final Map<String, Object> dependencyValues)
             throws SProcessDefinitionNotFoundException, SBonitaReadException {
         if (evaluationContext.getContainerId() == null && evaluationContext.getProcessDefinitionId() != null) {
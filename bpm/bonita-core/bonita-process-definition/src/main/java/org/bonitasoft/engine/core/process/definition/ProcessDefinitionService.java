@@ -19,6 +19,7 @@ import java.util.Map;
 import org.bonitasoft.engine.bpm.process.ActivationState;
 import org.bonitasoft.engine.bpm.process.DesignProcessDefinition;
 import org.bonitasoft.engine.bpm.process.ProcessDeploymentInfoCriterion;
+import org.bonitasoft.engine.cache.SCacheException;
 import org.bonitasoft.engine.commons.exceptions.SObjectModificationException;
 import org.bonitasoft.engine.core.process.definition.exception.SDeletingEnabledProcessException;
 import org.bonitasoft.engine.core.process.definition.exception.SProcessDefinitionException;
@@ -114,6 +115,17 @@ public interface ProcessDefinitionService {
     SProcessDefinition getProcessDefinitionIfIsEnabled(long processDefinitionId)
             throws SBonitaReadException, SProcessDefinitionException;
 
+    /**
+     * Remove the process definition from the cache of this node, it will be read again from the database the next
+     * time it is used.
+     *
+     * @param processDefinitionId
+     *        The identifier of processDefinition
+     * @throws SCacheException
+     * @since 7.16
+     */
+    void evictProcessDefinitionFromCache(long processDefinitionId) throws SCacheException;
+
     /**
      * Get deployment info of the process definition having the id given in parameter
      *
@@ -21,6 +21,10 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.transaction.Status;
 
 import org.bonitasoft.engine.bpm.bar.ProcessDefinitionBARContribution;
 import org.bonitasoft.engine.bpm.process.ActivationState;
@@ -76,9 +80,21 @@ import org.bonitasoft.engine.recorder.model.DeleteRecord;
 import org.bonitasoft.engine.recorder.model.EntityUpdateDescriptor;
 import org.bonitasoft.engine.recorder.model.InsertRecord;
 import org.bonitasoft.engine.recorder.model.UpdateRecord;
+import org.bonitasoft.engine.service.BroadcastService;
 import org.bonitasoft.engine.services.QueriableLoggerService;
 import org.bonitasoft.engine.session.SessionService;
 import org.bonitasoft.engine.sessionaccessor.ReadSessionAccessor;
+import org.bonitasoft.engine.tracking.profiling.ElementProfiler;
+import org.bonitasoft.engine.transaction.BonitaTransactionSynchronization;
+import org.bonitasoft.engine.transaction.STransactionNotFoundException;
+import org.bonitasoft.engine.transaction.UserTransactionService;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
 
 /**
  * @author Baptiste Mesta
@@ -89,27 +105,78 @@ import org.bonitasoft.engine.sessionaccessor.ReadSessionAccessor;
  * @author Celine Souchet
  * @author Arthur Freycon
  */
+@Slf4j
 public class ProcessDefinitionServiceImpl implements ProcessDefinitionService {
 
+    public static final String PROCESS_DEFINITION_CACHE_HIT = "bonita.bpmengine.processdefinition.cache.hit";
+    public static final String PROCESS_DEFINITION_CACHE_MISS = "bonita.bpmengine.processdefinition.cache.miss";
+    public static final String PROCESS_DEFINITION_CACHE_LOAD_DURATION = "bonita.bpmengine.processdefinition.cache.load.duration";
+
     private final Recorder recorder;
     private final ReadPersistenceService persistenceService;
     private final SessionService sessionService;
     private final ReadSessionAccessor sessionAccessor;
     private final QueriableLoggerService queriableLoggerService;
     private final CacheService cacheService;
+    private final Long tenantId;
     protected ProcessDefinitionBARContribution processDefinitionBARContribution;
+    private UserTransactionService userTransactionService;
+    private BroadcastService broadcastService;
+    private ElementProfiler elementProfiler;
+    /*
+     * Incremented each time a process definition is evicted from the cache: a definition read from the database is
+     * only put in the cache if no eviction happened during its read, otherwise it could be a version read just before
+     * the eviction that would stay in the cache forever.
+     */
+    private final AtomicLong cacheVersion = new AtomicLong();
+    private final Counter cacheHitCounter;
+    private final Counter cacheMissCounter;
+    private final Timer cacheLoadTimer;
 
     public ProcessDefinitionServiceImpl(final Recorder recorder, final ReadPersistenceService persistenceService,
             final SessionService sessionService,
             final ReadSessionAccessor sessionAccessor, final QueriableLoggerService queriableLoggerService,
-            CacheService cacheService) {
+            CacheService cacheService, MeterRegistry meterRegistry, Long tenantId) {
         this.recorder = recorder;
         this.persistenceService = persistenceService;
         this.sessionService = sessionService;
         this.sessionAccessor = sessionAccessor;
         this.queriableLoggerService = queriableLoggerService;
         this.cacheService = cacheService;
+        this.tenantId = tenantId;
         processDefinitionBARContribution = new ProcessDefinitionBARContribution();
+        cacheHitCounter = Counter.builder(PROCESS_DEFINITION_CACHE_HIT)
+                .tags(Tags.of("tenant", String.valueOf(tenantId)))
+                .baseUnit("process definitions")
+                .description("Process definitions served from the cache")
+                .register(meterRegistry);
+        cacheMissCounter = Counter.builder(PROCESS_DEFINITION_CACHE_MISS)
+                .tags(Tags.of("tenant", String.valueOf(tenantId)))
+                .baseUnit("process definitions")
+                .description("Process definitions not found in the cache and read from the database")
+                .register(meterRegistry);
+        cacheLoadTimer = Timer.builder(PROCESS_DEFINITION_CACHE_LOAD_DURATION)
+                .tags(Tags.of("tenant", String.valueOf(tenantId)))
+                .description("Time to read and convert a process definition not found in the cache")
+                .register(meterRegistry);
+    }
+
+    @Autowired(required = false)
+    public void setUserTransactionService(UserTransactionService userTransactionService) {
+        this.userTransactionService = userTransactionService;
+    }
+
+    /**
+     * Used to evict modified or deleted process definitions from the cache of the other nodes of a cluster.
+     */
+    @Autowired(required = false)
+    public void setBroadcastService(BroadcastService broadcastService) {
+        this.broadcastService = broadcastService;
+    }
+
+    @Autowired(required = false)
+    public void setElementProfiler(ElementProfiler elementProfiler) {
+        this.elementProfiler = elementProfiler;
     }
 
     @Override
@@ -130,8 +197,12 @@ public class ProcessDefinitionServiceImpl implements ProcessDefinitionService {
 
         try {
             recorder.recordDelete(new DeleteRecord(processDefinitionDeployInfo), PROCESSDEFINITION);
+            evictFromCacheOfAllNodes(processId);
+            if (elementProfiler != null) {
+                elementProfiler.removeProcessDefinition(processId);
+            }
             log(processId, SQueriableLog.STATUS_OK, logBuilder, "delete");
-        } catch (final SRecorderException e) {
+        } catch (final SRecorderException | SCacheException e) {
             log(processId, SQueriableLog.STATUS_FAIL, logBuilder, "delete");
             throw new SProcessDeletionException(e, processDefinitionDeployInfo);
         }
@@ -250,36 +321,81 @@ public class ProcessDefinitionServiceImpl implements ProcessDefinitionService {
     public SProcessDefinition getProcessDefinition(final long processId)
             throws SProcessDefinitionNotFoundException, SBonitaReadException {
         try {
-            //get from database
-            final SProcessDefinitionDeployInfo processDeploymentInfo = getProcessDeploymentInfo(processId);
-            //get from cache
+            // the cache is kept up to date by evictions when the design of a process changes or when it is deleted,
+            // cached definitions are returned without reading the deployment info from the database
             final Pair<Long, SProcessDefinition> processWithTimestamp = getSProcessDefinitionFromCache(processId);
-            //read SProcessDefinition if needed
-            if (isSProcessDefinitionUpToDate(processDeploymentInfo, processWithTimestamp)) {
-                return readSProcessDefinitionFromDatabase(processId, processDeploymentInfo);
-            } else {
+            if (processWithTimestamp != null) {
+                cacheHitCounter.increment();
                 return processWithTimestamp.getValue();
             }
+            cacheMissCounter.increment();
+            final long startTime = System.nanoTime();
+            try {
+                final long versionBeforeRead = cacheVersion.get();
+                return readSProcessDefinitionFromDatabase(processId, getProcessDeploymentInfo(processId),
+                        versionBeforeRead);
+            } finally {
+                cacheLoadTimer.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+            }
         } catch (IOException | SReflectException | SCacheException e) {
             throw new SBonitaReadException(e);
         }
     }
 
     SProcessDefinition readSProcessDefinitionFromDatabase(long processId,
-            SProcessDefinitionDeployInfo processDeploymentInfo) throws IOException, SReflectException, SCacheException {
+            SProcessDefinitionDeployInfo processDeploymentInfo, long versionBeforeRead)
+            throws IOException, SReflectException, SCacheException {
         final DesignProcessDefinition objectFromXML = processDefinitionBARContribution
                 .convertXmlToProcess(processDeploymentInfo.getDesignContent()
                         .getContent());
         SProcessDefinition sProcessDefinition = convertDesignProcessDefinition(objectFromXML);
         setIdOnProcessDefinition(sProcessDefinition, processId);
-        storeProcessDefinitionInCache(sProcessDefinition, processDeploymentInfo.getLastUpdateDate());
+        if (cacheVersion.get() == versionBeforeRead) {
+            storeProcessDefinitionInCache(sProcessDefinition, processDeploymentInfo.getLastUpdateDate());
+        }
         return sProcessDefinition;
     }
 
-    boolean isSProcessDefinitionUpToDate(SProcessDefinitionDeployInfo processDeploymentInfo,
-            Pair<Long, SProcessDefinition> processWithTimestamp) {
-        return processWithTimestamp == null
-                || processWithTimestamp.getKey() != processDeploymentInfo.getLastUpdateDate();
+    @Override
+    public void evictProcessDefinitionFromCache(long processDefinitionId) throws SCacheException {
+        cacheVersion.incrementAndGet();
+        cacheService.remove(PROCESS_CACHE_NAME, processDefinitionId);
+    }
+
+    /**
+     * Evict the process definition from the cache now, so that the current transaction reads its new version, and
+     * again once the transaction is completed, on all nodes if it was committed.
+     * The definition might indeed have been put back in the cache by the current transaction with a content that
+     * was rolled back, or by other transactions that read it before the commit.
+     */
+    void evictFromCacheOfAllNodes(long processId) throws SCacheException {
+        evictProcessDefinitionFromCache(processId);
+        if (userTransactionService == null || !userTransactionService.isTransactionActive()) {
+            evictFromCacheOfOtherNodes(processId);
+            return;
+        }
+        try {
+            userTransactionService.registerBonitaSynchronization((BonitaTransactionSynchronization) txState -> {
+                try {
+                    evictProcessDefinitionFromCache(processId);
+                } catch (SCacheException e) {
+                    log.warn("Unable to evict process definition {} from the cache", processId, e);
+                }
+                if (txState == Status.STATUS_COMMITTED) {
+                    evictFromCacheOfOtherNodes(processId);
+                }
+            });
+        } catch (STransactionNotFoundException e) {
+            evictFromCacheOfOtherNodes(processId);
+        }
+    }
+
+    private void evictFromCacheOfOtherNodes(long processId) {
+        if (broadcastService == null) {
+            return;
+        }
+        // we do not wait for other nodes: the definition is evicted asynchronously from their cache
+        broadcastService.executeOnOthers(new EvictProcessDefinitionFromCacheTask(processId), tenantId);
     }
 
     @SuppressWarnings("unchecked")
@@ -584,7 +700,9 @@ public class ProcessDefinitionServiceImpl implements ProcessDefinitionService {
             String eventType)
             throws SRecorderException, SCacheException {
         recorder.recordUpdate(updateRecord, eventType);
-        if (!updateRecord.getFields().containsKey(SProcessDefinitionDeployInfo.DESIGN_CONTENT)) {
+        if (updateRecord.getFields().containsKey(SProcessDefinitionDeployInfo.DESIGN_CONTENT)) {
+            evictFromCacheOfAllNodes(processId);
+        } else {
             updateSProcessDefinitionTimestampInCache(processId, processDefinitionDeployInfo);
         }
     }
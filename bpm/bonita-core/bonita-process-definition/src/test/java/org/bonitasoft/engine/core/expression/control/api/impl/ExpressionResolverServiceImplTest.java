@@ -13,8 +13,13 @@
  **/
 package org.bonitasoft.engine.core.expression.control.api.impl;
 
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.bonitasoft.engine.classloader.ClassLoaderIdentifier.identifier;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 
@@ -22,9 +27,13 @@ import org.bonitasoft.engine.classloader.ClassLoaderService;
 import org.bonitasoft.engine.core.expression.control.model.SExpressionContext;
 import org.bonitasoft.engine.core.process.definition.ProcessDefinitionService;
 import org.bonitasoft.engine.dependency.model.ScopeType;
+import org.bonitasoft.engine.expression.ExpressionEvaluationPlan;
 import org.bonitasoft.engine.expression.ExpressionService;
 import org.bonitasoft.engine.expression.model.SExpression;
+import org.bonitasoft.engine.expression.model.impl.SExpressionImpl;
 import org.bonitasoft.engine.tracking.TimeTracker;
+import org.bonitasoft.engine.tracking.profiling.ElementProfiler;
+import org.bonitasoft.engine.tracking.profiling.ProfiledElementType;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
@@ -46,6 +55,9 @@ public class ExpressionResolverServiceImplTest {
     @Mock
     private TimeTracker timeTracker;
 
+    @Mock
+    private ElementProfiler elementProfiler;
+
     @InjectMocks
     private ExpressionResolverServiceImpl resolverService;
 
@@ -84,4 +96,34 @@ public class ExpressionResolverServiceImplTest {
         verify(classLoaderService, never()).getClassLoader(any());
     }
 
+    @Test
+    public void evaluate_should_profile_expression_of_process_definition() throws Exception {
+        final SExpressionContext context = new SExpressionContext(45L, "PROCESS", 83L);
+        doReturn(1000L).when(elementProfiler).startSample();
+        doReturn("myExpression").when(expression).getName();
+
+        resolverService.evaluate(expression, context);
+
+        verify(elementProfiler).stopSample(ProfiledElementType.EXPRESSION, 83L, "myExpression", 1000L);
+    }
+
+    @Test
+    public void evaluate_should_not_profile_expression_when_not_sampled() throws Exception {
+        doReturn(ElementProfiler.NOT_SAMPLED).when(elementProfiler).startSample();
+
+        resolverService.evaluate(expression, new SExpressionContext());
+
+        verify(elementProfiler, never()).stopSample(any(), anyLong(), any(), anyLong());
+    }
+
+    @Test
+    public void should_reuse_the_evaluation_plan_of_the_same_expressions() {
+        final SExpressionImpl expression = new SExpressionImpl("name", "content", SExpression.TYPE_CONSTANT,
+                String.class.getName(), null, null);
+        final ExpressionEvaluationPlan plan = resolverService.getEvaluationPlan(singletonList(expression));
+
+        assertThat(resolverService.getEvaluationPlan(singletonList(expression))).isSameAs(plan);
+        assertThat(resolverService.getEvaluationPlan(asList(expression, this.expression))).isNotSameAs(plan);
+    }
+
 }
@@ -27,6 +27,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import javax.transaction.Status;
+
 import org.bonitasoft.engine.bpm.bar.ProcessDefinitionBARContribution;
 import org.bonitasoft.engine.bpm.process.ActivationState;
 import org.bonitasoft.engine.bpm.process.DesignProcessDefinition;
@@ -60,9 +62,13 @@ import org.bonitasoft.engine.recorder.Recorder;
 import org.bonitasoft.engine.recorder.SRecorderException;
 import org.bonitasoft.engine.recorder.model.EntityUpdateDescriptor;
 import org.bonitasoft.engine.recorder.model.UpdateRecord;
+import org.bonitasoft.engine.service.BroadcastService;
 import org.bonitasoft.engine.services.QueriableLoggerService;
 import org.bonitasoft.engine.session.SessionService;
 import org.bonitasoft.engine.sessionaccessor.ReadSessionAccessor;
+import org.bonitasoft.engine.tracking.profiling.ElementProfiler;
+import org.bonitasoft.engine.transaction.BonitaTransactionSynchronization;
+import org.bonitasoft.engine.transaction.UserTransactionService;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -73,6 +79,9 @@ import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 /**
  * @author Celine Souchet
  * @author Emmanuel Duchastenier
@@ -97,6 +106,12 @@ public class ProcessDefinitionServiceImplTest {
     private SessionService sessionService;
     @Mock
     private ProcessDefinitionBARContribution processDefinitionBARContribution;
+    @Mock
+    private UserTransactionService userTransactionService;
+    @Mock
+    private BroadcastService broadcastService;
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
     @InjectMocks
     @Spy
     private ProcessDefinitionServiceImpl processDefinitionServiceImpl;
@@ -390,6 +405,9 @@ public class ProcessDefinitionServiceImplTest {
 
         assertThat(processDefinition).as("returned process definition from cache").isEqualTo(sProcessDefinition);
         verify(cacheService, times(0)).store(anyString(), any(Serializable.class), any());
+        verify(processDefinitionServiceImpl, never()).getProcessDeploymentInfo(PROCESS_ID);
+        assertThat(meterRegistry.find(ProcessDefinitionServiceImpl.PROCESS_DEFINITION_CACHE_HIT).counter().count())
+                .isEqualTo(1);
     }
 
     @Test
@@ -403,21 +421,66 @@ public class ProcessDefinitionServiceImplTest {
 
         assertThat(processDefinition).as("returned process definition from database").isEqualTo(sProcessDefinition);
         verify(cacheService, times(1)).store(anyString(), any(Serializable.class), any());
+        assertThat(meterRegistry.find(ProcessDefinitionServiceImpl.PROCESS_DEFINITION_CACHE_MISS).counter().count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.find(ProcessDefinitionServiceImpl.PROCESS_DEFINITION_CACHE_LOAD_DURATION).timer()
+                .count()).isEqualTo(1);
     }
 
     @Test
-    public void getProcessDefinition_from_database_when_cache_is_outdated() throws Exception {
-        sProcessDefinitionDeployInfo.setLastUpdateDate(5478L);
-        final SProcessDefinitionImpl processDefinitionB = new SProcessDefinitionImpl("a", "b");
-        final SProcessDefinitionImpl processDefinitionC = new SProcessDefinitionImpl("a", "c");
-        doReturn(new Pair<Long, SProcessDefinition>(5477L, processDefinitionB)).when(processDefinitionServiceImpl)
-                .getSProcessDefinitionFromCache(PROCESS_ID);
-        doReturn(processDefinitionC).when(processDefinitionServiceImpl)
-                .convertDesignProcessDefinition(designProcessDefinition);
+    public void getProcessDefinition_should_not_cache_definition_read_while_it_was_evicted() throws Exception {
+        final SProcessDefinitionImpl sProcessDefinition = new SProcessDefinitionImpl("a", "b");
+        doAnswer(invocation -> {
+            // the design content is updated by an other transaction while the definition is read
+            processDefinitionServiceImpl.evictProcessDefinitionFromCache(PROCESS_ID);
+            return sProcessDefinition;
+        }).when(processDefinitionServiceImpl).convertDesignProcessDefinition(designProcessDefinition);
+
         final SProcessDefinition processDefinition = processDefinitionServiceImpl.getProcessDefinition(PROCESS_ID);
 
-        assertThat(processDefinition).as("returned process definition from cache").isEqualTo(processDefinitionC);
-        verify(cacheService, times(1)).store(anyString(), any(Serializable.class), any());
+        assertThat(processDefinition).isEqualTo(sProcessDefinition);
+        verify(cacheService, never()).store(anyString(), any(Serializable.class), any());
+    }
+
+    @Test
+    public void updating_the_design_content_should_evict_the_definition_from_cache_of_all_nodes() throws Exception {
+        doReturn(true).when(userTransactionService).isTransactionActive();
+        final EntityUpdateDescriptor updateDescriptor = BuilderFactory
+                .get(SProcessDefinitionDeployInfoUpdateBuilderFactory.class)
+                .createNewInstance().updateDesignContent("new content").done();
+
+        processDefinitionServiceImpl.updateProcessDefinitionDeployInfo(PROCESS_ID, updateDescriptor);
+
+        verify(cacheService).remove(ProcessDefinitionService.PROCESS_CACHE_NAME, PROCESS_ID);
+        verify(broadcastService, never()).executeOnOthers(any(), any());
+        final ArgumentCaptor<BonitaTransactionSynchronization> synchronization = ArgumentCaptor
+                .forClass(BonitaTransactionSynchronization.class);
+        verify(userTransactionService).registerBonitaSynchronization(synchronization.capture());
+        synchronization.getValue().afterCompletion(Status.STATUS_COMMITTED);
+        verify(cacheService, times(2)).remove(ProcessDefinitionService.PROCESS_CACHE_NAME, PROCESS_ID);
+        verify(broadcastService).executeOnOthers(any(EvictProcessDefinitionFromCacheTask.class), any());
+    }
+
+    @Test
+    public void deleting_a_process_definition_should_remove_its_elements_from_the_profiler() throws Exception {
+        final ElementProfiler elementProfiler = mock(ElementProfiler.class);
+        processDefinitionServiceImpl.setElementProfiler(elementProfiler);
+
+        processDefinitionServiceImpl.delete(PROCESS_ID);
+
+        verify(elementProfiler).removeProcessDefinition(PROCESS_ID);
+    }
+
+    @Test
+    public void updating_the_display_name_should_keep_the_definition_in_cache() throws Exception {
+        final EntityUpdateDescriptor updateDescriptor = BuilderFactory
+                .get(SProcessDefinitionDeployInfoUpdateBuilderFactory.class)
+                .createNewInstance().updateDisplayName("new name").done();
+
+        processDefinitionServiceImpl.updateProcessDefinitionDeployInfo(PROCESS_ID, updateDescriptor);
+
+        verify(cacheService, never()).remove(anyString(), any());
+        verifyNoInteractions(broadcastService);
     }
 
     /**
@@ -33,8 +33,8 @@ public class EngineConfiguration {
 
     @Bean("platformEventService")
     @ConditionalOnMissingBean(name = "platformEventService")
-    EventService platformEventService() {
-        return new EventServiceImpl();
+    EventService platformEventService(MeterRegistry meterRegistry) {
+        return new EventServiceImpl(meterRegistry);
     }
 
     @Bean
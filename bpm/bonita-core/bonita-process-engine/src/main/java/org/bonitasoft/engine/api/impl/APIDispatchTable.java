@@ -0,0 +1,173 @@
+/**
+ * Copyright (C) 2019 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.api.impl;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.bonitasoft.engine.api.NoSessionRequired;
+import org.bonitasoft.engine.commons.ClassReflector;
+
+/**
+ * Resolves the methods called by {@link ServerAPIImpl}, so that a call only costs a map lookup instead of loading the
+ * API interface, looking up the method and reading its annotations.
+ * <p>
+ * The table of an API implementation is built with all methods of its API interface the first time that API is called.
+ * It is shared by all {@link ServerAPIImpl} instances.
+ */
+final class APIDispatchTable {
+
+    private final Map<String, Class<?>> apiInterfaces = new ConcurrentHashMap<>();
+    private final Map<Class<?>, APIImplementation> implementations = new ConcurrentHashMap<>();
+
+    Class<?> getAPIInterface(String apiInterfaceName) throws ClassNotFoundException {
+        Class<?> apiInterface = apiInterfaces.get(apiInterfaceName);
+        if (apiInterface == null) {
+            apiInterface = Class.forName(apiInterfaceName);
+            apiInterfaces.put(apiInterfaceName, apiInterface);
+        }
+        return apiInterface;
+    }
+
+    APIImplementation getImplementation(Class<?> apiInterface, Object apiImpl) {
+        APIImplementation implementation = implementations.get(apiInterface);
+        // the implementation of an API can change, e.g. when it is mocked
+        if (implementation == null || implementation.implementationClass != apiImpl.getClass()) {
+            implementation = new APIImplementation(apiInterface, apiImpl.getClass());
+            implementations.put(apiInterface, implementation);
+        }
+        return implementation;
+    }
+
+    static final class APIImplementation {
+
+        private final Class<?> apiInterface;
+        private final Class<?> implementationClass;
+        private final boolean sessionRequired;
+        private final Map<MethodSignature, APIMethod> methods = new ConcurrentHashMap<>();
+
+        private APIImplementation(Class<?> apiInterface, Class<?> implementationClass) {
+            this.apiInterface = apiInterface;
+            this.implementationClass = implementationClass;
+            this.sessionRequired = isSessionRequired(implementationClass);
+            for (Method interfaceMethod : apiInterface.getMethods()) {
+                try {
+                    Method method = ClassReflector.getMethod(implementationClass, interfaceMethod.getName(),
+                            interfaceMethod.getParameterTypes());
+                    methods.put(new MethodSignature(interfaceMethod),
+                            new APIMethod(apiInterface, implementationClass, method));
+                } catch (NoSuchMethodException e) {
+                    // not called through this implementation
+                }
+            }
+        }
+
+        private static boolean isSessionRequired(Class<?> implementationClass) {
+            //require a session if "NoSessionRequired" is not present
+            for (Class<?> anInterface : implementationClass.getInterfaces()) {
+                if (anInterface.isAnnotationPresent(NoSessionRequired.class)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        boolean isSessionRequired() {
+            return sessionRequired;
+        }
+
+        APIMethod getMethod(String methodName, List<String> classNameParameters)
+                throws ClassNotFoundException, NoSuchMethodException {
+            MethodSignature signature = new MethodSignature(methodName, classNameParameters);
+            APIMethod apiMethod = methods.get(signature);
+            if (apiMethod == null) {
+                // not a method of the API interface: resolve it on the implementation, as it used to be
+                Method method = ClassReflector.getMethod(implementationClass, methodName,
+                        getParameterTypes(classNameParameters));
+                apiMethod = new APIMethod(apiInterface, implementationClass, method);
+                methods.put(new MethodSignature(methodName, classNameParameters == null ? null
+                        : new ArrayList<>(classNameParameters)), apiMethod);
+            }
+            return apiMethod;
+        }
+
+        private static Class<?>[] getParameterTypes(final List<String> classNameParameters)
+                throws ClassNotFoundException {
+            Class<?>[] parameterTypes = null;
+            if (classNameParameters != null && !classNameParameters.isEmpty()) {
+                parameterTypes = new Class<?>[classNameParameters.size()];
+                for (int i = 0; i < parameterTypes.length; i++) {
+                    final String className = classNameParameters.get(i);
+                    Class<?> classType;
+                    if ("int".equals(className)) {
+                        classType = int.class;
+                    } else if ("long".equals(className)) {
+                        classType = long.class;
+                    } else if ("boolean".equals(className)) {
+                        classType = boolean.class;
+                    } else {
+                        classType = Class.forName(className);
+                    }
+                    parameterTypes[i] = classType;
+                }
+            }
+            return parameterTypes;
+        }
+    }
+
+    private static final class MethodSignature {
+
+        private final String name;
+        private final List<String> parameterTypes;
+        private final int hash;
+
+        private MethodSignature(Method method) {
+            this(method.getName(), parameterTypeNames(method));
+        }
+
+        private MethodSignature(String name, List<String> parameterTypes) {
+            this.name = name;
+            this.parameterTypes = parameterTypes == null ? Collections.emptyList() : parameterTypes;
+            this.hash = 31 * name.hashCode() + this.parameterTypes.hashCode();
+        }
+
+        private static List<String> parameterTypeNames(Method method) {
+            List<String> names = new ArrayList<>(method.getParameterCount());
+            for (Class<?> parameterType : method.getParameterTypes()) {
+                names.add(parameterType.getName());
+            }
+            return names;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (o == null || getClass() != o.getClass())
+                return false;
+            MethodSignature that = (MethodSignature) o;
+            return hash == that.hash && name.equals(that.name) && parameterTypes.equals(that.parameterTypes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+}
@@ -0,0 +1,167 @@
+/**
+ * Copyright (C) 2019 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.api.impl;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.bonitasoft.engine.api.NoSessionRequired;
+import org.bonitasoft.engine.api.impl.transaction.CustomTransactions;
+
+/**
+ * A method of an API implementation, with everything {@link ServerAPIImpl} needs to call it: the annotations that
+ * drive the call are read once, and the method is invoked through a {@link MethodHandle}.
+ */
+public final class APIMethod {
+
+    static final String CALL_DURATION = "bonita.bpmengine.api.call.duration";
+
+    private static final Object[] NO_PARAMETERS = new Object[0];
+
+    private final String apiInterfaceName;
+    private final String apiInterfaceSimpleName;
+    private final Method method;
+    private final MethodHandle methodHandle;
+    private final boolean outsideTransaction;
+    private final boolean deprecated;
+    private final boolean availableOnRunningTenant;
+    private final boolean availableOnPausedTenant;
+    private final boolean availableWhenPlatformIsStopped;
+    private volatile RegisteredTimer timer;
+
+    /**
+     * @param apiInterface the API interface the method is called on
+     * @param implementationClass the class of the API implementation
+     * @param method the method of the implementation
+     */
+    APIMethod(Class<?> apiInterface, Class<?> implementationClass, Method method) {
+        this.apiInterfaceName = apiInterface.getName();
+        this.apiInterfaceSimpleName = apiInterface.getSimpleName();
+        this.method = method;
+        this.methodHandle = toMethodHandle(method);
+        // No session required means that there is no transaction
+        this.outsideTransaction = method.isAnnotationPresent(CustomTransactions.class)
+                || apiInterface.isAnnotationPresent(NoSessionRequired.class);
+        this.deprecated = method.isAnnotationPresent(Deprecated.class);
+        AvailableWhenTenantIsPaused availableWhenTenantIsPaused = method
+                .getAnnotation(AvailableWhenTenantIsPaused.class);
+        if (availableWhenTenantIsPaused == null) {
+            availableWhenTenantIsPaused = implementationClass.getAnnotation(AvailableWhenTenantIsPaused.class);
+        }
+        this.availableOnPausedTenant = availableWhenTenantIsPaused != null;
+        this.availableOnRunningTenant = availableWhenTenantIsPaused == null
+                || !availableWhenTenantIsPaused.onlyAvailableWhenPaused();
+        this.availableWhenPlatformIsStopped = method.isAnnotationPresent(AvailableOnStoppedNode.class);
+    }
+
+    /**
+     * @return a handle taking the API implementation and the array of parameters, or null if the method is not
+     *         accessible from here, in which case it is called using reflection
+     */
+    private static MethodHandle toMethodHandle(Method method) {
+        try {
+            int parameterCount = method.getParameterCount();
+            return MethodHandles.lookup().unreflect(method)
+                    .asType(MethodType.genericMethodType(parameterCount + 1))
+                    .asSpreader(Object[].class, parameterCount);
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    Object invoke(Object apiImpl, Object[] parametersValues) throws Throwable {
+        if (methodHandle == null) {
+            try {
+                return method.invoke(apiImpl, parametersValues);
+            } catch (final InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+        Object[] parameters = parametersValues == null ? NO_PARAMETERS : parametersValues;
+        return (Object) methodHandle.invokeExact(apiImpl, parameters);
+    }
+
+    /**
+     * @param durationInNanos duration of the call, including its transaction
+     */
+    void recordCall(MeterRegistry meterRegistry, long durationInNanos) {
+        if (meterRegistry != null) {
+            getTimer(meterRegistry).record(durationInNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Timer getTimer(MeterRegistry meterRegistry) {
+        RegisteredTimer registeredTimer = timer;
+        // the registry changes when the platform is restarted
+        if (registeredTimer == null || registeredTimer.meterRegistry != meterRegistry) {
+            registeredTimer = new RegisteredTimer(meterRegistry, Timer.builder(CALL_DURATION)
+                    .tag("api", apiInterfaceSimpleName)
+                    .tag("method", method.getName())
+                    .description("Duration of API calls, including the transaction")
+                    .register(meterRegistry));
+            timer = registeredTimer;
+        }
+        return registeredTimer.timer;
+    }
+
+    public String getApiInterfaceName() {
+        return apiInterfaceName;
+    }
+
+    public String getName() {
+        return method.getName();
+    }
+
+    public String getDeclaringClassName() {
+        return method.getDeclaringClass().getName();
+    }
+
+    public boolean isOutsideTransaction() {
+        return outsideTransaction;
+    }
+
+    public boolean isDeprecated() {
+        return deprecated;
+    }
+
+    public boolean isAvailableOnRunningTenant() {
+        return availableOnRunningTenant;
+    }
+
+    public boolean isAvailableOnPausedTenant() {
+        return availableOnPausedTenant;
+    }
+
+    public boolean isAvailableWhenPlatformIsStopped() {
+        return availableWhenPlatformIsStopped;
+    }
+
+    private static final class RegisteredTimer {
+
+        private final MeterRegistry meterRegistry;
+        private final Timer timer;
+
+        private RegisteredTimer(MeterRegistry meterRegistry, Timer timer) {
+            this.meterRegistry = meterRegistry;
+            this.timer = timer;
+        }
+    }
+
+}
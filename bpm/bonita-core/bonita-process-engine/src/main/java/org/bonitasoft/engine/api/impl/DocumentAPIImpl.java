@@ -264,6 +264,27 @@ public class DocumentAPIImpl implements DocumentAPI {
         }
     }
 
+    @Override
+    public long getDocumentContentSize(final String documentStorageId) throws DocumentNotFoundException {
+        final DocumentService documentService = getTenantAccessor().getDocumentService();
+        try {
+            return documentService.getDocumentContentSize(documentStorageId);
+        } catch (final SObjectNotFoundException sbe) {
+            throw new DocumentNotFoundException(sbe);
+        }
+    }
+
+    @Override
+    public byte[] getDocumentContent(final String documentStorageId, final long offset, final int length)
+            throws DocumentNotFoundException {
+        final DocumentService documentService = getTenantAccessor().getDocumentService();
+        try {
+            return documentService.getDocumentContent(documentStorageId, offset, length);
+        } catch (final SObjectNotFoundException sbe) {
+            throw new DocumentNotFoundException(sbe);
+        }
+    }
+
     @Override
     public Document getLastDocument(final long processInstanceId, final String documentName)
             throws DocumentNotFoundException {
@@ -95,6 +95,7 @@ import org.bonitasoft.engine.api.impl.transaction.process.GetProcessDefinitionDe
 import org.bonitasoft.engine.api.impl.transaction.process.GetProcessDefinitionDeployInfosWithActorOnlyForRoles;
 import org.bonitasoft.engine.api.impl.transaction.process.GetProcessDefinitionDeployInfosWithActorOnlyForUser;
 import org.bonitasoft.engine.api.impl.transaction.process.GetProcessDefinitionDeployInfosWithActorOnlyForUsers;
+import org.bonitasoft.engine.api.impl.transaction.process.GroovyScriptsFinder;
 import org.bonitasoft.engine.api.impl.transaction.process.SetProcessInstanceState;
 import org.bonitasoft.engine.api.impl.transaction.process.UpdateProcessDeploymentInfo;
 import org.bonitasoft.engine.api.impl.transaction.task.AssignOrUnassignUserTask;
@@ -337,6 +338,7 @@ import org.bonitasoft.engine.expression.exception.SExpressionDependencyMissingEx
 import org.bonitasoft.engine.expression.exception.SExpressionEvaluationException;
 import org.bonitasoft.engine.expression.exception.SExpressionTypeUnknownException;
 import org.bonitasoft.engine.expression.exception.SInvalidExpressionException;
+import org.bonitasoft.engine.expression.impl.GroovyScriptExpressionExecutorCacheStrategy;
 import org.bonitasoft.engine.expression.model.SExpression;
 import org.bonitasoft.engine.form.FormMapping;
 import org.bonitasoft.engine.identity.IdentityService;
@@ -680,6 +682,25 @@ public class ProcessAPIImpl implements ProcessAPI {
         } catch (final Exception e) {
             throw new ProcessEnablementException(e);
         }
+        precompileGroovyScripts(tenantAccessor, processDefinitionService, processDefinitionId);
+    }
+
+    private void precompileGroovyScripts(TenantServiceAccessor tenantAccessor,
+            ProcessDefinitionService processDefinitionService, long processDefinitionId) {
+        try {
+            final GroovyScriptExpressionExecutorCacheStrategy groovyScriptStrategy = tenantAccessor
+                    .lookup("groovyScriptExpressionExecutorStrategy");
+            if (groovyScriptStrategy.isPrecompileOnEnable()) {
+                final DesignProcessDefinition designProcessDefinition = processDefinitionService
+                        .getDesignProcessDefinition(processDefinitionId);
+                groovyScriptStrategy.precompile(processDefinitionId,
+                        new GroovyScriptsFinder().findGroovyScripts(designProcessDefinition));
+            }
+        } catch (final Exception e) {
+            // scripts will be compiled when first evaluated
+            log.warn("Unable to precompile the Groovy scripts of process definition {}: {}", processDefinitionId,
+                    e.getMessage());
+        }
     }
 
     SSession getSession() {
@@ -4829,6 +4850,17 @@ public class ProcessAPIImpl implements ProcessAPI {
         return documentAPI.getDocumentContent(documentStorageId);
     }
 
+    @Override
+    public long getDocumentContentSize(final String documentStorageId) throws DocumentNotFoundException {
+        return documentAPI.getDocumentContentSize(documentStorageId);
+    }
+
+    @Override
+    public byte[] getDocumentContent(final String documentStorageId, final long offset, final int length)
+            throws DocumentNotFoundException {
+        return documentAPI.getDocumentContent(documentStorageId, offset, length);
+    }
+
     @Override
     public Document getLastDocument(final long processInstanceId, final String documentName)
             throws DocumentNotFoundException {
@@ -17,15 +17,13 @@ import static org.bonitasoft.engine.classloader.ClassLoaderIdentifier.identifier
 
 import java.io.IOException;
 import java.io.Serializable;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.lang.reflect.UndeclaredThrowableException;
 import java.text.MessageFormat;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.concurrent.Callable;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.bonitasoft.engine.api.NoSessionRequired;
 import org.bonitasoft.engine.api.PlatformAPI;
 import org.bonitasoft.engine.api.TenantAdministrationAPI;
@@ -35,7 +33,6 @@ import org.bonitasoft.engine.api.internal.ServerWrappedException;
 import org.bonitasoft.engine.classloader.ClassLoaderIdentifier;
 import org.bonitasoft.engine.classloader.ClassLoaderService;
 import org.bonitasoft.engine.classloader.SClassLoaderException;
-import org.bonitasoft.engine.commons.ClassReflector;
 import org.bonitasoft.engine.commons.exceptions.SBonitaException;
 import org.bonitasoft.engine.core.login.LoginService;
 import org.bonitasoft.engine.core.platform.login.PlatformLoginService;
@@ -90,6 +87,8 @@ public class ServerAPIImpl implements ServerAPI {
     private static final String SESSION = "session";
     private static final long serialVersionUID = -161775388604256321L;
 
+    private static final APIDispatchTable dispatchTable = new APIDispatchTable();
+
     private final APIAccessResolver accessResolver;
 
     private final boolean cleanSession;
@@ -129,11 +128,18 @@ public class ServerAPIImpl implements ServerAPI {
         SessionAccessor sessionAccessor = null;
         Session session = null;
         try {
-            final Object api = accessResolver.getAPIImplementation(Class.forName(apiInterfaceName));
+            final Class<?> apiInterface = dispatchTable.getAPIInterface(apiInterfaceName);
+            final Object api = accessResolver.getAPIImplementation(apiInterface);
+            final APIDispatchTable.APIImplementation apiImplementation = dispatchTable.getImplementation(apiInterface,
+                    api);
             try {
                 session = (Session) options.get(SESSION);
-                sessionAccessor = beforeInvokeMethod(session, api);
-                return invokeAPI(api, apiInterfaceName, methodName, classNameParameters, parametersValues, session);
+                final PlatformServiceAccessor platformServiceAccessor = getServiceAccessorFactoryInstance()
+                        .createPlatformServiceAccessor();
+                sessionAccessor = beforeInvokeMethod(platformServiceAccessor, session,
+                        apiImplementation.isSessionRequired());
+                return invokeAPI(api, apiImplementation.getMethod(methodName, classNameParameters), parametersValues,
+                        session, platformServiceAccessor.getMeterRegistry());
             } catch (final ServerAPIRuntimeException e) {
                 throw e.getCause();
             }
@@ -184,20 +190,18 @@ public class ServerAPIImpl implements ServerAPI {
         }
     }
 
-    private SessionAccessor beforeInvokeMethod(final Session session, final Object api)
+    private SessionAccessor beforeInvokeMethod(final PlatformServiceAccessor platformServiceAccessor,
+            final Session session, final boolean sessionRequired)
             throws BonitaHomeNotSetException,
             InstantiationException, IllegalAccessException, ClassNotFoundException, BonitaHomeConfigurationException,
             IOException,
             SBonitaException {
         SessionAccessor sessionAccessor = null;
 
-        final ServiceAccessorFactory serviceAccessorFactory = getServiceAccessorFactoryInstance();
-        final PlatformServiceAccessor platformServiceAccessor = serviceAccessorFactory.createPlatformServiceAccessor();
-
         ClassLoader serverClassLoader = null;
         if (session != null) {
             final SessionType sessionType = getSessionType(session);
-            sessionAccessor = serviceAccessorFactory.createSessionAccessor();
+            sessionAccessor = getServiceAccessorFactoryInstance().createSessionAccessor();
             switch (sessionType) {
                 case PLATFORM:
                     serverClassLoader = beforeInvokeMethodForPlatformSession(sessionAccessor, platformServiceAccessor,
@@ -212,7 +216,7 @@ public class ServerAPIImpl implements ServerAPI {
                 default:
                     throw new InvalidSessionException("Unknown session type: " + session.getClass().getName());
             }
-        } else if (needSession(api)) {
+        } else if (sessionRequired) {
             throw new InvalidSessionException("Session is null!");
         }
         if (serverClassLoader != null) {
@@ -221,17 +225,6 @@ public class ServerAPIImpl implements ServerAPI {
         return sessionAccessor;
     }
 
-    private boolean needSession(Object api) {
-        //require a session if "NoSessionRequired" is not present
-        Class<?>[] interfaces = api.getClass().getInterfaces();
-        for (Class<?> anInterface : interfaces) {
-            if (anInterface.isAnnotationPresent(NoSessionRequired.class)) {
-                return false;
-            }
-        }
-        return true;
-    }
-
     private ClassLoader beforeInvokeMethodForAPISession(SessionAccessor sessionAccessor,
             PlatformServiceAccessor platformServiceAccessor, Session session) throws SBonitaException {
         checkTenantSession(platformServiceAccessor, session);
@@ -266,41 +259,39 @@ public class ServerAPIImpl implements ServerAPI {
         return sessionType;
     }
 
-    private Object invokeAPI(Object api, String apiInterfaceName, final String methodName,
-            final List<String> classNameParameters, final Object[] parametersValues,
-            final Session session) throws Throwable {
-        final Class<?>[] parameterTypes = getParameterTypes(classNameParameters);
-
-        final Method method = ClassReflector.getMethod(api.getClass(), methodName, parameterTypes);
-        // No session required means that there is no transaction
-        if (method.isAnnotationPresent(CustomTransactions.class)
-                || Class.forName(apiInterfaceName).isAnnotationPresent(NoSessionRequired.class)) {
-            return invokeAPIOutsideTransaction(parametersValues, api, method, apiInterfaceName, session);
-        } else {
-            return invokeAPIInTransaction(parametersValues, api, method, session, apiInterfaceName);
+    private Object invokeAPI(final Object api, final APIMethod method, final Object[] parametersValues,
+            final Session session, final MeterRegistry meterRegistry) throws Throwable {
+        final long start = System.nanoTime();
+        try {
+            if (method.isOutsideTransaction()) {
+                return invokeAPIOutsideTransaction(parametersValues, api, method, session);
+            } else {
+                return invokeAPIInTransaction(parametersValues, api, method, session);
+            }
+        } finally {
+            method.recordCall(meterRegistry, System.nanoTime() - start);
         }
     }
 
-    private Object invokeAPIOutsideTransaction(Object[] parametersValues, Object apiImpl, Method method,
-            String apiInterfaceName, Session session)
+    private Object invokeAPIOutsideTransaction(Object[] parametersValues, Object apiImpl, APIMethod method,
+            Session session)
             throws Throwable {
-        checkMethodAccessibility(apiImpl, apiInterfaceName, method, session, /* Not in transaction */false);
+        checkMethodAccessibility(method, session, /* Not in transaction */false);
         return invokeAPI(method, apiImpl, parametersValues);
     }
 
-    protected void checkMethodAccessibility(final Object apiImpl, final String apiInterfaceName, final Method method,
-            final Session session,
+    protected void checkMethodAccessibility(final APIMethod method, final Session session,
             boolean isAlreadyInTransaction) {
-        final MethodAvailability methodAvailability = getMethodAvailability(apiImpl, method);
-        if (methodAvailability.isDeprecated) {
+        final String apiInterfaceName = method.getApiInterfaceName();
+        if (method.isDeprecated()) {
             logger.warn("The API method {}.{} is deprecated. It will be deleted in a future release. " +
                     "Please plan to update your code to use the replacement method instead. Check the Javadoc for more details.",
                     apiInterfaceName, method.getName());
         }
-        if (!methodAvailability.isAvailableWhenPlatformIsStopped && !isNodeStarted()) {
+        if (!method.isAvailableWhenPlatformIsStopped() && !isNodeStarted()) {
             logger.error(
                     "Node not started. Method '{}. {}' cannot be called until node has been started (PlatformAPI.startNode()). Exact class: {}",
-                    apiInterfaceName, method.getName(), method.getDeclaringClass().getName());
+                    apiInterfaceName, method.getName(), method.getDeclaringClassName());
             throw new NodeNotStartedException();
         }
         // we don't check if tenant is in pause mode at platform level and when there is no session
@@ -311,53 +302,23 @@ public class ServerAPIImpl implements ServerAPI {
         }
 
         final long tenantId = ((APISession) session).getTenantId();
-        if (methodAvailability.isAvailableOnPausedTenant && methodAvailability.isAvailableOnRunningTenant) {
+        if (method.isAvailableOnPausedTenant() && method.isAvailableOnRunningTenant()) {
             //method can be called on paused and running tenant.
             return;
         }
         boolean tenantIsPaused = isTenantPaused(tenantId, session, isAlreadyInTransaction);
-        if (tenantIsPaused && !methodAvailability.isAvailableOnPausedTenant) {
+        if (tenantIsPaused && !method.isAvailableOnPausedTenant()) {
             throw new TenantStatusException(
                     MessageFormat.format("Unable to call API method {0}.{1}, The tenant {2} is paused.",
                             apiInterfaceName, method.getName(), tenantId));
         }
-        if (!tenantIsPaused && !methodAvailability.isAvailableOnRunningTenant) {
+        if (!tenantIsPaused && !method.isAvailableOnRunningTenant()) {
             throw new TenantStatusException(MessageFormat.format(
                     "Unable to call API method {0}.{1}, The tenant {2} is running and this method can only be called when tenant is paused.",
                     apiInterfaceName, method.getName(), tenantId));
         }
     }
 
-    private static class MethodAvailability {
-
-        boolean isDeprecated;
-        boolean isAvailableOnRunningTenant = true;
-        boolean isAvailableOnPausedTenant = true;
-        boolean isAvailableWhenPlatformIsStopped;
-    }
-
-    private MethodAvailability getMethodAvailability(Object apiInstance, Method method) {
-        AvailableWhenTenantIsPaused availableWhenTenantIsPaused = Optional
-                .ofNullable(method.getAnnotation(AvailableWhenTenantIsPaused.class))
-                .orElseGet(() -> apiInstance.getClass().getAnnotation(AvailableWhenTenantIsPaused.class));
-        AvailableOnStoppedNode availableOnStoppedNode = method.getAnnotation(AvailableOnStoppedNode.class);
-        MethodAvailability methodAvailability = new MethodAvailability();
-        // Deprecation
-        methodAvailability.isDeprecated = method.isAnnotationPresent(Deprecated.class);
-
-        // Tenant status
-        if (availableWhenTenantIsPaused == null) {
-            methodAvailability.isAvailableOnPausedTenant = false;
-        } else if (availableWhenTenantIsPaused.onlyAvailableWhenPaused()) {
-            methodAvailability.isAvailableOnRunningTenant = false;
-        }
-        // Platform status
-        if (availableOnStoppedNode != null) {
-            methodAvailability.isAvailableWhenPlatformIsStopped = true;
-        }
-        return methodAvailability;
-    }
-
     /**
      * @param tenantId
      *        the ID of the tenant to check
@@ -394,9 +355,8 @@ public class ServerAPIImpl implements ServerAPI {
         }
     }
 
-    protected Object invokeAPIInTransaction(final Object[] parametersValues, final Object apiImpl, final Method method,
-            final Session session,
-            final String apiInterfaceName) throws Throwable {
+    protected Object invokeAPIInTransaction(final Object[] parametersValues, final Object apiImpl,
+            final APIMethod method, final Session session) throws Throwable {
         if (session == null) {
             throw new BonitaRuntimeException("session is null");
         }
@@ -405,8 +365,7 @@ public class ServerAPIImpl implements ServerAPI {
 
         return userTransactionService.executeInTransaction(() -> {
             try {
-                checkMethodAccessibility(apiImpl, apiInterfaceName, method, session,
-                        /* Already in a transaction */true);
+                checkMethodAccessibility(method, session, /* Already in a transaction */true);
                 return invokeAPI(method, apiImpl, parametersValues);
             } catch (final Throwable cause) {
                 throw new ServerAPIRuntimeException(cause);
@@ -436,35 +395,9 @@ public class ServerAPIImpl implements ServerAPI {
         return transactionService;
     }
 
-    protected Object invokeAPI(final Method method, final Object apiImpl, final Object... parametersValues)
+    protected Object invokeAPI(final APIMethod method, final Object apiImpl, final Object... parametersValues)
             throws Throwable {
-        try {
-            return method.invoke(apiImpl, parametersValues);
-        } catch (final InvocationTargetException e) {
-            throw e.getCause();
-        }
-    }
-
-    private Class<?>[] getParameterTypes(final List<String> classNameParameters) throws ClassNotFoundException {
-        Class<?>[] parameterTypes = null;
-        if (classNameParameters != null && !classNameParameters.isEmpty()) {
-            parameterTypes = new Class<?>[classNameParameters.size()];
-            for (int i = 0; i < parameterTypes.length; i++) {
-                final String className = classNameParameters.get(i);
-                Class<?> classType;
-                if ("int".equals(className)) {
-                    classType = int.class;
-                } else if ("long".equals(className)) {
-                    classType = long.class;
-                } else if ("boolean".equals(className)) {
-                    classType = boolean.class;
-                } else {
-                    classType = Class.forName(className);
-                }
-                parameterTypes[i] = classType;
-            }
-        }
-        return parameterTypes;
+        return method.invoke(apiImpl, parametersValues);
     }
 
     private void checkTenantSession(final PlatformServiceAccessor platformAccessor, final Session session)
@@ -0,0 +1,51 @@
+/**
+ * Copyright (C) 2019 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.api.impl.transaction.process;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.bonitasoft.engine.bpm.process.DesignProcessDefinition;
+import org.bonitasoft.engine.bpm.process.impl.internal.ExpressionFinder;
+import org.bonitasoft.engine.expression.Expression;
+import org.bonitasoft.engine.expression.ExpressionInterpreter;
+import org.bonitasoft.engine.expression.ExpressionType;
+
+/**
+ * Collect the content of all Groovy scripts of a process definition, including the ones used as dependencies of other
+ * expressions.
+ */
+public class GroovyScriptsFinder extends ExpressionFinder {
+
+    private final Set<String> scripts = new LinkedHashSet<>();
+
+    public Set<String> findGroovyScripts(DesignProcessDefinition designProcessDefinition) {
+        // no expression has this id: the whole definition is visited
+        find(designProcessDefinition, Long.MIN_VALUE);
+        return scripts;
+    }
+
+    @Override
+    public void find(Expression expression, long expressionDefinitionId) {
+        if (ExpressionType.TYPE_READ_ONLY_SCRIPT.name().equals(expression.getExpressionType())
+                && ExpressionInterpreter.GROOVY.name().equals(expression.getInterpreter())) {
+            scripts.add(expression.getContent());
+        }
+        if (expression.getDependencies() != null) {
+            for (Expression dependency : expression.getDependencies()) {
+                find(dependency, expressionDefinitionId);
+            }
+        }
+    }
+}
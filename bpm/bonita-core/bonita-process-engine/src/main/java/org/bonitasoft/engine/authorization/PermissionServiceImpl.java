@@ -18,12 +18,15 @@ import static org.bonitasoft.engine.classloader.ClassLoaderIdentifier.identifier
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 import groovy.lang.GroovyClassLoader;
 import lombok.extern.slf4j.Slf4j;
 import org.bonitasoft.engine.api.impl.APIAccessorImpl;
 import org.bonitasoft.engine.api.permission.APICallContext;
 import org.bonitasoft.engine.api.permission.PermissionRule;
+import org.bonitasoft.engine.authorization.properties.CompiledResourcesPermissions;
+import org.bonitasoft.engine.authorization.properties.CompiledResourcesPermissions.ResourcePermissions;
 import org.bonitasoft.engine.authorization.properties.CompoundPermissionsMapping;
 import org.bonitasoft.engine.authorization.properties.CustomPermissionsMapping;
 import org.bonitasoft.engine.authorization.properties.PropertiesWithSet;
@@ -68,6 +71,11 @@ public class PermissionServiceImpl implements PermissionService {
     public static final String RESOURCE_PERMISSION_VALUE = "[%s]";
     public static final String EXTENSION_SEPARATOR = ",";
 
+    /**
+     * Bound of the cache of session permission bitsets, entries of expired sessions are only dropped when it is reached
+     */
+    static final int MAX_CACHED_SESSION_PERMISSIONS = 10_000;
+
     private final ClassLoaderService classLoaderService;
     private final SessionAccessor sessionAccessor;
     private final SessionService sessionService;
@@ -75,6 +83,7 @@ public class PermissionServiceImpl implements PermissionService {
     private final CompoundPermissionsMapping compoundPermissionsMapping;
     private final ResourcesPermissionsMapping resourcesPermissionsMapping;
     private final CustomPermissionsMapping customPermissionsMapping;
+    private final Map<Long, SessionPermissions> sessionPermissions = new ConcurrentHashMap<>();
 
     protected final long tenantId;
 
@@ -187,42 +196,55 @@ public class PermissionServiceImpl implements PermissionService {
         if (log.isTraceEnabled()) {
             log.trace("Static REST API permissions check");
         }
-        final Set<String> resourcePermissions = getDeclaredPermissions(apiCallContext.getApiName(),
-                apiCallContext.getResourceName(), apiCallContext.getMethod(), apiCallContext.getResourceId(),
-                resourcesPermissionsMapping);
-        final Set<String> userPermissions = getSession().getUserPermissions();
-        for (final String resourcePermission : resourcePermissions) {
-            if (userPermissions.contains(resourcePermission)) {
-                return true;
-            }
+        final CompiledResourcesPermissions compiledPermissions = resourcesPermissionsMapping.getCompiledPermissions();
+        final ResourcePermissions resourcePermissions = compiledPermissions.getResourcePermissions(
+                apiCallContext.getMethod(), apiCallContext.getApiName(), apiCallContext.getResourceName(),
+                apiCallContext.getResourceId());
+        final SSession session = getSession();
+        if (resourcePermissions.isGrantedTo(getUserPermissions(session, compiledPermissions))) {
+            return true;
         }
         log.debug(
                 "Unauthorized access to " + apiCallContext.getMethod() + " " + apiCallContext.getApiName() + "/"
                         + apiCallContext.getResourceName()
                         + (apiCallContext.getResourceId() != null ? "/" + apiCallContext.getResourceId() : "")
-                        + " attempted by " + getSession().getUserName()
+                        + " attempted by " + session.getUserName()
                         + ", required permissions: " + resourcePermissions);
 
         return false;
     }
 
-    protected Set<String> getDeclaredPermissions(final String apiName, final String resourceName, final String method,
-            final String resourceQualifiers, final ResourcesPermissionsMapping resourcesPermissionsMapping) {
-        List<String> resourceQualifiersIds = null;
-        if (resourceQualifiers != null) {
-            resourceQualifiersIds = Arrays
-                    .asList(resourceQualifiers.split(ResourcesPermissionsMapping.RESOURCE_IDS_SEPARATOR));
-        }
-        Set<String> resourcePermissions = resourcesPermissionsMapping.getResourcePermissions(method, apiName,
-                resourceName, resourceQualifiersIds);
-        if (resourcePermissions.isEmpty()) {
-            resourcePermissions = resourcesPermissionsMapping.getResourcePermissionsWithWildCard(method, apiName,
-                    resourceName, resourceQualifiersIds);
+    /**
+     * @return bitset of the permissions of the session user, computed once per session and compiled mapping
+     */
+    private long[] getUserPermissions(SSession session, CompiledResourcesPermissions compiledPermissions) {
+        final Set<String> userPermissions = session.getUserPermissions();
+        SessionPermissions cached = sessionPermissions.get(session.getId());
+        // sessions are copied when renewed, but they keep the same set of permissions
+        if (cached == null || cached.userPermissions != userPermissions
+                || cached.compiledPermissions != compiledPermissions) {
+            if (sessionPermissions.size() >= MAX_CACHED_SESSION_PERMISSIONS) {
+                sessionPermissions.clear();
+            }
+            cached = new SessionPermissions(userPermissions, compiledPermissions,
+                    compiledPermissions.toBitset(userPermissions));
+            sessionPermissions.put(session.getId(), cached);
         }
-        if (resourcePermissions.isEmpty()) {
-            resourcePermissions = resourcesPermissionsMapping.getResourcePermissions(method, apiName, resourceName);
+        return cached.bits;
+    }
+
+    private static final class SessionPermissions {
+
+        private final Set<String> userPermissions;
+        private final CompiledResourcesPermissions compiledPermissions;
+        private final long[] bits;
+
+        private SessionPermissions(Set<String> userPermissions, CompiledResourcesPermissions compiledPermissions,
+                long[] bits) {
+            this.userPermissions = userPermissions;
+            this.compiledPermissions = compiledPermissions;
+            this.bits = bits;
         }
-        return resourcePermissions;
     }
 
     @Override
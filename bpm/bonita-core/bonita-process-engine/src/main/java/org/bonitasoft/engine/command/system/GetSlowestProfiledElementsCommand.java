@@ -0,0 +1,51 @@
+/**
+ * Copyright (C) 2019 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.command.system;
+
+import java.io.Serializable;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.bonitasoft.engine.command.SCommandExecutionException;
+import org.bonitasoft.engine.command.SCommandParameterizationException;
+import org.bonitasoft.engine.service.TenantServiceAccessor;
+
+/**
+ * Get, as JSON, the latency statistics of the slowest expressions and connectors measured by the
+ * {@link org.bonitasoft.engine.tracking.profiling.ElementProfiler}.
+ * Parameters ->
+ * maxResults: optional, number of elements to return, 10 by default
+ */
+public class GetSlowestProfiledElementsCommand extends CommandWithParameters {
+
+    public static final String MAX_RESULTS = "maxResults";
+
+    private static final int DEFAULT_MAX_RESULTS = 10;
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Override
+    public Serializable execute(final Map<String, Serializable> parameters, final TenantServiceAccessor serviceAccessor)
+            throws SCommandParameterizationException, SCommandExecutionException {
+        final Integer maxResults = getParameter(parameters, MAX_RESULTS);
+        try {
+            return objectMapper.writeValueAsString(serviceAccessor.getElementProfiler()
+                    .getSlowestElements(maxResults != null ? maxResults : DEFAULT_MAX_RESULTS));
+        } catch (final JsonProcessingException e) {
+            throw new SCommandExecutionException(e);
+        }
+    }
+
+}
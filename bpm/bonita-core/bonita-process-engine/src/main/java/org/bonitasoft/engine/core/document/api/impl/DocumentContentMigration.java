@@ -0,0 +1,141 @@
+/**
+ * Copyright (C) 2019 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.core.document.api.impl;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import lombok.extern.slf4j.Slf4j;
+import org.bonitasoft.engine.commons.TenantLifecycleService;
+import org.bonitasoft.engine.core.document.api.DocumentService;
+import org.bonitasoft.engine.sessionaccessor.SessionAccessor;
+import org.bonitasoft.engine.transaction.UserTransactionService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Move contents of documents stored in the document table to the
+ * {@link org.bonitasoft.engine.core.document.api.DocumentContentStore}, e.g. once a content store is configured on a
+ * tenant having documents.
+ * <p>
+ * Activated using {@code bonita.tenant.document.contentStore.migration.enabled=true}: when the tenant starts, contents
+ * are moved by a background thread, in batches of at most
+ * {@code bonita.tenant.document.contentStore.migration.batchSize} documents and
+ * {@code bonita.tenant.document.contentStore.migration.batchSizeInBytes} bytes per transaction, until all contents are
+ * in the store. The migration stops with the tenant, and continues
+ * with the remaining documents when the tenant starts again.
+ */
+@Component
+@Slf4j
+public class DocumentContentMigration implements TenantLifecycleService {
+
+    private final DocumentService documentService;
+    private final UserTransactionService userTransactionService;
+    private final SessionAccessor sessionAccessor;
+    private long tenantId;
+    private boolean enabled;
+    private int batchSize;
+    private long batchSizeInBytes;
+    private ExecutorService executor;
+
+    public DocumentContentMigration(DocumentService documentService, UserTransactionService userTransactionService,
+            SessionAccessor sessionAccessor) {
+        this.documentService = documentService;
+        this.userTransactionService = userTransactionService;
+        this.sessionAccessor = sessionAccessor;
+    }
+
+    @Value("${tenantId}")
+    public void setTenantId(long tenantId) {
+        this.tenantId = tenantId;
+    }
+
+    @Value("${bonita.tenant.document.contentStore.migration.enabled:false}")
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Value("${bonita.tenant.document.contentStore.migration.batchSize:50}")
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    @Value("${bonita.tenant.document.contentStore.migration.batchSizeInBytes:67108864}")
+    public void setBatchSizeInBytes(long batchSizeInBytes) {
+        this.batchSizeInBytes = batchSizeInBytes;
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "Bonita-Document-Content-Migration-" + tenantId);
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.submit(this::moveContentsToStore);
+    }
+
+    @Override
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            try {
+                if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                    log.warn("Document content migration of tenant {} did not stop in time", tenantId);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            executor = null;
+        }
+    }
+
+    @Override
+    public void pause() {
+        stop();
+    }
+
+    @Override
+    public void resume() {
+        start();
+    }
+
+    /**
+     * @return number of documents the content was moved to the store
+     */
+    long moveContentsToStore() {
+        sessionAccessor.setTenantId(tenantId);
+        long numberOfMovedContents = 0;
+        try {
+            int moved;
+            do {
+                moved = userTransactionService
+                        .executeInTransaction(() -> documentService.moveContentsToStore(batchSize, batchSizeInBytes));
+                numberOfMovedContents += moved;
+            } while (moved > 0 && !Thread.currentThread().isInterrupted());
+        } catch (Exception e) {
+            log.warn("Unable to move the content of documents to the document content store, it will be retried " +
+                    "on next start of the tenant. Cause: {}", e.getMessage());
+            log.debug("Cause", e);
+        }
+        log.info("Moved the content of {} documents of tenant {} to the document content store",
+                numberOfMovedContents, tenantId);
+        return numberOfMovedContents;
+    }
+
+}
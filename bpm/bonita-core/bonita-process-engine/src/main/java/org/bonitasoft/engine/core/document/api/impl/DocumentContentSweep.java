@@ -0,0 +1,170 @@
+/**
+ * Copyright (C) 2019 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.core.document.api.impl;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import lombok.extern.slf4j.Slf4j;
+import org.bonitasoft.engine.commons.TenantLifecycleService;
+import org.bonitasoft.engine.core.document.api.DocumentContentStore;
+import org.bonitasoft.engine.core.document.api.DocumentService;
+import org.bonitasoft.engine.sessionaccessor.SessionAccessor;
+import org.bonitasoft.engine.transaction.UserTransactionService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Delete from the {@link DocumentContentStore} the contents that no document references: contents written by
+ * transactions that were rolled back, and contents the store kept when their last document was deleted because they
+ * were written during the deletion grace period.
+ * <p>
+ * When a content store is configured, the store is swept by a background thread every
+ * {@code bonita.tenant.document.contentStore.sweep.interval}, checking
+ * {@code bonita.tenant.document.contentStore.sweep.batchSize} contents per transaction. Contents written during the
+ * last {@code bonita.tenant.document.contentStore.deletionGracePeriod} are not swept, as they might be referenced by a
+ * document being created.
+ */
+@Component
+@Slf4j
+public class DocumentContentSweep implements TenantLifecycleService {
+
+    private final DocumentService documentService;
+    private final UserTransactionService userTransactionService;
+    private final SessionAccessor sessionAccessor;
+    private DocumentContentStore contentStore;
+    private long tenantId;
+    private Duration interval;
+    private Duration deletionGracePeriod;
+    private int batchSize;
+    private ScheduledExecutorService executor;
+
+    public DocumentContentSweep(DocumentService documentService, UserTransactionService userTransactionService,
+            SessionAccessor sessionAccessor) {
+        this.documentService = documentService;
+        this.userTransactionService = userTransactionService;
+        this.sessionAccessor = sessionAccessor;
+    }
+
+    @Autowired(required = false)
+    public void setContentStore(DocumentContentStore contentStore) {
+        this.contentStore = contentStore;
+    }
+
+    @Value("${tenantId}")
+    public void setTenantId(long tenantId) {
+        this.tenantId = tenantId;
+    }
+
+    @Value("${bonita.tenant.document.contentStore.sweep.interval:PT6H}")
+    public void setInterval(String interval) {
+        this.interval = Duration.parse(interval);
+    }
+
+    @Value("${bonita.tenant.document.contentStore.deletionGracePeriod:PT1H}")
+    public void setDeletionGracePeriod(String deletionGracePeriod) {
+        this.deletionGracePeriod = Duration.parse(deletionGracePeriod);
+    }
+
+    @Value("${bonita.tenant.document.contentStore.sweep.batchSize:500}")
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void start() {
+        if (contentStore == null || interval.isZero() || interval.isNegative()) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "Bonita-Document-Content-Sweep-" + tenantId);
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::deleteUnreferencedContents, interval.toMillis(), interval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            try {
+                if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                    log.warn("Document content sweep of tenant {} did not stop in time", tenantId);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            executor = null;
+        }
+    }
+
+    @Override
+    public void pause() {
+        stop();
+    }
+
+    @Override
+    public void resume() {
+        start();
+    }
+
+    /**
+     * @return number of unreferenced contents deleted from the store
+     */
+    long deleteUnreferencedContents() {
+        sessionAccessor.setTenantId(tenantId);
+        long numberOfDeletedContents = 0;
+        try (Stream<String> contentKeys = contentStore.listContentKeys(Instant.now().minus(deletionGracePeriod))) {
+            Iterator<String> iterator = contentKeys.iterator();
+            List<String> batch = new ArrayList<>(batchSize);
+            while (iterator.hasNext() && !Thread.currentThread().isInterrupted()) {
+                batch.add(iterator.next());
+                if (batch.size() == batchSize || !iterator.hasNext()) {
+                    numberOfDeletedContents += deleteUnreferencedContents(batch);
+                    batch.clear();
+                }
+            }
+        } catch (Exception e) {
+            // must not be thrown: the sweep would no longer be scheduled
+            log.warn("Unable to delete unreferenced contents from the document content store, it will be retried " +
+                    "on next sweep. Cause: {}", e.getMessage());
+            log.debug("Cause", e);
+        }
+        if (numberOfDeletedContents > 0) {
+            log.info("Deleted {} unreferenced contents from the document content store of tenant {}",
+                    numberOfDeletedContents, tenantId);
+        }
+        return numberOfDeletedContents;
+    }
+
+    private int deleteUnreferencedContents(List<String> contentKeys) throws Exception {
+        List<String> unreferencedContentKeys = userTransactionService
+                .executeInTransaction(() -> documentService.getUnreferencedContentKeys(contentKeys));
+        for (String contentKey : unreferencedContentKeys) {
+            contentStore.delete(contentKey);
+        }
+        return unreferencedContentKeys.size();
+    }
+
+}
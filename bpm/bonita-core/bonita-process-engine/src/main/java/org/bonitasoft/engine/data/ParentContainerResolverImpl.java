@@ -16,7 +16,11 @@ package org.bonitasoft.engine.data;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
+import lombok.extern.slf4j.Slf4j;
 import org.bonitasoft.engine.commons.exceptions.SObjectNotFoundException;
 import org.bonitasoft.engine.commons.exceptions.SObjectReadException;
 import org.bonitasoft.engine.core.process.definition.model.SFlowNodeType;
@@ -33,19 +37,56 @@ import org.bonitasoft.engine.core.process.instance.model.archive.SAProcessInstan
 import org.bonitasoft.engine.data.instance.api.DataContainer;
 import org.bonitasoft.engine.data.instance.api.DataInstanceContainer;
 import org.bonitasoft.engine.data.instance.api.ParentContainerResolver;
+import org.bonitasoft.engine.events.EventService;
+import org.bonitasoft.engine.events.model.HandlerRegistrationException;
+import org.bonitasoft.engine.events.model.SDeleteEvent;
+import org.bonitasoft.engine.events.model.SEvent;
+import org.bonitasoft.engine.events.model.SHandler;
+import org.bonitasoft.engine.persistence.PersistentObject;
 import org.bonitasoft.engine.persistence.SBonitaReadException;
 
+/**
+ * Resolves the hierarchy of containers of a data container.
+ * <p>
+ * The parent containers of a flow node or process instance never change while it is running, so hierarchies of
+ * running containers are cached, and evicted when the container is deleted, i.e. when it is archived or deleted.
+ * The cache is cleared when it holds {@link #setMaxCachedHierarchies(int) maxCachedHierarchies} hierarchies, which
+ * also bounds the memory used by hierarchies of containers deleted on another node of a cluster.
+ */
+@Slf4j
 public class ParentContainerResolverImpl implements ParentContainerResolver {
 
     private final FlowNodeInstanceService flowNodeInstanceService;
     private final ProcessInstanceService processInstanceService;
+    private final Map<DataContainer, List<DataContainer>> hierarchies = new ConcurrentHashMap<>();
     private boolean allowUnknownContainer;
+    private int maxCachedHierarchies = 10_000;
 
     public ParentContainerResolverImpl(final FlowNodeInstanceService flowNodeInstanceService,
-            final ProcessInstanceService processInstanceService) {
+            final ProcessInstanceService processInstanceService, final EventService eventService) {
         super();
         this.flowNodeInstanceService = flowNodeInstanceService;
         this.processInstanceService = processInstanceService;
+        try {
+            eventService.addHandler(FlowNodeInstanceService.FLOWNODE_INSTANCE + SEvent.DELETED,
+                    new EvictHierarchyHandler(SFlowNodeInstance.class,
+                            DataInstanceContainer.ACTIVITY_INSTANCE.name()));
+            eventService.addHandler(ProcessInstanceService.PROCESSINSTANCE + SEvent.DELETED,
+                    new EvictHierarchyHandler(SProcessInstance.class,
+                            DataInstanceContainer.PROCESS_INSTANCE.name()));
+        } catch (final HandlerRegistrationException e) {
+            log.warn("Unable to register the eviction of cached container hierarchies, they will not be cached: {}",
+                    e.getMessage());
+            log.debug("", e);
+            maxCachedHierarchies = 0;
+        }
+    }
+
+    /**
+     * @param maxCachedHierarchies maximum number of hierarchies of running containers cached (0 to disable the cache)
+     */
+    public void setMaxCachedHierarchies(int maxCachedHierarchies) {
+        this.maxCachedHierarchies = maxCachedHierarchies;
     }
 
     public boolean getAllowUnknownContainer() {
@@ -59,7 +100,29 @@ public class ParentContainerResolverImpl implements ParentContainerResolver {
     @Override
     public List<DataContainer> getContainerHierarchy(final DataContainer currentContainer)
             throws SObjectNotFoundException, SObjectReadException {
-        return getContainerHierarchy(currentContainer, false);
+        // unknown containers are only allowed in tests, where they can reuse ids of other containers
+        if (maxCachedHierarchies <= 0 || allowUnknownContainer || !isCacheable(currentContainer)) {
+            return getContainerHierarchy(currentContainer, false);
+        }
+        final DataContainer key = new DataContainer(currentContainer.getId(), currentContainer.getType());
+        List<DataContainer> hierarchy = hierarchies.get(key);
+        if (hierarchy == null) {
+            hierarchy = Collections.unmodifiableList(getContainerHierarchy(currentContainer, false));
+            if (hierarchies.size() >= maxCachedHierarchies) {
+                hierarchies.clear();
+            }
+            hierarchies.put(key, hierarchy);
+        }
+        return hierarchy;
+    }
+
+    private boolean isCacheable(final DataContainer container) {
+        return DataInstanceContainer.ACTIVITY_INSTANCE.name().equals(container.getType())
+                || DataInstanceContainer.PROCESS_INSTANCE.name().equals(container.getType());
+    }
+
+    void evictContainerHierarchy(final DataContainer container) {
+        hierarchies.remove(container);
     }
 
     @Override
@@ -221,4 +284,34 @@ public class ParentContainerResolverImpl implements ParentContainerResolver {
         }
     }
 
+    private class EvictHierarchyHandler implements SHandler<SEvent> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Class<? extends PersistentObject> containerClass;
+        private final String containerType;
+        private final String identifier = UUID.randomUUID().toString();
+
+        private EvictHierarchyHandler(Class<? extends PersistentObject> containerClass, String containerType) {
+            this.containerClass = containerClass;
+            this.containerType = containerType;
+        }
+
+        @Override
+        public void execute(final SEvent event) {
+            evictContainerHierarchy(new DataContainer(((PersistentObject) event.getObject()).getId(), containerType));
+        }
+
+        @Override
+        public boolean isInterested(final SEvent event) {
+            // archived instances are deleted using the same event type
+            return event instanceof SDeleteEvent && containerClass.isInstance(event.getObject());
+        }
+
+        @Override
+        public String getIdentifier() {
+            return identifier;
+        }
+    }
+
 }
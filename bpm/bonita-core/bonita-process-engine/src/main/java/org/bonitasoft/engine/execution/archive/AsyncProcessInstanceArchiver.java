@@ -0,0 +1,290 @@
+/**
+ * Copyright (C) 2019 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.execution.archive;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PostConstruct;
+import javax.transaction.Status;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.bonitasoft.engine.SArchivingException;
+import org.bonitasoft.engine.commons.TenantLifecycleService;
+import org.bonitasoft.engine.commons.exceptions.SBonitaException;
+import org.bonitasoft.engine.core.process.instance.api.ProcessInstanceService;
+import org.bonitasoft.engine.core.process.instance.api.exceptions.SProcessInstanceNotFoundException;
+import org.bonitasoft.engine.core.process.instance.model.SProcessInstance;
+import org.bonitasoft.engine.sessionaccessor.SessionAccessor;
+import org.bonitasoft.engine.transaction.BonitaTransactionSynchronization;
+import org.bonitasoft.engine.transaction.STransactionNotFoundException;
+import org.bonitasoft.engine.transaction.UserTransactionService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Archive and delete process instances that reached a terminal state.
+ * <p>
+ * By default, process instances are archived in the transaction that completes them. When
+ * <code>bonita.tenant.archiving.async.enabled</code> is true, root process instances are instead left in their terminal
+ * state, which makes them pending archiving, and archived once this transaction is committed by a dedicated pool of
+ * threads, in batches of several process instances per transaction.
+ * <p>
+ * The queue of process instances to archive is bounded: when it is full, process instances are archived in the
+ * completing transaction as before, which slows down the execution instead of letting the queue grow. Process
+ * instances that are pending archiving are stored in database, the ones not archived because of a failure or a
+ * restart of the node are archived by the {@link org.bonitasoft.engine.tenant.restart.RecoveryService}.
+ */
+@Component
+@Slf4j
+public class AsyncProcessInstanceArchiver implements TenantLifecycleService {
+
+    public static final String ARCHIVING_QUEUE_SIZE = "bonita.bpmengine.archiving.queue.size";
+    public static final String ARCHIVING_LAG = "bonita.bpmengine.archiving.lag";
+    public static final String ARCHIVED_PROCESS_INSTANCES = "bonita.bpmengine.archiving.archived";
+    public static final String SYNCHRONOUSLY_ARCHIVED_PROCESS_INSTANCES = "bonita.bpmengine.archiving.synchronous";
+
+    private final BPMArchiverService bpmArchiverService;
+    private final ProcessInstanceService processInstanceService;
+    private final UserTransactionService userTransactionService;
+    private final SessionAccessor sessionAccessor;
+    private final MeterRegistry meterRegistry;
+    private long tenantId;
+    private boolean enabled;
+    private int numberOfThreads;
+    private int queueCapacity;
+    private int batchSize;
+    private BlockingQueue<PendingArchive> queue;
+    private ExecutorService executor;
+    private volatile boolean started;
+    private Timer archivingLag;
+    private Counter archivedProcessInstances;
+    private Counter synchronouslyArchivedProcessInstances;
+
+    public AsyncProcessInstanceArchiver(BPMArchiverService bpmArchiverService,
+            ProcessInstanceService processInstanceService,
+            UserTransactionService userTransactionService,
+            SessionAccessor sessionAccessor,
+            MeterRegistry meterRegistry) {
+        this.bpmArchiverService = bpmArchiverService;
+        this.processInstanceService = processInstanceService;
+        this.userTransactionService = userTransactionService;
+        this.sessionAccessor = sessionAccessor;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Value("${tenantId}")
+    public void setTenantId(long tenantId) {
+        this.tenantId = tenantId;
+    }
+
+    @Value("${bonita.tenant.archiving.async.enabled:false}")
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Value("${bonita.tenant.archiving.async.threads:2}")
+    public void setNumberOfThreads(int numberOfThreads) {
+        this.numberOfThreads = numberOfThreads;
+    }
+
+    @Value("${bonita.tenant.archiving.async.queueCapacity:10000}")
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    @Value("${bonita.tenant.archiving.async.batchSize:20}")
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    @PostConstruct
+    protected void initMetrics() {
+        queue = new LinkedBlockingQueue<>(queueCapacity);
+        Tags tags = Tags.of("tenant", String.valueOf(tenantId));
+        Gauge.builder(ARCHIVING_QUEUE_SIZE, queue, BlockingQueue::size)
+                .tags(tags).baseUnit("process instances")
+                .description("Number of process instances waiting to be archived")
+                .register(meterRegistry);
+        archivingLag = Timer.builder(ARCHIVING_LAG)
+                .tags(tags).description("Time between the completion of a process instance and its archiving")
+                .register(meterRegistry);
+        archivedProcessInstances = Counter.builder(ARCHIVED_PROCESS_INSTANCES)
+                .tags(tags).baseUnit("process instances")
+                .description("Process instances archived asynchronously")
+                .register(meterRegistry);
+        synchronouslyArchivedProcessInstances = Counter.builder(SYNCHRONOUSLY_ARCHIVED_PROCESS_INSTANCES)
+                .tags(tags).baseUnit("process instances")
+                .description("Process instances archived in the completing transaction because the queue was full")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(numberOfThreads, r -> {
+            Thread thread = new Thread(r, "Bonita-Archiver-" + tenantId + "-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < numberOfThreads; i++) {
+            executor.submit(this::archivePendingProcessInstances);
+        }
+        started = true;
+    }
+
+    @Override
+    public void stop() {
+        started = false;
+        if (executor != null) {
+            executor.shutdownNow();
+            try {
+                if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                    log.warn("Archiving threads of tenant {} did not stop in time", tenantId);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            executor = null;
+        }
+        // process instances still in the queue are pending archiving in database, recovery will archive them
+        queue.clear();
+    }
+
+    @Override
+    public void pause() {
+        stop();
+    }
+
+    @Override
+    public void resume() {
+        start();
+    }
+
+    /**
+     * Archive and delete the given process instance, in the current transaction or after its commit when the
+     * asynchronous archiving is enabled.
+     */
+    public void archiveAndDeleteProcessInstance(SProcessInstance processInstance) throws SArchivingException {
+        if (!started || processInstance.getCallerId() > 0) {
+            // process instances having a caller are archived by their caller once it retrieved their data
+            bpmArchiverService.archiveAndDeleteProcessInstance(processInstance);
+            return;
+        }
+        if (queue.remainingCapacity() == 0) {
+            synchronouslyArchivedProcessInstances.increment();
+            bpmArchiverService.archiveAndDeleteProcessInstance(processInstance);
+            return;
+        }
+        long processInstanceId = processInstance.getId();
+        try {
+            userTransactionService.registerBonitaSynchronization(
+                    (BonitaTransactionSynchronization) transactionState -> {
+                        if (transactionState == Status.STATUS_COMMITTED) {
+                            enqueue(processInstanceId);
+                        }
+                    });
+        } catch (STransactionNotFoundException e) {
+            bpmArchiverService.archiveAndDeleteProcessInstance(processInstance);
+        }
+    }
+
+    private void enqueue(long processInstanceId) {
+        if (!queue.offer(new PendingArchive(processInstanceId, System.nanoTime()))) {
+            log.debug("Queue of process instances to archive is full, process instance {} will be archived by the " +
+                    "recovery", processInstanceId);
+        }
+    }
+
+    private void archivePendingProcessInstances() {
+        sessionAccessor.setTenantId(tenantId);
+        List<PendingArchive> batch = new ArrayList<>(batchSize);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            queue.drainTo(batch, batchSize - 1);
+            archive(batch);
+            batch.clear();
+        }
+    }
+
+    void archive(List<PendingArchive> batch) {
+        try {
+            userTransactionService.executeInTransaction(() -> {
+                for (PendingArchive pendingArchive : batch) {
+                    archiveAndDeleteProcessInstance(pendingArchive.processInstanceId);
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            if (batch.size() > 1) {
+                // archive them one by one so that a single failing process instance does not block the others
+                for (PendingArchive pendingArchive : batch) {
+                    archive(Collections.singletonList(pendingArchive));
+                }
+                return;
+            }
+            log.warn("Unable to archive process instance {}, it will be archived by the recovery. Cause: {}",
+                    batch.get(0).processInstanceId, e.getMessage());
+            log.debug("Cause", e);
+            return;
+        }
+        long now = System.nanoTime();
+        for (PendingArchive pendingArchive : batch) {
+            archivingLag.record(now - pendingArchive.enqueuedNanos, TimeUnit.NANOSECONDS);
+        }
+        archivedProcessInstances.increment(batch.size());
+    }
+
+    private void archiveAndDeleteProcessInstance(long processInstanceId) throws SBonitaException {
+        SProcessInstance processInstance;
+        try {
+            processInstance = processInstanceService.getProcessInstance(processInstanceId);
+        } catch (SProcessInstanceNotFoundException e) {
+            log.debug("Process instance {} is already archived", processInstanceId);
+            return;
+        }
+        bpmArchiverService.archiveAndDeleteProcessInstance(processInstance);
+    }
+
+    static final class PendingArchive {
+
+        private final long processInstanceId;
+        private final long enqueuedNanos;
+
+        PendingArchive(long processInstanceId, long enqueuedNanos) {
+            this.processInstanceId = processInstanceId;
+            this.enqueuedNanos = enqueuedNanos;
+        }
+    }
+}
@@ -22,6 +22,8 @@ import org.bonitasoft.engine.core.process.instance.api.ProcessInstanceService;
 import org.bonitasoft.engine.core.process.instance.model.SProcessInstance;
 import org.bonitasoft.engine.events.model.SHandlerExecutionException;
 import org.bonitasoft.engine.events.model.SUpdateEvent;
+import org.bonitasoft.engine.exception.NotFoundException;
+import org.bonitasoft.engine.execution.archive.AsyncProcessInstanceArchiver;
 import org.bonitasoft.engine.service.TenantServiceAccessor;
 import org.bonitasoft.engine.service.impl.ServiceAccessorFactory;
 
@@ -51,12 +53,20 @@ public class ArchiveProcessInstancesHandler implements SProcessInstanceHandler<S
     public void execute(final SUpdateEvent event) throws SHandlerExecutionException {
         final SProcessInstance processInstance = (SProcessInstance) event.getObject();
         try {
-            getTenantServiceAccessor().getBPMArchiverService().archiveAndDeleteProcessInstance(processInstance);
+            getAsyncProcessInstanceArchiver().archiveAndDeleteProcessInstance(processInstance);
         } catch (SBonitaException e) {
             throw new SHandlerExecutionException(e);
         }
     }
 
+    private AsyncProcessInstanceArchiver getAsyncProcessInstanceArchiver() throws SHandlerExecutionException {
+        try {
+            return getTenantServiceAccessor().lookup(AsyncProcessInstanceArchiver.class);
+        } catch (NotFoundException e) {
+            throw new SHandlerExecutionException(e.getMessage(), null);
+        }
+    }
+
     /**
      * @return tenantServiceAccessor
      * @throws SHandlerExecutionException
@@ -20,6 +20,7 @@ import static java.util.stream.Collectors.toList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -350,6 +351,21 @@ public class BPMWorkFactory implements WorkFactory {
         return work;
     }
 
+    @Override
+    public Optional<Long> getMailboxKey(WorkDescriptor workDescriptor) {
+        switch (workDescriptor.getType()) {
+            case EXECUTE_FLOWNODE:
+            case FINISH_FLOWNODE:
+            case TRIGGER_SIGNAL:
+            case EXECUTE_MESSAGE:
+                // same condition as the one used to wrap the work in a LockProcessInstanceWork
+                long processInstanceId = workDescriptor.getLong(PROCESS_INSTANCE_ID);
+                return processInstanceId > 0 ? Optional.of(processInstanceId) : Optional.empty();
+            default:
+                return Optional.empty();
+        }
+    }
+
     private BonitaWork createFromExtension(WorkDescriptor workDescriptor) {
         if (!extensions.containsKey(workDescriptor.getType())) {
             throw new IllegalArgumentException("Unkown type of work:" + workDescriptor.getType());
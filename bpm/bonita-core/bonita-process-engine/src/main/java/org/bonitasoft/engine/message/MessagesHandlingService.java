@@ -14,18 +14,27 @@
 package org.bonitasoft.engine.message;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Tags;
 import lombok.extern.slf4j.Slf4j;
 import org.bonitasoft.engine.api.utils.VisibleForTesting;
 import org.bonitasoft.engine.builder.BuilderFactory;
+import org.bonitasoft.engine.commons.LongHashSet;
 import org.bonitasoft.engine.commons.TenantLifecycleService;
 import org.bonitasoft.engine.commons.exceptions.SBonitaException;
 import org.bonitasoft.engine.core.process.instance.api.event.EventInstanceService;
@@ -47,8 +56,9 @@ import org.bonitasoft.engine.sessionaccessor.SessionAccessor;
 import org.bonitasoft.engine.transaction.BonitaTransactionSynchronization;
 import org.bonitasoft.engine.transaction.STransactionNotFoundException;
 import org.bonitasoft.engine.transaction.UserTransactionService;
-import org.bonitasoft.engine.work.SWorkRegisterException;
+import org.bonitasoft.engine.work.WorkDescriptor;
 import org.bonitasoft.engine.work.WorkService;
+import org.springframework.beans.factory.annotation.Value;
 
 /**
  * @author Baptiste Mesta
@@ -56,11 +66,12 @@ import org.bonitasoft.engine.work.WorkService;
 @Slf4j
 public class MessagesHandlingService implements TenantLifecycleService {
 
-    private static final int MAX_COUPLES = 100;
+    private static final int DEFAULT_MATCHING_BATCH_SIZE = 100;
     private static final String LOCK_TYPE = "EVENTS";
     public static final String NUMBER_OF_MESSAGES_EXECUTED = "bonita.bpmengine.message.executed";
     public static final String NUMBER_OF_MESSAGES_POTENTIAL_MATCHED = "bonita.bpmengine.message.potential";
     public static final String NUMBER_OF_MESSAGES_MATCHING_RETRIGGERED_TASKS = "bonita.bpmengine.message.retriggeredtasks";
+    public static final String MESSAGES_MATCHING_THROUGHPUT = "bonita.bpmengine.message.matching.throughput";
     private ThreadPoolExecutor threadPoolExecutor;
     private EventInstanceService eventInstanceService;
     private WorkService workService;
@@ -69,6 +80,13 @@ public class MessagesHandlingService implements TenantLifecycleService {
     private UserTransactionService userTransactionService;
     private SessionAccessor sessionAccessor;
     private BPMWorkFactory workFactory;
+    private ScheduledExecutorService fullMatchingScheduler;
+    private long fullMatchingIntervalSeconds = 30;
+    private int matchingBatchSize = DEFAULT_MATCHING_BATCH_SIZE;
+    private final AtomicLong lastMatchingThroughput = new AtomicLong();
+    // when the correlation index is enabled, the database is only queried when requested
+    private final AtomicBoolean fullMatchingRequested = new AtomicBoolean(true);
+    private final AtomicBoolean correlationIndexRebuildRequested = new AtomicBoolean(true);
 
     private final Counter executedMessagesCounter;
     private final Counter matchedPotentialMessagesCounter;
@@ -99,6 +117,11 @@ public class MessagesHandlingService implements TenantLifecycleService {
                 .baseUnit("messages matching tasks")
                 .description("BPMN message matching tasks retriggered")
                 .register(meterRegistry);
+        Gauge.builder(MESSAGES_MATCHING_THROUGHPUT, lastMatchingThroughput, AtomicLong::get)
+                .tags(Tags.of("tenant", String.valueOf(tenantId)))
+                .baseUnit("messages per second")
+                .description("BPMN message couples executed per second by the last messages matching")
+                .register(meterRegistry);
     }
 
     @Override
@@ -108,9 +131,40 @@ public class MessagesHandlingService implements TenantLifecycleService {
                 new ArrayBlockingQueue<>(5),
                 r -> new Thread(r, "Bonita-Message-Matching"),
                 (r, executor) -> log.debug("Message matching queue capacity reached"));
+        if (eventInstanceService.isMessageCorrelationIndexEnabled()) {
+            correlationIndexRebuildRequested.set(true);
+            fullMatchingRequested.set(true);
+            if (fullMatchingIntervalSeconds > 0) {
+                // messages created on other nodes of a cluster are only found by querying the database
+                fullMatchingScheduler = Executors.newSingleThreadScheduledExecutor(
+                        r -> new Thread(r, "Bonita-Message-Full-Matching"));
+                fullMatchingScheduler.scheduleWithFixedDelay(this::submitFullMatching, fullMatchingIntervalSeconds,
+                        fullMatchingIntervalSeconds, TimeUnit.SECONDS);
+            }
+        }
         log.info("Thread that handle messages matching successfully started");
     }
 
+    /**
+     * Interval between two matchings of all messages of the database, when the message correlation index is enabled.
+     * 0 or less disables the periodic matching.
+     */
+    @Value("${bonita.tenant.message.correlationIndex.fullMatchingIntervalSeconds:30}")
+    public void setFullMatchingIntervalSeconds(long fullMatchingIntervalSeconds) {
+        this.fullMatchingIntervalSeconds = fullMatchingIntervalSeconds;
+    }
+
+    /**
+     * Maximum number of message/event couples matched in one transaction
+     */
+    @Value("${bonita.tenant.message.matching.batchSize:" + DEFAULT_MATCHING_BATCH_SIZE + "}")
+    public void setMatchingBatchSize(int matchingBatchSize) {
+        if (matchingBatchSize <= 0) {
+            throw new IllegalArgumentException("Messages matching batch size must be positive: " + matchingBatchSize);
+        }
+        this.matchingBatchSize = matchingBatchSize;
+    }
+
     @Override
     public void stop() {
         log.info("Stopping BPMN messages matcher thread");
@@ -118,6 +172,10 @@ public class MessagesHandlingService implements TenantLifecycleService {
             log.info("BPMN messages matcher thread is already stopped");
             return;
         }
+        if (fullMatchingScheduler != null) {
+            fullMatchingScheduler.shutdownNow();
+            fullMatchingScheduler = null;
+        }
         threadPoolExecutor.shutdown();
         try {
             boolean termination = threadPoolExecutor.awaitTermination(5000, TimeUnit.MILLISECONDS);
@@ -149,25 +207,55 @@ public class MessagesHandlingService implements TenantLifecycleService {
         userTransactionService.registerBonitaSynchronization(new RegisterMessagesMatchingSynchronization());
     }
 
+    /**
+     * Same as {@link #triggerMatchingOfMessages()} but, when the message correlation index is enabled, all messages of
+     * the database are matched instead of only the ones that changed in the index.
+     */
+    public void triggerFullMatchingOfMessages() throws STransactionNotFoundException {
+        fullMatchingRequested.set(true);
+        triggerMatchingOfMessages();
+    }
+
+    private void submitFullMatching() {
+        ThreadPoolExecutor executor = threadPoolExecutor;
+        if (executor != null) {
+            fullMatchingRequested.set(true);
+            executor.submit(new MessagesMatchingTask());
+        }
+    }
+
     @VisibleForTesting
     void matchEventCoupleAndTriggerExecution() throws Exception {
         userTransactionService.executeInTransaction(() -> {
-            final List<SMessageEventCouple> potentialMessageCouples = eventInstanceService.getMessageEventCouples(0,
-                    MAX_COUPLES);
+            final long start = System.nanoTime();
+            final boolean indexed = eventInstanceService.isMessageCorrelationIndexEnabled();
+            if (indexed && correlationIndexRebuildRequested.getAndSet(false)) {
+                eventInstanceService.rebuildMessageCorrelationIndex();
+            }
+            final boolean fullMatching = !indexed || fullMatchingRequested.getAndSet(false);
+            final List<SMessageEventCouple> potentialMessageCouples = fullMatching
+                    ? eventInstanceService.getMessageEventCouples(0, matchingBatchSize)
+                    : eventInstanceService.getIndexedMessageEventCouples(matchingBatchSize);
             final int potentialMessagesCount = potentialMessageCouples.size();
             log.info("Found {} potential message/event couples", potentialMessagesCount);
             matchedPotentialMessagesCounter.increment(potentialMessagesCount);
             final List<SMessageEventCouple> uniqueCouples = getMessageUniqueCouples(potentialMessageCouples);
             if (!uniqueCouples.isEmpty()) {
                 log.info("Triggering execution of unique {} message/event couples", uniqueCouples.size());
-                executeUniqueMessageCouplesWork(uniqueCouples);
+                int executed = executeMessageCouples(uniqueCouples);
+                lastMatchingThroughput.set(
+                        Math.round(executed / Math.max((System.nanoTime() - start) / 1_000_000_000d, 1e-9)));
                 log.info("Execution of message/event couples triggered");
             } else {
                 log.debug("No message/event couples to be executed");
             }
-            if (potentialMessagesCount == MAX_COUPLES) {
+            if (potentialMessagesCount == matchingBatchSize
+                    || (indexed && eventInstanceService.hasIndexedMessageEventCouplesToMatch())) {
                 log.debug("There are more than {} message/event couples to match. " +
-                        "Will trigger the execution again now, to match more couples", MAX_COUPLES);
+                        "Will trigger the execution again now, to match more couples", matchingBatchSize);
+                if (fullMatching && indexed) {
+                    fullMatchingRequested.set(true);
+                }
                 triggerMatchingOfMessages();
                 retriggeredMatchingTasksCounter.increment();
             }
@@ -175,31 +263,89 @@ public class MessagesHandlingService implements TenantLifecycleService {
         });
     }
 
-    private void executeUniqueMessageCouplesWork(final List<SMessageEventCouple> uniqueCouples)
-            throws SBonitaException {
-        for (final SMessageEventCouple couple : uniqueCouples) {
-            executeMessageCouple(couple.getMessageInstanceId(), couple.getWaitingMessageId());
-        }
-    }
-
     @VisibleForTesting
-    void executeMessageCouple(long messageInstanceId, long waitingMessageId)
-            throws SWaitingEventReadException, SMessageInstanceReadException,
-            SMessageModificationException, SWaitingEventModificationException, SWorkRegisterException {
-        log.debug("Registering message/event couple execution: message {} / event {}", messageInstanceId,
-                waitingMessageId);
+    void executeMessageCouple(long messageInstanceId, long waitingMessageId) throws SBonitaException {
+        executeMessageCouples(
+                Collections.singletonList(new SMessageEventCouple(waitingMessageId, null, messageInstanceId)));
+    }
 
+    /**
+     * Load all messages and waiting messages of the given unique couples at once, mark them as "treatment in progress"
+     * using bulk updates, and register all the works executing the couples.
+     *
+     * @return the number of couples executed
+     */
+    private int executeMessageCouples(List<SMessageEventCouple> uniqueCouples) throws SBonitaException {
+        final List<Long> messageInstanceIds = new ArrayList<>(uniqueCouples.size());
+        final List<Long> waitingMessageIds = new ArrayList<>(uniqueCouples.size());
+        for (SMessageEventCouple couple : uniqueCouples) {
+            messageInstanceIds.add(couple.getMessageInstanceId());
+            waitingMessageIds.add(couple.getWaitingMessageId());
+        }
+        final Map<Long, SMessageInstance> messageInstances = new HashMap<>(uniqueCouples.size() * 2);
+        for (SMessageInstance messageInstance : eventInstanceService.getMessageInstances(messageInstanceIds)) {
+            messageInstances.put(messageInstance.getId(), messageInstance);
+        }
+        final Map<Long, SWaitingMessageEvent> waitingMessages = new HashMap<>(uniqueCouples.size() * 2);
+        for (SWaitingMessageEvent waitingMessage : eventInstanceService.getWaitingMessages(waitingMessageIds)) {
+            waitingMessages.put(waitingMessage.getId(), waitingMessage);
+        }
+        final boolean indexed = eventInstanceService.isMessageCorrelationIndexEnabled();
+        final List<Long> handledMessageIds = new ArrayList<>(uniqueCouples.size());
+        final List<Long> inProgressWaitingMessageIds = new ArrayList<>(uniqueCouples.size());
+        final List<WorkDescriptor> works = new ArrayList<>(uniqueCouples.size());
+        for (SMessageEventCouple couple : uniqueCouples) {
+            final long messageInstanceId = couple.getMessageInstanceId();
+            final long waitingMessageId = couple.getWaitingMessageId();
+            final SMessageInstance messageInstance = messageInstances.get(messageInstanceId);
+            final SWaitingMessageEvent waitingMsg = waitingMessages.get(waitingMessageId);
+            if (indexed) {
+                if (!isStillMatchable(messageInstance, messageInstanceId, waitingMsg, waitingMessageId)) {
+                    continue;
+                }
+            } else if (messageInstance == null || waitingMsg == null) {
+                log.debug("Message/event couple no longer exists: message {} / event {}", messageInstanceId,
+                        waitingMessageId);
+                continue;
+            }
+            log.debug("Registering message/event couple execution: message {} / event {}", messageInstanceId,
+                    waitingMessageId);
+            handledMessageIds.add(messageInstanceId);
+            // EVENT_SUB_PROCESS of type non-interrupted should be considered as well, as soon as we support them
+            if (!SBPMEventType.START_EVENT.equals(waitingMsg.getEventType())) {
+                inProgressWaitingMessageIds.add(waitingMessageId);
+            }
+            works.add(workFactory.createExecuteMessageCoupleWorkDescriptor(messageInstance, waitingMsg));
+        }
         // Mark messages that will be treated as "treatment in progress":
-        final SWaitingMessageEvent waitingMsg = eventInstanceService.getWaitingMessage(waitingMessageId);
-        final SMessageInstance messageInstance = eventInstanceService.getMessageInstance(messageInstanceId);
-        markMessageAsInProgress(messageInstance);
+        eventInstanceService.markMessageInstancesAsHandled(handledMessageIds);
+        eventInstanceService.markWaitingMessagesAsInProgress(inProgressWaitingMessageIds);
+        executedMessagesCounter.increment(works.size());
+        workService.registerWorks(works);
+        return works.size();
+    }
 
-        // EVENT_SUB_PROCESS of type non-interrupted should be considered as well, as soon as we support them
-        if (!SBPMEventType.START_EVENT.equals(waitingMsg.getEventType())) {
-            markWaitingMessageAsInProgress(waitingMsg);
+    /**
+     * Couples coming from the correlation index can be outdated (e.g. elements handled on another node): check them
+     * against the database and remove from the index the elements that can no longer be matched.
+     */
+    private boolean isStillMatchable(SMessageInstance messageInstance, long messageInstanceId,
+            SWaitingMessageEvent waitingMsg, long waitingMessageId) {
+        boolean matchable = true;
+        if (messageInstance == null || messageInstance.isHandled()) {
+            eventInstanceService.unindexMessageInstance(messageInstanceId);
+            matchable = false;
+        }
+        if (waitingMsg == null || !waitingMsg.isActive()
+                || waitingMsg.getProgress() != SWaitingMessageEventBuilderFactory.PROGRESS_FREE_KEY) {
+            eventInstanceService.unindexWaitingMessage(waitingMessageId);
+            matchable = false;
+        }
+        if (!matchable) {
+            log.debug("Ignoring outdated message/event couple: message {} / event {}", messageInstanceId,
+                    waitingMessageId);
         }
-        executedMessagesCounter.increment();
-        workService.registerWork(workFactory.createExecuteMessageCoupleWorkDescriptor(messageInstance, waitingMsg));
+        return matchable;
     }
 
     /**
@@ -215,8 +361,8 @@ public class MessagesHandlingService implements TenantLifecycleService {
      *         waiting message.
      */
     List<SMessageEventCouple> getMessageUniqueCouples(List<SMessageEventCouple> potentialMessageCouples) {
-        final List<Long> takenMessages = new ArrayList<>();
-        final List<Long> takenWaitings = new ArrayList<>();
+        final LongHashSet takenMessages = new LongHashSet(potentialMessageCouples.size());
+        final LongHashSet takenWaitings = new LongHashSet(potentialMessageCouples.size());
         final List<SMessageEventCouple> uniqueMessageCouples = new ArrayList<>();
         for (final SMessageEventCouple couple : potentialMessageCouples) {
             final long messageInstanceId = couple.getMessageInstanceId();
@@ -240,20 +386,6 @@ public class MessagesHandlingService implements TenantLifecycleService {
         return uniqueMessageCouples;
     }
 
-    private void markMessageAsInProgress(final SMessageInstance messageInstance) throws SMessageModificationException {
-        final EntityUpdateDescriptor descriptor = new EntityUpdateDescriptor();
-        descriptor.addField(SMessageInstanceBuilder.HANDLED, true);
-        eventInstanceService.updateMessageInstance(messageInstance, descriptor);
-    }
-
-    private void markWaitingMessageAsInProgress(final SWaitingMessageEvent waitingMsg)
-            throws SWaitingEventModificationException {
-        final EntityUpdateDescriptor descriptor = new EntityUpdateDescriptor();
-        descriptor.addField(BuilderFactory.get(SWaitingMessageEventBuilderFactory.class).getProgressKey(),
-                SWaitingMessageEventBuilderFactory.PROGRESS_IN_TREATMENT_KEY);
-        eventInstanceService.updateWaitingMessage(waitingMsg, descriptor);
-    }
-
     public void resetMessageCouple(long messageInstanceId, long waitingMessageId)
             throws SWaitingEventReadException, SWaitingEventModificationException, SMessageModificationException,
             SMessageInstanceReadException {
@@ -309,6 +441,8 @@ public class MessagesHandlingService implements TenantLifecycleService {
                 }
                 log.debug("Messages matching completed");
             } catch (Exception e) {
+                // couples taken from the correlation index were not executed, the next matching must query the database
+                fullMatchingRequested.set(true);
                 log.error("Error while matching messages", e);
                 throw e;
             }
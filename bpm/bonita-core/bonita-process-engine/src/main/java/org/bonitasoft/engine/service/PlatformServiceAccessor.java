@@ -13,6 +13,7 @@
  **/
 package org.bonitasoft.engine.service;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.bonitasoft.engine.cache.CacheService;
 import org.bonitasoft.engine.classloader.ClassLoaderService;
 import org.bonitasoft.engine.core.platform.login.PlatformLoginService;
@@ -73,4 +74,6 @@ public interface PlatformServiceAccessor extends ServiceAccessor {
     <T> T lookup(String serviceName) throws NotFoundException;
 
     ServicesResolver getServicesResolver();
+
+    MeterRegistry getMeterRegistry();
 }
@@ -90,6 +90,7 @@ import org.bonitasoft.engine.synchro.SynchroService;
 import org.bonitasoft.engine.tenant.TenantServicesManager;
 import org.bonitasoft.engine.tenant.TenantStateManager;
 import org.bonitasoft.engine.tracking.TimeTracker;
+import org.bonitasoft.engine.tracking.profiling.ElementProfiler;
 import org.bonitasoft.engine.transaction.UserTransactionService;
 import org.bonitasoft.engine.work.WorkExecutorService;
 import org.bonitasoft.engine.work.WorkService;
@@ -224,6 +225,8 @@ public interface TenantServiceAccessor extends ServiceAccessor {
 
     TimeTracker getTimeTracker();
 
+    ElementProfiler getElementProfiler();
+
     PermissionService getPermissionService();
 
     ContractDataService getContractDataService();
@@ -13,6 +13,7 @@
  **/
 package org.bonitasoft.engine.service.impl;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.bonitasoft.engine.cache.CacheService;
 import org.bonitasoft.engine.classloader.ClassLoaderService;
 import org.bonitasoft.engine.core.platform.login.PlatformLoginService;
@@ -130,4 +131,9 @@ public class SpringPlatformServiceAccessor implements PlatformServiceAccessor {
     public ServicesResolver getServicesResolver() {
         return beanAccessor.getService(ServicesResolver.class);
     }
+
+    @Override
+    public MeterRegistry getMeterRegistry() {
+        return beanAccessor.getService(MeterRegistry.class);
+    }
 }
@@ -92,6 +92,7 @@ import org.bonitasoft.engine.synchro.SynchroService;
 import org.bonitasoft.engine.tenant.TenantServicesManager;
 import org.bonitasoft.engine.tenant.TenantStateManager;
 import org.bonitasoft.engine.tracking.TimeTracker;
+import org.bonitasoft.engine.tracking.profiling.ElementProfiler;
 import org.bonitasoft.engine.transaction.TransactionService;
 import org.bonitasoft.engine.transaction.UserTransactionService;
 import org.bonitasoft.engine.work.WorkExecutorService;
@@ -119,6 +120,11 @@ public class SpringTenantServiceAccessor implements TenantServiceAccessor {
         return beanAccessor.getService(TimeTracker.class);
     }
 
+    @Override
+    public ElementProfiler getElementProfiler() {
+        return beanAccessor.getService(ElementProfiler.class);
+    }
+
     @Override
     public SessionAccessor getSessionAccessor() {
         return beanAccessor.getService(SessionAccessor.class);
@@ -72,7 +72,7 @@ public class MessagesRestartHandler implements TenantRestartHandler {
     public void afterServicesStart() {
         try {
             userTransactionService.executeInTransaction(() -> {
-                messagesHandlingService.triggerMatchingOfMessages();
+                messagesHandlingService.triggerFullMatchingOfMessages();
                 return null;
             });
         } catch (Exception e) {
@@ -28,6 +28,7 @@ import org.bonitasoft.engine.core.process.instance.api.states.FlowNodeState;
 import org.bonitasoft.engine.core.process.instance.model.SActivityInstance;
 import org.bonitasoft.engine.core.process.instance.model.SProcessInstance;
 import org.bonitasoft.engine.execution.ProcessExecutor;
+import org.bonitasoft.engine.execution.archive.AsyncProcessInstanceArchiver;
 import org.bonitasoft.engine.execution.work.BPMWorkFactory;
 import org.bonitasoft.engine.work.WorkService;
 import org.springframework.stereotype.Component;
@@ -48,19 +49,22 @@ public class ProcessesRecover {
     private final ProcessInstanceService processInstanceService;
     private final ProcessExecutor processExecutor;
     private final BPMWorkFactory workFactory;
+    private final AsyncProcessInstanceArchiver asyncProcessInstanceArchiver;
 
     public ProcessesRecover(WorkService workService,
             ActivityInstanceService activityInstanceService,
             ProcessDefinitionService processDefinitionService,
             ProcessInstanceService processInstanceService,
             ProcessExecutor processExecutor,
-            BPMWorkFactory workFactory) {
+            BPMWorkFactory workFactory,
+            AsyncProcessInstanceArchiver asyncProcessInstanceArchiver) {
         this.workService = workService;
         this.activityInstanceService = activityInstanceService;
         this.processDefinitionService = processDefinitionService;
         this.processInstanceService = processInstanceService;
         this.processExecutor = processExecutor;
         this.workFactory = workFactory;
+        this.asyncProcessInstanceArchiver = asyncProcessInstanceArchiver;
     }
 
     void execute(RecoveryMonitor recoveryMonitor, List<Long> ids) {
@@ -108,6 +112,15 @@ public class ProcessesRecover {
 
     private void handleCompletion(final SProcessInstance processInstance)
             throws SBonitaException {
+        if (processInstance.getCallerId() <= 0) {
+            // Root process instance pending archiving: it was not archived asynchronously
+            // (see AsyncProcessInstanceArchiver), because of a failure or a restart of the node
+            log.info("Restarting archiving of finished process '{}' with id {} in state {}",
+                    processInstance.getName(), processInstance.getId(),
+                    ProcessInstanceState.getFromId(processInstance.getStateId()));
+            asyncProcessInstanceArchiver.archiveAndDeleteProcessInstance(processInstance);
+            return;
+        }
         // Only Error events set interruptedByEvent on SProcessInstance:
         if (!processInstance.hasBeenInterruptedByEvent()) {
 
@@ -123,9 +136,6 @@ public class ProcessesRecover {
                             ProcessInstanceState.getFromId(processInstance.getStateId()));
                 }
             }
-            // No need to handle completion of process instance in state COMPLETED here,
-            // as it can never happen, because when a process instance goes into COMPLETED state, it is archived
-            // directly in the same transaction (in ArchiveProcessInstanceHandler)
         }
     }
 }
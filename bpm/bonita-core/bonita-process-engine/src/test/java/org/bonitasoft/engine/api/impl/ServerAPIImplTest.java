@@ -13,6 +13,7 @@
  **/
 package org.bonitasoft.engine.api.impl;
 
+import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
 import static java.util.Collections.emptyMap;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -22,12 +23,13 @@ import static org.mockito.Mockito.*;
 
 import java.io.IOException;
 import java.io.Serializable;
-import java.lang.reflect.Method;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.bonitasoft.engine.api.NoSessionRequired;
 import org.bonitasoft.engine.api.PlatformAPI;
 import org.bonitasoft.engine.api.TenantAdministrationAPI;
@@ -348,10 +350,11 @@ public class ServerAPIImplTest {
     @Test
     public void should_checkMethodAccessibility_do_not_warn_user_when_method_is_not_deprecated() throws Throwable {
         //given
-        final Method callMe = MyApiImplementation.class.getDeclaredMethod("callMeNew");
+        final APIMethod callMe = new APIMethod(MyApi.class, MyApiImplementation.class,
+                MyApiImplementation.class.getDeclaredMethod("callMeNew"));
         systemOutRule.clearLog();
         //when
-        serverAPIImpl.checkMethodAccessibility(new MyApiImplementation(), MyApi.class.getName(), callMe, null, true);
+        serverAPIImpl.checkMethodAccessibility(callMe, null, true);
 
         //then
         assertThat(systemOutRule.getLog()).doesNotContain("is deprecated");
@@ -360,11 +363,12 @@ public class ServerAPIImplTest {
     @Test
     public void should_checkMethodAccessibility_warn_user_when_method_is_deprecated() throws Throwable {
         //given
-        final Method callMe = MyApiImplementation.class.getDeclaredMethod("callMeOld");
+        final APIMethod callMe = new APIMethod(MyApi.class, MyApiImplementation.class,
+                MyApiImplementation.class.getDeclaredMethod("callMeOld"));
         systemOutRule.clearLog();
 
         //when
-        serverAPIImpl.checkMethodAccessibility(new MyApiImplementation(), MyApi.class.getName(), callMe, null, true);
+        serverAPIImpl.checkMethodAccessibility(callMe, null, true);
 
         //then
 
@@ -381,6 +385,47 @@ public class ServerAPIImplTest {
                 emptyList(), null);
     }
 
+    @Test
+    public void should_record_duration_of_calls_per_api_method() throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        doReturn(meterRegistry).when(platformServiceAccessor).getMeterRegistry();
+
+        serverAPIImpl.invokeMethod(options(tenantSession), MyApi.class.getName(), "notAnnotatedMethod", emptyList(),
+                null);
+        serverAPIImpl.invokeMethod(options(tenantSession), MyApi.class.getName(), "notAnnotatedMethod", emptyList(),
+                null);
+
+        assertThat(meterRegistry.get(APIMethod.CALL_DURATION).tag("api", "MyApi").tag("method", "notAnnotatedMethod")
+                .timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    public void should_include_the_transaction_in_the_duration_of_calls() throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        doReturn(meterRegistry).when(platformServiceAccessor).getMeterRegistry();
+        when(userTransactionService.executeInTransaction(any())).thenAnswer(invocation -> {
+            Object result = ((Callable<?>) invocation.getArgument(0)).call();
+            // e.g. the commit
+            Thread.sleep(50);
+            return result;
+        });
+
+        serverAPIImpl.invokeMethod(options(tenantSession), MyApi.class.getName(), "notAnnotatedMethod", emptyList(),
+                null);
+
+        assertThat(meterRegistry.get(APIMethod.CALL_DURATION).timer().totalTime(TimeUnit.MILLISECONDS))
+                .isGreaterThanOrEqualTo(50);
+        verify(platformServiceAccessor, times(1)).getMeterRegistry();
+    }
+
+    @Test
+    public void should_call_method_having_parameters() throws Exception {
+        Object result = serverAPIImpl.invokeMethod(options(tenantSession), MyApi.class.getName(), "concat",
+                asList(String.class.getName(), "int"), new Object[] { "value", 2 });
+
+        assertThat(result).isEqualTo("value2");
+    }
+
     private Map<String, Serializable> options(Session session) {
         final Map<String, Serializable> options = new HashMap<>();
         options.put("session", session);
@@ -441,6 +486,8 @@ public class ServerAPIImplTest {
         void notAnnotatedMethod();
 
         void methodThatThrowRuntimeException();
+
+        String concat(String value, int number);
     }
 
     static class MyApiImplementation implements MyApi {
@@ -485,6 +532,11 @@ public class ServerAPIImplTest {
         public void methodThatThrowRuntimeException() {
             throw new BonitaRuntimeException("some exception");
         }
+
+        @Override
+        public String concat(String value, int number) {
+            return value + number;
+        }
     }
 
 }
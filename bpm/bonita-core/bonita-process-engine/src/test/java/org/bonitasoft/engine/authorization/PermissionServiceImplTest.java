@@ -28,6 +28,7 @@ import java.util.*;
 import org.apache.commons.io.FileUtils;
 import org.bonitasoft.engine.api.impl.APIAccessorImpl;
 import org.bonitasoft.engine.api.permission.APICallContext;
+import org.bonitasoft.engine.authorization.properties.CompiledResourcesPermissions;
 import org.bonitasoft.engine.authorization.properties.CompoundPermissionsMapping;
 import org.bonitasoft.engine.authorization.properties.CustomPermissionsMapping;
 import org.bonitasoft.engine.authorization.properties.ResourcesPermissionsMapping;
@@ -93,6 +94,8 @@ public class PermissionServiceImplTest {
 
     private File securityFolder;
 
+    private final Properties resourcesPermissions = new Properties();
+
     @Before
     public void before()
             throws IOException, SClassLoaderException, SSessionNotFoundException, BonitaHomeNotSetException {
@@ -108,6 +111,8 @@ public class PermissionServiceImplTest {
         doReturn(session).when(sessionService).getSession(anyLong());
 
         doReturn(securityFolder).when(bonitaHomeServer).getSecurityScriptsFolder(anyLong());
+        lenient().doAnswer(invocation -> CompiledResourcesPermissions.compile(resourcesPermissions))
+                .when(resourcesPermissionsMapping).getCompiledPermissions();
     }
 
     @Test
@@ -369,9 +374,7 @@ public class PermissionServiceImplTest {
     public void should_isAllowed_work_on_resource_with_wildcard() throws Exception {
         //given
         final List<String> resourcePermissions = List.of("CasePermission", "MyPermission");
-        doReturn(new HashSet<>(resourcePermissions)).when(resourcesPermissionsMapping)
-                .getResourcePermissionsWithWildCard("GET", "bpm", "case",
-                        List.of("12", "instantiation"));
+        returnPermissionsFor("GET", "bpm", "case", List.of("*", "instantiation"), resourcePermissions);
         returnUserPermissionsFromSession("MyPermission", "AnOtherPermission");
 
         //when
@@ -382,17 +385,43 @@ public class PermissionServiceImplTest {
         assertThat(isAuthorized).isTrue();
     }
 
+    @Test
+    public void should_isAllowed_work_on_resource_with_wildcard_and_less_qualifiers() throws Exception {
+        //given
+        returnPermissionsFor("GET", "bpm", "case", List.of("*"), List.of("CasePermission"));
+        returnUserPermissionsFromSession("CasePermission");
+
+        //when
+        final boolean isAuthorized = permissionService
+                .isAuthorized(new APICallContext("GET", "bpm", "case", "12/instantiation"));
+
+        //then
+        assertThat(isAuthorized).isTrue();
+    }
+
+    @Test
+    public void should_isAllowed_use_permissions_of_modified_mapping() throws Exception {
+        //given
+        returnPermissionsFor("GET", "bpm", "case", null, List.of("CasePermission"));
+        returnUserPermissionsFromSession("MyPermission");
+        final APICallContext apiCallContext = new APICallContext("GET", "bpm", "case", null);
+        assertThat(permissionService.isAuthorized(apiCallContext)).isFalse();
+
+        //when
+        returnPermissionsFor("GET", "bpm", "case", null, List.of("CasePermission", "MyPermission"));
+
+        //then
+        assertThat(permissionService.isAuthorized(apiCallContext)).isTrue();
+    }
+
     private void returnPermissionsFor(final String method, final String apiName, final String resourceName,
             final List<String> resourceQualifiers,
             final List<String> toBeReturned) {
+        StringBuilder key = new StringBuilder(method + "|" + apiName + "/" + resourceName);
         if (resourceQualifiers != null) {
-            doReturn(new HashSet<>(toBeReturned)).when(resourcesPermissionsMapping).getResourcePermissions(method,
-                    apiName, resourceName,
-                    resourceQualifiers);
-        } else {
-            doReturn(new HashSet<>(toBeReturned)).when(resourcesPermissionsMapping).getResourcePermissions(method,
-                    apiName, resourceName);
+            resourceQualifiers.forEach(qualifier -> key.append("/").append(qualifier));
         }
+        resourcesPermissions.setProperty(key.toString(), toBeReturned.toString());
     }
 
     private String getRuleContent(String methodBody) {
@@ -0,0 +1,90 @@
+/**
+ * Copyright (C) 2019 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.core.document.api.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.util.concurrent.Callable;
+
+import org.bonitasoft.engine.commons.exceptions.SObjectModificationException;
+import org.bonitasoft.engine.core.document.api.DocumentService;
+import org.bonitasoft.engine.sessionaccessor.SessionAccessor;
+import org.bonitasoft.engine.transaction.UserTransactionService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DocumentContentMigrationTest {
+
+    private static final long TENANT_ID = 3L;
+
+    @Mock
+    private DocumentService documentService;
+    @Mock
+    private UserTransactionService userTransactionService;
+    @Mock
+    private SessionAccessor sessionAccessor;
+
+    private DocumentContentMigration migration;
+
+    @Before
+    public void before() {
+        migration = new DocumentContentMigration(documentService, userTransactionService, sessionAccessor);
+        migration.setTenantId(TENANT_ID);
+        migration.setBatchSize(10);
+        migration.setBatchSizeInBytes(1000L);
+    }
+
+    @Test
+    public void should_move_contents_by_batches_until_all_contents_are_in_the_store() throws Exception {
+        executeInTransaction();
+        doReturn(10, 10, 3, 0).when(documentService).moveContentsToStore(10, 1000L);
+
+        assertThat(migration.moveContentsToStore()).isEqualTo(23L);
+
+        verify(sessionAccessor).setTenantId(TENANT_ID);
+        verify(userTransactionService, times(4)).executeInTransaction(any());
+    }
+
+    @Test
+    public void should_stop_moving_contents_when_a_batch_fails() throws Exception {
+        executeInTransaction();
+        doReturn(10).doThrow(new SObjectModificationException("unable to write content")).when(documentService)
+                .moveContentsToStore(10, 1000L);
+
+        assertThat(migration.moveContentsToStore()).isEqualTo(10L);
+
+        verify(documentService, times(2)).moveContentsToStore(10, 1000L);
+    }
+
+    @Test
+    public void should_not_move_contents_when_migration_is_disabled() {
+        migration.setEnabled(false);
+
+        migration.start();
+
+        verifyNoInteractions(userTransactionService, documentService);
+    }
+
+    private void executeInTransaction() throws Exception {
+        doAnswer(invocation -> invocation.<Callable<?>> getArgument(0).call())
+                .when(userTransactionService).executeInTransaction(any());
+    }
+
+}
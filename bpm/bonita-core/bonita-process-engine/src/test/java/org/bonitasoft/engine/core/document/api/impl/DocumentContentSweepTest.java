@@ -0,0 +1,120 @@
+/**
+ * Copyright (C) 2019 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.core.document.api.impl;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.Callable;
+import java.util.stream.Stream;
+
+import org.bonitasoft.engine.core.document.api.DocumentContentStore;
+import org.bonitasoft.engine.core.document.api.DocumentService;
+import org.bonitasoft.engine.sessionaccessor.SessionAccessor;
+import org.bonitasoft.engine.transaction.UserTransactionService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DocumentContentSweepTest {
+
+    private static final long TENANT_ID = 3L;
+
+    @Mock
+    private DocumentService documentService;
+    @Mock
+    private UserTransactionService userTransactionService;
+    @Mock
+    private SessionAccessor sessionAccessor;
+    @Mock
+    private DocumentContentStore contentStore;
+
+    private DocumentContentSweep sweep;
+
+    @Before
+    public void before() {
+        sweep = new DocumentContentSweep(documentService, userTransactionService, sessionAccessor);
+        sweep.setTenantId(TENANT_ID);
+        sweep.setInterval("PT6H");
+        sweep.setDeletionGracePeriod("PT1H");
+        sweep.setBatchSize(2);
+    }
+
+    @Test
+    public void should_delete_contents_no_document_references_by_batches() throws Exception {
+        sweep.setContentStore(contentStore);
+        executeInTransaction();
+        doReturn(Stream.of("a", "b", "c")).when(contentStore).listContentKeys(any());
+        doReturn(singletonList("b")).when(documentService).getUnreferencedContentKeys(asList("a", "b"));
+        doReturn(singletonList("c")).when(documentService).getUnreferencedContentKeys(singletonList("c"));
+
+        assertThat(sweep.deleteUnreferencedContents()).isEqualTo(2L);
+
+        verify(sessionAccessor).setTenantId(TENANT_ID);
+        verify(userTransactionService, times(2)).executeInTransaction(any());
+        verify(contentStore).delete("b");
+        verify(contentStore).delete("c");
+        verify(contentStore, never()).delete("a");
+    }
+
+    @Test
+    public void should_not_sweep_contents_written_during_the_grace_period() throws Exception {
+        sweep.setContentStore(contentStore);
+        doReturn(Stream.empty()).when(contentStore).listContentKeys(any());
+        Instant before = Instant.now();
+
+        sweep.deleteUnreferencedContents();
+
+        ArgumentCaptor<Instant> writtenBefore = ArgumentCaptor.forClass(Instant.class);
+        verify(contentStore).listContentKeys(writtenBefore.capture());
+        assertThat(writtenBefore.getValue()).isBetween(before.minus(1, ChronoUnit.HOURS),
+                Instant.now().minus(1, ChronoUnit.HOURS));
+    }
+
+    @Test
+    public void should_stop_sweeping_when_a_content_cannot_be_deleted() throws Exception {
+        sweep.setContentStore(contentStore);
+        executeInTransaction();
+        doReturn(Stream.of("a", "b", "c")).when(contentStore).listContentKeys(any());
+        doReturn(asList("a", "b")).when(documentService).getUnreferencedContentKeys(asList("a", "b"));
+        doThrow(new IOException("unable to delete content")).when(contentStore).delete("a");
+
+        assertThat(sweep.deleteUnreferencedContents()).isEqualTo(0L);
+
+        verify(documentService, never()).getUnreferencedContentKeys(singletonList("c"));
+    }
+
+    @Test
+    public void should_not_sweep_when_no_content_store_is_configured() {
+        sweep.start();
+
+        verifyNoInteractions(userTransactionService, documentService);
+    }
+
+    private void executeInTransaction() throws Exception {
+        doAnswer(invocation -> invocation.<Callable<?>> getArgument(0).call())
+                .when(userTransactionService).executeInTransaction(any());
+    }
+
+}
@@ -14,7 +14,10 @@
 package org.bonitasoft.engine.data;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 import java.util.List;
 
@@ -34,9 +37,15 @@ import org.bonitasoft.engine.core.process.instance.model.archive.SAProcessInstan
 import org.bonitasoft.engine.core.process.instance.model.archive.SAUserTaskInstance;
 import org.bonitasoft.engine.data.instance.api.DataContainer;
 import org.bonitasoft.engine.data.instance.api.DataInstanceContainer;
+import org.bonitasoft.engine.events.EventService;
+import org.bonitasoft.engine.events.model.SDeleteEvent;
+import org.bonitasoft.engine.events.model.SEvent;
+import org.bonitasoft.engine.events.model.SHandler;
 import org.bonitasoft.engine.persistence.SBonitaReadException;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
@@ -52,6 +61,10 @@ public class ParentContainerResolverImplTest {
     private ProcessInstanceService processInstanceService;
     @Mock
     private FlowNodeInstanceService flowNodeInstanceService;
+    @Mock
+    private EventService eventService;
+    @Captor
+    private ArgumentCaptor<SHandler<SEvent>> handlerCaptor;
     @InjectMocks
     private ParentContainerResolverImpl parentContainerResolver;
 
@@ -95,7 +108,7 @@ public class ParentContainerResolverImplTest {
                 .isEqualTo(new DataContainer(PROCESS_INSTANCE_ID, DataInstanceContainer.PROCESS_INSTANCE.name()));
     }
 
-    private void activityWithType(long id, final SFlowNodeType type, final long parentProcessInstanceId,
+    private SActivityInstance activityWithType(long id, final SFlowNodeType type, final long parentProcessInstanceId,
             final long parentActivityInstanceId,
             final long parentContainerId, final long rootContainerId)
             throws SFlowNodeReadException, SFlowNodeNotFoundException {
@@ -112,6 +125,7 @@ public class ParentContainerResolverImplTest {
         activity.setLogicalGroup(2, parentActivityInstanceId);
         activity.setParentContainerId(parentContainerId);
         activity.setRootContainerId(rootContainerId);
+        return activity;
     }
 
     private void processWithCaller(long processInstanceId, long callerId)
@@ -300,4 +314,38 @@ public class ParentContainerResolverImplTest {
                 .isEqualTo(new DataContainer(PROCESS_INSTANCE_ID, DataInstanceContainer.PROCESS_INSTANCE.name()));
     }
 
+    @Test
+    public void getContainerHierarchy_should_resolve_hierarchy_of_a_running_container_once() throws Exception {
+        //given
+        activityWithType(ACTIVITY_INSTANCE_ID, SFlowNodeType.USER_TASK, PROCESS_INSTANCE_ID, -1,
+                PROCESS_INSTANCE_ID, PROCESS_INSTANCE_ID);
+        DataContainer activity = new DataContainer(ACTIVITY_INSTANCE_ID,
+                DataInstanceContainer.ACTIVITY_INSTANCE.name());
+        //when
+        List<DataContainer> first = parentContainerResolver.getContainerHierarchy(activity);
+        List<DataContainer> second = parentContainerResolver.getContainerHierarchy(activity);
+        //then
+        assertThat(second).isEqualTo(first).hasSize(2);
+        verify(flowNodeInstanceService, times(1)).getFlowNodeInstance(ACTIVITY_INSTANCE_ID);
+    }
+
+    @Test
+    public void getContainerHierarchy_should_resolve_hierarchy_again_when_container_is_deleted() throws Exception {
+        //given
+        SActivityInstance activityInstance = activityWithType(ACTIVITY_INSTANCE_ID, SFlowNodeType.USER_TASK,
+                PROCESS_INSTANCE_ID, -1, PROCESS_INSTANCE_ID, PROCESS_INSTANCE_ID);
+        DataContainer activity = new DataContainer(ACTIVITY_INSTANCE_ID,
+                DataInstanceContainer.ACTIVITY_INSTANCE.name());
+        parentContainerResolver.getContainerHierarchy(activity);
+        verify(eventService).addHandler(eq("FLOWNODE_INSTANCE_DELETED"), handlerCaptor.capture());
+        SDeleteEvent deleteEvent = new SDeleteEvent("FLOWNODE_INSTANCE_DELETED");
+        deleteEvent.setObject(activityInstance);
+        //when
+        assertThat(handlerCaptor.getValue().isInterested(deleteEvent)).isTrue();
+        handlerCaptor.getValue().execute(deleteEvent);
+        parentContainerResolver.getContainerHierarchy(activity);
+        //then
+        verify(flowNodeInstanceService, times(2)).getFlowNodeInstance(ACTIVITY_INSTANCE_ID);
+    }
+
 }
@@ -0,0 +1,172 @@
+/**
+ * Copyright (C) 2019 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.execution.archive;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.transaction.Status;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bonitasoft.engine.core.process.instance.api.ProcessInstanceService;
+import org.bonitasoft.engine.core.process.instance.model.SProcessInstance;
+import org.bonitasoft.engine.sessionaccessor.SessionAccessor;
+import org.bonitasoft.engine.transaction.BonitaTransactionSynchronization;
+import org.bonitasoft.engine.transaction.UserTransactionService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AsyncProcessInstanceArchiverTest {
+
+    private static final long TENANT_ID = 3L;
+
+    @Mock
+    private BPMArchiverService bpmArchiverService;
+    @Mock
+    private ProcessInstanceService processInstanceService;
+    @Mock
+    private UserTransactionService userTransactionService;
+    @Mock
+    private SessionAccessor sessionAccessor;
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private AsyncProcessInstanceArchiver archiver;
+
+    @Before
+    public void before() {
+        archiver = new AsyncProcessInstanceArchiver(bpmArchiverService, processInstanceService,
+                userTransactionService, sessionAccessor, meterRegistry);
+        archiver.setTenantId(TENANT_ID);
+        archiver.setNumberOfThreads(1);
+        archiver.setQueueCapacity(1);
+        archiver.setBatchSize(10);
+    }
+
+    @After
+    public void after() {
+        archiver.stop();
+    }
+
+    @Test
+    public void should_archive_in_the_current_transaction_when_asynchronous_archiving_is_disabled()
+            throws Exception {
+        archiver.setEnabled(false);
+        archiver.initMetrics();
+        archiver.start();
+        SProcessInstance processInstance = processInstance(1L, -1L);
+
+        archiver.archiveAndDeleteProcessInstance(processInstance);
+
+        verify(bpmArchiverService).archiveAndDeleteProcessInstance(processInstance);
+        verify(userTransactionService, never()).registerBonitaSynchronization(any());
+    }
+
+    @Test
+    public void should_archive_process_instance_having_a_caller_in_the_current_transaction() throws Exception {
+        startArchiver();
+        SProcessInstance processInstance = processInstance(1L, 12L);
+
+        archiver.archiveAndDeleteProcessInstance(processInstance);
+
+        verify(bpmArchiverService).archiveAndDeleteProcessInstance(processInstance);
+        verify(userTransactionService, never()).registerBonitaSynchronization(any());
+    }
+
+    @Test
+    public void should_archive_process_instance_in_an_other_transaction_after_commit() throws Exception {
+        startArchiver();
+        committingTransactions();
+        SProcessInstance processInstance = processInstance(1L, -1L);
+        doReturn(processInstance).when(processInstanceService).getProcessInstance(1L);
+
+        archiver.archiveAndDeleteProcessInstance(processInstance);
+
+        verify(bpmArchiverService, timeout(5000)).archiveAndDeleteProcessInstance(processInstance);
+        verify(userTransactionService, timeout(5000)).executeInTransaction(any());
+        verify(sessionAccessor).setTenantId(TENANT_ID);
+        waitUntil(() -> meterRegistry.counter(AsyncProcessInstanceArchiver.ARCHIVED_PROCESS_INSTANCES,
+                "tenant", String.valueOf(TENANT_ID)).count() == 1);
+    }
+
+    @Test
+    public void should_archive_in_the_current_transaction_when_queue_is_full() throws Exception {
+        startArchiver();
+        committingTransactions();
+        CountDownLatch blockArchiving = new CountDownLatch(1);
+        SProcessInstance processInstance1 = processInstance(1L, -1L);
+        SProcessInstance processInstance2 = processInstance(2L, -1L);
+        SProcessInstance processInstance3 = processInstance(3L, -1L);
+        doAnswer(invocation -> {
+            blockArchiving.await(5, TimeUnit.SECONDS);
+            return processInstance1;
+        }).when(processInstanceService).getProcessInstance(1L);
+        archiver.archiveAndDeleteProcessInstance(processInstance1);
+        // wait for the archiving thread to take the first process instance from the queue
+        waitUntil(() -> queueSize() == 0);
+        archiver.archiveAndDeleteProcessInstance(processInstance2);
+        assertThat(queueSize()).isEqualTo(1);
+
+        archiver.archiveAndDeleteProcessInstance(processInstance3);
+
+        verify(bpmArchiverService).archiveAndDeleteProcessInstance(processInstance3);
+        assertThat(meterRegistry.counter(AsyncProcessInstanceArchiver.SYNCHRONOUSLY_ARCHIVED_PROCESS_INSTANCES,
+                "tenant", String.valueOf(TENANT_ID)).count()).isEqualTo(1);
+        blockArchiving.countDown();
+    }
+
+    private void startArchiver() {
+        archiver.setEnabled(true);
+        archiver.initMetrics();
+        archiver.start();
+    }
+
+    private void committingTransactions() throws Exception {
+        doAnswer(invocation -> {
+            invocation.<BonitaTransactionSynchronization> getArgument(0).afterCompletion(Status.STATUS_COMMITTED);
+            return null;
+        }).when(userTransactionService).registerBonitaSynchronization(any());
+        doAnswer(invocation -> invocation.<Callable<?>> getArgument(0).call())
+                .when(userTransactionService).executeInTransaction(any());
+    }
+
+    private double queueSize() {
+        return meterRegistry.get(AsyncProcessInstanceArchiver.ARCHIVING_QUEUE_SIZE).gauge().value();
+    }
+
+    private static void waitUntil(Callable<Boolean> condition) throws Exception {
+        long timeout = System.currentTimeMillis() + 5000;
+        while (!condition.call()) {
+            assertThat(System.currentTimeMillis()).as("condition not met in time").isLessThan(timeout);
+            Thread.sleep(10);
+        }
+    }
+
+    private static SProcessInstance processInstance(long id, long callerId) {
+        SProcessInstance processInstance = new SProcessInstance();
+        processInstance.setId(id);
+        processInstance.setCallerId(callerId);
+        return processInstance;
+    }
+}
@@ -213,6 +213,28 @@ public class BPMWorkFactoryTest {
         assertThat(getWorkOfClass(work, LockProcessInstanceWork.class).processInstanceId).isEqualTo(456L);
     }
 
+    @Test
+    public void should_use_process_instance_as_mailbox_key_of_works_locking_it() {
+        SAutomaticTaskInstance flowNodeInstance = new SAutomaticTaskInstance("task", 5432L, 631L, 52311, 33L, 441L);
+        flowNodeInstance.setLogicalGroup4(3452L);
+
+        assertThat(workFactory.getMailboxKey(workFactory.createExecuteFlowNodeWorkDescriptor(flowNodeInstance)))
+                .contains(3452L);
+        assertThat(workFactory.getMailboxKey(workFactory.createNotifyChildFinishedWorkDescriptor(flowNodeInstance)))
+                .contains(3452L);
+    }
+
+    @Test
+    public void should_not_have_mailbox_key_for_works_not_locking_a_process_instance() {
+        SWaitingSignalEvent listeningSignal = new SWaitingSignalEvent(SBPMEventType.INTERMEDIATE_CATCH_EVENT, 1L,
+                "myProcess", 2L, "myFlowNode", "mySignal");
+
+        assertThat(workFactory.getMailboxKey(workFactory.createTriggerSignalWorkDescriptor(listeningSignal)))
+                .isEmpty();
+        assertThat(workFactory.getMailboxKey(workFactory
+                .createExecuteConnectorOfActivityDescriptor(1L, 2L, 3L, 4L, 5L, "connectorDefName"))).isEmpty();
+    }
+
     private boolean containsFailureHandlingFlowNodeInstance(BonitaWork work) {
         return containsWorkOfClass(work, FlowNodeDefinitionAndInstanceContextWork.class);
     }
@@ -14,6 +14,8 @@
 package org.bonitasoft.engine.message;
 
 import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Stream.iterate;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -168,8 +170,7 @@ public class MessagesHandlingServiceTest {
     @Test
     public void executeMessageCouple_should_increment_executed_message_counter() throws Exception {
         // given:
-        doReturn(new SWaitingMessageEvent()).when(eventInstanceService).getWaitingMessage(2L);
-        doReturn(new SMessageInstance()).when(eventInstanceService).getMessageInstance(1L);
+        givenExistingMessagesAndWaitingMessages();
 
         // when:
         messagesHandlingService.executeMessageCouple(1L, 2L);
@@ -187,8 +188,7 @@ public class MessagesHandlingServiceTest {
 
     @Test
     public void should_increment_metrics_on_executed_and_potential_couples_when_matching_messages() throws Exception {
-        doReturn(new SWaitingMessageEvent()).when(eventInstanceService).getWaitingMessage(anyLong());
-        doReturn(new SMessageInstance()).when(eventInstanceService).getMessageInstance(anyLong());
+        givenExistingMessagesAndWaitingMessages();
         doReturn(asList(
                 new SMessageEventCouple(51, INTERMEDIATE_CATCH_EVENT, 61),
                 new SMessageEventCouple(52, INTERMEDIATE_CATCH_EVENT, 62),
@@ -206,9 +206,8 @@ public class MessagesHandlingServiceTest {
     @Test
     public void should_increment_metric_on_retriggered_taskls_when_matching_more_couples_than_the_maximum()
             throws Exception {
-        doReturn(new SWaitingMessageEvent()).when(eventInstanceService).getWaitingMessage(anyLong());
-        doReturn(new SMessageInstance()).when(eventInstanceService).getMessageInstance(anyLong());
-        List<SMessageEventCouple> couples = iterate(1, i -> i + 1).limit(100) // 100 == MAX_COUPLES
+        givenExistingMessagesAndWaitingMessages();
+        List<SMessageEventCouple> couples = iterate(1, i -> i + 1).limit(100) // 100 == default matching batch size
                 .map(i -> msgEventCouple(i, i))
                 .collect(toList());
         doReturn(couples).when(eventInstanceService).getMessageEventCouples(anyInt(), anyInt());
@@ -218,6 +217,80 @@ public class MessagesHandlingServiceTest {
         assertThat(counterValue(NUMBER_OF_MESSAGES_MATCHING_RETRIGGERED_TASKS)).isEqualTo(1);
     }
 
+    @Test
+    public void should_match_configured_number_of_couples_in_one_transaction() throws Exception {
+        givenExistingMessagesAndWaitingMessages();
+        messagesHandlingService.setMatchingBatchSize(20_000);
+        List<SMessageEventCouple> couples = iterate(1, i -> i + 1).limit(20_000)
+                .map(i -> msgEventCouple(i, i))
+                .collect(toList());
+        doReturn(couples).when(eventInstanceService).getMessageEventCouples(0, 20_000);
+
+        messagesHandlingService.matchEventCoupleAndTriggerExecution();
+
+        assertThat(counterValue(NUMBER_OF_MESSAGES_EXECUTED)).isEqualTo(20_000);
+        assertThat(counterValue(NUMBER_OF_MESSAGES_MATCHING_RETRIGGERED_TASKS)).isEqualTo(1);
+        assertThat(meterRegistry.find(MESSAGES_MATCHING_THROUGHPUT).gauge().value()).isPositive();
+    }
+
+    @Test
+    public void should_mark_couples_using_bulk_updates_and_register_all_works_at_once() throws Exception {
+        SMessageInstance message1 = messageInstance(61L);
+        SMessageInstance message2 = messageInstance(62L);
+        SWaitingMessageEvent intermediateCatchEvent = waitingMessage(51L, INTERMEDIATE_CATCH_EVENT);
+        SWaitingMessageEvent startEvent = waitingMessage(52L, START_EVENT);
+        doReturn(asList(message1, message2)).when(eventInstanceService).getMessageInstances(asList(61L, 62L));
+        doReturn(asList(intermediateCatchEvent, startEvent)).when(eventInstanceService)
+                .getWaitingMessages(asList(51L, 52L));
+        doReturn(asList(msgEventCouple(61L, 51L, INTERMEDIATE_CATCH_EVENT), msgEventCouple(62L, 52L, START_EVENT)))
+                .when(eventInstanceService).getMessageEventCouples(anyInt(), anyInt());
+
+        messagesHandlingService.matchEventCoupleAndTriggerExecution();
+
+        verify(eventInstanceService).markMessageInstancesAsHandled(asList(61L, 62L));
+        // start events are not marked as in progress, they can be triggered several times
+        verify(eventInstanceService).markWaitingMessagesAsInProgress(singletonList(51L));
+        verify(workFactory).createExecuteMessageCoupleWorkDescriptor(message1, intermediateCatchEvent);
+        verify(workFactory).createExecuteMessageCoupleWorkDescriptor(message2, startEvent);
+        verify(workService).registerWorks(argThat(works -> works.size() == 2));
+        verify(workService, never()).registerWork(any());
+    }
+
+    @Test
+    public void should_match_couples_of_the_correlation_index_after_a_first_full_matching() throws Exception {
+        doReturn(true).when(eventInstanceService).isMessageCorrelationIndexEnabled();
+        givenExistingMessagesAndWaitingMessages();
+        doReturn(asList(msgEventCouple(1L, 10L))).when(eventInstanceService).getMessageEventCouples(anyInt(),
+                anyInt());
+        doReturn(asList(msgEventCouple(2L, 20L))).when(eventInstanceService).getIndexedMessageEventCouples(anyInt());
+
+        messagesHandlingService.matchEventCoupleAndTriggerExecution();
+        messagesHandlingService.matchEventCoupleAndTriggerExecution();
+
+        verify(eventInstanceService).rebuildMessageCorrelationIndex();
+        verify(eventInstanceService).getMessageEventCouples(anyInt(), anyInt());
+        verify(eventInstanceService).getIndexedMessageEventCouples(anyInt());
+        assertThat(counterValue(NUMBER_OF_MESSAGES_EXECUTED)).isEqualTo(2);
+    }
+
+    @Test
+    public void should_not_execute_and_unindex_outdated_couple_of_the_correlation_index() throws Exception {
+        doReturn(true).when(eventInstanceService).isMessageCorrelationIndexEnabled();
+        SMessageInstance handledMessage = messageInstance(1L);
+        handledMessage.setHandled(true);
+        doReturn(singletonList(handledMessage)).when(eventInstanceService).getMessageInstances(singletonList(1L));
+        doReturn(singletonList(waitingMessage(2L, INTERMEDIATE_CATCH_EVENT))).when(eventInstanceService)
+                .getWaitingMessages(singletonList(2L));
+
+        messagesHandlingService.executeMessageCouple(1L, 2L);
+
+        verify(eventInstanceService).unindexMessageInstance(1L);
+        verify(eventInstanceService, never()).unindexWaitingMessage(anyLong());
+        verify(eventInstanceService).markMessageInstancesAsHandled(emptyList());
+        verify(workFactory, never()).createExecuteMessageCoupleWorkDescriptor(any(), any());
+        assertThat(counterValue(NUMBER_OF_MESSAGES_EXECUTED)).isEqualTo(0);
+    }
+
     // =================================================================================================================
     // UTILS
     // =================================================================================================================
@@ -230,6 +303,28 @@ public class MessagesHandlingServiceTest {
         return meterRegistry.find(counterName).counter().count();
     }
 
+    @SuppressWarnings("unchecked")
+    private void givenExistingMessagesAndWaitingMessages() throws Exception {
+        doAnswer(a -> ((List<Long>) a.getArgument(0)).stream().map(MessagesHandlingServiceTest::messageInstance)
+                .collect(toList())).when(eventInstanceService).getMessageInstances(anyList());
+        doAnswer(a -> ((List<Long>) a.getArgument(0)).stream()
+                .map(id -> waitingMessage(id, INTERMEDIATE_CATCH_EVENT))
+                .collect(toList())).when(eventInstanceService).getWaitingMessages(anyList());
+    }
+
+    private static SMessageInstance messageInstance(long id) {
+        SMessageInstance messageInstance = new SMessageInstance();
+        messageInstance.setId(id);
+        return messageInstance;
+    }
+
+    private static SWaitingMessageEvent waitingMessage(long id, SBPMEventType eventType) {
+        SWaitingMessageEvent waitingMessage = new SWaitingMessageEvent();
+        waitingMessage.setId(id);
+        waitingMessage.setEventType(eventType);
+        return waitingMessage;
+    }
+
     private static SMessageEventCouple msgEventCouple(long msgId, long eventId) {
         return new SMessageEventCouple(eventId, null, msgId);
     }
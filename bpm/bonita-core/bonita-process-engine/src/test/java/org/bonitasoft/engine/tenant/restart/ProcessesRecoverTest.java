@@ -34,6 +34,7 @@ import org.bonitasoft.engine.core.process.instance.api.states.FlowNodeState;
 import org.bonitasoft.engine.core.process.instance.model.SCallActivityInstance;
 import org.bonitasoft.engine.core.process.instance.model.SProcessInstance;
 import org.bonitasoft.engine.execution.ProcessExecutor;
+import org.bonitasoft.engine.execution.archive.AsyncProcessInstanceArchiver;
 import org.bonitasoft.engine.execution.state.FailedActivityState;
 import org.bonitasoft.engine.execution.state.FlowNodeStateManager;
 import org.bonitasoft.engine.execution.work.BPMWorkFactory;
@@ -67,6 +68,8 @@ public class ProcessesRecoverTest {
     private ProcessExecutor processExecutor;
     @Mock
     private UserTransactionService userTransactionService;
+    @Mock
+    private AsyncProcessInstanceArchiver asyncProcessInstanceArchiver;
     private ProcessesRecover processesRecover;
 
     private RecoveryMonitor recoveryMonitor;
@@ -78,7 +81,8 @@ public class ProcessesRecoverTest {
         recoveryMonitor = new RecoveryMonitor();
         recoveryMonitor.startNow(100);
         processesRecover = new ProcessesRecover(workService, activityInstanceService,
-                processDefinitionService, processInstanceService, processExecutor, new BPMWorkFactory());
+                processDefinitionService, processInstanceService, processExecutor, new BPMWorkFactory(),
+                asyncProcessInstanceArchiver);
         doAnswer(args -> ((Callable) args.getArgument(0)).call()).when(userTransactionService)
                 .executeInTransaction(any());
     }
@@ -89,11 +93,19 @@ public class ProcessesRecoverTest {
 
         processesRecover.execute(recoveryMonitor, singletonList(PROCESS_INSTANCE_ID));
 
-        // as it can never happen, because when a process instance goes into COMPLETED state, it is archived
-        // in the same transaction
         verifyNoMoreInteractions(workService);
     }
 
+    @Test
+    public void should_archive_finished_process_with_no_caller_id() throws Exception {
+        SProcessInstance processInstance = havingProcessInstance(CANCELLED, -1);
+
+        processesRecover.execute(recoveryMonitor, singletonList(PROCESS_INSTANCE_ID));
+
+        // it is pending archiving when archiving is asynchronous
+        verify(asyncProcessInstanceArchiver).archiveAndDeleteProcessInstance(processInstance);
+    }
+
     @Test
     public void should_not_execute_a_process_called_by_a_failed_call_activity() throws Exception {
         havingCallActivity(FlowNodeState.ID_ACTIVITY_FAILED, CALLER_ID);
@@ -30,6 +30,7 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.zip.ZipEntry;
@@ -81,6 +82,8 @@ import org.bonitasoft.engine.resources.ProcessResourcesService;
 import org.bonitasoft.engine.resources.SBARResource;
 import org.bonitasoft.engine.tracking.TimeTracker;
 import org.bonitasoft.engine.tracking.TimeTrackerRecords;
+import org.bonitasoft.engine.tracking.profiling.ElementProfiler;
+import org.bonitasoft.engine.tracking.profiling.ProfiledElementType;
 
 /**
  * @author Baptiste Mesta
@@ -102,6 +105,7 @@ public class ConnectorServiceImpl implements ConnectorService {
     private final DependencyService dependencyService;
     private final ClassLoaderService classLoaderService;
     private final TimeTracker timeTracker;
+    private final ElementProfiler elementProfiler;
     private ConnectorExecutionTimeLogger connectorExecutionTimeLogger;
     private final ProcessResourcesService processResourcesService;
 
@@ -111,7 +115,7 @@ public class ConnectorServiceImpl implements ConnectorService {
     public ConnectorServiceImpl(final CacheService cacheService, final ConnectorExecutor connectorExecutor,
             final ExpressionResolverService expressionResolverService, final OperationService operationService,
             final DependencyService dependencyService, ClassLoaderService classLoaderService,
-            final TimeTracker timeTracker,
+            final TimeTracker timeTracker, final ElementProfiler elementProfiler,
             ProcessResourcesService processResourcesService,
             ConnectorExecutionTimeLogger connectorExecutionTimeLogger) {
         this.cacheService = cacheService;
@@ -122,6 +126,7 @@ public class ConnectorServiceImpl implements ConnectorService {
         this.operationService = operationService;
         this.dependencyService = dependencyService;
         this.timeTracker = timeTracker;
+        this.elementProfiler = elementProfiler;
         this.connectorExecutionTimeLogger = connectorExecutionTimeLogger;
         try {
             jaxbContext = JAXBContext.newInstance(SConnectorImplementationDescriptor.class);
@@ -177,6 +182,9 @@ public class ConnectorServiceImpl implements ConnectorService {
                 .thenApply(result -> {
                     connectorExecutionTimeLogger.log(processDefinitionId, sConnectorInstance, result.getConnector(),
                             inputParameters, result.getExecutionTimeMillis());
+                    elementProfiler.recordMeasured(ProfiledElementType.CONNECTOR, processDefinitionId,
+                            sConnectorInstance.getName(),
+                            TimeUnit.MILLISECONDS.toNanos(result.getExecutionTimeMillis()));
                     return result;
                 });
     }
@@ -0,0 +1,73 @@
+/**
+ * Copyright (C) 2019 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.core.document.api;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.stream.Stream;
+
+/**
+ * Storage of the content of documents outside of the database, only their metadata and the key returned by
+ * {@link #write(InputStream)} are kept in the document table.
+ * <p>
+ * The store is not transactional: contents are written before the document referencing them is inserted, and deleted
+ * once the transaction that deleted the last document referencing them is committed. Contents written by a
+ * transaction that is rolled back, or kept by the store when deleted, are deleted later on by a periodic sweep of the
+ * store, see {@link #listContentKeys(Instant)}.
+ * <p>
+ * Implementations are activated using the {@code bonita.tenant.document.contentStore} property, contents are stored
+ * in the database when it is not set.
+ *
+ * @since 7.16
+ */
+public interface DocumentContentStore {
+
+    /**
+     * Store a content. The stream is read until its end, it is not closed.
+     *
+     * @param content the content to store
+     * @return key of the content in this store, at most 255 characters long
+     */
+    String write(InputStream content) throws IOException;
+
+    /**
+     * @param contentKey key returned by {@link #write(InputStream)}
+     * @return stream of the content, to be closed by the caller
+     * @throws IOException when there is no content with this key
+     */
+    InputStream read(String contentKey) throws IOException;
+
+    /**
+     * @param contentKey key returned by {@link #write(InputStream)}
+     * @return size of the content in bytes
+     */
+    long size(String contentKey) throws IOException;
+
+    /**
+     * Delete a content, called once no document references it anymore.
+     *
+     * @param contentKey key returned by {@link #write(InputStream)}
+     */
+    void delete(String contentKey) throws IOException;
+
+    /**
+     * List the contents of the store, e.g. to delete the ones that no document references.
+     *
+     * @param writtenBefore only contents written before this instant are listed
+     * @return keys of the contents, the stream must be closed by the caller
+     */
+    Stream<String> listContentKeys(Instant writtenBefore) throws IOException;
+
+}
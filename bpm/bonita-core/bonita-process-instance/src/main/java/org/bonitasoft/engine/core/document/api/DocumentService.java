@@ -13,6 +13,7 @@
  **/
 package org.bonitasoft.engine.core.document.api;
 
+import java.util.Collection;
 import java.util.List;
 
 import org.bonitasoft.engine.commons.exceptions.SObjectAlreadyExistsException;
@@ -109,6 +110,26 @@ public interface DocumentService {
      */
     byte[] getDocumentContent(String documentId) throws SObjectNotFoundException;
 
+    /**
+     * Get the size of the content of a document, without loading it in memory
+     *
+     * @param documentId identifier of the document
+     * @return size of the content in bytes, 0 if the document has no content
+     * @throws SObjectNotFoundException
+     */
+    long getDocumentContentSize(String documentId) throws SObjectNotFoundException;
+
+    /**
+     * Get part of the content of a document, only this part is loaded in memory
+     *
+     * @param documentId identifier of the document
+     * @param offset position of the first byte to read
+     * @param length maximum number of bytes to read
+     * @return bytes of the content starting at offset, fewer than length when the end of the content is reached
+     * @throws SObjectNotFoundException
+     */
+    byte[] getDocumentContent(String documentId, long offset, int length) throws SObjectNotFoundException;
+
     /**
      * Get document with mapping by its mapping id
      *
@@ -379,6 +400,30 @@ public interface DocumentService {
     void deleteContentOfArchivedDocument(long archivedDocumentId)
             throws SObjectNotFoundException, SBonitaReadException, SRecorderException;
 
+    /**
+     * Move contents stored in the document table to the {@link DocumentContentStore}, so that they are no longer
+     * stored in the database. Documents are updated in the current transaction, call it until it returns 0 to move all
+     * contents. Contents are read from the database one at a time.
+     *
+     * @param maxNumberOfDocuments maximum number of documents to move the content of
+     * @param maxNumberOfBytes no other content is moved once this number of bytes was moved, at least one content is
+     *        moved whatever its size
+     * @return number of documents the content was moved, 0 when all contents are in the store
+     * @throws SObjectModificationException if no content store is configured or the content could not be moved
+     * @since 7.16
+     */
+    int moveContentsToStore(int maxNumberOfDocuments, long maxNumberOfBytes) throws SObjectModificationException;
+
+    /**
+     * Get the contents of the {@link DocumentContentStore} that no document references, e.g. contents written by a
+     * transaction that was rolled back.
+     *
+     * @param contentKeys keys of contents of the store
+     * @return the given keys that no document references
+     * @since 7.16
+     */
+    List<String> getUnreferencedContentKeys(Collection<String> contentKeys) throws SBonitaReadException;
+
     /**
      * update the document having the documentId with this new version
      *
@@ -0,0 +1,93 @@
+/**
+ * Copyright (C) 2019 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.core.document.api.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.bonitasoft.engine.core.document.api.DocumentContentStore;
+
+/**
+ * {@link DocumentContentStore} keeping each content in a file of a directory of the tenant.
+ * <p>
+ * Files are spread in sub directories named after the first characters of their key, so that no directory holds too
+ * many files. Contents are first written to a temporary file then moved to their path, so that a content is never
+ * read while it is partially written.
+ */
+public abstract class AbstractFileDocumentContentStore implements DocumentContentStore {
+
+    private static final Pattern CONTENT_KEY = Pattern.compile("[0-9a-f]{4,}");
+    private static final String TEMPORARY_DIRECTORY = "tmp";
+
+    private final Path root;
+
+    protected AbstractFileDocumentContentStore(Path directory, long tenantId) {
+        this.root = directory.resolve(String.valueOf(tenantId));
+    }
+
+    @Override
+    public InputStream read(String contentKey) throws IOException {
+        return Files.newInputStream(getPath(contentKey));
+    }
+
+    @Override
+    public long size(String contentKey) throws IOException {
+        return Files.size(getPath(contentKey));
+    }
+
+    @Override
+    public Stream<String> listContentKeys(Instant writtenBefore) throws IOException {
+        if (!Files.isDirectory(root)) {
+            return Stream.empty();
+        }
+        // temporary files and files being deleted are not named after a content key
+        return Files.find(root, 3, (path, attributes) -> attributes.isRegularFile()
+                && attributes.lastModifiedTime().toInstant().isBefore(writtenBefore)
+                && CONTENT_KEY.matcher(path.getFileName().toString()).matches())
+                .map(path -> path.getFileName().toString());
+    }
+
+    protected Path getPath(String contentKey) throws IOException {
+        // keys are read from the database, they must not be able to reference a file outside of the store
+        if (contentKey == null || !CONTENT_KEY.matcher(contentKey).matches()) {
+            throw new IOException("Invalid document content key: " + contentKey);
+        }
+        return root.resolve(contentKey.substring(0, 2)).resolve(contentKey.substring(2, 4)).resolve(contentKey);
+    }
+
+    protected Path writeTemporaryFile(InputStream content) throws IOException {
+        Path temporaryDirectory = root.resolve(TEMPORARY_DIRECTORY);
+        Files.createDirectories(temporaryDirectory);
+        Path temporaryFile = Files.createTempFile(temporaryDirectory, "content", ".tmp");
+        try {
+            Files.copy(content, temporaryFile, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.deleteIfExists(temporaryFile);
+            throw e;
+        }
+        return temporaryFile;
+    }
+
+    protected void moveToPath(Path temporaryFile, Path path) throws IOException {
+        Files.createDirectories(path.getParent());
+        Files.move(temporaryFile, path, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+}
@@ -0,0 +1,165 @@
+/**
+ * Copyright (C) 2019 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.core.document.api.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.UUID;
+
+import lombok.extern.slf4j.Slf4j;
+import org.bonitasoft.engine.core.document.api.DocumentContentStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnSingleCandidate;
+import org.springframework.stereotype.Component;
+
+/**
+ * {@link DocumentContentStore} identifying contents by their SHA-256 hash: identical contents, e.g. the same file
+ * attached to several process instances or unchanged versions of a document, are stored only once.
+ * <p>
+ * A content is deleted once no document references it. As the store is not transactional, a transaction could be
+ * writing the same content while it is deleted: writing an existing content updates the modification date of its
+ * file, and files modified during the last {@code bonita.tenant.document.contentStore.deletionGracePeriod} are not
+ * deleted: the next sweep of the store deletes them if no document references them anymore. To delete a file, it is
+ * first renamed, so that writers can no longer touch it, then its modification date is checked again: a file touched
+ * before being renamed is restored.
+ * <p>
+ * Activated using {@code bonita.tenant.document.contentStore=content-addressed}, files are stored in the directory
+ * {@code bonita.tenant.document.contentStore.directory}.
+ */
+@Slf4j
+@Component
+@ConditionalOnSingleCandidate(DocumentContentStore.class)
+@ConditionalOnProperty(value = "bonita.tenant.document.contentStore", havingValue = "content-addressed")
+public class ContentAddressedDocumentContentStore extends AbstractFileDocumentContentStore {
+
+    private final Duration deletionGracePeriod;
+
+    public ContentAddressedDocumentContentStore(
+            @Value("${bonita.tenant.document.contentStore.directory}") String directory,
+            @Value("${tenantId}") long tenantId,
+            @Value("${bonita.tenant.document.contentStore.deletionGracePeriod:PT1H}") String deletionGracePeriod) {
+        this(Paths.get(directory), tenantId, Duration.parse(deletionGracePeriod));
+    }
+
+    ContentAddressedDocumentContentStore(Path directory, long tenantId, Duration deletionGracePeriod) {
+        super(directory, tenantId);
+        this.deletionGracePeriod = deletionGracePeriod;
+    }
+
+    @Override
+    public String write(InputStream content) throws IOException {
+        MessageDigest digest = newDigest();
+        Path temporaryFile = writeTemporaryFile(new DigestInputStream(content, digest));
+        String contentKey = toHexString(digest.digest());
+        Path path = getPath(contentKey);
+        if (Files.exists(path) && touch(path)) {
+            Files.delete(temporaryFile);
+            return contentKey;
+        }
+        try {
+            moveToPath(temporaryFile, path);
+        } catch (FileAlreadyExistsException e) {
+            // written by another thread in the meantime, with the same content
+            Files.deleteIfExists(temporaryFile);
+        }
+        return contentKey;
+    }
+
+    /**
+     * @return false if the file was deleted in the meantime
+     */
+    private boolean touch(Path path) throws IOException {
+        try {
+            Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void delete(String contentKey) throws IOException {
+        Path path = getPath(contentKey);
+        try {
+            if (isInGracePeriod(contentKey, path)) {
+                return;
+            }
+            Path deletedPath = moveToDeletedPath(contentKey, path);
+            if (isInGracePeriod(contentKey, deletedPath)) {
+                restore(deletedPath, path);
+                return;
+            }
+            Files.delete(deletedPath);
+        } catch (NoSuchFileException e) {
+            // already deleted
+        }
+    }
+
+    /**
+     * writers touch the file at its path: once renamed, its modification date can no longer change
+     */
+    Path moveToDeletedPath(String contentKey, Path path) throws IOException {
+        Path deletedPath = path.resolveSibling(contentKey + "-" + UUID.randomUUID() + ".deleted");
+        Files.move(path, deletedPath, StandardCopyOption.ATOMIC_MOVE);
+        return deletedPath;
+    }
+
+    private boolean isInGracePeriod(String contentKey, Path path) throws IOException {
+        long modifiedAgo = System.currentTimeMillis() - Files.getLastModifiedTime(path).toMillis();
+        if (modifiedAgo < deletionGracePeriod.toMillis()) {
+            log.debug("Content {} was written {} ms ago, it is kept as it might be referenced by a document " +
+                    "being created", contentKey, modifiedAgo);
+            return true;
+        }
+        return false;
+    }
+
+    private void restore(Path deletedPath, Path path) throws IOException {
+        try {
+            Files.move(deletedPath, path, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            // written again in the meantime, with the same content
+            Files.delete(deletedPath);
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String toHexString(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+
+}
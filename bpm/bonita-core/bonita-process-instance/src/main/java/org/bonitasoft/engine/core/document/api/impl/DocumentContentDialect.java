@@ -0,0 +1,68 @@
+/**
+ * Copyright (C) 2019 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.core.document.api.impl;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * SQL functions giving the size and ranges of the document contents stored in the database, so that only the requested
+ * bytes are sent by the database: the JDBC drivers of PostgreSQL and MySQL read the whole value of a selected column.
+ */
+enum DocumentContentDialect {
+
+    H2("h2", "octet_length", "substring"),
+    POSTGRES("postgres", "octet_length", "substring"),
+    MYSQL("mysql", "octet_length", "substring"),
+    SQLSERVER("sqlserver", "DATALENGTH", "SUBSTRING"),
+    /**
+     * DBMS_LOB.SUBSTR returns at most 32 767 bytes, ranges are read from the BLOB locator instead
+     */
+    ORACLE("oracle", "DBMS_LOB.GETLENGTH", null);
+
+    private final String dbVendor;
+    private final String sizeQuery;
+    private final String rangeQuery;
+
+    DocumentContentDialect(String dbVendor, String lengthFunction, String substringFunction) {
+        this.dbVendor = dbVendor;
+        this.sizeQuery = "SELECT contentkey, " + lengthFunction + "(content) FROM document"
+                + " WHERE tenantid = ? AND id = ?";
+        this.rangeQuery = substringFunction == null ? null
+                : "SELECT contentkey, " + substringFunction + "(content, ?, ?) FROM document"
+                        + " WHERE tenantid = ? AND id = ?";
+    }
+
+    static Optional<DocumentContentDialect> of(String dbVendor) {
+        return Arrays.stream(values()).filter(dialect -> dialect.dbVendor.equals(dbVendor)).findFirst();
+    }
+
+    /**
+     * @return query selecting the content key and the number of bytes of the content of a document, parameters are the
+     *         tenant id and the document id
+     */
+    String getSizeQuery() {
+        return sizeQuery;
+    }
+
+    /**
+     * @return query selecting the content key and a range of the content of a document, parameters are the position of
+     *         the first byte starting at 1, the length, the tenant id and the document id. Empty when the database
+     *         cannot return ranges of any length with SQL.
+     */
+    Optional<String> getRangeQuery() {
+        return Optional.ofNullable(rangeQuery);
+    }
+
+}
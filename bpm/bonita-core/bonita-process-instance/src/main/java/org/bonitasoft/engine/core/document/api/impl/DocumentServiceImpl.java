@@ -13,12 +13,26 @@
  **/
 package org.bonitasoft.engine.core.document.api.impl;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Blob;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
+import lombok.extern.slf4j.Slf4j;
 import org.bonitasoft.engine.archive.ArchiveInsertRecord;
 import org.bonitasoft.engine.archive.ArchiveService;
 import org.bonitasoft.engine.commons.exceptions.SBonitaException;
@@ -26,6 +40,7 @@ import org.bonitasoft.engine.commons.exceptions.SObjectAlreadyExistsException;
 import org.bonitasoft.engine.commons.exceptions.SObjectCreationException;
 import org.bonitasoft.engine.commons.exceptions.SObjectModificationException;
 import org.bonitasoft.engine.commons.exceptions.SObjectNotFoundException;
+import org.bonitasoft.engine.core.document.api.DocumentContentStore;
 import org.bonitasoft.engine.core.document.api.DocumentService;
 import org.bonitasoft.engine.core.document.model.AbstractSDocumentMapping;
 import org.bonitasoft.engine.core.document.model.AbstractSMappedDocument;
@@ -48,6 +63,9 @@ import org.bonitasoft.engine.recorder.SRecorderException;
 import org.bonitasoft.engine.recorder.model.DeleteRecord;
 import org.bonitasoft.engine.recorder.model.InsertRecord;
 import org.bonitasoft.engine.recorder.model.UpdateRecord;
+import org.bonitasoft.engine.transaction.UserTransactionService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 
 /**
  * @author Nicolas Chabanoles
@@ -55,17 +73,34 @@ import org.bonitasoft.engine.recorder.model.UpdateRecord;
  * @author Celine Souchet
  * @author Baptiste Mesta
  */
+@Slf4j
 public class DocumentServiceImpl implements DocumentService {
 
+    /**
+     * Content is read with plain JDBC: Hibernate would load the whole content of the document
+     */
+    static final String DOCUMENT_CONTENT_QUERY = "SELECT contentkey, content FROM document"
+            + " WHERE tenantid = ? AND id = ?";
+    static final String CONTENTS_TO_MOVE_QUERY = "SELECT id FROM document"
+            + " WHERE tenantid = ? AND contentkey IS NULL AND content IS NOT NULL";
+    static final String MOVED_CONTENT_UPDATE = "UPDATE document SET content = NULL, contentkey = ?"
+            + " WHERE tenantid = ? AND id = ?";
+
     private final SDocumentDownloadURLProvider urlProvider;
     private final ArchiveService archiveService;
     private final Recorder recorder;
     private final ReadPersistenceService persistenceService;
     private final ReadPersistenceService definitiveArchiveReadPersistenceService;
+    private final long tenantId;
+    private DocumentContentStore contentStore;
+    private UserTransactionService userTransactionService;
+    private DocumentContentDialect contentDialect;
 
     public DocumentServiceImpl(final Recorder recorder, final ReadPersistenceService persistenceService,
-            final SDocumentDownloadURLProvider urlProvider, final ArchiveService archiveService) {
+            final SDocumentDownloadURLProvider urlProvider, final ArchiveService archiveService,
+            final long tenantId) {
         this.recorder = recorder;
+        this.tenantId = tenantId;
         this.persistenceService = persistenceService;
         this.urlProvider = urlProvider;
         this.archiveService = archiveService;
@@ -73,6 +108,28 @@ public class DocumentServiceImpl implements DocumentService {
 
     }
 
+    /**
+     * Store contents of new documents in this store instead of the content column of the document table
+     */
+    @Autowired(required = false)
+    public void setContentStore(DocumentContentStore contentStore) {
+        this.contentStore = contentStore;
+    }
+
+    /**
+     * Sizes and ranges of contents stored in the database are computed by the database when its vendor is known,
+     * otherwise they are computed from the whole content
+     */
+    @Value("${db.vendor:}")
+    public void setDbVendor(String dbVendor) {
+        this.contentDialect = DocumentContentDialect.of(dbVendor).orElse(null);
+    }
+
+    @Autowired(required = false)
+    public void setUserTransactionService(UserTransactionService userTransactionService) {
+        this.userTransactionService = userTransactionService;
+    }
+
     @Override
     public SMappedDocument attachDocumentToProcessInstance(final SDocument document, final long processInstanceId,
             final String name, final String description)
@@ -152,7 +209,16 @@ public class DocumentServiceImpl implements DocumentService {
         return String.valueOf(intVersion + 1);
     }
 
-    private void insertDocument(final SDocument document) throws SRecorderException {
+    private void insertDocument(final SDocument document) throws SRecorderException, SObjectCreationException {
+        if (contentStore != null && document.getContent() != null) {
+            try {
+                document.setContentKey(contentStore.write(new ByteArrayInputStream(document.getContent())));
+            } catch (final IOException e) {
+                throw new SObjectCreationException(
+                        "Unable to store the content of document " + document.getFileName(), e);
+            }
+            document.setContent(null);
+        }
         recorder.recordInsert(new InsertRecord(document), DOCUMENT);
     }
 
@@ -260,14 +326,206 @@ public class DocumentServiceImpl implements DocumentService {
         try {
             final Long id = Long
                     .valueOf(documentId);
-            return getDocumentWithContent(id).getContent();
+            final SDocument document = getDocumentWithContent(id);
+            if (document.getContentKey() != null) {
+                return readFromContentStore(document.getContentKey(), InputStream::readAllBytes);
+            }
+            return document.getContent();
+        } catch (final NumberFormatException e) {
+            throw new SObjectNotFoundException("Identifier " + documentId + " is not valid, it must be a long");
+        } catch (final SBonitaReadException e) {
+            throw new SObjectNotFoundException(e);
+        } catch (final IOException e) {
+            throw new SObjectNotFoundException("Unable to read the content of document " + documentId, e);
+        }
+    }
+
+    @Override
+    public long getDocumentContentSize(final String documentId) throws SObjectNotFoundException {
+        final long id = parseDocumentId(documentId);
+        final StoredContentReader<Long> storedContentReader = contentKey -> getContentStore(contentKey)
+                .size(contentKey);
+        if (contentDialect == null) {
+            return readDocumentContent(id, DOCUMENT_CONTENT_QUERY, statement -> setDocument(statement, 1, id),
+                    streamedContent(DocumentServiceImpl::countBytes), storedContentReader);
+        }
+        return readDocumentContent(id, contentDialect.getSizeQuery(), statement -> setDocument(statement, 1, id),
+                ResultSet::getLong, storedContentReader);
+    }
+
+    @Override
+    public byte[] getDocumentContent(final String documentId, final long offset, final int length)
+            throws SObjectNotFoundException {
+        if (offset < 0 || length < 0) {
+            throw new IllegalArgumentException(
+                    "Offset and length must be positive, got offset " + offset + " and length " + length);
+        }
+        final long id = parseDocumentId(documentId);
+        final ContentReader<byte[]> rangeReader = content -> readRange(content, offset, length);
+        final StoredContentReader<byte[]> storedContentReader = contentKey -> readFromContentStore(contentKey,
+                rangeReader);
+        final Optional<String> rangeQuery = contentDialect != null && offset < Integer.MAX_VALUE
+                ? contentDialect.getRangeQuery()
+                : Optional.empty();
+        if (rangeQuery.isPresent()) {
+            return readDocumentContent(id, rangeQuery.get(), statement -> {
+                statement.setInt(1, (int) offset + 1);
+                statement.setInt(2, length);
+                setDocument(statement, 3, id);
+            }, (resultSet, column) -> {
+                final byte[] range = resultSet.getBytes(column);
+                return range != null ? range : new byte[0];
+            }, storedContentReader);
+        }
+        if (contentDialect == DocumentContentDialect.ORACLE) {
+            return readDocumentContent(id, DOCUMENT_CONTENT_QUERY, statement -> setDocument(statement, 1, id),
+                    (resultSet, column) -> readRange(resultSet.getBlob(column), offset, length),
+                    storedContentReader);
+        }
+        return readDocumentContent(id, DOCUMENT_CONTENT_QUERY, statement -> setDocument(statement, 1, id),
+                streamedContent(rangeReader), storedContentReader);
+    }
+
+    private long parseDocumentId(final String documentId) throws SObjectNotFoundException {
+        try {
+            return Long.parseLong(documentId);
         } catch (final NumberFormatException e) {
             throw new SObjectNotFoundException("Identifier " + documentId + " is not valid, it must be a long");
+        }
+    }
+
+    private void setDocument(final PreparedStatement statement, final int firstParameter, final long id)
+            throws SQLException {
+        statement.setLong(firstParameter, tenantId);
+        statement.setLong(firstParameter + 1, id);
+    }
+
+    /**
+     * @param query selects the content key of the document then a value computed from its content
+     */
+    private <T> T readDocumentContent(final long id, final String query, final StatementParameters parameters,
+            final ContentColumnReader<T> reader, final StoredContentReader<T> storedContentReader)
+            throws SObjectNotFoundException {
+        try {
+            final Optional<T> result = persistenceService.executeWithConnection(connection -> {
+                try (PreparedStatement statement = connection.prepareStatement(query)) {
+                    parameters.set(statement);
+                    try (ResultSet resultSet = statement.executeQuery()) {
+                        if (!resultSet.next()) {
+                            return Optional.empty();
+                        }
+                        final String contentKey = resultSet.getString(1);
+                        if (contentKey != null) {
+                            return Optional.of(storedContentReader.read(contentKey));
+                        }
+                        return Optional.of(reader.read(resultSet, 2));
+                    } catch (final IOException e) {
+                        throw new SQLException("Unable to read the content of document " + id, e);
+                    }
+                }
+            });
+            return result.orElseThrow(() -> new SObjectNotFoundException("Document with id " + id + " not found"));
         } catch (final SBonitaReadException e) {
             throw new SObjectNotFoundException(e);
         }
     }
 
+    private static <T> ContentColumnReader<T> streamedContent(final ContentReader<T> reader) {
+        return (resultSet, column) -> {
+            try (InputStream content = resultSet.getBinaryStream(column)) {
+                return reader.read(content != null ? content : InputStream.nullInputStream());
+            }
+        };
+    }
+
+    /**
+     * @return the range of the BLOB, read from its locator without reading the rest of the content
+     */
+    static byte[] readRange(final Blob content, final long offset, final int length) throws SQLException {
+        if (content == null) {
+            return new byte[0];
+        }
+        try {
+            final long rangeLength = Math.min(length, content.length() - offset);
+            if (rangeLength <= 0) {
+                return new byte[0];
+            }
+            return content.getBytes(offset + 1, (int) rangeLength);
+        } finally {
+            content.free();
+        }
+    }
+
+    /**
+     * @return number of bytes of the content, skipped rather than read when the stream supports it
+     */
+    static long countBytes(final InputStream content) throws IOException {
+        long count = 0;
+        while (true) {
+            final long skipped = content.skip(Long.MAX_VALUE);
+            if (skipped > 0) {
+                count += skipped;
+            } else if (content.read() < 0) {
+                return count;
+            } else {
+                count++;
+            }
+        }
+    }
+
+    static byte[] readRange(final InputStream content, final long offset, final int length) throws IOException {
+        long remainingToSkip = offset;
+        while (remainingToSkip > 0) {
+            final long skipped = content.skip(remainingToSkip);
+            if (skipped > 0) {
+                remainingToSkip -= skipped;
+            } else if (content.read() < 0) {
+                return new byte[0];
+            } else {
+                remainingToSkip--;
+            }
+        }
+        return content.readNBytes(length);
+    }
+
+    private <T> T readFromContentStore(final String contentKey, final ContentReader<T> reader) throws IOException {
+        try (InputStream content = getContentStore(contentKey).read(contentKey)) {
+            return reader.read(content);
+        }
+    }
+
+    private DocumentContentStore getContentStore(final String contentKey) throws IOException {
+        if (contentStore == null) {
+            throw new IOException("Content " + contentKey + " is in a document content store, but no store is "
+                    + "configured, set the property bonita.tenant.document.contentStore");
+        }
+        return contentStore;
+    }
+
+    @FunctionalInterface
+    private interface ContentReader<T> {
+
+        T read(InputStream content) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface ContentColumnReader<T> {
+
+        T read(ResultSet resultSet, int column) throws SQLException, IOException;
+    }
+
+    @FunctionalInterface
+    private interface StatementParameters {
+
+        void set(PreparedStatement statement) throws SQLException;
+    }
+
+    @FunctionalInterface
+    private interface StoredContentReader<T> {
+
+        T read(String contentKey) throws IOException;
+    }
+
     private SDocument getDocumentWithContent(final Long id) throws SBonitaReadException, SObjectNotFoundException {
         final SDocument document = persistenceService
                 .selectById(new SelectByIdDescriptor<>(SDocument.class, id));
@@ -348,8 +606,10 @@ public class DocumentServiceImpl implements DocumentService {
     @Override
     public void deleteDocument(final SLightDocument document) throws SObjectModificationException {
         try {
+            final List<String> contentKeys = getContentKeys(Collections.singletonList(document.getId()));
             delete(document);
-        } catch (final SRecorderException e) {
+            deleteUnreferencedContents(contentKeys);
+        } catch (final SRecorderException | SBonitaReadException e) {
             throw new SObjectModificationException(e);
         }
     }
@@ -419,9 +679,74 @@ public class DocumentServiceImpl implements DocumentService {
             documentMappingIds.add(mappedDocument.getId());
         }
 
+        final List<String> contentKeys = getContentKeys(documentIds);
         archiveService.deleteFromQuery("deleteArchiveDocumentsByIds", Collections.singletonMap("ids", documentIds));
         archiveService.deleteFromQuery("deleteArchiveMappingsByIds",
                 Collections.singletonMap("ids", documentMappingIds));
+        deleteUnreferencedContents(contentKeys);
+    }
+
+    private List<String> getContentKeys(final List<Long> documentIds) throws SBonitaReadException {
+        if (contentStore == null) {
+            return Collections.emptyList();
+        }
+        return persistenceService.selectList(SelectDescriptorBuilder.getContentKeysOfDocuments(documentIds));
+    }
+
+    /**
+     * Delete from the content store the given contents that are not referenced by any document anymore, once the
+     * current transaction is committed. With a content addressed store, a content can be shared by several documents.
+     */
+    private void deleteUnreferencedContents(final Collection<String> contentKeys) throws SBonitaReadException {
+        if (contentStore == null || contentKeys.isEmpty()) {
+            return;
+        }
+        final List<String> unreferencedContentKeys = new ArrayList<>();
+        for (final String contentKey : new LinkedHashSet<>(contentKeys)) {
+            if (persistenceService
+                    .selectOne(SelectDescriptorBuilder.getNumberOfDocumentsWithContentKey(contentKey)) == 0) {
+                unreferencedContentKeys.add(contentKey);
+            }
+        }
+        if (!unreferencedContentKeys.isEmpty()) {
+            onCommit(() -> deleteFromContentStore(unreferencedContentKeys));
+        }
+    }
+
+    @Override
+    public List<String> getUnreferencedContentKeys(final Collection<String> contentKeys)
+            throws SBonitaReadException {
+        if (contentKeys.isEmpty()) {
+            return Collections.emptyList();
+        }
+        final Set<String> unreferencedContentKeys = new LinkedHashSet<>(contentKeys);
+        unreferencedContentKeys.removeAll(
+                persistenceService.selectList(SelectDescriptorBuilder.getReferencedContentKeys(contentKeys)));
+        return new ArrayList<>(unreferencedContentKeys);
+    }
+
+    private void deleteFromContentStore(final List<String> contentKeys) {
+        for (final String contentKey : contentKeys) {
+            try {
+                contentStore.delete(contentKey);
+            } catch (final IOException e) {
+                log.warn("Unable to delete content {} from the document content store: {}", contentKey,
+                        e.getMessage());
+                log.debug("Cause", e);
+            }
+        }
+    }
+
+    /**
+     * The store is not transactional: contents must only be deleted once the deletion of their documents is
+     * committed.
+     */
+    private void onCommit(final Runnable action) {
+        if (userTransactionService == null) {
+            action.run();
+        } else {
+            userTransactionService.runAfterCommit(action);
+        }
     }
 
     private SDocumentMapping create(final long documentId, final long processInstanceId, final String name,
@@ -468,8 +793,89 @@ public class DocumentServiceImpl implements DocumentService {
             throws SObjectNotFoundException, SBonitaReadException, SRecorderException {
         final SAMappedDocument archivedDocument = getArchivedDocument(archivedDocumentId);
         final SDocument document = getDocumentWithContent(archivedDocument.getDocumentId());
-        recorder.recordUpdate(UpdateRecord.buildSetFields(document, Collections.singletonMap("content", null)),
-                DOCUMENT);
+        final String contentKey = document.getContentKey();
+        final Map<String, Object> fields = new HashMap<>(2);
+        fields.put("content", null);
+        fields.put("contentKey", null);
+        recorder.recordUpdate(UpdateRecord.buildSetFields(document, fields), DOCUMENT);
+        if (contentKey != null) {
+            deleteUnreferencedContents(Collections.singletonList(contentKey));
+        }
+    }
+
+    @Override
+    public int moveContentsToStore(final int maxNumberOfDocuments, final long maxNumberOfBytes)
+            throws SObjectModificationException {
+        if (contentStore == null) {
+            throw new SObjectModificationException("No document content store is configured, "
+                    + "set the property bonita.tenant.document.contentStore");
+        }
+        try {
+            return persistenceService.executeWithConnection(connection -> {
+                // only ids are selected: drivers read all selected rows, contents are then read one at a time
+                final List<Long> ids = new ArrayList<>();
+                try (PreparedStatement select = connection.prepareStatement(CONTENTS_TO_MOVE_QUERY)) {
+                    select.setLong(1, tenantId);
+                    select.setMaxRows(maxNumberOfDocuments);
+                    try (ResultSet resultSet = select.executeQuery()) {
+                        while (resultSet.next()) {
+                            ids.add(resultSet.getLong(1));
+                        }
+                    }
+                }
+                final Map<Long, String> contentKeys = new LinkedHashMap<>();
+                long numberOfBytes = 0;
+                for (final Long id : ids) {
+                    if (numberOfBytes >= maxNumberOfBytes) {
+                        break;
+                    }
+                    numberOfBytes += moveContentToStore(connection, id, contentKeys);
+                }
+                if (contentKeys.isEmpty()) {
+                    return 0;
+                }
+                try (PreparedStatement update = connection.prepareStatement(MOVED_CONTENT_UPDATE)) {
+                    for (final Map.Entry<Long, String> contentKey : contentKeys.entrySet()) {
+                        update.setString(1, contentKey.getValue());
+                        update.setLong(2, tenantId);
+                        update.setLong(3, contentKey.getKey());
+                        update.addBatch();
+                    }
+                    update.executeBatch();
+                }
+                return contentKeys.size();
+            });
+        } catch (final SBonitaReadException e) {
+            throw new SObjectModificationException(e);
+        }
+    }
+
+    /**
+     * Write the content of the document in the store, and put its key in contentKeys
+     *
+     * @return number of bytes of the content, 0 if the content of the document is no longer in the database
+     */
+    private long moveContentToStore(final Connection connection, final long id, final Map<Long, String> contentKeys)
+            throws SQLException {
+        try (PreparedStatement select = connection.prepareStatement(DOCUMENT_CONTENT_QUERY)) {
+            setDocument(select, 1, id);
+            try (ResultSet resultSet = select.executeQuery()) {
+                if (!resultSet.next() || resultSet.getString(1) != null) {
+                    return 0;
+                }
+                try (InputStream content = resultSet.getBinaryStream(2)) {
+                    if (content == null) {
+                        return 0;
+                    }
+                    final String contentKey = contentStore.write(content);
+                    contentKeys.put(id, contentKey);
+                    return contentStore.size(contentKey);
+                }
+            }
+        } catch (final IOException e) {
+            throw new SQLException("Unable to move the content of document " + id + " to the document content store",
+                    e);
+        }
     }
 
     @Override
@@ -492,7 +898,7 @@ public class DocumentServiceImpl implements DocumentService {
         //insert new document
         try {
             insertDocument(sDocument);
-        } catch (final SRecorderException e) {
+        } catch (final SRecorderException | SObjectCreationException e) {
             throw new SObjectModificationException(e);
         }
         //update mapping
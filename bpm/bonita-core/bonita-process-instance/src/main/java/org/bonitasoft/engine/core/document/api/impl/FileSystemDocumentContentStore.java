@@ -0,0 +1,62 @@
+/**
+ * Copyright (C) 2019 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.core.document.api.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.UUID;
+
+import org.bonitasoft.engine.core.document.api.DocumentContentStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnSingleCandidate;
+import org.springframework.stereotype.Component;
+
+/**
+ * {@link DocumentContentStore} writing each content in its own file, identified by a random key.
+ * <p>
+ * Activated using {@code bonita.tenant.document.contentStore=filesystem}, files are stored in the directory
+ * {@code bonita.tenant.document.contentStore.directory}.
+ */
+@Component
+@ConditionalOnSingleCandidate(DocumentContentStore.class)
+@ConditionalOnProperty(value = "bonita.tenant.document.contentStore", havingValue = "filesystem")
+public class FileSystemDocumentContentStore extends AbstractFileDocumentContentStore {
+
+    public FileSystemDocumentContentStore(
+            @Value("${bonita.tenant.document.contentStore.directory}") String directory,
+            @Value("${tenantId}") long tenantId) {
+        this(Paths.get(directory), tenantId);
+    }
+
+    FileSystemDocumentContentStore(Path directory, long tenantId) {
+        super(directory, tenantId);
+    }
+
+    @Override
+    public String write(InputStream content) throws IOException {
+        String contentKey = UUID.randomUUID().toString().replace("-", "");
+        moveToPath(writeTemporaryFile(content), getPath(contentKey));
+        return contentKey;
+    }
+
+    @Override
+    public void delete(String contentKey) throws IOException {
+        Files.deleteIfExists(getPath(contentKey));
+    }
+
+}
@@ -14,6 +14,7 @@
 package org.bonitasoft.engine.core.document.model;
 
 import javax.persistence.Cacheable;
+import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.Table;
 
@@ -50,4 +51,11 @@ public class SDocument extends AbstractSDocument {
 
     @Type(type = "materialized_blob")
     private byte[] content;
+
+    /**
+     * Key of the content in the {@link org.bonitasoft.engine.core.document.api.DocumentContentStore}, null when the
+     * content is stored in the content column
+     */
+    @Column(name = "contentkey")
+    private String contentKey;
 }
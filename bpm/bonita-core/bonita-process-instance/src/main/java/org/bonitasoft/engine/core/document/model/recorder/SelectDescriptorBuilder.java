@@ -13,7 +13,10 @@
  **/
 package org.bonitasoft.engine.core.document.model.recorder;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.bonitasoft.engine.core.document.model.SDocument;
@@ -111,4 +114,20 @@ public class SelectDescriptorBuilder {
         return new SelectListDescriptor<>("getDocumentCreatedBeforeList", parameters, SMappedDocument.class,
                 queryOptions);
     }
+
+    public static SelectListDescriptor<String> getContentKeysOfDocuments(List<Long> documentIds) {
+        return new SelectListDescriptor<>("getContentKeysOfDocuments",
+                Collections.singletonMap("ids", documentIds), SDocument.class, String.class, QueryOptions.ALL_RESULTS);
+    }
+
+    public static SelectListDescriptor<String> getReferencedContentKeys(Collection<String> contentKeys) {
+        return new SelectListDescriptor<>("getReferencedContentKeys",
+                Collections.singletonMap("contentKeys", contentKeys), SDocument.class, String.class,
+                QueryOptions.ALL_RESULTS);
+    }
+
+    public static SelectOneDescriptor<Long> getNumberOfDocumentsWithContentKey(String contentKey) {
+        return new SelectOneDescriptor<>("getNumberOfDocumentsWithContentKey",
+                Collections.singletonMap("contentKey", contentKey), SDocument.class, Long.class);
+    }
 }
@@ -131,6 +131,20 @@ public interface EventInstanceRepository {
 
     SMessageInstance getMessageInstance(long messageInstanceId) throws SMessageInstanceReadException;
 
+    List<SWaitingMessageEvent> getWaitingMessages(List<Long> waitingMessageIds) throws SWaitingEventReadException;
+
+    List<SMessageInstance> getMessageInstances(List<Long> messageInstanceIds) throws SMessageInstanceReadException;
+
+    /**
+     * Set handled=true on the given messages using bulk updates, no update event is fired
+     */
+    int markMessageInstancesAsHandled(List<Long> messageInstanceIds) throws SMessageModificationException;
+
+    /**
+     * Set the progress of the given waiting messages to "in treatment" using bulk updates, no update event is fired
+     */
+    int markWaitingMessagesAsInProgress(List<Long> waitingMessageIds) throws SWaitingEventModificationException;
+
     void deleteMessageInstanceByIds(List<Long> ids) throws SMessageModificationException;
 
     List<Long> getMessageInstanceIdOlderThanCreationDate(final long creationDate,
@@ -146,6 +160,8 @@ public interface EventInstanceRepository {
     <T extends SWaitingEvent> List<T> searchWaitingEvents(Class<T> entityClass, QueryOptions searchOptions)
             throws SBonitaReadException;
 
+    List<SMessageInstance> searchMessageInstances(QueryOptions searchOptions) throws SBonitaReadException;
+
     long getNumberOfWaitingEvents(Class<? extends SWaitingEvent> entityClass, QueryOptions countOptions)
             throws SBonitaReadException;
 
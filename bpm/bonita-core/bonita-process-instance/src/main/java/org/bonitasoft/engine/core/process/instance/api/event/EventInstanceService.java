@@ -124,8 +124,78 @@ public interface EventInstanceService {
     List<SMessageEventCouple> getMessageEventCouples(int fromIndex, int maxResults)
             throws SEventTriggerInstanceReadException;
 
+    /**
+     * @return true if messages and waiting messages are kept in an in-memory correlation index
+     * @since 7.16
+     */
+    boolean isMessageCorrelationIndexEnabled();
+
+    /**
+     * Get the candidate couples of the correlation keys that changed since the last call, using the in-memory
+     * correlation index. Candidates must be checked against the database before being executed.
+     *
+     * @param maxResults maximum number of couples to return
+     * @return the candidate couples, empty if the correlation index is not enabled
+     * @since 7.16
+     */
+    List<SMessageEventCouple> getIndexedMessageEventCouples(int maxResults);
+
+    /**
+     * @return true if some correlation keys of the in-memory correlation index changed and were not yet matched
+     * @since 7.16
+     */
+    boolean hasIndexedMessageEventCouplesToMatch();
+
+    /**
+     * Reload the in-memory correlation index with the messages and waiting messages that can currently be matched.
+     * Does nothing if the correlation index is not enabled.
+     *
+     * @since 7.16
+     */
+    void rebuildMessageCorrelationIndex() throws SBonitaReadException;
+
+    /**
+     * Remove from the in-memory correlation index a message that can no longer be matched
+     *
+     * @since 7.16
+     */
+    void unindexMessageInstance(long messageInstanceId);
+
+    /**
+     * Remove from the in-memory correlation index a waiting message that can no longer be matched
+     *
+     * @since 7.16
+     */
+    void unindexWaitingMessage(long waitingMessageId);
+
     SWaitingMessageEvent getWaitingMessage(long waitingMessageId) throws SWaitingEventReadException;
 
+    /**
+     * @return the waiting messages having the given ids, in no particular order. Missing ids are ignored.
+     * @since 7.16
+     */
+    List<SWaitingMessageEvent> getWaitingMessages(List<Long> waitingMessageIds) throws SWaitingEventReadException;
+
+    /**
+     * @return the messages having the given ids, in no particular order. Missing ids are ignored.
+     * @since 7.16
+     */
+    List<SMessageInstance> getMessageInstances(List<Long> messageInstanceIds) throws SMessageInstanceReadException;
+
+    /**
+     * Mark the given messages as handled using bulk updates
+     *
+     * @since 7.16
+     */
+    void markMessageInstancesAsHandled(List<Long> messageInstanceIds) throws SMessageModificationException;
+
+    /**
+     * Mark the given waiting messages as "in treatment" using bulk updates
+     *
+     * @since 7.16
+     */
+    void markWaitingMessagesAsInProgress(List<Long> waitingMessageIds) throws SWaitingEventModificationException;
+
     SMessageInstance getMessageInstance(long messageInstanceId) throws SMessageInstanceReadException;
 
     void updateWaitingMessage(SWaitingMessageEvent waitingMessageEvent, EntityUpdateDescriptor descriptor)
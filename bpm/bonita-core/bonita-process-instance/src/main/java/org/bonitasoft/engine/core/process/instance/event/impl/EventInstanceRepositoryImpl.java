@@ -55,6 +55,9 @@ public class EventInstanceRepositoryImpl implements EventInstanceRepository {
 
     private static final String QUERY_RESET_PROGRESS_MESSAGE_INSTANCES = "resetProgressMessageInstances";
 
+    // maximum size of the IN clauses of the bulk operations on messages (Oracle does not support more than 1000)
+    private static final int BULK_IN_REQUEST_SIZE = 1000;
+
     private final EventService eventService;
 
     private final Recorder recorder;
@@ -303,6 +306,67 @@ public class EventInstanceRepositoryImpl implements EventInstanceRepository {
 
     }
 
+    @Override
+    public List<SWaitingMessageEvent> getWaitingMessages(List<Long> waitingMessageIds)
+            throws SWaitingEventReadException {
+        List<SWaitingMessageEvent> waitingMessages = new ArrayList<>(waitingMessageIds.size());
+        for (List<Long> fragmentIds : ListUtils.partition(waitingMessageIds, BULK_IN_REQUEST_SIZE)) {
+            try {
+                waitingMessages.addAll(persistenceService.selectList(new SelectListDescriptor<>(
+                        "getWaitingMessagesByIds", singletonMap("ids", fragmentIds), SWaitingMessageEvent.class,
+                        QueryOptions.ALL_RESULTS)));
+            } catch (SBonitaReadException e) {
+                throw new SWaitingEventReadException(e);
+            }
+        }
+        return waitingMessages;
+    }
+
+    @Override
+    public List<SMessageInstance> getMessageInstances(List<Long> messageInstanceIds)
+            throws SMessageInstanceReadException {
+        List<SMessageInstance> messageInstances = new ArrayList<>(messageInstanceIds.size());
+        for (List<Long> fragmentIds : ListUtils.partition(messageInstanceIds, BULK_IN_REQUEST_SIZE)) {
+            try {
+                messageInstances.addAll(persistenceService.selectList(new SelectListDescriptor<>(
+                        "getMessageInstancesByIds", singletonMap("ids", fragmentIds), SMessageInstance.class,
+                        QueryOptions.ALL_RESULTS)));
+            } catch (SBonitaReadException e) {
+                throw new SMessageInstanceReadException(e);
+            }
+        }
+        return messageInstances;
+    }
+
+    @Override
+    public int markMessageInstancesAsHandled(List<Long> messageInstanceIds) throws SMessageModificationException {
+        int updated = 0;
+        for (List<Long> fragmentIds : ListUtils.partition(messageInstanceIds, BULK_IN_REQUEST_SIZE)) {
+            try {
+                updated += persistenceService.update("markMessageInstancesAsHandled",
+                        singletonMap("ids", fragmentIds));
+            } catch (SPersistenceException e) {
+                throw new SMessageModificationException(e);
+            }
+        }
+        return updated;
+    }
+
+    @Override
+    public int markWaitingMessagesAsInProgress(List<Long> waitingMessageIds)
+            throws SWaitingEventModificationException {
+        int updated = 0;
+        for (List<Long> fragmentIds : ListUtils.partition(waitingMessageIds, BULK_IN_REQUEST_SIZE)) {
+            try {
+                updated += persistenceService.update("markWaitingMessagesAsInProgress",
+                        singletonMap("ids", fragmentIds));
+            } catch (SPersistenceException e) {
+                throw new SWaitingEventModificationException(e);
+            }
+        }
+        return updated;
+    }
+
     @Override
     public long getNumberOfWaitingEvents(final Class<? extends SWaitingEvent> entityClass,
             final QueryOptions countOptions) throws SBonitaReadException {
@@ -424,6 +488,12 @@ public class EventInstanceRepositoryImpl implements EventInstanceRepository {
         return persistenceService.searchEntity(entityClass, searchOptions, null);
     }
 
+    @Override
+    public List<SMessageInstance> searchMessageInstances(final QueryOptions searchOptions)
+            throws SBonitaReadException {
+        return persistenceService.searchEntity(SMessageInstance.class, searchOptions, null);
+    }
+
     @Override
     public void updateMessageInstance(final SMessageInstance messageInstance, final EntityUpdateDescriptor descriptor)
             throws SMessageModificationException {
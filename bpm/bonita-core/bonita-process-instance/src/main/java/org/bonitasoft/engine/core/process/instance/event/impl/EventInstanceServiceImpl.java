@@ -13,6 +13,8 @@
  **/
 package org.bonitasoft.engine.core.process.instance.event.impl;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
@@ -35,6 +37,8 @@ import org.bonitasoft.engine.core.process.instance.api.exceptions.event.trigger.
 import org.bonitasoft.engine.core.process.instance.api.exceptions.event.trigger.SWaitingEventReadException;
 import org.bonitasoft.engine.core.process.instance.model.SFlowNodeInstance;
 import org.bonitasoft.engine.core.process.instance.model.SProcessInstance;
+import org.bonitasoft.engine.core.process.instance.model.builder.event.handling.SMessageInstanceBuilder;
+import org.bonitasoft.engine.core.process.instance.model.builder.event.handling.SWaitingMessageEventBuilderFactory;
 import org.bonitasoft.engine.core.process.instance.model.event.SBoundaryEventInstance;
 import org.bonitasoft.engine.core.process.instance.model.event.SEventInstance;
 import org.bonitasoft.engine.core.process.instance.model.event.handling.SMessageEventCouple;
@@ -47,18 +51,27 @@ import org.bonitasoft.engine.core.process.instance.model.event.trigger.STimerEve
 import org.bonitasoft.engine.data.instance.api.DataInstanceContainer;
 import org.bonitasoft.engine.data.instance.api.DataInstanceService;
 import org.bonitasoft.engine.data.instance.exception.SDataInstanceException;
+import org.bonitasoft.engine.persistence.FilterOption;
+import org.bonitasoft.engine.persistence.OrderByOption;
 import org.bonitasoft.engine.persistence.OrderByType;
 import org.bonitasoft.engine.persistence.QueryOptions;
 import org.bonitasoft.engine.persistence.SBonitaReadException;
 import org.bonitasoft.engine.recorder.model.EntityUpdateDescriptor;
+import org.bonitasoft.engine.transaction.UserTransactionService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 
 public class EventInstanceServiceImpl implements EventInstanceService {
 
+    private static final String WAITING_MESSAGE_PROGRESS = "progress";
+    private static final int INDEX_REBUILD_PAGE_SIZE = 1000;
     private final DataInstanceService dataInstanceService;
     public static final String BONITA_BPMENGINE_MESSAGE_SENT = "bonita.bpmengine.message.sent";
     private final Counter messageSentCounter;
 
     private EventInstanceRepository eventInstanceRepository;
+    private MessageCorrelationIndex messageCorrelationIndex;
+    private UserTransactionService userTransactionService;
 
     public EventInstanceServiceImpl(EventInstanceRepository eventInstanceRepository,
             DataInstanceService dataInstanceService, MeterRegistry meterRegistry, Long tenantId) {
@@ -67,6 +80,20 @@ public class EventInstanceServiceImpl implements EventInstanceService {
         messageSentCounter = meterRegistry.counter(BONITA_BPMENGINE_MESSAGE_SENT, "tenant", tenantId.toString());
     }
 
+    /**
+     * Keep messages and waiting messages in an in-memory {@link MessageCorrelationIndex} so that messages matching does
+     * not need to query the whole message tables each time a message is sent or a waiting message is created.
+     */
+    @Value("${bonita.tenant.message.correlationIndex.enabled:false}")
+    public void setMessageCorrelationIndexEnabled(boolean messageCorrelationIndexEnabled) {
+        this.messageCorrelationIndex = messageCorrelationIndexEnabled ? new MessageCorrelationIndex() : null;
+    }
+
+    @Autowired(required = false)
+    public void setUserTransactionService(UserTransactionService userTransactionService) {
+        this.userTransactionService = userTransactionService;
+    }
+
     @Override
     public void createEventInstance(SEventInstance eventInstance)
             throws SEventInstanceCreationException {
@@ -83,11 +110,17 @@ public class EventInstanceServiceImpl implements EventInstanceService {
     public void createMessageInstance(SMessageInstance messageInstance) throws SMessageInstanceCreationException {
         messageSentCounter.increment();
         this.eventInstanceRepository.createMessageInstance(messageInstance);
+        if (messageCorrelationIndex != null) {
+            onCommit(() -> messageCorrelationIndex.addMessage(messageInstance));
+        }
     }
 
     @Override
     public void createWaitingEvent(SWaitingEvent sWaitingEvent) throws SWaitingEventCreationException {
         this.eventInstanceRepository.createWaitingEvent(sWaitingEvent);
+        if (messageCorrelationIndex != null && sWaitingEvent instanceof SWaitingMessageEvent) {
+            onCommit(() -> messageCorrelationIndex.addWaitingMessage((SWaitingMessageEvent) sWaitingEvent));
+        }
     }
 
     @Override
@@ -110,11 +143,17 @@ public class EventInstanceServiceImpl implements EventInstanceService {
     @Override
     public void deleteMessageInstance(SMessageInstance messageInstance) throws SMessageModificationException {
         this.eventInstanceRepository.deleteMessageInstance(messageInstance);
+        if (messageCorrelationIndex != null) {
+            onCommit(() -> messageCorrelationIndex.removeMessage(messageInstance.getId()));
+        }
     }
 
     @Override
     public void deleteWaitingEvent(SWaitingEvent sWaitingEvent) throws SWaitingEventModificationException {
         this.eventInstanceRepository.deleteWaitingEvent(sWaitingEvent);
+        if (messageCorrelationIndex != null && sWaitingEvent instanceof SWaitingMessageEvent) {
+            onCommit(() -> messageCorrelationIndex.removeWaitingMessage(sWaitingEvent.getId()));
+        }
     }
 
     @Override
@@ -186,11 +225,118 @@ public class EventInstanceServiceImpl implements EventInstanceService {
         return this.eventInstanceRepository.getMessageEventCouples(i, maxCouples);
     }
 
+    @Override
+    public boolean isMessageCorrelationIndexEnabled() {
+        return messageCorrelationIndex != null;
+    }
+
+    @Override
+    public List<SMessageEventCouple> getIndexedMessageEventCouples(int maxCouples) {
+        if (messageCorrelationIndex == null) {
+            return Collections.emptyList();
+        }
+        return messageCorrelationIndex.pollTouchedCouples(maxCouples);
+    }
+
+    @Override
+    public boolean hasIndexedMessageEventCouplesToMatch() {
+        return messageCorrelationIndex != null && messageCorrelationIndex.hasTouchedKeys();
+    }
+
+    @Override
+    public void rebuildMessageCorrelationIndex() throws SBonitaReadException {
+        if (messageCorrelationIndex == null) {
+            return;
+        }
+        messageCorrelationIndex.clear();
+        List<SMessageInstance> messageInstances;
+        int fromIndex = 0;
+        do {
+            messageInstances = eventInstanceRepository.searchMessageInstances(new QueryOptions(fromIndex,
+                    INDEX_REBUILD_PAGE_SIZE,
+                    Collections.singletonList(new OrderByOption(SMessageInstance.class, "id", OrderByType.ASC)),
+                    Collections.singletonList(
+                            new FilterOption(SMessageInstance.class, SMessageInstanceBuilder.HANDLED, false)),
+                    null));
+            messageInstances.forEach(messageCorrelationIndex::addMessage);
+            fromIndex += INDEX_REBUILD_PAGE_SIZE;
+        } while (messageInstances.size() == INDEX_REBUILD_PAGE_SIZE);
+        List<SWaitingMessageEvent> waitingMessages;
+        fromIndex = 0;
+        do {
+            waitingMessages = eventInstanceRepository.searchWaitingEvents(SWaitingMessageEvent.class,
+                    new QueryOptions(fromIndex, INDEX_REBUILD_PAGE_SIZE,
+                            Collections.singletonList(
+                                    new OrderByOption(SWaitingMessageEvent.class, "id", OrderByType.ASC)),
+                            Arrays.asList(new FilterOption(SWaitingMessageEvent.class, "active", true),
+                                    new FilterOption(SWaitingMessageEvent.class, WAITING_MESSAGE_PROGRESS,
+                                            SWaitingMessageEventBuilderFactory.PROGRESS_FREE_KEY)),
+                            null));
+            waitingMessages.forEach(messageCorrelationIndex::addWaitingMessage);
+            fromIndex += INDEX_REBUILD_PAGE_SIZE;
+        } while (waitingMessages.size() == INDEX_REBUILD_PAGE_SIZE);
+    }
+
+    @Override
+    public void unindexMessageInstance(long messageInstanceId) {
+        if (messageCorrelationIndex != null) {
+            messageCorrelationIndex.removeMessage(messageInstanceId);
+        }
+    }
+
+    @Override
+    public void unindexWaitingMessage(long waitingMessageId) {
+        if (messageCorrelationIndex != null) {
+            messageCorrelationIndex.removeWaitingMessage(waitingMessageId);
+        }
+    }
+
     @Override
     public SMessageInstance getMessageInstance(long messageInstanceId) throws SMessageInstanceReadException {
         return this.eventInstanceRepository.getMessageInstance(messageInstanceId);
     }
 
+    @Override
+    public List<SWaitingMessageEvent> getWaitingMessages(List<Long> waitingMessageIds)
+            throws SWaitingEventReadException {
+        if (waitingMessageIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return this.eventInstanceRepository.getWaitingMessages(waitingMessageIds);
+    }
+
+    @Override
+    public List<SMessageInstance> getMessageInstances(List<Long> messageInstanceIds)
+            throws SMessageInstanceReadException {
+        if (messageInstanceIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return this.eventInstanceRepository.getMessageInstances(messageInstanceIds);
+    }
+
+    @Override
+    public void markMessageInstancesAsHandled(List<Long> messageInstanceIds) throws SMessageModificationException {
+        if (messageInstanceIds.isEmpty()) {
+            return;
+        }
+        this.eventInstanceRepository.markMessageInstancesAsHandled(messageInstanceIds);
+        if (messageCorrelationIndex != null) {
+            onCommit(() -> messageInstanceIds.forEach(messageCorrelationIndex::removeMessage));
+        }
+    }
+
+    @Override
+    public void markWaitingMessagesAsInProgress(List<Long> waitingMessageIds)
+            throws SWaitingEventModificationException {
+        if (waitingMessageIds.isEmpty()) {
+            return;
+        }
+        this.eventInstanceRepository.markWaitingMessagesAsInProgress(waitingMessageIds);
+        if (messageCorrelationIndex != null) {
+            onCommit(() -> waitingMessageIds.forEach(messageCorrelationIndex::removeWaitingMessage));
+        }
+    }
+
     @Override
     public long getNumberOfWaitingEvents(final Class<? extends SWaitingEvent> sWaitingEventClass,
             QueryOptions searchOptions) throws SBonitaReadException {
@@ -248,12 +394,40 @@ public class EventInstanceServiceImpl implements EventInstanceService {
     public void updateMessageInstance(SMessageInstance messageInstance, EntityUpdateDescriptor descriptor)
             throws SMessageModificationException {
         this.eventInstanceRepository.updateMessageInstance(messageInstance, descriptor);
+        if (messageCorrelationIndex != null) {
+            Object handled = descriptor.getFields().get(SMessageInstanceBuilder.HANDLED);
+            if (Boolean.TRUE.equals(handled)) {
+                onCommit(() -> messageCorrelationIndex.removeMessage(messageInstance.getId()));
+            } else if (Boolean.FALSE.equals(handled)) {
+                onCommit(() -> messageCorrelationIndex.addMessage(messageInstance));
+            }
+        }
     }
 
     @Override
     public void updateWaitingMessage(SWaitingMessageEvent waitingMsg, EntityUpdateDescriptor descriptor)
             throws SWaitingEventModificationException {
         this.eventInstanceRepository.updateWaitingMessage(waitingMsg, descriptor);
+        if (messageCorrelationIndex != null) {
+            Object progress = descriptor.getFields().get(WAITING_MESSAGE_PROGRESS);
+            if (Integer.valueOf(SWaitingMessageEventBuilderFactory.PROGRESS_IN_TREATMENT_KEY).equals(progress)) {
+                onCommit(() -> messageCorrelationIndex.removeWaitingMessage(waitingMsg.getId()));
+            } else if (Integer.valueOf(SWaitingMessageEventBuilderFactory.PROGRESS_FREE_KEY).equals(progress)) {
+                onCommit(() -> messageCorrelationIndex.addWaitingMessage(waitingMsg));
+            }
+        }
+    }
+
+    /**
+     * The correlation index must only contain committed elements: apply changes once the current transaction is
+     * committed.
+     */
+    private void onCommit(Runnable indexChange) {
+        if (userTransactionService == null) {
+            indexChange.run();
+        } else {
+            userTransactionService.runAfterCommit(indexChange);
+        }
     }
 
     @Override
@@ -266,6 +440,10 @@ public class EventInstanceServiceImpl implements EventInstanceService {
                     .getMessageInstanceIdOlderThanCreationDate(creationDate, queryOptions);
             if (messageInstanceIdOlderThanCreationDate.size() > 0) {
                 eventInstanceRepository.deleteMessageInstanceByIds(messageInstanceIdOlderThanCreationDate);
+                if (messageCorrelationIndex != null) {
+                    onCommit(() -> messageInstanceIdOlderThanCreationDate
+                            .forEach(messageCorrelationIndex::removeMessage));
+                }
                 for (Long messageId : messageInstanceIdOlderThanCreationDate) {
                     dataInstanceService.deleteLocalDataInstances(messageId,
                             DataInstanceContainer.MESSAGE_INSTANCE.name(),
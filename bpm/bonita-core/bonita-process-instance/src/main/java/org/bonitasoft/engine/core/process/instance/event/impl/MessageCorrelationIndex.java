@@ -0,0 +1,247 @@
+/**
+ * Copyright (C) 2019 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.core.process.instance.event.impl;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import org.bonitasoft.engine.core.process.instance.model.event.handling.SBPMEventType;
+import org.bonitasoft.engine.core.process.instance.model.event.handling.SMessageEventCouple;
+import org.bonitasoft.engine.core.process.instance.model.event.handling.SMessageInstance;
+import org.bonitasoft.engine.core.process.instance.model.event.handling.SWaitingMessageEvent;
+
+/**
+ * In memory index of the {@link SMessageInstance}s and {@link SWaitingMessageEvent}s that can be matched, grouped by
+ * correlation key (message name, target process and the 5 correlation values).
+ * <p>
+ * Each time an element is added or removed, its correlation key is marked as "touched". Matching then only computes
+ * the couples of touched keys, which is a map lookup instead of a join on the whole message tables.
+ * <p>
+ * The index is only a hint: it only knows elements created or updated on this node since it started, and it can
+ * contain elements of rolled back transactions. Couples it returns must be validated against the database, and the
+ * database query remains used to recover everything else.
+ */
+public class MessageCorrelationIndex {
+
+    private final Map<CorrelationKey, Bucket> buckets = new ConcurrentHashMap<>();
+    private final Map<Long, CorrelationKey> messageKeys = new ConcurrentHashMap<>();
+    private final Map<Long, CorrelationKey> waitingMessageKeys = new ConcurrentHashMap<>();
+    private final Set<CorrelationKey> touchedKeys = ConcurrentHashMap.newKeySet();
+
+    public void addMessage(SMessageInstance message) {
+        CorrelationKey key = new CorrelationKey(message.getMessageName(), message.getTargetProcess(),
+                message.getCorrelation1(), message.getCorrelation2(), message.getCorrelation3(),
+                message.getCorrelation4(), message.getCorrelation5());
+        messageKeys.put(message.getId(), key);
+        buckets.compute(key, (k, bucket) -> {
+            if (bucket == null) {
+                bucket = new Bucket();
+            }
+            bucket.addMessage(message.getId(), message.getTargetFlowNode());
+            return bucket;
+        });
+        touchedKeys.add(key);
+    }
+
+    public void addWaitingMessage(SWaitingMessageEvent waitingMessage) {
+        CorrelationKey key = new CorrelationKey(waitingMessage.getMessageName(), waitingMessage.getProcessName(),
+                waitingMessage.getCorrelation1(), waitingMessage.getCorrelation2(), waitingMessage.getCorrelation3(),
+                waitingMessage.getCorrelation4(), waitingMessage.getCorrelation5());
+        waitingMessageKeys.put(waitingMessage.getId(), key);
+        buckets.compute(key, (k, bucket) -> {
+            if (bucket == null) {
+                bucket = new Bucket();
+            }
+            bucket.addWaitingMessage(waitingMessage.getId(),
+                    new IndexedWaitingMessage(waitingMessage.getEventType(), waitingMessage.getFlowNodeName()));
+            return bucket;
+        });
+        touchedKeys.add(key);
+    }
+
+    public void removeMessage(long messageInstanceId) {
+        CorrelationKey key = messageKeys.remove(messageInstanceId);
+        if (key != null) {
+            removeFromBucket(key, bucket -> bucket.removeMessage(messageInstanceId));
+        }
+    }
+
+    public void removeWaitingMessage(long waitingMessageId) {
+        CorrelationKey key = waitingMessageKeys.remove(waitingMessageId);
+        if (key != null) {
+            removeFromBucket(key, bucket -> bucket.removeWaitingMessage(waitingMessageId));
+        }
+    }
+
+    private void removeFromBucket(CorrelationKey key, Consumer<Bucket> removal) {
+        buckets.computeIfPresent(key, (k, bucket) -> {
+            removal.accept(bucket);
+            return bucket.isEmpty() ? null : bucket;
+        });
+        // remaining elements of this key might now be matched together
+        touchedKeys.add(key);
+    }
+
+    /**
+     * Compute the couples of all keys touched since the last call. Keys that have more couples than
+     * <code>maxCouples</code> remain touched.
+     *
+     * @param maxCouples maximum number of couples to return
+     * @return candidate couples, that can contain duplicate messages or waiting messages
+     */
+    public List<SMessageEventCouple> pollTouchedCouples(int maxCouples) {
+        List<SMessageEventCouple> couples = new ArrayList<>();
+        Iterator<CorrelationKey> iterator = touchedKeys.iterator();
+        while (iterator.hasNext() && couples.size() < maxCouples) {
+            CorrelationKey key = iterator.next();
+            iterator.remove();
+            Bucket bucket = buckets.get(key);
+            if (bucket == null) {
+                continue;
+            }
+            boolean complete = bucket.collectCouples(couples, maxCouples);
+            if (!complete) {
+                touchedKeys.add(key);
+            }
+        }
+        return couples;
+    }
+
+    public boolean hasTouchedKeys() {
+        return !touchedKeys.isEmpty();
+    }
+
+    public int getNumberOfIndexedElements() {
+        return messageKeys.size() + waitingMessageKeys.size();
+    }
+
+    public void clear() {
+        buckets.clear();
+        messageKeys.clear();
+        waitingMessageKeys.clear();
+        touchedKeys.clear();
+    }
+
+    private static final class Bucket {
+
+        // message id -> target flow node
+        private final Map<Long, String> messages = new LinkedHashMap<>();
+        private final Map<Long, IndexedWaitingMessage> waitingMessages = new LinkedHashMap<>();
+
+        synchronized void addMessage(long id, String targetFlowNode) {
+            messages.put(id, targetFlowNode);
+        }
+
+        synchronized void addWaitingMessage(long id, IndexedWaitingMessage waitingMessage) {
+            waitingMessages.put(id, waitingMessage);
+        }
+
+        synchronized void removeMessage(long id) {
+            messages.remove(id);
+        }
+
+        synchronized void removeWaitingMessage(long id) {
+            waitingMessages.remove(id);
+        }
+
+        synchronized boolean isEmpty() {
+            return messages.isEmpty() && waitingMessages.isEmpty();
+        }
+
+        /**
+         * @return true if all couples of the bucket were added
+         */
+        synchronized boolean collectCouples(List<SMessageEventCouple> couples, int maxCouples) {
+            for (Map.Entry<Long, String> message : messages.entrySet()) {
+                for (Map.Entry<Long, IndexedWaitingMessage> waitingMessage : waitingMessages.entrySet()) {
+                    String targetFlowNode = message.getValue();
+                    if (targetFlowNode == null || targetFlowNode.equals(waitingMessage.getValue().flowNodeName)) {
+                        if (couples.size() >= maxCouples) {
+                            return false;
+                        }
+                        couples.add(new SMessageEventCouple(waitingMessage.getKey(),
+                                waitingMessage.getValue().eventType, message.getKey()));
+                    }
+                }
+            }
+            return true;
+        }
+    }
+
+    private static final class IndexedWaitingMessage {
+
+        private final SBPMEventType eventType;
+        private final String flowNodeName;
+
+        private IndexedWaitingMessage(SBPMEventType eventType, String flowNodeName) {
+            this.eventType = eventType;
+            this.flowNodeName = flowNodeName;
+        }
+    }
+
+    private static final class CorrelationKey {
+
+        private final String messageName;
+        private final String processName;
+        private final String correlation1;
+        private final String correlation2;
+        private final String correlation3;
+        private final String correlation4;
+        private final String correlation5;
+        private final int hash;
+
+        private CorrelationKey(String messageName, String processName, String correlation1, String correlation2,
+                String correlation3, String correlation4, String correlation5) {
+            this.messageName = messageName;
+            this.processName = processName;
+            this.correlation1 = correlation1;
+            this.correlation2 = correlation2;
+            this.correlation3 = correlation3;
+            this.correlation4 = correlation4;
+            this.correlation5 = correlation5;
+            this.hash = Objects.hash(messageName, processName, correlation1, correlation2, correlation3,
+                    correlation4, correlation5);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (o == null || getClass() != o.getClass())
+                return false;
+            CorrelationKey that = (CorrelationKey) o;
+            return hash == that.hash
+                    && Objects.equals(messageName, that.messageName)
+                    && Objects.equals(processName, that.processName)
+                    && Objects.equals(correlation1, that.correlation1)
+                    && Objects.equals(correlation2, that.correlation2)
+                    && Objects.equals(correlation3, that.correlation3)
+                    && Objects.equals(correlation4, that.correlation4)
+                    && Objects.equals(correlation5, that.correlation5);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+}
@@ -15,7 +15,6 @@ package org.bonitasoft.engine.core.process.instance.impl;
 
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -139,14 +138,14 @@ public class GatewayInstanceServiceImpl implements GatewayInstanceService {
         SFlowNodeDefinition gatewayDefinition = processContainer.getFlowNode(gatewayInstance.getFlowNodeDefinitionId());
         long processInstanceId = gatewayInstance.getParentContainerId();
 
-        List<String> hitByTransitionList = getHitByTransitionList(gatewayInstance);
+        GatewayTokens tokens = GatewayTokens.parse(gatewayInstance.getHitBys());
         List<STransitionDefinition> incomingTransitions = gatewayDefinition.getIncomingTransitions();
         List<STransitionDefinition> incomingWithTokens = new ArrayList<STransitionDefinition>();
         List<STransitionDefinition> incomingWithoutTokens = new ArrayList<STransitionDefinition>();
 
         for (int i = 0; i < incomingTransitions.size(); i++) {
             STransitionDefinition currentTransition = incomingTransitions.get(i);
-            if (hitByTransitionList.contains(String.valueOf(i + 1))) {
+            if (tokens.contains(i + 1)) {
                 incomingWithTokens.add(currentTransition);
             } else {
                 incomingWithoutTokens.add(currentTransition);
@@ -268,22 +267,8 @@ public class GatewayInstanceServiceImpl implements GatewayInstanceService {
     }
 
     boolean isParallelGatewayActivated(final SProcessDefinition sDefinition, final SGatewayInstance gatewayInstance) {
-        final List<String> hitsBy = getHitByTransitionList(gatewayInstance);
         final List<STransitionDefinition> trans = getTransitionDefinitions(gatewayInstance, sDefinition);
-        boolean go = true;
-        int i = 1;
-        while (go && i <= trans.size()) {
-            go = hitsBy.contains(String.valueOf(i));
-            i++;
-        }
-        return go;
-    }
-
-    /**
-     * @return the list of transition indexes that hit the gateway
-     */
-    private List<String> getHitByTransitionList(final SGatewayInstance gatewayInstance) {
-        return Arrays.asList(gatewayInstance.getHitBys().split(","));
+        return GatewayTokens.parse(gatewayInstance.getHitBys()).containsAll(trans.size());
     }
 
     protected List<STransitionDefinition> getTransitionDefinitions(final SGatewayInstance gatewayInstance,
@@ -307,14 +292,10 @@ public class GatewayInstanceServiceImpl implements GatewayInstanceService {
         log.debug("Hit gateway " + gatewayInstance.getName() + " (" + gatewayInstance.getId() + ")" + " of instance "
                 + gatewayInstance.getRootProcessInstanceId()
                 + " with transition index " + transitionIndex);
-        final String hitBys = gatewayInstance.getHitBys();
-        String columnValue;
-        if (hitBys == null || hitBys.isEmpty()) {
-            columnValue = String.valueOf(transitionIndex);
-        } else {
-            columnValue = hitBys + "," + transitionIndex;
-        }
-        updateOneColumnAndMetaData(gatewayInstance, sGatewayInstanceBuilderFactory.getHitBysKey(), columnValue,
+        // gateways hit before the bitset format was introduced are rewritten in that format here
+        final GatewayTokens tokens = GatewayTokens.parse(gatewayInstance.getHitBys());
+        tokens.add((int) transitionIndex);
+        updateOneColumnAndMetaData(gatewayInstance, sGatewayInstanceBuilderFactory.getHitBysKey(), tokens.toString(),
                 GATEWAYINSTANCE_HITBYS);
     }
 
@@ -356,10 +337,10 @@ public class GatewayInstanceServiceImpl implements GatewayInstanceService {
     @Override
     public List<SGatewayInstance> setFinishAndCreateNewGatewayForRemainingToken(SProcessDefinition processDefinition,
             final SGatewayInstance gatewayInstance) throws SBonitaException {
-        List<String> hitBys = getHitByTransitionList(gatewayInstance);
-        List<String> merged = getMergedTokens(gatewayInstance, hitBys);
-        setFinished(gatewayInstance, merged.size());
-        List<String> remaining = getRemainingTokens(hitBys, merged);
+        GatewayTokens hitBys = GatewayTokens.parse(gatewayInstance.getHitBys());
+        int numberOfMergedTokens = getNumberOfMergedTokens(gatewayInstance, hitBys);
+        setFinished(gatewayInstance, numberOfMergedTokens);
+        GatewayTokens remaining = hitBys.getRemainingTokens(numberOfMergedTokens);
         log.debug("There is {} remaining token to merge on gateway {} will create a new if there is", remaining,
                 gatewayInstance.getName());
         if (remaining.isEmpty()) {
@@ -375,38 +356,17 @@ public class GatewayInstanceServiceImpl implements GatewayInstanceService {
         return toFire;
     }
 
-    List<String> getMergedTokens(SGatewayInstance gatewayInstance, List<String> hitBys) {
-        List<String> merged = null;
+    int getNumberOfMergedTokens(SGatewayInstance gatewayInstance, GatewayTokens hitBys) {
         switch (gatewayInstance.getGatewayType()) {
+            case EXCLUSIVE:
+                // each token goes through an exclusive gateway on its own
+                return Math.min(1, hitBys.getNumberOfTransitionsHit());
             case PARALLEL:
-                merged = unique(hitBys);
-                break;
             case INCLUSIVE:
-                merged = unique(hitBys);
-                break;
-            case EXCLUSIVE:
-                merged = Collections.singletonList(hitBys.get(0));
-                break;
-        }
-        return merged;
-    }
-
-    private ArrayList<String> unique(List<String> hitBys) {
-        ArrayList<String> merged = new ArrayList<String>();
-        for (String hitBy : hitBys) {
-            if (!merged.contains(hitBy)) {
-                merged.add(hitBy);
-            }
-        }
-        return merged;
-    }
-
-    ArrayList<String> getRemainingTokens(List<String> hitBys, List<String> merged) {
-        ArrayList<String> remaining = new ArrayList<String>(hitBys);
-        for (String mergedToken : merged) {
-            remaining.remove(mergedToken);
+            default:
+                // one token of each transition is merged
+                return hitBys.getNumberOfTransitionsHit();
         }
-        return remaining;
     }
 
     /**
@@ -419,14 +379,10 @@ public class GatewayInstanceServiceImpl implements GatewayInstanceService {
      * @return
      *         the new gateway
      */
-    private SGatewayInstance createGatewayWithRemainingTokens(SGatewayInstance gatewayInstance, List<String> remaining)
-            throws SGatewayCreationException {
+    private SGatewayInstance createGatewayWithRemainingTokens(SGatewayInstance gatewayInstance,
+            GatewayTokens remaining) throws SGatewayCreationException {
         SGatewayInstance sGatewayInstance = new SGatewayInstance(gatewayInstance);
-        String remainingTokenAsString = "";
-        for (String token : remaining) {
-            remainingTokenAsString += token + ",";
-        }
-        sGatewayInstance.setHitBys(remainingTokenAsString.substring(0, remainingTokenAsString.length() - 1));
+        sGatewayInstance.setHitBys(remaining.toString());
         createGatewayInstance(sGatewayInstance);
         return sGatewayInstance;
     }
@@ -0,0 +1,210 @@
+/**
+ * Copyright (C) 2019 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.core.process.instance.impl;
+
+import java.util.Arrays;
+
+import org.bonitasoft.engine.core.process.instance.api.GatewayInstanceService;
+
+/**
+ * Tokens that hit a gateway, identified by the index (starting at 1) of the incoming transition they come from.
+ * <p>
+ * The first token of each transition is kept in a bitset, so that checking whether a token arrived from a transition,
+ * or from all transitions, does not depend on the number of tokens. Additional tokens of a transition that was already
+ * hit (e.g. in loops) are kept in arrival order, they are not merged by the current gateway instance.
+ * <p>
+ * Tokens are stored in the hitBys column of the gateway instance as <code>#</code> followed by the bitset in
+ * hexadecimal (least significant digit first), then the additional tokens separated by commas, e.g. <code>#f,2</code>
+ * for tokens from transitions 1, 2, 3, 4 and 2. The former format, transition indexes separated by commas, is still
+ * read, so that gateways hit before this format was introduced can be merged.
+ */
+public final class GatewayTokens {
+
+    static final char BITSET_PREFIX = '#';
+
+    private long[] bits = new long[1];
+    private int[] additionalTokens = new int[0];
+    private int numberOfAdditionalTokens;
+    private int numberOfTransitionsHit;
+
+    /**
+     * @param hitBys content of the hitBys column of a gateway instance, finished gateways have no token
+     */
+    public static GatewayTokens parse(String hitBys) {
+        GatewayTokens tokens = new GatewayTokens();
+        if (hitBys == null || hitBys.isEmpty() || hitBys.startsWith(GatewayInstanceService.FINISH)) {
+            return tokens;
+        }
+        int index = 0;
+        if (hitBys.charAt(0) == BITSET_PREFIX) {
+            index = 1;
+            int digit = 0;
+            while (index < hitBys.length() && hitBys.charAt(index) != ',') {
+                int value = Character.digit(hitBys.charAt(index), 16);
+                for (int bit = 0; bit < 4; bit++) {
+                    if ((value & (1 << bit)) != 0) {
+                        tokens.add(digit * 4 + bit + 1);
+                    }
+                }
+                digit++;
+                index++;
+            }
+            index++;
+        }
+        while (index < hitBys.length()) {
+            int end = hitBys.indexOf(',', index);
+            if (end < 0) {
+                end = hitBys.length();
+            }
+            try {
+                tokens.add(Integer.parseInt(hitBys.substring(index, end)));
+            } catch (NumberFormatException e) {
+                // not a transition index, ignore it
+            }
+            index = end + 1;
+        }
+        return tokens;
+    }
+
+    /**
+     * Add a token coming from the given transition.
+     *
+     * @param transitionIndex index of the incoming transition, starting at 1
+     */
+    public void add(int transitionIndex) {
+        if (transitionIndex <= 0) {
+            return;
+        }
+        int bit = transitionIndex - 1;
+        int word = bit >>> 6;
+        if (word >= bits.length) {
+            bits = Arrays.copyOf(bits, Math.max(word + 1, bits.length * 2));
+        }
+        long mask = 1L << bit;
+        if ((bits[word] & mask) == 0) {
+            bits[word] |= mask;
+            numberOfTransitionsHit++;
+        } else {
+            if (numberOfAdditionalTokens == additionalTokens.length) {
+                additionalTokens = Arrays.copyOf(additionalTokens, Math.max(4, numberOfAdditionalTokens * 2));
+            }
+            additionalTokens[numberOfAdditionalTokens++] = transitionIndex;
+        }
+    }
+
+    /**
+     * @return true if a token arrived from the given transition
+     */
+    public boolean contains(int transitionIndex) {
+        int bit = transitionIndex - 1;
+        int word = bit >>> 6;
+        return bit >= 0 && word < bits.length && (bits[word] & (1L << bit)) != 0;
+    }
+
+    /**
+     * @return true if a token arrived from each of the transitions 1 to numberOfTransitions
+     */
+    public boolean containsAll(int numberOfTransitions) {
+        if (numberOfTransitionsHit < numberOfTransitions) {
+            // counter check: most arriving tokens do not need to look at the bitset
+            return false;
+        }
+        int fullWords = numberOfTransitions >>> 6;
+        for (int word = 0; word < fullWords; word++) {
+            if (word >= bits.length || bits[word] != -1L) {
+                return false;
+            }
+        }
+        int remainingBits = numberOfTransitions & 63;
+        if (remainingBits == 0) {
+            return true;
+        }
+        long mask = (1L << remainingBits) - 1;
+        return fullWords < bits.length && (bits[fullWords] & mask) == mask;
+    }
+
+    /**
+     * @return number of distinct transitions tokens arrived from, i.e. the number of tokens merged by the gateway
+     */
+    public int getNumberOfTransitionsHit() {
+        return numberOfTransitionsHit;
+    }
+
+    public boolean isEmpty() {
+        return numberOfTransitionsHit == 0;
+    }
+
+    /**
+     * @return index of the lowest transition a token arrived from, -1 if there is no token
+     */
+    public int getFirstTransitionHit() {
+        for (int word = 0; word < bits.length; word++) {
+            if (bits[word] != 0) {
+                return word * 64 + Long.numberOfTrailingZeros(bits[word]) + 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param numberOfMergedTokens 1 to only merge the token of {@link #getFirstTransitionHit()}, otherwise one token
+     *        of each transition is merged
+     * @return tokens that remain once the gateway is merged
+     */
+    public GatewayTokens getRemainingTokens(int numberOfMergedTokens) {
+        GatewayTokens remaining = new GatewayTokens();
+        if (numberOfMergedTokens == 1 && numberOfTransitionsHit > 1) {
+            int first = getFirstTransitionHit();
+            for (int word = 0; word < bits.length; word++) {
+                long value = bits[word];
+                while (value != 0) {
+                    int transitionIndex = word * 64 + Long.numberOfTrailingZeros(value) + 1;
+                    if (transitionIndex != first) {
+                        remaining.add(transitionIndex);
+                    }
+                    value &= value - 1;
+                }
+            }
+        }
+        for (int i = 0; i < numberOfAdditionalTokens; i++) {
+            remaining.add(additionalTokens[i]);
+        }
+        return remaining;
+    }
+
+    /**
+     * @return the value to store in the hitBys column of the gateway instance
+     */
+    @Override
+    public String toString() {
+        if (isEmpty()) {
+            return "";
+        }
+        StringBuilder hitBys = new StringBuilder().append(BITSET_PREFIX);
+        int lastWord = bits.length - 1;
+        while (bits[lastWord] == 0) {
+            lastWord--;
+        }
+        int numberOfDigits = lastWord * 16 + (64 - Long.numberOfLeadingZeros(bits[lastWord]) + 3) / 4;
+        for (int digit = 0; digit < numberOfDigits; digit++) {
+            int value = (int) (bits[digit >>> 4] >>> ((digit & 15) * 4)) & 0xf;
+            hitBys.append(Character.forDigit(value, 16));
+        }
+        for (int i = 0; i < numberOfAdditionalTokens; i++) {
+            hitBys.append(',').append(additionalTokens[i]);
+        }
+        return hitBys.toString();
+    }
+
+}
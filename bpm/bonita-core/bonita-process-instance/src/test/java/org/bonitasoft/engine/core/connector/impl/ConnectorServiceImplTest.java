@@ -70,6 +70,7 @@ import org.bonitasoft.engine.resources.BARResourceType;
 import org.bonitasoft.engine.resources.ProcessResourcesService;
 import org.bonitasoft.engine.resources.SBARResource;
 import org.bonitasoft.engine.tracking.TimeTracker;
+import org.bonitasoft.engine.tracking.profiling.ElementProfiler;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -109,6 +110,8 @@ public class ConnectorServiceImplTest {
     @Mock
     private TimeTracker timeTracker;
     @Mock
+    private ElementProfiler elementProfiler;
+    @Mock
     private ClassLoaderService classLoaderService;
     @Captor
     private ArgumentCaptor<SConnector> connectorArgumentCaptor;
@@ -126,7 +129,7 @@ public class ConnectorServiceImplTest {
     public void setup() {
         connectorService = new ConnectorServiceImpl(cacheService, connectorExecutor, expressionResolverService,
                 operationService,
-                dependencyService, classLoaderService, timeTracker, processResourcesService,
+                dependencyService, classLoaderService, timeTracker, elementProfiler, processResourcesService,
                 connectorExecutionTimeLogger);
         processDefinition = new SProcessDefinitionImpl("proc", "1");
         processDefinition.setId(PROCESS_DEFINITION_ID);
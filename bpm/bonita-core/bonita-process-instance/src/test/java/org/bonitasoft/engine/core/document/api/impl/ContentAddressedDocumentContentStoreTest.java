@@ -0,0 +1,147 @@
+/**
+ * Copyright (C) 2019 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.core.document.api.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.stream.Stream;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ContentAddressedDocumentContentStoreTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private ContentAddressedDocumentContentStore store;
+
+    @Before
+    public void setUp() {
+        store = new ContentAddressedDocumentContentStore(temporaryFolder.getRoot().toPath(), 1L, Duration.ZERO);
+    }
+
+    @Test
+    public void should_identify_content_by_its_sha256_hash() throws Exception {
+        String contentKey = store.write(content("hello"));
+
+        assertThat(contentKey).isEqualTo("2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824");
+        assertThat(read(contentKey)).isEqualTo("hello");
+        assertThat(store.size(contentKey)).isEqualTo(5L);
+    }
+
+    @Test
+    public void should_store_identical_contents_only_once() throws Exception {
+        String first = store.write(content("same content"));
+        String second = store.write(content("same content"));
+        String other = store.write(content("other content"));
+
+        assertThat(second).isEqualTo(first);
+        assertThat(other).isNotEqualTo(first);
+        try (Stream<Path> files = Files.walk(temporaryFolder.getRoot().toPath().resolve("1"))) {
+            assertThat(files.filter(Files::isRegularFile)).hasSize(2);
+        }
+    }
+
+    @Test
+    public void should_delete_content() throws Exception {
+        String contentKey = store.write(content("hello"));
+
+        store.delete(contentKey);
+
+        assertThatThrownBy(() -> store.read(contentKey)).isInstanceOf(NoSuchFileException.class);
+    }
+
+    @Test
+    public void should_not_delete_content_written_during_grace_period() throws Exception {
+        store = new ContentAddressedDocumentContentStore(temporaryFolder.getRoot().toPath(), 1L,
+                Duration.ofHours(1));
+        String contentKey = store.write(content("hello"));
+
+        store.delete(contentKey);
+
+        assertThat(read(contentKey)).isEqualTo("hello");
+    }
+
+    @Test
+    public void should_not_leave_files_when_deleting_content() throws Exception {
+        String contentKey = store.write(content("hello"));
+
+        store.delete(contentKey);
+
+        try (Stream<Path> files = Files.walk(temporaryFolder.getRoot().toPath().resolve("1"))) {
+            assertThat(files.filter(Files::isRegularFile)).isEmpty();
+        }
+    }
+
+    @Test
+    public void should_restore_content_written_again_while_it_is_deleted() throws Exception {
+        store = new ContentAddressedDocumentContentStore(temporaryFolder.getRoot().toPath(), 1L,
+                Duration.ofHours(1)) {
+
+            @Override
+            Path moveToDeletedPath(String contentKey, Path path) throws IOException {
+                // written again after the grace period was checked, but before the file is renamed
+                write(content("hello"));
+                return super.moveToDeletedPath(contentKey, path);
+            }
+        };
+        String contentKey = store.write(content("hello"));
+        FileTime past = FileTime.fromMillis(System.currentTimeMillis() - Duration.ofDays(1).toMillis());
+        Files.setLastModifiedTime(store.getPath(contentKey), past);
+
+        store.delete(contentKey);
+
+        assertThat(read(contentKey)).isEqualTo("hello");
+    }
+
+    @Test
+    public void should_touch_existing_content_when_writing_it_again() throws Exception {
+        String contentKey = store.write(content("hello"));
+        FileTime past = FileTime.fromMillis(System.currentTimeMillis() - Duration.ofDays(1).toMillis());
+        Files.setLastModifiedTime(store.getPath(contentKey), past);
+
+        store.write(content("hello"));
+
+        assertThat(Files.getLastModifiedTime(store.getPath(contentKey))).isGreaterThan(past);
+    }
+
+    @Test
+    public void should_reject_invalid_content_keys() {
+        assertThatThrownBy(() -> store.read("../../etc/passwd")).isInstanceOf(IOException.class);
+    }
+
+    private static InputStream content(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String read(String contentKey) throws IOException {
+        try (InputStream content = store.read(contentKey)) {
+            return new String(content.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+}
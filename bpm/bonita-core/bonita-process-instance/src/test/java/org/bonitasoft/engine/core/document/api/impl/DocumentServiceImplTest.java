@@ -14,27 +14,47 @@
 package org.bonitasoft.engine.core.document.api.impl;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.Assert.assertEquals;
 import static org.mockito.Mockito.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Blob;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+
 import org.bonitasoft.engine.archive.ArchiveService;
+import org.bonitasoft.engine.commons.exceptions.SObjectModificationException;
 import org.bonitasoft.engine.commons.exceptions.SObjectNotFoundException;
+import org.bonitasoft.engine.core.document.api.DocumentContentStore;
 import org.bonitasoft.engine.core.document.model.AbstractSMappedDocument;
+import org.bonitasoft.engine.core.document.model.SDocument;
+import org.bonitasoft.engine.core.document.model.SLightDocument;
 import org.bonitasoft.engine.core.document.model.SMappedDocument;
 import org.bonitasoft.engine.core.document.model.archive.SAMappedDocument;
 import org.bonitasoft.engine.core.document.model.recorder.SelectDescriptorBuilder;
+import org.bonitasoft.engine.persistence.ConnectionCallback;
 import org.bonitasoft.engine.persistence.QueryOptions;
 import org.bonitasoft.engine.persistence.ReadPersistenceService;
+import org.bonitasoft.engine.persistence.SBonitaReadException;
 import org.bonitasoft.engine.persistence.SelectListDescriptor;
 import org.bonitasoft.engine.recorder.Recorder;
+import org.bonitasoft.engine.transaction.UserTransactionService;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatchers;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
@@ -54,12 +74,22 @@ public class DocumentServiceImplTest {
     private SDocumentDownloadURLProvider urlProvider;
     @Mock
     private ArchiveService archiveService;
+    @Mock
+    private Connection connection;
+    @Mock
+    private PreparedStatement statement;
+    @Mock
+    private ResultSet resultSet;
+    @Mock
+    private DocumentContentStore contentStore;
+    @Mock
+    private UserTransactionService userTransactionService;
 
     private DocumentServiceImpl documentService;
 
     @Before
     public void setUp() {
-        documentService = spy(new DocumentServiceImpl(recorder, persistenceService, urlProvider, archiveService));
+        documentService = spy(new DocumentServiceImpl(recorder, persistenceService, urlProvider, archiveService, 1L));
     }
 
     @Test
@@ -154,4 +184,291 @@ public class DocumentServiceImplTest {
         //then exception
     }
 
+    @Test
+    public void should_read_range_of_document_content() throws Exception {
+        returnDocumentContent("0123456789");
+
+        final byte[] content = documentService.getDocumentContent("12", 3, 4);
+
+        assertThat(new String(content, StandardCharsets.UTF_8)).isEqualTo("3456");
+        verify(statement).setLong(1, 1L);
+        verify(statement).setLong(2, 12L);
+    }
+
+    @Test
+    public void should_read_range_until_end_of_document_content() throws Exception {
+        returnDocumentContent("0123456789");
+
+        assertThat(documentService.getDocumentContent("12", 8, 4)).hasSize(2);
+    }
+
+    @Test
+    public void should_read_empty_range_after_end_of_document_content() throws Exception {
+        returnDocumentContent("0123456789");
+
+        assertThat(documentService.getDocumentContent("12", 20, 4)).isEmpty();
+    }
+
+    @Test
+    public void should_get_size_of_document_content() throws Exception {
+        returnDocumentContent("0123456789");
+
+        assertThat(documentService.getDocumentContentSize("12")).isEqualTo(10L);
+    }
+
+    @Test
+    public void should_get_size_of_document_without_content() throws Exception {
+        returnDocumentContent(null);
+
+        assertThat(documentService.getDocumentContentSize("12")).isEqualTo(0L);
+    }
+
+    @Test
+    public void should_get_size_of_document_content_from_database_when_vendor_is_known() throws Exception {
+        documentService.setDbVendor("postgres");
+        executeQuery(DocumentContentDialect.POSTGRES.getSizeQuery());
+        doReturn(true).when(resultSet).next();
+        doReturn(10L).when(resultSet).getLong(2);
+
+        assertThat(documentService.getDocumentContentSize("12")).isEqualTo(10L);
+        verify(statement).setLong(1, 1L);
+        verify(statement).setLong(2, 12L);
+        verify(resultSet, never()).getBinaryStream(anyInt());
+    }
+
+    @Test
+    public void should_read_range_of_document_content_from_database_when_vendor_is_known() throws Exception {
+        documentService.setDbVendor("sqlserver");
+        executeQuery(DocumentContentDialect.SQLSERVER.getRangeQuery().get());
+        doReturn(true).when(resultSet).next();
+        doReturn("3456".getBytes(StandardCharsets.UTF_8)).when(resultSet).getBytes(2);
+
+        final byte[] content = documentService.getDocumentContent("12", 3, 4);
+
+        assertThat(new String(content, StandardCharsets.UTF_8)).isEqualTo("3456");
+        verify(statement).setInt(1, 4);
+        verify(statement).setInt(2, 4);
+        verify(statement).setLong(3, 1L);
+        verify(statement).setLong(4, 12L);
+        verify(resultSet, never()).getBinaryStream(anyInt());
+    }
+
+    @Test
+    public void should_read_range_of_document_content_from_blob_locator_on_oracle() throws Exception {
+        documentService.setDbVendor("oracle");
+        executeConnectionCallbacks();
+        final Blob blob = mock(Blob.class);
+        doReturn(true).when(resultSet).next();
+        doReturn(blob).when(resultSet).getBlob(2);
+        doReturn(10L).when(blob).length();
+        doReturn("89".getBytes(StandardCharsets.UTF_8)).when(blob).getBytes(9, 2);
+
+        final byte[] content = documentService.getDocumentContent("12", 8, 4);
+
+        assertThat(new String(content, StandardCharsets.UTF_8)).isEqualTo("89");
+        verify(blob).free();
+    }
+
+    @Test
+    public void should_read_empty_range_after_end_of_blob() throws Exception {
+        final Blob blob = mock(Blob.class);
+        doReturn(10L).when(blob).length();
+
+        assertThat(DocumentServiceImpl.readRange(blob, 10, 4)).isEmpty();
+        verify(blob, never()).getBytes(anyLong(), anyInt());
+    }
+
+    @Test
+    public void should_throw_not_found_when_reading_content_of_unknown_document() throws Exception {
+        executeConnectionCallbacks();
+        doReturn(false).when(resultSet).next();
+
+        assertThatThrownBy(() -> documentService.getDocumentContent("12", 0, 10))
+                .isInstanceOf(SObjectNotFoundException.class);
+    }
+
+    @Test
+    public void should_write_content_of_new_document_in_content_store() throws Exception {
+        documentService.setContentStore(contentStore);
+        doAnswer(invocation -> "key-" + new String(invocation.<InputStream> getArgument(0).readAllBytes(),
+                StandardCharsets.UTF_8)).when(contentStore).write(any());
+        final SDocument document = SDocument.builder().fileName("file.txt").hasContent(true)
+                .content("content".getBytes(StandardCharsets.UTF_8)).build();
+
+        documentService.attachDocumentToProcessInstance(document, 1L, "doc", "description");
+
+        assertThat(document.getContentKey()).isEqualTo("key-content");
+        assertThat(document.getContent()).isNull();
+    }
+
+    @Test
+    public void should_read_range_of_document_content_from_content_store() throws Exception {
+        documentService.setContentStore(contentStore);
+        returnDocumentContentKey("key");
+        doReturn(new ByteArrayInputStream("0123456789".getBytes(StandardCharsets.UTF_8))).when(contentStore)
+                .read("key");
+
+        final byte[] content = documentService.getDocumentContent("12", 3, 4);
+
+        assertThat(new String(content, StandardCharsets.UTF_8)).isEqualTo("3456");
+        verify(resultSet, never()).getBinaryStream(anyInt());
+    }
+
+    @Test
+    public void should_get_size_of_document_content_from_content_store() throws Exception {
+        documentService.setContentStore(contentStore);
+        returnDocumentContentKey("key");
+        doReturn(10L).when(contentStore).size("key");
+
+        assertThat(documentService.getDocumentContentSize("12")).isEqualTo(10L);
+    }
+
+    @Test
+    public void should_throw_not_found_when_content_is_in_a_store_that_is_not_configured() throws Exception {
+        returnDocumentContentKey("key");
+
+        assertThatThrownBy(() -> documentService.getDocumentContent("12", 0, 10))
+                .isInstanceOf(SObjectNotFoundException.class);
+    }
+
+    @Test
+    public void should_delete_content_from_store_when_no_document_references_it_anymore() throws Exception {
+        documentService.setContentStore(contentStore);
+        doReturn(Collections.singletonList("key")).when(persistenceService).selectList(any());
+        doReturn(0L).when(persistenceService).selectOne(any());
+
+        documentService.deleteDocument(SLightDocument.builder().id(12L).build());
+
+        verify(contentStore).delete("key");
+    }
+
+    @Test
+    public void should_keep_content_in_store_when_another_document_references_it() throws Exception {
+        documentService.setContentStore(contentStore);
+        doReturn(Collections.singletonList("key")).when(persistenceService).selectList(any());
+        doReturn(1L).when(persistenceService).selectOne(any());
+
+        documentService.deleteDocument(SLightDocument.builder().id(12L).build());
+
+        verify(contentStore, never()).delete(any());
+    }
+
+    @Test
+    public void should_delete_content_from_store_once_transaction_is_committed() throws Exception {
+        documentService.setContentStore(contentStore);
+        documentService.setUserTransactionService(userTransactionService);
+        doReturn(true).when(userTransactionService).isTransactionActive();
+        doCallRealMethod().when(userTransactionService).runAfterCommit(any());
+        doReturn(Collections.singletonList("key")).when(persistenceService).selectList(any());
+        doReturn(0L).when(persistenceService).selectOne(any());
+
+        documentService.deleteDocument(SLightDocument.builder().id(12L).build());
+
+        verify(contentStore, never()).delete(any());
+        final ArgumentCaptor<Synchronization> synchronization = ArgumentCaptor.forClass(Synchronization.class);
+        verify(userTransactionService).registerBonitaSynchronization(synchronization.capture());
+        synchronization.getValue().afterCompletion(Status.STATUS_COMMITTED);
+        verify(contentStore).delete("key");
+    }
+
+    @Test
+    public void should_get_content_keys_no_document_references() throws Exception {
+        doReturn(Collections.singletonList("referenced")).when(persistenceService).selectList(any());
+
+        assertThat(documentService.getUnreferencedContentKeys(Arrays.asList("referenced", "orphan")))
+                .containsExactly("orphan");
+    }
+
+    @Test
+    public void should_move_contents_stored_in_database_to_content_store() throws Exception {
+        documentService.setContentStore(contentStore);
+        final PreparedStatement update = returnContentsToMove(12L, 13L);
+        doReturn(1L).when(contentStore).size(any());
+
+        assertThat(documentService.moveContentsToStore(10, 1000L)).isEqualTo(2);
+
+        verify(statement).setMaxRows(10);
+        verify(update).setString(1, "key-12");
+        verify(update).setLong(3, 12L);
+        verify(update).setString(1, "key-13");
+        verify(update).setLong(3, 13L);
+        verify(update, times(2)).addBatch();
+        verify(update).executeBatch();
+    }
+
+    @Test
+    public void should_stop_moving_contents_once_max_number_of_bytes_is_moved() throws Exception {
+        documentService.setContentStore(contentStore);
+        final PreparedStatement update = returnContentsToMove(12L, 13L);
+        doReturn(1000L).when(contentStore).size("key-12");
+
+        assertThat(documentService.moveContentsToStore(10, 1000L)).isEqualTo(1);
+
+        verify(contentStore, times(1)).write(any());
+        verify(update).setLong(3, 12L);
+        verify(update, never()).setLong(3, 13L);
+    }
+
+    private PreparedStatement returnContentsToMove(Long... ids) throws Exception {
+        final PreparedStatement update = mock(PreparedStatement.class);
+        final PreparedStatement selectContent = mock(PreparedStatement.class);
+        final ResultSet content = mock(ResultSet.class);
+        executeWithConnection();
+        doReturn(statement).when(connection).prepareStatement(DocumentServiceImpl.CONTENTS_TO_MOVE_QUERY);
+        doReturn(selectContent).when(connection).prepareStatement(DocumentServiceImpl.DOCUMENT_CONTENT_QUERY);
+        doReturn(update).when(connection).prepareStatement(DocumentServiceImpl.MOVED_CONTENT_UPDATE);
+        doReturn(resultSet).when(statement).executeQuery();
+        final Boolean[] next = new Boolean[ids.length];
+        Arrays.fill(next, true);
+        next[ids.length - 1] = false;
+        doReturn(true, next).when(resultSet).next();
+        doReturn(ids[0], Arrays.copyOfRange(ids, 1, ids.length)).when(resultSet).getLong(1);
+        doReturn(content).when(selectContent).executeQuery();
+        doReturn(true).when(content).next();
+        doAnswer(invocation -> new ByteArrayInputStream(new byte[] { 1 })).when(content).getBinaryStream(2);
+        doReturn("key-" + ids[0], Arrays.stream(ids).skip(1).map(id -> "key-" + id).toArray()).when(contentStore)
+                .write(any());
+        return update;
+    }
+
+    @Test
+    public void should_not_move_contents_when_no_content_store_is_configured() {
+        assertThatThrownBy(() -> documentService.moveContentsToStore(10, 1000L))
+                .isInstanceOf(SObjectModificationException.class);
+    }
+
+    private void returnDocumentContent(String content) throws Exception {
+        executeConnectionCallbacks();
+        doReturn(true).when(resultSet).next();
+        doReturn(content != null ? new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)) : null)
+                .when(resultSet).getBinaryStream(2);
+    }
+
+    private void returnDocumentContentKey(String contentKey) throws Exception {
+        executeConnectionCallbacks();
+        doReturn(true).when(resultSet).next();
+        doReturn(contentKey).when(resultSet).getString(1);
+    }
+
+    private void executeConnectionCallbacks() throws Exception {
+        executeQuery(DocumentServiceImpl.DOCUMENT_CONTENT_QUERY);
+    }
+
+    private void executeQuery(String query) throws Exception {
+        executeWithConnection();
+        doReturn(statement).when(connection).prepareStatement(query);
+        doReturn(resultSet).when(statement).executeQuery();
+    }
+
+    private void executeWithConnection() throws Exception {
+        doAnswer(invocation -> {
+            try {
+                return invocation.<ConnectionCallback<?>> getArgument(0).doInConnection(connection);
+            } catch (SQLException e) {
+                // as the persistence service does
+                throw new SBonitaReadException(e);
+            }
+        }).when(persistenceService).executeWithConnection(any());
+    }
+
 }
@@ -0,0 +1,99 @@
+/**
+ * Copyright (C) 2019 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.core.document.api.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.stream.Stream;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FileSystemDocumentContentStoreTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private FileSystemDocumentContentStore store;
+
+    @Before
+    public void setUp() {
+        store = new FileSystemDocumentContentStore(temporaryFolder.getRoot().toPath(), 1L);
+    }
+
+    @Test
+    public void should_write_each_content_with_its_own_key() throws Exception {
+        String first = store.write(content("same content"));
+        String second = store.write(content("same content"));
+
+        assertThat(second).isNotEqualTo(first);
+        assertThat(store.size(first)).isEqualTo(12L);
+        try (InputStream content = store.read(second)) {
+            assertThat(new String(content.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo("same content");
+        }
+    }
+
+    @Test
+    public void should_store_contents_in_directory_of_the_tenant() throws Exception {
+        String contentKey = store.write(content("content"));
+
+        assertThat(store.getPath(contentKey)).startsWithRaw(temporaryFolder.getRoot().toPath().resolve("1"));
+    }
+
+    @Test
+    public void should_delete_content() throws Exception {
+        String contentKey = store.write(content("content"));
+
+        store.delete(contentKey);
+
+        assertThatThrownBy(() -> store.read(contentKey)).isInstanceOf(NoSuchFileException.class);
+    }
+
+    @Test
+    public void should_list_contents_written_before_the_given_instant() throws Exception {
+        String old = store.write(content("old content"));
+        String recent = store.write(content("recent content"));
+        Files.setLastModifiedTime(store.getPath(old), FileTime.from(Instant.now().minus(2, ChronoUnit.HOURS)));
+
+        try (Stream<String> contentKeys = store.listContentKeys(Instant.now().minus(1, ChronoUnit.HOURS))) {
+            assertThat(contentKeys).containsOnly(old);
+        }
+        try (Stream<String> contentKeys = store.listContentKeys(Instant.now().plusSeconds(1))) {
+            assertThat(contentKeys).containsOnly(old, recent);
+        }
+    }
+
+    @Test
+    public void should_list_no_content_when_nothing_was_written() throws Exception {
+        try (Stream<String> contentKeys = store.listContentKeys(Instant.now())) {
+            assertThat(contentKeys).isEmpty();
+        }
+    }
+
+    private static InputStream content(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+}
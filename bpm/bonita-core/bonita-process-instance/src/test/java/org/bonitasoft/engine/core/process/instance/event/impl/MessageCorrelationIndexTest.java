@@ -0,0 +1,102 @@
+/**
+ * Copyright (C) 2019 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.core.process.instance.event.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.bonitasoft.engine.core.process.instance.model.event.handling.SBPMEventType.INTERMEDIATE_CATCH_EVENT;
+import static org.bonitasoft.engine.core.process.instance.model.event.handling.SBPMEventType.START_EVENT;
+
+import org.bonitasoft.engine.core.process.instance.model.event.handling.SBPMEventType;
+import org.bonitasoft.engine.core.process.instance.model.event.handling.SMessageEventCouple;
+import org.bonitasoft.engine.core.process.instance.model.event.handling.SMessageInstance;
+import org.bonitasoft.engine.core.process.instance.model.event.handling.SWaitingMessageEvent;
+import org.junit.Test;
+
+public class MessageCorrelationIndexTest {
+
+    private final MessageCorrelationIndex index = new MessageCorrelationIndex();
+
+    @Test
+    public void should_match_message_and_waiting_message_having_the_same_correlation_key() {
+        index.addMessage(message(1L, "msg", "Process", null, "key-1"));
+        index.addMessage(message(2L, "msg", "Process", null, "key-2"));
+        index.addWaitingMessage(waitingMessage(10L, "msg", "Process", "catch", "key-1", INTERMEDIATE_CATCH_EVENT));
+
+        assertThat(index.pollTouchedCouples(100))
+                .containsOnly(new SMessageEventCouple(10L, INTERMEDIATE_CATCH_EVENT, 1L));
+    }
+
+    @Test
+    public void should_only_match_waiting_message_of_the_target_flow_node() {
+        index.addMessage(message(1L, "msg", "Process", "catch2", "key"));
+        index.addWaitingMessage(waitingMessage(10L, "msg", "Process", "catch1", "key", INTERMEDIATE_CATCH_EVENT));
+        index.addWaitingMessage(waitingMessage(11L, "msg", "Process", "catch2", "key", INTERMEDIATE_CATCH_EVENT));
+
+        assertThat(index.pollTouchedCouples(100))
+                .containsOnly(new SMessageEventCouple(11L, INTERMEDIATE_CATCH_EVENT, 1L));
+    }
+
+    @Test
+    public void should_not_return_couples_of_keys_not_touched_since_last_poll() {
+        index.addMessage(message(1L, "msg", "Process", null, "key"));
+        index.addWaitingMessage(waitingMessage(10L, "msg", "Process", "start", "key", START_EVENT));
+        index.pollTouchedCouples(100);
+
+        assertThat(index.hasTouchedKeys()).isFalse();
+        assertThat(index.pollTouchedCouples(100)).isEmpty();
+    }
+
+    @Test
+    public void should_not_return_couples_of_removed_elements() {
+        index.addMessage(message(1L, "msg", "Process", null, "key"));
+        index.addMessage(message(2L, "msg", "Process", null, "key"));
+        index.addWaitingMessage(waitingMessage(10L, "msg", "Process", "catch", "key", INTERMEDIATE_CATCH_EVENT));
+        index.pollTouchedCouples(100);
+
+        index.removeMessage(1L);
+
+        assertThat(index.pollTouchedCouples(100))
+                .containsOnly(new SMessageEventCouple(10L, INTERMEDIATE_CATCH_EVENT, 2L));
+        assertThat(index.getNumberOfIndexedElements()).isEqualTo(2);
+    }
+
+    @Test
+    public void should_keep_key_touched_when_it_has_more_couples_than_the_maximum() {
+        for (long i = 1; i <= 3; i++) {
+            index.addMessage(message(i, "msg", "Process", null, "key"));
+        }
+        index.addWaitingMessage(waitingMessage(10L, "msg", "Process", "start", "key", START_EVENT));
+
+        assertThat(index.pollTouchedCouples(2)).hasSize(2);
+        assertThat(index.hasTouchedKeys()).isTrue();
+    }
+
+    private static SMessageInstance message(long id, String messageName, String targetProcess,
+            String targetFlowNode, String correlation) {
+        SMessageInstance messageInstance = new SMessageInstance(messageName, targetProcess, targetFlowNode, 1L,
+                "throw");
+        messageInstance.setId(id);
+        messageInstance.setCorrelation1(correlation);
+        return messageInstance;
+    }
+
+    private static SWaitingMessageEvent waitingMessage(long id, String messageName, String processName,
+            String flowNodeName, String correlation, SBPMEventType eventType) {
+        SWaitingMessageEvent waitingMessage = new SWaitingMessageEvent(eventType, 1L, processName, 2L, flowNodeName,
+                messageName);
+        waitingMessage.setId(id);
+        waitingMessage.setCorrelation1(correlation);
+        return waitingMessage;
+    }
+}
@@ -384,41 +384,44 @@ public class GatewayInstanceServiceImplTest {
     }
 
     @Test
-    public void should_getMergedTokens_on_exclusive_return_the_first_token() throws Exception {
+    public void should_merge_one_token_on_exclusive() throws Exception {
         SGatewayInstance gate = new SGatewayInstance();
         gate.setGatewayType(SGatewayType.EXCLUSIVE);
 
-        List<String> mergedTokens = gatewayInstanceService.getMergedTokens(gate, Arrays.asList("1", "2"));
+        int merged = gatewayInstanceService.getNumberOfMergedTokens(gate, GatewayTokens.parse("1,2"));
 
-        assertThat(mergedTokens).containsOnly("1");
+        assertThat(merged).isEqualTo(1);
     }
 
     @Test
-    public void should_getMergedTokens_on_parallel() throws Exception {
+    public void should_merge_one_token_per_transition_on_parallel() throws Exception {
         SGatewayInstance gate = new SGatewayInstance();
         gate.setGatewayType(SGatewayType.PARALLEL);
 
-        List<String> mergedTokens = gatewayInstanceService.getMergedTokens(gate, Arrays.asList("1", "2", "3", "2"));
+        int merged = gatewayInstanceService.getNumberOfMergedTokens(gate, GatewayTokens.parse("1,2,3,2"));
 
-        assertThat(mergedTokens).containsOnly("1", "2", "3");
+        assertThat(merged).isEqualTo(3);
     }
 
     @Test
-    public void should_getMergedTokens_on_inclusive() throws Exception {
+    public void should_merge_one_token_per_transition_on_inclusive() throws Exception {
         SGatewayInstance gate = new SGatewayInstance();
         gate.setGatewayType(SGatewayType.INCLUSIVE);
 
-        List<String> mergedTokens = gatewayInstanceService.getMergedTokens(gate, Arrays.asList("1", "2", "3", "2"));
+        int merged = gatewayInstanceService.getNumberOfMergedTokens(gate, GatewayTokens.parse("1,2,3,2"));
 
-        assertThat(mergedTokens).containsOnly("1", "2", "3");
+        assertThat(merged).isEqualTo(3);
     }
 
     @Test
-    public void should_getRemainingToken_return_not_merged_tokens() {
-        List<String> remainingTokens = gatewayInstanceService.getRemainingTokens(Arrays.asList("1", "2", "3", "2", "1"),
-                Arrays.asList("1", "2", "3"));
+    public void should_hitTransition_store_tokens_as_bitset() throws Exception {
+        SGatewayInstance gate = new SGatewayInstance();
+        gate.setHitBys("1,2,3");
+
+        gatewayInstanceService.hitTransition(gate, 2);
 
-        assertThat(remainingTokens).containsOnly("2", "1");
+        verify(recorder).recordUpdate(updateRecordCaptor.capture(), nullable(String.class));
+        assertThat(updateRecordCaptor.getValue().getFields()).containsEntry("hitBys", "#7,2");
     }
 
     @Test
@@ -0,0 +1,86 @@
+/**
+ * Copyright (C) 2019 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.core.process.instance.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+public class GatewayTokensTest {
+
+    @Test
+    public void should_read_legacy_comma_separated_tokens() {
+        GatewayTokens tokens = GatewayTokens.parse("1,3,3,2");
+
+        assertThat(tokens.contains(1)).isTrue();
+        assertThat(tokens.contains(2)).isTrue();
+        assertThat(tokens.contains(3)).isTrue();
+        assertThat(tokens.contains(4)).isFalse();
+        assertThat(tokens.getNumberOfTransitionsHit()).isEqualTo(3);
+        assertThat(tokens.toString()).isEqualTo("#7,3");
+    }
+
+    @Test
+    public void should_read_back_what_it_writes() {
+        GatewayTokens tokens = new GatewayTokens();
+        for (int i = 100; i >= 1; i--) {
+            tokens.add(i);
+        }
+        tokens.add(70);
+
+        GatewayTokens read = GatewayTokens.parse(tokens.toString());
+
+        assertThat(read.toString()).isEqualTo(tokens.toString());
+        assertThat(read.containsAll(100)).isTrue();
+        assertThat(read.containsAll(101)).isFalse();
+        assertThat(read.getRemainingTokens(100).toString()).isEqualTo("#" + "0".repeat(17) + "2");
+    }
+
+    @Test
+    public void should_keep_tokens_of_100_transitions_within_the_hitBys_column() {
+        GatewayTokens tokens = new GatewayTokens();
+        for (int i = 1; i <= 100; i++) {
+            tokens.add(i);
+        }
+
+        assertThat(tokens.toString()).hasSizeLessThan(255);
+    }
+
+    @Test
+    public void should_not_be_merged_when_a_transition_is_missing() {
+        GatewayTokens tokens = GatewayTokens.parse("1,2,3,2,5");
+
+        assertThat(tokens.containsAll(4)).isFalse();
+        assertThat(tokens.containsAll(3)).isTrue();
+    }
+
+    @Test
+    public void should_have_no_token_when_finished_or_empty() {
+        assertThat(GatewayTokens.parse("FINISH:2").isEmpty()).isTrue();
+        assertThat(GatewayTokens.parse("").isEmpty()).isTrue();
+        assertThat(GatewayTokens.parse(null).toString()).isEmpty();
+    }
+
+    @Test
+    public void should_only_merge_the_first_token_when_merging_one_token() {
+        GatewayTokens tokens = GatewayTokens.parse("2,1,2");
+
+        GatewayTokens remaining = tokens.getRemainingTokens(1);
+
+        assertThat(remaining.contains(1)).isFalse();
+        assertThat(remaining.contains(2)).isTrue();
+        assertThat(remaining.getRemainingTokens(1).contains(2)).isTrue();
+        assertThat(remaining.getRemainingTokens(1).getRemainingTokens(1).isEmpty()).isTrue();
+    }
+}
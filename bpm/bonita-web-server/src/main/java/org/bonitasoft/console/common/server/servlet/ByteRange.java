@@ -0,0 +1,94 @@
+/**
+ * Copyright (C) 2019 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.console.common.server.servlet;
+
+/**
+ * Single byte range requested with an HTTP <code>Range</code> header, as described in RFC 7233.
+ */
+final class ByteRange {
+
+    private static final String BYTES_UNIT = "bytes=";
+
+    private final long first;
+    private final long last;
+    private final long size;
+
+    private ByteRange(final long first, final long last, final long size) {
+        this.first = first;
+        this.last = last;
+        this.size = size;
+    }
+
+    /**
+     * @param rangeHeader value of the Range header, can be null
+     * @param size size of the requested content
+     * @return the requested range, or null when the whole content must be sent: there is no Range header, it is
+     *         invalid or it requests several ranges, which is not supported
+     */
+    static ByteRange parse(final String rangeHeader, final long size) {
+        if (rangeHeader == null || !rangeHeader.startsWith(BYTES_UNIT) || rangeHeader.indexOf(',') >= 0) {
+            return null;
+        }
+        final String rangeSpec = rangeHeader.substring(BYTES_UNIT.length()).trim();
+        final int separator = rangeSpec.indexOf('-');
+        if (separator < 0) {
+            return null;
+        }
+        final String firstPosition = rangeSpec.substring(0, separator).trim();
+        final String lastPosition = rangeSpec.substring(separator + 1).trim();
+        try {
+            if (firstPosition.isEmpty()) {
+                // suffix range: the last bytes of the content
+                final long suffixLength = Long.parseLong(lastPosition);
+                if (suffixLength < 0) {
+                    return null;
+                }
+                return new ByteRange(Math.max(0, size - suffixLength), size - 1, size);
+            }
+            final long first = Long.parseLong(firstPosition);
+            if (lastPosition.isEmpty()) {
+                return new ByteRange(first, size - 1, size);
+            }
+            final long last = Long.parseLong(lastPosition);
+            if (last < first) {
+                return null;
+            }
+            return new ByteRange(first, Math.min(last, size - 1), size);
+        } catch (final NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return false if the range starts after the end of the content, the response must then have the status 416
+     */
+    boolean isSatisfiable() {
+        return first < size && first <= last;
+    }
+
+    long getFirst() {
+        return first;
+    }
+
+    long getLength() {
+        return last - first + 1;
+    }
+
+    /**
+     * @return value of the Content-Range header of the response
+     */
+    String getContentRange() {
+        return isSatisfiable() ? "bytes " + first + "-" + last + "/" + size : "bytes */" + size;
+    }
+}
@@ -19,6 +19,7 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.Date;
@@ -116,6 +117,29 @@ public class DocumentDownloadServlet extends HttpServlet {
      */
     private static final Logger LOGGER = LoggerFactory.getLogger(DocumentDownloadServlet.class.getName());
 
+    /**
+     * size of the buffer used to copy files to the response
+     */
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * maximum size of the parts of document contents retrieved from the engine, each part is a call to the engine
+     */
+    static final int DOCUMENT_CHUNK_SIZE = 4 * 1024 * 1024;
+
+    private static final DownloadContent EMPTY_CONTENT = new DownloadContent() {
+
+        @Override
+        public long getSize() {
+            return 0;
+        }
+
+        @Override
+        public void write(final OutputStream out, final long first, final long length) {
+            // nothing to write
+        }
+    };
+
     /**
      * {@inheritDoc}
      */
@@ -128,7 +152,7 @@ public class DocumentDownloadServlet extends HttpServlet {
         final String documentId = request.getParameter(DOCUMENT_ID_PARAM);
         String contentStorageId = request.getParameter(CONTENT_STORAGE_ID_PARAM);
         final APISession apiSession = (APISession) request.getSession().getAttribute(API_SESSION_PARAM_KEY);
-        byte[] fileContent = null;
+        DownloadContent content = EMPTY_CONTENT;
         if (filePath != null) {
             if (LOGGER.isDebugEnabled()) {
                 LOGGER.debug("attachmentPath: " + filePath);
@@ -139,7 +163,15 @@ public class DocumentDownloadServlet extends HttpServlet {
                 if (fileName == null) {
                     fileName = file.getName();
                 }
-                fileContent = getFileContent(file, filePath);
+                if (!file.isFile()) {
+                    final String errorMessage = "Error while getting the attachment. The file " + filePath
+                            + " does not exist.";
+                    if (LOGGER.isErrorEnabled()) {
+                        LOGGER.error(errorMessage);
+                    }
+                    throw new ServletException(errorMessage);
+                }
+                content = new FileContent(file);
             } catch (final UnauthorizedFolderException e) {
                 throw new ServletException(e.getMessage());
             } catch (final IOException e) {
@@ -147,7 +179,7 @@ public class DocumentDownloadServlet extends HttpServlet {
             }
         } else if (fileName != null && contentStorageId != null) {
             try {
-                fileContent = bpmEngineAPIUtil.getProcessAPI(apiSession).getDocumentContent(contentStorageId);
+                content = new DocumentContent(bpmEngineAPIUtil.getProcessAPI(apiSession), contentStorageId);
             } catch (final Exception e) {
                 final String errorMessage = "Error while retrieving the document  with content storage ID "
                         + contentStorageId + " from the engine.";
@@ -170,7 +202,7 @@ public class DocumentDownloadServlet extends HttpServlet {
                     contentStorageId = archivedDocument.getContentStorageId();
                 }
                 if (contentStorageId != null && !contentStorageId.isEmpty()) {
-                    fileContent = processAPI.getDocumentContent(contentStorageId);
+                    content = new DocumentContent(processAPI, contentStorageId);
                 }
             } catch (final Exception e) {
                 final String errorMessage = "Error while retrieving the document  with ID " + documentId
@@ -212,7 +244,7 @@ public class DocumentDownloadServlet extends HttpServlet {
                         BUSINESS_ARCHIVE_RESOURCES_DIRECTORY + File.separator + resourcePath);
                 if (resource.exists()) {
                     fileName = resource.getName();
-                    fileContent = getFileContent(resource, filePath);
+                    content = new FileContent(resource);
                 } else {
                     final String errorMessage = "The target resource does not exist " + resource.getAbsolutePath();
                     if (LOGGER.isErrorEnabled()) {
@@ -247,15 +279,8 @@ public class DocumentDownloadServlet extends HttpServlet {
                         "attachment; filename=\"" + encodedfileName.replaceAll("\\+", " ") + "\"; filename*=UTF-8''"
                                 + encodedfileName.replace("+", "%20"));
             }
-            final OutputStream out = response.getOutputStream();
-            if (fileContent == null) {
-                response.setContentLength(0);
-            } else {
-                response.setContentLength(fileContent.length);
-                out.write(fileContent);
-            }
-            out.close();
-        } catch (final IOException e) {
+            writeContent(request, response, content);
+        } catch (final IOException | BonitaException e) {
             if (LOGGER.isErrorEnabled()) {
                 LOGGER.error("Error while generating the response.", e);
             }
@@ -263,6 +288,111 @@ public class DocumentDownloadServlet extends HttpServlet {
         }
     }
 
+    /**
+     * Write the content, or the range of the content requested with a Range header, by parts of at most
+     * {@link #BUFFER_SIZE} bytes for files and {@link #DOCUMENT_CHUNK_SIZE} bytes for documents.
+     */
+    void writeContent(final HttpServletRequest request, final HttpServletResponse response,
+            final DownloadContent content) throws IOException, BonitaException {
+        final long size = content.getSize();
+        long first = 0;
+        long length = size;
+        response.setHeader("Accept-Ranges", "bytes");
+        final ByteRange range = ByteRange.parse(request.getHeader("Range"), size);
+        if (range != null) {
+            response.setHeader("Content-Range", range.getContentRange());
+            if (!range.isSatisfiable()) {
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            first = range.getFirst();
+            length = range.getLength();
+        }
+        response.setContentLengthLong(length);
+        try (OutputStream out = response.getOutputStream()) {
+            content.write(out, first, length);
+        }
+    }
+
+    /**
+     * Content to download, written by parts so that it is never loaded in memory as a whole. Its size is resolved when
+     * the content is looked up, so that a missing content is reported as a retrieval error.
+     */
+    interface DownloadContent {
+
+        long getSize();
+
+        void write(OutputStream out, long first, long length) throws IOException, BonitaException;
+    }
+
+    static class FileContent implements DownloadContent {
+
+        private final File file;
+
+        FileContent(final File file) {
+            this.file = file;
+        }
+
+        @Override
+        public long getSize() {
+            return file.length();
+        }
+
+        @Override
+        public void write(final OutputStream out, final long first, final long length) throws IOException {
+            try (RandomAccessFile input = new RandomAccessFile(file, "r")) {
+                input.seek(first);
+                final byte[] buffer = new byte[(int) Math.min(BUFFER_SIZE, Math.max(length, 1))];
+                long remaining = length;
+                while (remaining > 0) {
+                    final int read = input.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                    if (read < 0) {
+                        break;
+                    }
+                    out.write(buffer, 0, read);
+                    remaining -= read;
+                }
+            }
+        }
+    }
+
+    static class DocumentContent implements DownloadContent {
+
+        private final ProcessAPI processAPI;
+        private final String contentStorageId;
+        private final long size;
+
+        DocumentContent(final ProcessAPI processAPI, final String contentStorageId)
+                throws DocumentNotFoundException {
+            this.processAPI = processAPI;
+            this.contentStorageId = contentStorageId;
+            this.size = processAPI.getDocumentContentSize(contentStorageId);
+        }
+
+        @Override
+        public long getSize() {
+            return size;
+        }
+
+        @Override
+        public void write(final OutputStream out, final long first, final long length)
+                throws IOException, DocumentNotFoundException {
+            long offset = first;
+            long remaining = length;
+            while (remaining > 0) {
+                final byte[] chunk = processAPI.getDocumentContent(contentStorageId, offset,
+                        (int) Math.min(DOCUMENT_CHUNK_SIZE, remaining));
+                if (chunk.length == 0) {
+                    break;
+                }
+                out.write(chunk);
+                offset += chunk.length;
+                remaining -= chunk.length;
+            }
+        }
+    }
+
     protected byte[] getFileContent(final File file, final String filePath) throws ServletException {
 
         int fileLength = 0;
@@ -0,0 +1,63 @@
+/**
+ * Copyright (C) 2019 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.console.common.server.servlet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+public class ByteRangeTest {
+
+    @Test
+    public void should_parse_range_with_first_and_last_positions() {
+        ByteRange range = ByteRange.parse("bytes=2-5", 10);
+
+        assertThat(range.isSatisfiable()).isTrue();
+        assertThat(range.getFirst()).isEqualTo(2);
+        assertThat(range.getLength()).isEqualTo(4);
+        assertThat(range.getContentRange()).isEqualTo("bytes 2-5/10");
+    }
+
+    @Test
+    public void should_limit_range_to_the_end_of_the_content() {
+        assertThat(ByteRange.parse("bytes=2-", 10).getContentRange()).isEqualTo("bytes 2-9/10");
+        assertThat(ByteRange.parse("bytes=2-100", 10).getContentRange()).isEqualTo("bytes 2-9/10");
+    }
+
+    @Test
+    public void should_parse_suffix_range() {
+        assertThat(ByteRange.parse("bytes=-3", 10).getContentRange()).isEqualTo("bytes 7-9/10");
+        assertThat(ByteRange.parse("bytes=-30", 10).getContentRange()).isEqualTo("bytes 0-9/10");
+    }
+
+    @Test
+    public void should_not_satisfy_range_starting_after_the_end_of_the_content() {
+        ByteRange range = ByteRange.parse("bytes=10-", 10);
+
+        assertThat(range.isSatisfiable()).isFalse();
+        assertThat(range.getContentRange()).isEqualTo("bytes */10");
+        assertThat(ByteRange.parse("bytes=-0", 10).isSatisfiable()).isFalse();
+        assertThat(ByteRange.parse("bytes=-3", 0).isSatisfiable()).isFalse();
+    }
+
+    @Test
+    public void should_ignore_invalid_or_multiple_ranges() {
+        assertThat(ByteRange.parse(null, 10)).isNull();
+        assertThat(ByteRange.parse("items=0-5", 10)).isNull();
+        assertThat(ByteRange.parse("bytes=5-2", 10)).isNull();
+        assertThat(ByteRange.parse("bytes=a-b", 10)).isNull();
+        assertThat(ByteRange.parse("bytes=5", 10)).isNull();
+        assertThat(ByteRange.parse("bytes=0-1,4-5", 10)).isNull();
+    }
+}
@@ -0,0 +1,130 @@
+/**
+ * Copyright (C) 2019 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.console.common.server.servlet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.bonitasoft.console.common.server.servlet.DocumentDownloadServlet.DocumentContent;
+import org.bonitasoft.console.common.server.servlet.DocumentDownloadServlet.FileContent;
+import org.bonitasoft.engine.api.ProcessAPI;
+import org.bonitasoft.engine.bpm.document.DocumentNotFoundException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DocumentDownloadServletTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    @Mock
+    private ProcessAPI processAPI;
+
+    private final DocumentDownloadServlet documentDownloadServlet = new DocumentDownloadServlet();
+    private final MockHttpServletRequest request = new MockHttpServletRequest();
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+    @Test
+    public void should_write_whole_document_content() throws Exception {
+        doReturn(10L).when(processAPI).getDocumentContentSize("42");
+        doReturn(bytes("0123456789")).when(processAPI).getDocumentContent("42", 0, 10);
+
+        documentDownloadServlet.writeContent(request, response, new DocumentContent(processAPI, "42"));
+
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_OK);
+        assertThat(response.getHeader("Accept-Ranges")).isEqualTo("bytes");
+        assertThat(response.getContentLengthLong()).isEqualTo(10);
+        assertThat(response.getContentAsString()).isEqualTo("0123456789");
+    }
+
+    @Test
+    public void should_write_requested_range_of_document_content() throws Exception {
+        doReturn(10L).when(processAPI).getDocumentContentSize("42");
+        doReturn(bytes("23456")).when(processAPI).getDocumentContent("42", 2, 5);
+        request.addHeader("Range", "bytes=2-6");
+
+        documentDownloadServlet.writeContent(request, response, new DocumentContent(processAPI, "42"));
+
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_PARTIAL_CONTENT);
+        assertThat(response.getHeader("Content-Range")).isEqualTo("bytes 2-6/10");
+        assertThat(response.getContentLengthLong()).isEqualTo(5);
+        assertThat(response.getContentAsString()).isEqualTo("23456");
+    }
+
+    @Test
+    public void should_retrieve_large_document_content_by_chunks() throws Exception {
+        final int size = DocumentDownloadServlet.DOCUMENT_CHUNK_SIZE + 3;
+        doReturn((long) size).when(processAPI).getDocumentContentSize("42");
+        doReturn(new byte[DocumentDownloadServlet.DOCUMENT_CHUNK_SIZE]).when(processAPI).getDocumentContent("42", 0,
+                DocumentDownloadServlet.DOCUMENT_CHUNK_SIZE);
+        doReturn(bytes("end")).when(processAPI).getDocumentContent("42", DocumentDownloadServlet.DOCUMENT_CHUNK_SIZE,
+                3);
+
+        documentDownloadServlet.writeContent(request, response, new DocumentContent(processAPI, "42"));
+
+        assertThat(response.getContentAsByteArray()).hasSize(size);
+        verify(processAPI).getDocumentContent("42", DocumentDownloadServlet.DOCUMENT_CHUNK_SIZE, 3);
+    }
+
+    @Test
+    public void should_reject_range_starting_after_the_end_of_the_content() throws Exception {
+        doReturn(10L).when(processAPI).getDocumentContentSize("42");
+        request.addHeader("Range", "bytes=20-");
+
+        documentDownloadServlet.writeContent(request, response, new DocumentContent(processAPI, "42"));
+
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+        assertThat(response.getHeader("Content-Range")).isEqualTo("bytes */10");
+    }
+
+    @Test
+    public void should_write_requested_range_of_file() throws Exception {
+        final File file = temporaryFolder.newFile("attachment.txt");
+        Files.write(file.toPath(), bytes("0123456789"));
+        request.addHeader("Range", "bytes=-3");
+
+        documentDownloadServlet.writeContent(request, response, new FileContent(file));
+
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_PARTIAL_CONTENT);
+        assertThat(response.getHeader("Content-Range")).isEqualTo("bytes 7-9/10");
+        assertThat(response.getContentAsString()).isEqualTo("789");
+    }
+
+    @Test
+    public void should_fail_to_look_up_document_content_when_its_size_cannot_be_retrieved() throws Exception {
+        doThrow(new DocumentNotFoundException("not found")).when(processAPI).getDocumentContentSize("42");
+
+        assertThatThrownBy(() -> new DocumentContent(processAPI, "42"))
+                .isInstanceOf(DocumentNotFoundException.class);
+    }
+
+    private static byte[] bytes(String content) {
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+}
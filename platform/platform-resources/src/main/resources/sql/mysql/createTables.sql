@@ -156,8 +156,10 @@ CREATE TABLE document (
   mimetype VARCHAR(255),
   url VARCHAR(1024),
   content LONGBLOB,
+  contentkey VARCHAR(255),
   PRIMARY KEY (tenantid, id)
 ) ENGINE = INNODB;
+CREATE INDEX idx_document_contentkey ON document (contentkey, tenantid);
 
 CREATE TABLE document_mapping (
   tenantid BIGINT NOT NULL,
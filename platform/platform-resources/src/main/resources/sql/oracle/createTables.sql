@@ -153,8 +153,10 @@ CREATE TABLE document (
   mimetype VARCHAR2(255 CHAR),
   url VARCHAR2(1024 CHAR),
   content BLOB,
+  contentkey VARCHAR2(255 CHAR),
   PRIMARY KEY (tenantid, id)
 );
+CREATE INDEX idx_document_contentkey ON document (contentkey, tenantid);
 CREATE TABLE document_mapping (
   tenantid NUMBER(19, 0) NOT NULL,
   id NUMBER(19, 0) NOT NULL,
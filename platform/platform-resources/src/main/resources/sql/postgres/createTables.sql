@@ -158,8 +158,10 @@ CREATE TABLE document (
   mimetype VARCHAR(255),
   url VARCHAR(1024),
   content BYTEA,
+  contentkey VARCHAR(255),
   PRIMARY KEY (tenantid, id)
 );
+CREATE INDEX idx_document_contentkey ON document (contentkey, tenantid);
 CREATE TABLE document_mapping (
   tenantid INT8 NOT NULL,
   id INT8 NOT NULL,
@@ -0,0 +1,4 @@
+-- Update of the structure of a database created before 7.16.0, to be run once with the platform stopped:
+-- documents reference their content in the document content store with the contentkey column
+ALTER TABLE document ADD COLUMN contentkey VARCHAR(255);
+CREATE INDEX idx_document_contentkey ON document (contentkey, tenantid);
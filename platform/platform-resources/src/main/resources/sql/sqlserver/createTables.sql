@@ -178,9 +178,12 @@ CREATE TABLE document (
   mimetype NVARCHAR(255),
   url NVARCHAR(1024),
   content VARBINARY(MAX),
+  contentkey NVARCHAR(255),
   PRIMARY KEY (tenantid, id)
 )
 GO
+CREATE INDEX idx_document_contentkey ON document (contentkey, tenantid)
+GO
 CREATE TABLE document_mapping (
   tenantid NUMERIC(19, 0) NOT NULL,
   id NUMERIC(19, 0) NOT NULL,
@@ -18,7 +18,6 @@ import java.util.Map;
 import org.bonitasoft.engine.archive.ArchiveInsertRecord;
 import org.bonitasoft.engine.archive.ArchiveService;
 import org.bonitasoft.engine.archive.ArchivingStrategy;
-import org.bonitasoft.engine.commons.ClassReflector;
 import org.bonitasoft.engine.commons.LogUtil;
 import org.bonitasoft.engine.persistence.ArchivedPersistentObject;
 import org.bonitasoft.engine.persistence.PersistentObject;
@@ -27,6 +26,7 @@ import org.bonitasoft.engine.recorder.SRecorderException;
 import org.bonitasoft.engine.recorder.model.DeleteRecord;
 import org.bonitasoft.engine.services.PersistenceService;
 import org.bonitasoft.engine.services.SPersistenceException;
+import org.bonitasoft.engine.transaction.BonitaTransactionSynchronization;
 import org.bonitasoft.engine.transaction.STransactionNotFoundException;
 import org.bonitasoft.engine.transaction.UserTransactionService;
 import org.slf4j.Logger;
@@ -47,6 +47,12 @@ public class ArchiveServiceImpl implements ArchiveService {
 
     private ArchivingStrategy archivingStrategy;
 
+    /**
+     * Callable inserting the objects archived by the transaction of the current thread: archiving is called once per
+     * archived object, collecting them in a single callable lets them be inserted in JDBC batches.
+     */
+    final ThreadLocal<BatchArchiveCallable> pendingArchives = new ThreadLocal<>();
+
     public ArchiveServiceImpl(final PersistenceService definitiveArchivePersistenceService,
             final ArchivingStrategy archivingStrategy, final UserTransactionService transactionService) {
         super();
@@ -68,29 +74,40 @@ public class ArchiveServiceImpl implements ArchiveService {
         logBeforeMethod(methodName);
         if (records != null) {
             assignArchiveDate(time, records);
-            final BatchArchiveCallable callable = buildBatchArchiveCallable(records);
-
-            try {
-                transactionService.registerBeforeCommitCallable(callable);
-            } catch (final STransactionNotFoundException e) {
-                if (log.isTraceEnabled()) {
-                    log.error(
-                            "Unable to register the beforeCommitCallable to log queriable logs: transaction not found",
-                            e);
+            BatchArchiveCallable callable = pendingArchives.get();
+            if (callable == null || !callable.isOpen()) {
+                callable = buildBatchArchiveCallable();
+                try {
+                    transactionService.registerBeforeCommitCallable(callable);
+                    // close and release it when the transaction completes, including on rollback where it is not
+                    // called: pooled threads must not keep its archived objects
+                    final BatchArchiveCallable registeredCallable = callable;
+                    transactionService.registerBonitaSynchronization(
+                            (BonitaTransactionSynchronization) txState -> {
+                                registeredCallable.close();
+                                pendingArchives.remove();
+                            });
+                } catch (final STransactionNotFoundException e) {
+                    if (log.isTraceEnabled()) {
+                        log.error("Unable to register the beforeCommitCallable to log queriable logs: "
+                                + "transaction not found", e);
+                    }
+                    return;
                 }
+                pendingArchives.set(callable);
             }
+            callable.addRecords(records);
         }
 
         logAfterMethod(methodName);
     }
 
     // As a protected method for test purposes.
-    protected BatchArchiveCallable buildBatchArchiveCallable(final ArchiveInsertRecord... records)
-            throws SRecorderException {
-        return new BatchArchiveCallable(definitiveArchivePersistenceService, records);
+    protected BatchArchiveCallable buildBatchArchiveCallable() {
+        return new BatchArchiveCallable(definitiveArchivePersistenceService);
     }
 
-    private void assignArchiveDate(final long time, final ArchiveInsertRecord... records) throws SRecorderException {
+    private void assignArchiveDate(final long time, final ArchiveInsertRecord... records) {
         for (final ArchiveInsertRecord record : records) {
             if (record != null) {
                 setArchiveDate(record.getEntity(), time);
@@ -98,13 +115,9 @@ public class ArchiveServiceImpl implements ArchiveService {
         }
     }
 
-    private void setArchiveDate(final ArchivedPersistentObject entity, final long time) throws SRecorderException {
+    private void setArchiveDate(final ArchivedPersistentObject entity, final long time) {
         if (entity.getArchiveDate() <= 0) {
-            try {
-                ClassReflector.invokeSetter(entity, "setArchiveDate", long.class, time);
-            } catch (final Exception e) {
-                throw new SRecorderException(e);
-            }
+            entity.setArchiveDate(time);
         }
     }
 
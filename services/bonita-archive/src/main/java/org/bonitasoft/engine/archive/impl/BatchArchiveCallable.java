@@ -14,7 +14,9 @@
 package org.bonitasoft.engine.archive.impl;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
 
 import org.bonitasoft.engine.archive.ArchiveInsertRecord;
@@ -23,43 +25,78 @@ import org.bonitasoft.engine.persistence.PersistentObject;
 import org.bonitasoft.engine.services.PersistenceService;
 import org.bonitasoft.engine.services.SPersistenceException;
 
+/**
+ * Insert archived objects before the commit of the transaction.
+ * <p>
+ * A single callable collects the objects archived during a transaction, see {@link ArchiveServiceImpl}. Objects are
+ * inserted grouped by entity type, so that Hibernate sends consecutive inserts of the same table as a single JDBC batch
+ * (see <code>hibernate.jdbc.batch_size</code>).
+ */
 public class BatchArchiveCallable implements Callable<Void> {
 
     private final PersistenceService persistenceService;
 
-    private final List<? extends ArchivedPersistentObject> archivedObjects;
+    private final List<ArchivedPersistentObject> archivedObjects = new ArrayList<>();
+
+    private volatile boolean closed;
 
     public BatchArchiveCallable(final PersistenceService persistenceService, final ArchiveInsertRecord... records) {
         this.persistenceService = persistenceService;
-        if (records == null) {
-            archivedObjects = new ArrayList<>();
-        } else {
-            archivedObjects = createArchivedObjectsList(records);
+        if (records != null) {
+            addRecords(records);
         }
     }
 
     /**
-     * @param records
-     * @return
+     * Add objects to insert, only while the callable is open
      */
-    protected List<ArchivedPersistentObject> createArchivedObjectsList(final ArchiveInsertRecord... records) {
-        final List<ArchivedPersistentObject> archivedObjects = new ArrayList<>();
+    public void addRecords(final ArchiveInsertRecord... records) {
         for (final ArchiveInsertRecord record : records) {
             if (record != null) {
                 archivedObjects.add(record.getEntity());
             }
         }
-        return archivedObjects;
+    }
+
+    /**
+     * @return false once the callable was called or its transaction completed: objects archived afterwards must be
+     *         inserted by another callable
+     */
+    public boolean isOpen() {
+        return !closed;
+    }
+
+    public void close() {
+        closed = true;
+    }
+
+    /**
+     * @return the entities, grouped by entity type in the order each type first appears
+     */
+    private static List<ArchivedPersistentObject> groupByType(final List<ArchivedPersistentObject> entities) {
+        final Map<Class<?>, List<ArchivedPersistentObject>> archivedObjectsByType = new LinkedHashMap<>();
+        for (final ArchivedPersistentObject entity : entities) {
+            archivedObjectsByType.computeIfAbsent(entity.getClass(), type -> new ArrayList<>()).add(entity);
+        }
+        if (archivedObjectsByType.size() <= 1) {
+            return entities;
+        }
+        final List<ArchivedPersistentObject> archivedObjectsGroupedByType = new ArrayList<>(entities.size());
+        for (final List<ArchivedPersistentObject> archivedObjectsOfType : archivedObjectsByType.values()) {
+            archivedObjectsGroupedByType.addAll(archivedObjectsOfType);
+        }
+        return archivedObjectsGroupedByType;
     }
 
     @Override
     public Void call() throws SPersistenceException {
+        close();
         if (hasObjects()) {
             try {
                 if (archivedObjects.size() == 1) {
                     persistenceService.insert(archivedObjects.get(0));
                 } else {
-                    persistenceService.insertInBatch(new ArrayList<PersistentObject>(archivedObjects));
+                    persistenceService.insertInBatch(new ArrayList<PersistentObject>(groupByType(archivedObjects)));
                 }
             } finally {
                 // Do we still need to clear the list even if there was some Exceptions ?
@@ -71,7 +108,7 @@ public class BatchArchiveCallable implements Callable<Void> {
     }
 
     public boolean hasObjects() {
-        return archivedObjects != null && !archivedObjects.isEmpty();
+        return !archivedObjects.isEmpty();
     }
 
 }
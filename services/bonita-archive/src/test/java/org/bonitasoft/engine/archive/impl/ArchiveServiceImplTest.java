@@ -13,51 +13,113 @@
  **/
 package org.bonitasoft.engine.archive.impl;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
+import java.util.List;
+
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+
 import org.bonitasoft.engine.archive.ArchiveInsertRecord;
 import org.bonitasoft.engine.archive.ArchivingStrategy;
 import org.bonitasoft.engine.persistence.ArchivedPersistentObject;
+import org.bonitasoft.engine.persistence.PersistentObject;
 import org.bonitasoft.engine.services.PersistenceService;
 import org.bonitasoft.engine.transaction.UserTransactionService;
+import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 
 public class ArchiveServiceImplTest {
 
+    private final PersistenceService definitiveArchivePersistenceService = mock(PersistenceService.class);
+    private final ArchivingStrategy archivingStrategy = mock(ArchivingStrategy.class);
+    private final UserTransactionService transactionService = mock(UserTransactionService.class);
+    private final ArchiveServiceImpl archiveService = spy(
+            new ArchiveServiceImpl(definitiveArchivePersistenceService, archivingStrategy, transactionService));
+
+    @Before
+    public void setUp() {
+        when(archivingStrategy.isArchivable(any())).thenReturn(true);
+    }
+
     // Only one test has to survive !
     @Test
     public void should_recordInserts_register_beforeCommitCallable_v2() throws Exception {
-        final PersistenceService definitiveArchivePersistenceService = null;
-        final ArchivingStrategy archivingStrategy = null;
-        final UserTransactionService transactionService = mock(UserTransactionService.class);
-
-        ArchiveServiceImpl archiveService = spy(
-                new ArchiveServiceImpl(definitiveArchivePersistenceService, archivingStrategy, transactionService));
-
-        final ArchivedPersistentObjectWithSetter mockArchivedPersistentObject = mock(
-                ArchivedPersistentObjectWithSetter.class);
+        final ArchivedPersistentObject mockArchivedPersistentObject = mock(ArchivedPersistentObject.class);
         ArchiveInsertRecord record = new ArchiveInsertRecord(mockArchivedPersistentObject);
 
         BatchArchiveCallable mockBatchArchiveCallable = mock(BatchArchiveCallable.class);
-        when(archiveService.buildBatchArchiveCallable(any(ArchiveInsertRecord.class)))
-                .thenReturn(mockBatchArchiveCallable);
+        when(archiveService.buildBatchArchiveCallable()).thenReturn(mockBatchArchiveCallable);
 
         long archiveDate = 3L;
         archiveService.recordInserts(archiveDate, record);
 
         verify(mockArchivedPersistentObject).setArchiveDate(eq(archiveDate));
         verify(transactionService, times(1)).registerBeforeCommitCallable(eq(mockBatchArchiveCallable));
+        verify(mockBatchArchiveCallable).addRecords(record);
+    }
+
+    @Test
+    public void should_insert_records_archived_in_the_same_transaction_in_one_batch() throws Exception {
+        final ArchiveInsertRecord record1 = new ArchiveInsertRecord(mock(ArchivedPersistentObject.class));
+        final ArchiveInsertRecord record2 = new ArchiveInsertRecord(mock(ArchivedPersistentObject.class));
+
+        archiveService.recordInsert(3L, record1);
+        archiveService.recordInsert(3L, record2);
+
+        final ArgumentCaptor<BatchArchiveCallable> callable = ArgumentCaptor.forClass(BatchArchiveCallable.class);
+        verify(transactionService, times(1)).registerBeforeCommitCallable(callable.capture());
+        callable.getValue().call();
+        @SuppressWarnings("unchecked")
+        final ArgumentCaptor<List<PersistentObject>> inserted = ArgumentCaptor.forClass(List.class);
+        verify(definitiveArchivePersistenceService).insertInBatch(inserted.capture());
+        assertThat(inserted.getValue()).containsExactly(record1.getEntity(), record2.getEntity());
     }
 
-    // Test with exception on TxService
+    @Test
+    public void should_register_a_new_callable_for_records_archived_after_the_callable_was_called() throws Exception {
+        final ArchiveInsertRecord record1 = new ArchiveInsertRecord(mock(ArchivedPersistentObject.class));
+        final ArchiveInsertRecord record2 = new ArchiveInsertRecord(mock(ArchivedPersistentObject.class));
+        archiveService.recordInsert(3L, record1);
+        final ArgumentCaptor<BatchArchiveCallable> callable = ArgumentCaptor.forClass(BatchArchiveCallable.class);
+        verify(transactionService).registerBeforeCommitCallable(callable.capture());
+        callable.getValue().call();
+
+        archiveService.recordInsert(3L, record2);
+
+        final ArgumentCaptor<BatchArchiveCallable> callables = ArgumentCaptor.forClass(BatchArchiveCallable.class);
+        verify(transactionService, times(2)).registerBeforeCommitCallable(callables.capture());
+        assertThat(callables.getAllValues().get(1)).isNotSameAs(callable.getValue());
+        assertThat(callables.getAllValues().get(1).hasObjects()).isTrue();
+        verify(definitiveArchivePersistenceService).insert(record1.getEntity());
+    }
+
+    @Test
+    public void should_register_a_new_callable_in_the_next_transaction_after_a_rollback() throws Exception {
+        archiveService.recordInsert(3L, new ArchiveInsertRecord(mock(ArchivedPersistentObject.class)));
+        final ArgumentCaptor<Synchronization> synchronization = ArgumentCaptor.forClass(Synchronization.class);
+        verify(transactionService).registerBonitaSynchronization(synchronization.capture());
+        synchronization.getValue().afterCompletion(Status.STATUS_ROLLEDBACK);
+
+        archiveService.recordInsert(3L, new ArchiveInsertRecord(mock(ArchivedPersistentObject.class)));
+
+        verify(transactionService, times(2)).registerBeforeCommitCallable(any(BatchArchiveCallable.class));
+    }
+
+    @Test
+    public void should_release_the_callable_of_the_thread_once_the_transaction_is_rolled_back() throws Exception {
+        archiveService.recordInsert(3L, new ArchiveInsertRecord(mock(ArchivedPersistentObject.class)));
+        final ArgumentCaptor<Synchronization> synchronization = ArgumentCaptor.forClass(Synchronization.class);
+        verify(transactionService).registerBonitaSynchronization(synchronization.capture());
+        assertThat(archiveService.pendingArchives.get()).isNotNull();
 
-    // Seen with Nicolas C. for this "interface extension" :)
-    // Needed as the implementation calls setArchiveDate through reflection.
-    interface ArchivedPersistentObjectWithSetter extends ArchivedPersistentObject {
+        synchronization.getValue().afterCompletion(Status.STATUS_ROLLEDBACK);
 
-        void setArchiveDate(long archiveDate);
+        assertThat(archiveService.pendingArchives.get()).isNull();
     }
 
 }
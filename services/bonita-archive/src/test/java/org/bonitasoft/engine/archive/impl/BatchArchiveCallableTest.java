@@ -13,14 +13,14 @@
  **/
 package org.bonitasoft.engine.archive.impl;
 
-import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.*;
 import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 
-import java.util.List;
+import java.util.Arrays;
 
 import org.bonitasoft.engine.archive.ArchiveInsertRecord;
 import org.bonitasoft.engine.persistence.ArchivedPersistentObject;
@@ -31,54 +31,42 @@ import org.junit.Test;
 public class BatchArchiveCallableTest {
 
     @Test
-    public void testCreateArchivedObjectsList() {
-        final ArchiveInsertRecord record1 = new ArchiveInsertRecord(mock(ArchivedPersistentObject.class));
-        final ArchiveInsertRecord record2 = new ArchiveInsertRecord(mock(ArchivedPersistentObject.class));
-        final ArchiveInsertRecord record3 = new ArchiveInsertRecord(mock(ArchivedPersistentObject.class));
-        final ArchiveInsertRecord[] records = new ArchiveInsertRecord[] { record1, record2, record3 };
-        final BatchArchiveCallable callable = new BatchArchiveCallable(null, records);
-
-        final List<ArchivedPersistentObject> createArchivedObjectsList = callable.createArchivedObjectsList(records);
+    public void testCallInsertsAllRecords() throws SPersistenceException {
+        final ArchivedPersistentObject entity1 = mock(ArchivedPersistentObject.class);
+        final ArchivedPersistentObject entity2 = mock(ArchivedPersistentObject.class);
+        final ArchivedPersistentObject entity3 = mock(ArchivedPersistentObject.class);
+        final PersistenceService persistenceService = mock(PersistenceService.class);
+        final BatchArchiveCallable callable = new BatchArchiveCallable(persistenceService,
+                new ArchiveInsertRecord(entity1), new ArchiveInsertRecord(entity2), new ArchiveInsertRecord(entity3));
 
-        assertThat(createArchivedObjectsList.size(), is(records.length));
-        for (int i = 0; i < records.length; i++) {
-            final ArchivedPersistentObject archivedPersistentObject = createArchivedObjectsList.get(i);
-            assertThat(archivedPersistentObject, is(records[i].getEntity()));
-        }
+        callable.call();
 
+        verify(persistenceService).insertInBatch(Arrays.asList(entity1, entity2, entity3));
     }
 
     @Test
-    public void testCreateArchivedObjectsListWithNoRecords() {
-        final ArchiveInsertRecord[] records = new ArchiveInsertRecord[] {};
-        final BatchArchiveCallable callable = new BatchArchiveCallable(null, records);
+    public void testCallWithNoRecordsInsertsNothing() throws SPersistenceException {
+        final PersistenceService persistenceService = mock(PersistenceService.class);
+        final BatchArchiveCallable callable = new BatchArchiveCallable(persistenceService,
+                new ArchiveInsertRecord[] {});
 
-        final List<ArchivedPersistentObject> createArchivedObjectsList = callable.createArchivedObjectsList(records);
+        callable.call();
 
-        assertTrue(createArchivedObjectsList.isEmpty());
+        verifyNoInteractions(persistenceService);
     }
 
     @Test
-    public void testCreateArchivedObjectsListWithNullRecords() {
-        final ArchiveInsertRecord record1 = new ArchiveInsertRecord(mock(ArchivedPersistentObject.class));
-        final ArchiveInsertRecord record2 = null;
-        final ArchiveInsertRecord record3 = new ArchiveInsertRecord(mock(ArchivedPersistentObject.class));
-        final ArchiveInsertRecord[] records = new ArchiveInsertRecord[] { record1, record2, record3 };
-        final BatchArchiveCallable callable = new BatchArchiveCallable(null, records);
+    public void testCallSkipsNullRecords() throws SPersistenceException {
+        final ArchivedPersistentObject entity1 = mock(ArchivedPersistentObject.class);
+        final ArchivedPersistentObject entity3 = mock(ArchivedPersistentObject.class);
+        final PersistenceService persistenceService = mock(PersistenceService.class);
+        final BatchArchiveCallable callable = new BatchArchiveCallable(persistenceService,
+                new ArchiveInsertRecord(entity1), null, new ArchiveInsertRecord(entity3));
 
-        final List<ArchivedPersistentObject> createArchivedObjectsList = callable.createArchivedObjectsList(records);
+        callable.call();
 
         // The second one that is null was skipped.
-        assertThat(createArchivedObjectsList.size(), is(2));
-
-        ArchivedPersistentObject archivedPersistentObject;
-        // Check the first one
-        archivedPersistentObject = createArchivedObjectsList.get(0);
-        assertThat(archivedPersistentObject, is(records[0].getEntity()));
-
-        // Check the second that is the third one.
-        archivedPersistentObject = createArchivedObjectsList.get(1);
-        assertThat(archivedPersistentObject, is(records[2].getEntity()));
+        verify(persistenceService).insertInBatch(Arrays.asList(entity1, entity3));
     }
 
     @Test
@@ -133,4 +121,52 @@ public class BatchArchiveCallableTest {
         verify(persistenceService).insertInBatch(anyList());
     }
 
+    @Test
+    public void testCallGroupsObjectsByType() throws SPersistenceException {
+        final ArchivedPersistentObject flowNode1 = mock(ArchivedFlowNode.class);
+        final ArchivedPersistentObject data1 = mock(ArchivedData.class);
+        final ArchivedPersistentObject flowNode2 = mock(ArchivedFlowNode.class);
+        final ArchivedPersistentObject data2 = mock(ArchivedData.class);
+        final PersistenceService persistenceService = mock(PersistenceService.class);
+        final BatchArchiveCallable callable = new BatchArchiveCallable(persistenceService,
+                new ArchiveInsertRecord(flowNode1), new ArchiveInsertRecord(data1), new ArchiveInsertRecord(flowNode2),
+                new ArchiveInsertRecord(data2));
+
+        callable.call();
+
+        verify(persistenceService).insertInBatch(Arrays.asList(flowNode1, flowNode2, data1, data2));
+    }
+
+    @Test
+    public void testCallInsertsAddedRecordsGroupedByType() throws SPersistenceException {
+        final ArchivedPersistentObject flowNode1 = mock(ArchivedFlowNode.class);
+        final ArchivedPersistentObject data1 = mock(ArchivedData.class);
+        final ArchivedPersistentObject flowNode2 = mock(ArchivedFlowNode.class);
+        final PersistenceService persistenceService = mock(PersistenceService.class);
+        final BatchArchiveCallable callable = new BatchArchiveCallable(persistenceService);
+
+        callable.addRecords(new ArchiveInsertRecord(flowNode1));
+        callable.addRecords(new ArchiveInsertRecord(data1));
+        callable.addRecords(new ArchiveInsertRecord(flowNode2));
+        callable.call();
+
+        verify(persistenceService).insertInBatch(Arrays.asList(flowNode1, flowNode2, data1));
+    }
+
+    @Test
+    public void testCallClosesTheCallable() throws SPersistenceException {
+        final BatchArchiveCallable callable = new BatchArchiveCallable(mock(PersistenceService.class));
+        assertTrue(callable.isOpen());
+
+        callable.call();
+
+        assertFalse(callable.isOpen());
+    }
+
+    interface ArchivedFlowNode extends ArchivedPersistentObject {
+    }
+
+    interface ArchivedData extends ArchivedPersistentObject {
+    }
+
 }
@@ -0,0 +1,217 @@
+/**
+ * Copyright (C) 2019 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.authorization.properties;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Resources permissions mapping compiled into a trie, to check REST API calls without building and parsing property
+ * keys and values.
+ * <p>
+ * Keys of the mapping (<code>method|api/resource/qualifier...</code>) are split into the method, then one trie level
+ * per path segment, wildcards being regular <code>*</code> segments. Permission names are interned to integer ids so
+ * that the permissions of a resource and the permissions of a user are both bitsets: a call is authorized when they
+ * intersect, see {@link #toBitset(Set)} and {@link ResourcePermissions#isGrantedTo(long[])}.
+ * <p>
+ * Instances are immutable, they must be compiled again when the mapping changes, see
+ * {@link ResourcesPermissionsMapping#getCompiledPermissions()}.
+ */
+public final class CompiledResourcesPermissions {
+
+    private static final String[] NO_SEGMENTS = new String[0];
+
+    private final Map<String, Node> methods = new HashMap<>();
+    private final Map<String, Integer> permissionIds = new HashMap<>();
+
+    private CompiledResourcesPermissions() {
+    }
+
+    public static CompiledResourcesPermissions compile(Properties resourcesPermissions) {
+        CompiledResourcesPermissions compiled = new CompiledResourcesPermissions();
+        for (String key : resourcesPermissions.stringPropertyNames()) {
+            int methodSeparator = key.indexOf(ResourcesPermissionsMapping.API_METHOD_SEPARATOR);
+            String value = resourcesPermissions.getProperty(key);
+            if (methodSeparator < 0 || value == null) {
+                continue;
+            }
+            Set<String> permissions = PropertiesWithSet.stringToSet(value.trim());
+            if (permissions.isEmpty()) {
+                // same as an undeclared resource
+                continue;
+            }
+            Node node = compiled.methods.computeIfAbsent(key.substring(0, methodSeparator), m -> new Node());
+            for (String segment : key.substring(methodSeparator + 1)
+                    .split(ResourcesPermissionsMapping.RESOURCE_IDS_SEPARATOR, -1)) {
+                node = node.getOrCreateChild(segment);
+            }
+            node.permissions = compiled.intern(permissions);
+        }
+        return compiled;
+    }
+
+    private ResourcePermissions intern(Set<String> permissions) {
+        long[] bits = new long[0];
+        for (String permission : permissions) {
+            int id = permissionIds.computeIfAbsent(permission, p -> permissionIds.size());
+            if ((id >>> 6) >= bits.length) {
+                bits = Arrays.copyOf(bits, (id >>> 6) + 1);
+            }
+            bits[id >>> 6] |= 1L << id;
+        }
+        return new ResourcePermissions(Collections.unmodifiableSet(permissions), bits);
+    }
+
+    /**
+     * @return bitset of the given permissions, permissions not used by any resource are ignored
+     */
+    public long[] toBitset(Set<String> permissions) {
+        long[] bits = new long[(permissionIds.size() + 63) >>> 6];
+        for (String permission : permissions) {
+            Integer id = permissionIds.get(permission);
+            if (id != null) {
+                bits[id >>> 6] |= 1L << id;
+            }
+        }
+        return bits;
+    }
+
+    /**
+     * Resolve the permissions of a resource the same way as successive calls to
+     * {@link ResourcesPermissionsMapping#getResourcePermissions(String, String, String, java.util.List)},
+     * {@link ResourcesPermissionsMapping#getResourcePermissionsWithWildCard(String, String, String, java.util.List)}
+     * and {@link ResourcesPermissionsMapping#getResourcePermissions(String, String, String)}: exact resource first,
+     * then resource with one qualifier replaced by a wildcard (dropping the last qualifiers when none match), then the
+     * resource without qualifier.
+     *
+     * @param resourceQualifiers qualifiers separated by {@link ResourcesPermissionsMapping#RESOURCE_IDS_SEPARATOR},
+     *        can be null
+     * @return permissions of the resource, {@link ResourcePermissions#NONE} if it is not declared
+     */
+    public ResourcePermissions getResourcePermissions(String method, String apiName, String resourceName,
+            String resourceQualifiers) {
+        Node resource = methods.get(method);
+        if (resource != null) {
+            resource = resource.getDescendant(apiName);
+        }
+        if (resource != null) {
+            resource = resource.getDescendant(resourceName);
+        }
+        if (resource == null) {
+            return ResourcePermissions.NONE;
+        }
+        String[] qualifiers = resourceQualifiers != null
+                ? resourceQualifiers.split(ResourcesPermissionsMapping.RESOURCE_IDS_SEPARATOR)
+                : NO_SEGMENTS;
+        ResourcePermissions permissions = resource.find(qualifiers, qualifiers.length, -1);
+        for (int length = qualifiers.length; permissions == null && length > 0; length--) {
+            for (int wildcardPosition = length - 1; permissions == null && wildcardPosition >= 0; wildcardPosition--) {
+                permissions = resource.find(qualifiers, length, wildcardPosition);
+            }
+        }
+        if (permissions == null) {
+            permissions = resource.permissions;
+        }
+        return permissions != null ? permissions : ResourcePermissions.NONE;
+    }
+
+    /**
+     * Permissions required to call a resource, at least one of them must be granted.
+     */
+    public static final class ResourcePermissions {
+
+        public static final ResourcePermissions NONE = new ResourcePermissions(Collections.emptySet(),
+                new long[0]);
+
+        private final Set<String> names;
+        private final long[] bits;
+
+        private ResourcePermissions(Set<String> names, long[] bits) {
+            this.names = names;
+            this.bits = bits;
+        }
+
+        /**
+         * @param grantedPermissions bitset computed by {@link CompiledResourcesPermissions#toBitset(Set)} of the
+         *        same compiled mapping
+         */
+        public boolean isGrantedTo(long[] grantedPermissions) {
+            int words = Math.min(bits.length, grantedPermissions.length);
+            for (int word = 0; word < words; word++) {
+                if ((bits[word] & grantedPermissions[word]) != 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public Set<String> getNames() {
+            return names;
+        }
+
+        @Override
+        public String toString() {
+            return names.toString();
+        }
+    }
+
+    private static final class Node {
+
+        private Map<String, Node> children = Collections.emptyMap();
+        private ResourcePermissions permissions;
+
+        private Node getOrCreateChild(String segment) {
+            if (children.isEmpty()) {
+                children = new HashMap<>(4);
+            }
+            return children.computeIfAbsent(segment, s -> new Node());
+        }
+
+        /**
+         * @param path path of one or more segments, api and resource names may contain separators
+         */
+        private Node getDescendant(String path) {
+            if (path == null) {
+                return children.get("null");
+            }
+            if (path.indexOf('/') < 0) {
+                return children.get(path);
+            }
+            Node node = this;
+            for (String segment : path.split(ResourcesPermissionsMapping.RESOURCE_IDS_SEPARATOR, -1)) {
+                node = node.children.get(segment);
+                if (node == null) {
+                    return null;
+                }
+            }
+            return node;
+        }
+
+        /**
+         * @return permissions of the node at the path made of the first qualifiers, the one at wildcardPosition being
+         *         replaced by a wildcard, null if there is none
+         */
+        private ResourcePermissions find(String[] qualifiers, int length, int wildcardPosition) {
+            Node node = this;
+            for (int i = 0; i < length && node != null; i++) {
+                node = node.children.get(i == wildcardPosition ? ResourcesPermissionsMapping.WILDCARD : qualifiers[i]);
+            }
+            return node != null ? node.permissions : null;
+        }
+    }
+}
@@ -20,6 +20,7 @@ import static org.bonitasoft.engine.authorization.properties.ConfigurationFilesM
 import java.io.IOException;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 import lombok.extern.slf4j.Slf4j;
 import org.bonitasoft.engine.cache.CacheService;
@@ -43,6 +44,8 @@ public abstract class ConfigurationFile {
 
     ConfigurationFilesManager configurationFilesManager;
 
+    private final AtomicLong modificationCount = new AtomicLong();
+
     public ConfigurationFile(long tenantId, CacheService cacheService,
             ConfigurationFilesManager configurationFilesManager) {
         this.tenantId = tenantId;
@@ -65,6 +68,7 @@ public abstract class ConfigurationFile {
     abstract protected boolean hasInternalVersion();
 
     void storePropertiesInCache(Properties tenantProperties) {
+        modificationCount.incrementAndGet();
         try {
             cacheService.store(CONFIGURATION_FILES_CACHE, cacheKey, tenantProperties);
             log.debug(format("Successfully stored configuration file %s (tenant %s) in dedicated cache",
@@ -90,6 +94,14 @@ public abstract class ConfigurationFile {
         return properties;
     }
 
+    /**
+     * @return number of times properties were loaded or modified on this node, properties modified in place are still
+     *         the same instance in the cache
+     */
+    long getModificationCount() {
+        return modificationCount.get();
+    }
+
     public String getProperty(final String propertyName) {
         final String propertyValue = getTenantProperties().getProperty(propertyName);
         return propertyValue != null ? propertyValue.trim() : null;
@@ -16,6 +16,7 @@ package org.bonitasoft.engine.authorization.properties;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Properties;
 import java.util.Set;
 
 import org.bonitasoft.engine.cache.CacheService;
@@ -43,6 +44,8 @@ public class ResourcesPermissionsMapping extends ConfigurationFile {
      */
     public static final String PROPERTIES_FILENAME = "resources-permissions-mapping.properties";
 
+    private volatile Compilation compilation;
+
     @Override
     protected String getPropertiesFileName() {
         return PROPERTIES_FILENAME;
@@ -100,6 +103,35 @@ public class ResourcesPermissionsMapping extends ConfigurationFile {
         return getResourcePermissions(method, apiName, resourceName, null);
     }
 
+    /**
+     * @return the mapping compiled for fast permission checks, compiled again only when the properties were reloaded
+     *         or modified since the last call
+     */
+    public CompiledResourcesPermissions getCompiledPermissions() {
+        final Properties properties = getTenantProperties();
+        // read before compiling: a modification made while compiling triggers a new compilation on the next call
+        final long modificationCount = getModificationCount();
+        Compilation current = compilation;
+        if (current == null || current.properties != properties || current.modificationCount != modificationCount) {
+            current = new Compilation(properties, modificationCount, CompiledResourcesPermissions.compile(properties));
+            compilation = current;
+        }
+        return current.permissions;
+    }
+
+    private static final class Compilation {
+
+        private final Properties properties;
+        private final long modificationCount;
+        private final CompiledResourcesPermissions permissions;
+
+        private Compilation(Properties properties, long modificationCount, CompiledResourcesPermissions permissions) {
+            this.properties = properties;
+            this.modificationCount = modificationCount;
+            this.permissions = permissions;
+        }
+    }
+
     @Override
     protected boolean hasCustomVersion() {
         return true;
@@ -0,0 +1,104 @@
+/**
+ * Copyright (C) 2019 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.authorization.properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.bonitasoft.engine.authorization.properties.ConfigurationFilesManager.getProperties;
+
+import java.util.Set;
+
+import org.bonitasoft.engine.authorization.properties.CompiledResourcesPermissions.ResourcePermissions;
+import org.junit.Test;
+
+public class CompiledResourcesPermissionsTest {
+
+    private final CompiledResourcesPermissions compiled = CompiledResourcesPermissions.compile(getProperties((
+            "GET|bpm/process [Process visualization, Process categories]\n" +
+                    "POST|bpm/process/6 [Custom permission]\n" +
+                    "POST|bpm/process/* [Process Deploy]\n" +
+                    "POST|bpm/process/*/instantiation [Process instantiation]\n" +
+                    "PUT|bpm/process/*/expression [Expression update]\n" +
+                    "PUT|bpm/process []\n" +
+                    "GET|extension/my/rest/api [Custom extension]").getBytes()));
+
+    @Test
+    public void should_resolve_exact_resource_first() {
+        assertThat(permissions("POST", "bpm", "process", "6").getNames()).containsOnly("Custom permission");
+        assertThat(permissions("GET", "bpm", "process", null).getNames())
+                .containsOnly("Process visualization", "Process categories");
+    }
+
+    @Test
+    public void should_resolve_resource_with_wildcard_when_there_is_no_exact_resource() {
+        assertThat(permissions("POST", "bpm", "process", "7").getNames()).containsOnly("Process Deploy");
+        assertThat(permissions("POST", "bpm", "process", "7/instantiation").getNames())
+                .containsOnly("Process instantiation");
+        assertThat(permissions("PUT", "bpm", "process", "7/expression/10").getNames())
+                .containsOnly("Expression update");
+        // last qualifiers are dropped until a resource with wildcard matches
+        assertThat(permissions("POST", "bpm", "process", "7/unknown/8").getNames()).containsOnly("Process Deploy");
+    }
+
+    @Test
+    public void should_resolve_resource_without_qualifiers_when_nothing_else_matches() {
+        assertThat(permissions("GET", "bpm", "process", "7/design").getNames())
+                .containsOnly("Process visualization", "Process categories");
+    }
+
+    @Test
+    public void should_resolve_resources_having_separators_in_their_name() {
+        assertThat(permissions("GET", "extension", "my/rest/api", null).getNames()).containsOnly("Custom extension");
+        assertThat(permissions("GET", "extension", "my", "rest/api").getNames()).containsOnly("Custom extension");
+    }
+
+    @Test
+    public void should_consider_resources_with_empty_permissions_as_undeclared() {
+        assertThat(permissions("PUT", "bpm", "process", null)).isSameAs(ResourcePermissions.NONE);
+        assertThat(permissions("DELETE", "bpm", "process", "6")).isSameAs(ResourcePermissions.NONE);
+        assertThat(permissions("GET", "bpm", "unknown", null)).isSameAs(ResourcePermissions.NONE);
+    }
+
+    @Test
+    public void should_grant_resource_when_one_of_its_permissions_is_granted() {
+        ResourcePermissions processVisualization = permissions("GET", "bpm", "process", null);
+
+        assertThat(processVisualization.isGrantedTo(compiled.toBitset(Set.of("Unknown", "Process categories"))))
+                .isTrue();
+        assertThat(processVisualization.isGrantedTo(compiled.toBitset(Set.of("Unknown", "Process Deploy"))))
+                .isFalse();
+        assertThat(processVisualization.isGrantedTo(compiled.toBitset(Set.of()))).isFalse();
+        assertThat(ResourcePermissions.NONE.isGrantedTo(compiled.toBitset(Set.of("Process Deploy")))).isFalse();
+    }
+
+    @Test
+    public void should_grant_permissions_having_ids_over_64() {
+        StringBuilder mapping = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            mapping.append("GET|bpm/resource").append(i).append(" [Permission ").append(i).append("]\n");
+        }
+        CompiledResourcesPermissions manyPermissions = CompiledResourcesPermissions
+                .compile(getProperties(mapping.toString().getBytes()));
+        long[] granted = manyPermissions.toBitset(Set.of("Permission 99"));
+
+        assertThat(manyPermissions.getResourcePermissions("GET", "bpm", "resource99", null).isGrantedTo(granted))
+                .isTrue();
+        assertThat(manyPermissions.getResourcePermissions("GET", "bpm", "resource98", null).isGrantedTo(granted))
+                .isFalse();
+    }
+
+    private ResourcePermissions permissions(String method, String apiName, String resourceName,
+            String resourceQualifiers) {
+        return compiled.getResourcePermissions(method, apiName, resourceName, resourceQualifiers);
+    }
+}
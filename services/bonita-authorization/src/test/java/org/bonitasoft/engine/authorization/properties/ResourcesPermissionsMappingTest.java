@@ -91,6 +91,27 @@ public class ResourcesPermissionsMappingTest {
         assertThat(putWithResourcesQualifiers).containsOnly("Expression update");
     }
 
+    @Test
+    public void should_compile_permissions_again_only_when_mapping_is_modified() {
+        //given
+        final ResourcesPermissionsMapping resourcesPermissionsMapping = getResourcesPermissionsMapping(
+                "GET|bpm/process [Process visualization]");
+        final CompiledResourcesPermissions compiled = resourcesPermissionsMapping.getCompiledPermissions();
+
+        //when
+        final CompiledResourcesPermissions notModified = resourcesPermissionsMapping.getCompiledPermissions();
+        resourcesPermissionsMapping.setInternalProperty("GET|extension/myApi", "[Custom permission]");
+        final CompiledResourcesPermissions modified = resourcesPermissionsMapping.getCompiledPermissions();
+
+        //then
+        assertThat(notModified).isSameAs(compiled);
+        assertThat(modified).isNotSameAs(compiled);
+        assertThat(modified.getResourcePermissions("GET", "extension", "myApi", null).getNames())
+                .containsOnly("Custom permission");
+        assertThat(modified.getResourcePermissions("GET", "bpm", "process", null).getNames())
+                .containsOnly("Process visualization");
+    }
+
     public ResourcesPermissionsMapping getResourcesPermissionsMapping(final String fileContent) {
         final ResourcesPermissionsMapping resourcesPermissionsMapping = spy(
                 new ResourcesPermissionsMapping(423L, cacheService, configurationFilesManager));
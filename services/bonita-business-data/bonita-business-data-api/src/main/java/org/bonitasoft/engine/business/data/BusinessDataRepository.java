@@ -17,6 +17,7 @@ import java.io.Serializable;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Stream;
 
 import org.bonitasoft.engine.bdm.Entity;
 import org.bonitasoft.engine.commons.TenantLifecycleService;
@@ -32,6 +33,14 @@ import org.bonitasoft.engine.commons.TenantLifecycleService;
  */
 public interface BusinessDataRepository extends TenantLifecycleService {
 
+    /**
+     * Maximum number of elements in the IN clause of a query, as some databases (e.g. Oracle) do not accept more:
+     * queries on more entities are split.
+     *
+     * @since 7.16
+     */
+    int IN_CLAUSE_MAX_SIZE = 1000;
+
     /**
      * Finds an Entity that is defined in a deployed Business Data Model.
      *
@@ -87,6 +96,16 @@ public interface BusinessDataRepository extends TenantLifecycleService {
             Map<String, Serializable> parameters, int startIndex,
             int maxResults);
 
+    /**
+     * Same as {@link #findListByNamedQuery(String, Class, Map, int, int)} but results are read from the database
+     * while the stream is consumed, instead of all at once. Each entity is detached from the persistence context once
+     * the next one is read, so it must not be modified after that. The stream must be closed.
+     *
+     * @since 7.16
+     */
+    <T extends Serializable> Stream<T> streamByNamedQuery(String queryName, Class<T> resultClass,
+            Map<String, Serializable> parameters, int startIndex, int maxResults);
+
     /**
      * Saves or updates an entity in the Business Data Repository.
      *
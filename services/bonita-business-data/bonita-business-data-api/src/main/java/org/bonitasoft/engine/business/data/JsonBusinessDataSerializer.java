@@ -13,7 +13,9 @@
  **/
 package org.bonitasoft.engine.business.data;
 
+import java.io.Writer;
 import java.util.List;
+import java.util.stream.Stream;
 
 import org.bonitasoft.engine.bdm.Entity;
 
@@ -27,6 +29,15 @@ public interface JsonBusinessDataSerializer {
     String serializeEntities(List<? extends Entity> entities, String businessDataURIPattern)
             throws SBusinessDataRepositorySerializationException;
 
+    /**
+     * Write the entities as a JSON array, each entity being serialized as soon as it is read from the stream, so
+     * that they are never all held in memory together.
+     *
+     * @since 7.16
+     */
+    void serializeEntities(Stream<? extends Entity> entities, String businessDataURIPattern, Writer writer)
+            throws SBusinessDataRepositorySerializationException;
+
     String serializeCountResult(List<Long> list, String entityClassName)
             throws SBusinessDataRepositorySerializationException;
 }
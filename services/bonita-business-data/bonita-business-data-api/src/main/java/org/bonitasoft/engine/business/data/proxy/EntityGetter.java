@@ -48,6 +48,11 @@ public class EntityGetter {
         return method.getName().substring(3);
     }
 
+    public String getFieldName() {
+        final String capitalizedFieldName = getCapitalizedFieldName();
+        return Character.toLowerCase(capitalizedFieldName.charAt(0)) + capitalizedFieldName.substring(1);
+    }
+
     public String getReturnTypeClassName() {
         return getTargetEntityClass().getName();
     }
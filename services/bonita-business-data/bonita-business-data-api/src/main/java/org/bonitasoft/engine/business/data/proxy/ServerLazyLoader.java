@@ -13,9 +13,14 @@
  **/
 package org.bonitasoft.engine.business.data.proxy;
 
+import static org.bonitasoft.engine.business.data.BusinessDataRepository.IN_CLAUSE_MAX_SIZE;
+
 import java.io.Serializable;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.bonitasoft.engine.bdm.model.field.Field;
@@ -24,6 +29,8 @@ import org.bonitasoft.engine.business.data.NonUniqueResultException;
 
 public class ServerLazyLoader {
 
+    private static final String PERSISTENCE_IDS = "persistenceIds";
+
     private BusinessDataRepository businessDataRepository;
 
     public ServerLazyLoader(BusinessDataRepository bdBusinessDataRepository) {
@@ -48,4 +55,49 @@ public class ServerLazyLoader {
         }
     }
 
+    /**
+     * Load the value of a lazy loaded field for several entities of the same type at once, using one query per
+     * {@value BusinessDataRepository#IN_CLAUSE_MAX_SIZE} entities instead of one per entity.
+     *
+     * @return the value of each given persistence id, as {@link #load(Method, long)} would return it
+     */
+    public Map<Long, Object> loadAll(final Method method, final Collection<Long> persistenceIds) {
+        final EntityGetter getter = new EntityGetter(method);
+        final boolean returnsList = getter.returnsList();
+        final Map<Long, Object> values = new HashMap<>();
+        for (final Long persistenceId : persistenceIds) {
+            values.put(persistenceId, returnsList ? new ArrayList<>() : null);
+        }
+        final String query = createQueryForLazyFieldOfEntities(getter);
+        final List<Long> ids = new ArrayList<>(persistenceIds);
+        for (int i = 0; i < ids.size(); i += IN_CLAUSE_MAX_SIZE) {
+            final List<Long> chunk = ids.subList(i, Math.min(i + IN_CLAUSE_MAX_SIZE, ids.size()));
+            final Map<String, Serializable> queryParameters = new HashMap<>();
+            queryParameters.put(PERSISTENCE_IDS, chunk.toArray(new Long[0]));
+            for (final Object[] row : businessDataRepository.findList(Object[].class, query, queryParameters, 0,
+                    Integer.MAX_VALUE)) {
+                if (returnsList) {
+                    ((List<Object>) values.get(row[0])).add(row[1]);
+                } else {
+                    values.put((Long) row[0], row[1]);
+                }
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Same query as the one generated for lazy fields (see AbstractQueryGenerator#createQueryForLazyField) but for
+     * several entities, also returning the persistence id of the entity owning each value.
+     */
+    private String createQueryForLazyFieldOfEntities(final EntityGetter getter) {
+        final String boName = getter.getSourceEntityName();
+        final String boAlias = boName.toLowerCase() + "_0";
+        final String fieldName = getter.getFieldName();
+        final String fieldAlias = fieldName.toLowerCase() + "_1";
+        return String.format("SELECT %s.%s, %s FROM %s %s JOIN %s.%s as %s WHERE %s.%s IN (:%s)", boAlias,
+                Field.PERSISTENCE_ID, fieldAlias, boName, boAlias, boAlias, fieldName, fieldAlias, boAlias,
+                Field.PERSISTENCE_ID, PERSISTENCE_IDS);
+    }
+
 }
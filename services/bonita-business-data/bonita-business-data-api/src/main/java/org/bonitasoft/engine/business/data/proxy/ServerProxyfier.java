@@ -15,8 +15,11 @@ package org.bonitasoft.engine.business.data.proxy;
 
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 import javassist.util.proxy.MethodHandler;
@@ -53,6 +56,10 @@ public class ServerProxyfier {
     }
 
     private Entity proxifyEntity(final Entity entity) {
+        return proxifyEntity(entity, null);
+    }
+
+    private Entity proxifyEntity(final Entity entity, final SiblingEntities siblings) {
         if (entity == null) {
             return null;
         }
@@ -68,7 +75,7 @@ public class ServerProxyfier {
         factory.setSuperclass(classForProxy);
         factory.setFilter((Method m) -> true);
         try {
-            return (Entity) factory.create(new Class<?>[0], new Object[0], new LazyMethodHandler(entity, lazyLoader));
+            return (Entity) factory.create(new Class<?>[0], new Object[0], new LazyMethodHandler(entity, lazyLoader, siblings));
         } catch (final Exception e) {
             throw new RuntimeException("Error when proxifying object", e);
         }
@@ -84,13 +91,48 @@ public class ServerProxyfier {
     }
 
     private List<Entity> proxifyEntities(final List<Entity> entities) {
+        final SiblingEntities siblings = entities.size() > 1 ? new SiblingEntities(lazyLoader, entities) : null;
         final List<Entity> proxies = new ArrayList<>();
         for (final Entity entity : entities) {
-            proxies.add(proxifyEntity(entity));
+            proxies.add(proxifyEntity(entity, siblings));
         }
         return proxies;
     }
 
+    /**
+     * Entities proxified together, e.g. the result of a query or the elements of a list field. The first time a lazy
+     * loaded getter is called on one of them, the values of this getter are loaded for all of them at once, to avoid
+     * running one query per entity when all are serialized.
+     */
+    static class SiblingEntities {
+
+        private final ServerLazyLoader lazyLoader;
+        private final Set<Long> persistenceIds = new LinkedHashSet<>();
+        private final Map<Method, Map<Long, Object>> prefetchedValues = new HashMap<>();
+
+        SiblingEntities(final ServerLazyLoader lazyLoader, final List<Entity> entities) {
+            this.lazyLoader = lazyLoader;
+            for (final Entity entity : entities) {
+                if (entity != null && entity.getPersistenceId() != null) {
+                    persistenceIds.add(entity.getPersistenceId());
+                }
+            }
+        }
+
+        synchronized Object load(final Method method, final Long persistenceId) {
+            Map<Long, Object> values = prefetchedValues.get(method);
+            if (values == null) {
+                values = lazyLoader.loadAll(method, persistenceIds);
+                prefetchedValues.put(method, values);
+            }
+            // a prefetched value is used once: next calls load it again, as for an entity that is not in a list
+            if (values.containsKey(persistenceId)) {
+                return values.remove(persistenceId);
+            }
+            return lazyLoader.load(method, persistenceId);
+        }
+    }
+
     /**
      * Handler that lazy load values for lazy loading methods that hasn't been loaded
      */
@@ -98,10 +140,16 @@ public class ServerProxyfier {
 
         private final ServerLazyLoader lazyLoader;
         private final Entity entity;
+        private final SiblingEntities siblings;
 
         public LazyMethodHandler(final Entity entity, final ServerLazyLoader lazyLoader) {
+            this(entity, lazyLoader, null);
+        }
+
+        LazyMethodHandler(final Entity entity, final ServerLazyLoader lazyLoader, final SiblingEntities siblings) {
             this.entity = entity;
             this.lazyLoader = lazyLoader;
+            this.siblings = siblings;
         }
 
         public Entity getEntity() {
@@ -113,7 +161,9 @@ public class ServerProxyfier {
                 throws Throwable {
             Object invocationResult;
             if (isMethodGetterOnLazyLoadedField(thisMethod)) {
-                invocationResult = lazyLoader.load(thisMethod, entity.getPersistenceId());
+                invocationResult = siblings != null
+                        ? siblings.load(thisMethod, entity.getPersistenceId())
+                        : lazyLoader.load(thisMethod, entity.getPersistenceId());
             } else {
                 invocationResult = thisMethod.invoke(entity, args);
             }
@@ -22,8 +22,14 @@ import org.bonitasoft.engine.bdm.lazy.LazyLoaded;
  */
 public class PersonEntity implements Entity {
 
+    private final Long persistenceId;
+
     public PersonEntity() {
+        this(1L);
+    }
 
+    public PersonEntity(Long persistenceId) {
+        this.persistenceId = persistenceId;
     }
 
     /*
@@ -32,7 +38,7 @@ public class PersonEntity implements Entity {
      */
     @Override
     public Long getPersistenceId() {
-        return 1L;
+        return persistenceId;
     }
 
     /*
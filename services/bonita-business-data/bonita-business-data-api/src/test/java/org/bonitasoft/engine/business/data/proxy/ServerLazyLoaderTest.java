@@ -13,11 +13,15 @@
  **/
 package org.bonitasoft.engine.business.data.proxy;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
 import static org.mockito.Mockito.*;
 
 import java.io.Serializable;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -133,4 +137,28 @@ public class ServerLazyLoaderTest {
         //then exception
     }
 
+    @Test
+    public void should_load_list_of_objects_of_several_entities_with_one_query() throws Exception {
+        //given
+        final Method method = employee.getClass().getMethod("getAddresses");
+        final Addresses address1 = new Addresses();
+        final Addresses address2 = new Addresses();
+        final Addresses address3 = new Addresses();
+        doReturn(Arrays.asList(new Object[] { 1L, address1 }, new Object[] { 2L, address2 },
+                new Object[] { 1L, address3 })).when(businessDataRepository).findList(eq(Object[].class),
+                        eq("SELECT employee_0.persistenceId, addresses_1 FROM Employee employee_0"
+                                + " JOIN employee_0.addresses as addresses_1"
+                                + " WHERE employee_0.persistenceId IN (:persistenceIds)"),
+                        argThat(parameters -> Arrays.equals((Long[]) parameters.get("persistenceIds"),
+                                new Long[] { 1L, 2L, 3L })),
+                        eq(0), eq(Integer.MAX_VALUE));
+
+        //when
+        final Map<Long, Object> values = serverLazyLoader.loadAll(method, Arrays.asList(1L, 2L, 3L));
+
+        //then
+        assertThat(values).containsOnly(entry(1L, Arrays.asList(address1, address3)),
+                entry(2L, Collections.singletonList(address2)), entry(3L, Collections.emptyList()));
+    }
+
 }
@@ -20,7 +20,11 @@ import static org.mockito.Mockito.*;
 
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import javassist.util.proxy.MethodHandler;
 import javassist.util.proxy.ProxyFactory;
 import javassist.util.proxy.ProxyObject;
@@ -98,6 +102,26 @@ public class ServerProxyfierTest {
         assertThat(withLazyLoadedAnnotation).isEqualTo("lazyResult");
     }
 
+    @Test
+    public void should_load_lazy_loaded_field_of_all_entities_of_a_list_at_once() throws Exception {
+        //given
+        final Method method = PersonEntity.class.getMethod("getWithLazyLoadedAnnotation");
+        final Map<Long, Object> values = new HashMap<>();
+        values.put(1L, "first");
+        values.put(2L, "second");
+        doReturn(values).when(lazyLoader).loadAll(eq(method), any());
+
+        //when
+        final List<PersonEntity> proxies = serverProxyfier
+                .proxify(Arrays.asList(new PersonEntity(1L), new PersonEntity(2L)));
+
+        //then
+        assertThat(proxies.get(0).getWithLazyLoadedAnnotation()).isEqualTo("first");
+        assertThat(proxies.get(1).getWithLazyLoadedAnnotation()).isEqualTo("second");
+        verify(lazyLoader).loadAll(method, new LinkedHashSet<>(Arrays.asList(1L, 2L)));
+        verify(lazyLoader, never()).load(any(Method.class), anyLong());
+    }
+
     @Test
     public void should_not_call_lazyLoader() throws Exception {
         //given
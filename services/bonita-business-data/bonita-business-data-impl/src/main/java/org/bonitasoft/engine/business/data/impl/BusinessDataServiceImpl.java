@@ -14,6 +14,7 @@
 package org.bonitasoft.engine.business.data.impl;
 
 import java.io.Serializable;
+import java.io.StringWriter;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
@@ -24,6 +25,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Stream;
 
 import javax.persistence.CascadeType;
 import javax.persistence.ManyToMany;
@@ -324,9 +326,7 @@ public class BusinessDataServiceImpl implements BusinessDataService {
         BusinessObject businessObject = getBusinessObjectFromClassName(entityClassName);
         final Query queryDefinition = getQueryDefinition(businessObject, entityClassName, queryName);
         final Map<String, Serializable> queryParameters = getQueryParameters(queryDefinition, parameters);
-        final List<? extends Serializable> list = businessDataRepository.findListByNamedQuery(
-                getQualifiedQueryName(businessDataClass, queryName),
-                getQueryReturnType(queryDefinition, entityClassName), queryParameters, startIndex, maxResults);
+        final Class<? extends Serializable> queryReturnType = getQueryReturnType(queryDefinition, entityClassName);
 
         BusinessDataQueryMetadataImpl businessDataQueryMetadata = null;
         final Query countQueryDefinition = getCountQueryDefinition(businessDataClass, businessObject, queryDefinition);
@@ -340,11 +340,26 @@ public class BusinessDataServiceImpl implements BusinessDataService {
                 throw new SBusinessDataRepositoryException("unable to count results for query " + queryName);
             }
         }
+        final String qualifiedQueryName = getQualifiedQueryName(businessDataClass, queryName);
         Serializable jsonResults;
-        if (queryDefinition.isCountQuery()) {
-            jsonResults = jsonBusinessDataSerializer.serializeCountResult((List<Long>) list, entityClassName);
+        if (!queryDefinition.isCountQuery() && Entity.class.isAssignableFrom(queryReturnType)) {
+            // serialize entities while they are read, instead of loading the whole page first: only the JSON of the
+            // page is kept, it is returned as a String through the Command API
+            final StringWriter writer = new StringWriter();
+            try (Stream<Entity> entities = (Stream<Entity>) businessDataRepository.streamByNamedQuery(
+                    qualifiedQueryName, queryReturnType, queryParameters, startIndex, maxResults)) {
+                jsonBusinessDataSerializer.serializeEntities(entities, businessDataURIPattern, writer);
+            }
+            jsonResults = writer.toString();
         } else {
-            jsonResults = jsonBusinessDataSerializer.serializeEntities((List<Entity>) list, businessDataURIPattern);
+            final List<? extends Serializable> list = businessDataRepository.findListByNamedQuery(qualifiedQueryName,
+                    queryReturnType, queryParameters, startIndex, maxResults);
+            if (queryDefinition.isCountQuery()) {
+                jsonResults = jsonBusinessDataSerializer.serializeCountResult((List<Long>) list, entityClassName);
+            } else {
+                jsonResults = jsonBusinessDataSerializer.serializeEntities((List<Entity>) list,
+                        businessDataURIPattern);
+            }
         }
         return new BusinessDataQueryResultImpl(jsonResults, businessDataQueryMetadata);
     }
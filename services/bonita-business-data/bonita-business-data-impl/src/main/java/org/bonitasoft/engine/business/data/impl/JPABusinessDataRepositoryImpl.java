@@ -24,7 +24,11 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
@@ -52,6 +56,7 @@ import org.bonitasoft.engine.transaction.STransactionNotFoundException;
 import org.bonitasoft.engine.transaction.UserTransactionService;
 import org.hibernate.Hibernate;
 import org.hibernate.QueryException;
+import org.hibernate.annotations.QueryHints;
 import org.hibernate.boot.archive.scan.internal.DisabledScanner;
 import org.hibernate.proxy.HibernateProxy;
 import org.slf4j.Logger;
@@ -66,6 +71,8 @@ public class JPABusinessDataRepositoryImpl implements BusinessDataRepository, Si
 
     private static final Logger log = LoggerFactory.getLogger(JPABusinessDataRepositoryImpl.class);
     private static final String BDR_PERSISTENCE_UNIT = "BDR";
+    // number of rows fetched at once from the database when streaming the results of a query
+    private static final int STREAM_FETCH_SIZE = 100;
 
     private final Map<String, Object> configuration;
 
@@ -241,12 +248,22 @@ public class JPABusinessDataRepositoryImpl implements BusinessDataRepository, Si
         if (primaryKeys == null || primaryKeys.isEmpty()) {
             return new ArrayList<>();
         }
-        final List<T> entities = new ArrayList<>();
+        final Map<Long, T> entitiesById = new HashMap<>();
+        final List<Long> identifiers = primaryKeys.stream().filter(Objects::nonNull).distinct()
+                .collect(Collectors.toList());
+        for (int i = 0; i < identifiers.size(); i += IN_CLAUSE_MAX_SIZE) {
+            final List<Long> chunk = identifiers.subList(i, Math.min(i + IN_CLAUSE_MAX_SIZE, identifiers.size()));
+            for (final T entity : findByIds(entityClass, chunk)) {
+                entitiesById.put(entity.getPersistenceId(), entity);
+            }
+        }
+        // keep the order of the given identifiers. If a business data does not exist, do not add it in the result
+        // list in order to have the same behaviour as findByIds
+        final List<T> entities = new ArrayList<>(primaryKeys.size());
         for (final Long primaryKey : primaryKeys) {
-            try {
-                entities.add(findById(entityClass, primaryKey));
-            } catch (final SBusinessDataNotFoundException e) {
-                // If the business data does not exist, do not add it in the result list in order to have the same behaviour as findByIds
+            final T entity = entitiesById.get(primaryKey);
+            if (entity != null) {
+                entities.add(entity);
             }
         }
         return entities;
@@ -337,6 +354,42 @@ public class JPABusinessDataRepositoryImpl implements BusinessDataRepository, Si
         }
     }
 
+    @Override
+    public <T extends Serializable> Stream<T> streamByNamedQuery(final String queryName, final Class<T> resultClass,
+            final Map<String, Serializable> parameters, final int startIndex, final int maxResults) {
+        if (maxResults <= 0) {
+            return Stream.empty();
+        }
+        final EntityManager em = getEntityManager();
+        try {
+            final TypedQuery<T> query = em.createNamedQuery(queryName, resultClass);
+            if (parameters != null) {
+                for (final Entry<String, Serializable> parameter : parameters.entrySet()) {
+                    query.setParameter(parameter.getKey(), checkParameterValue(parameter.getValue()));
+                }
+            }
+            query.setFirstResult(startIndex);
+            query.setMaxResults(maxResults);
+            // Hibernate reads the results with a forward only cursor, fetching them by batches from the database
+            query.setHint(QueryHints.FETCH_SIZE, Math.min(maxResults, STREAM_FETCH_SIZE));
+            // an entity is detached when the next one is read, so that the persistence context does not keep them all
+            final AtomicReference<T> previous = new AtomicReference<>();
+            return query.getResultStream().map(result -> {
+                detach(em, previous.getAndSet(result));
+                return result;
+            }).onClose(() -> detach(em, previous.getAndSet(null)));
+        } catch (final PersistenceException e) {
+            //wrap in retryable exception because the issue might come from BDR reloading
+            throw new SRetryableException(e);
+        }
+    }
+
+    private static void detach(final EntityManager em, final Object result) {
+        if (result instanceof Entity && em.isOpen()) {
+            em.detach(result);
+        }
+    }
+
     private <T> TypedQuery<T> createTypedQuery(final String jpqlQuery, final Class<T> resultClass) {
         return getEntityManager().createQuery(jpqlQuery, resultClass);
     }
@@ -14,11 +14,16 @@
 package org.bonitasoft.engine.business.data.impl;
 
 import java.io.IOException;
+import java.io.Writer;
+import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Stream;
 
 import com.fasterxml.jackson.annotation.JsonAutoDetect;
 import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import com.fasterxml.jackson.databind.module.SimpleModule;
 import org.bonitasoft.engine.bdm.Entity;
 import org.bonitasoft.engine.bdm.serialization.BusinessDataObjectMapper;
@@ -86,6 +91,22 @@ public class JsonBusinessDataSerializerImpl extends BusinessDataObjectMapper
         }
     }
 
+    @Override
+    public void serializeEntities(final Stream<? extends Entity> entities, final String businessDataURIPattern,
+            final Writer writer) throws SBusinessDataRepositorySerializationException {
+        LOG.trace("Serializing a stream of entities");
+        try (SequenceWriter sequenceWriter = newObjectWriter(businessDataURIPattern)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET).writeValues(writer)) {
+            sequenceWriter.init(true);
+            final Iterator<? extends Entity> iterator = entities.iterator();
+            while (iterator.hasNext()) {
+                sequenceWriter.write(iterator.next());
+            }
+        } catch (IOException e) {
+            throw new SBusinessDataRepositorySerializationException("Unable to serialize stream of Entity", e);
+        }
+    }
+
     @Override
     public String serializeCountResult(List<Long> list, String entityClassName) {
         String json = "[" + list.get(0).toString() + "]";
@@ -17,12 +17,14 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.*;
 
 import java.io.Serializable;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 import org.bonitasoft.engine.bdm.Entity;
 import org.bonitasoft.engine.bdm.model.BusinessObject;
@@ -504,9 +506,8 @@ public class BusinessDataServiceImplTest {
 
         doReturn(entity.getClass()).when(businessDataService).loadClass(entity.getClass().getName());
 
-        final List<Entity> entities = new ArrayList<>();
-        entities.add(entity);
-        doReturn(entities).when(businessDataRepository).findListByNamedQuery(anyString(), any(Class.class), anyMap(),
+        final Stream<Entity> entities = Stream.of(entity);
+        doReturn(entities).when(businessDataRepository).streamByNamedQuery(anyString(), any(Class.class), anyMap(),
                 anyInt(), anyInt());
 
         //given
@@ -518,7 +519,10 @@ public class BusinessDataServiceImplTest {
                 PARAMETER_BUSINESSDATA_CLASS_URI_VALUE);
 
         //then
-        verify(jsonEntitySerializer).serializeEntities(entities, PARAMETER_BUSINESSDATA_CLASS_URI_VALUE);
+        verify(jsonEntitySerializer).serializeEntities(eq(entities), eq(PARAMETER_BUSINESSDATA_CLASS_URI_VALUE),
+                any(Writer.class));
+        verify(businessDataRepository, never()).findListByNamedQuery(anyString(), any(Class.class), anyMap(),
+                anyInt(), anyInt());
     }
 
     @Test
@@ -628,7 +632,7 @@ public class BusinessDataServiceImplTest {
         BusinessObjectModel businessObjectModel;
         businessObjectModel = new BusinessObjectModel();
 
-        final Query query = new Query("query", "content", String.class.getName());
+        final Query query = new Query("query", "content", List.class.getName());
         query.getQueryParameters().add(new QueryParameter(PARAMETER_STRING, String.class.getName()));
         query.getQueryParameters().add(new QueryParameter(PARAMETER_INTEGER, Integer.class.getName()));
         query.getQueryParameters().add(new QueryParameter(PARAMETER_LONG, Long.class.getName()));
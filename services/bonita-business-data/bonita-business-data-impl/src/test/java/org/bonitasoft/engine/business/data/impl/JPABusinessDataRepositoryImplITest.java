@@ -202,6 +202,19 @@ public class JPABusinessDataRepositoryImplITest {
         assertThat(emps).doesNotContain(emp3);
     }
 
+    @Test
+    public void findByIdentifiers_should_keep_the_order_of_identifiers_and_skip_unknown_ones() throws Exception {
+        Employee emp1 = addEmployeeToRepository(anEmployee().withLastName("Doe").build());
+        Employee emp2 = addEmployeeToRepository(anEmployee().withLastName("Doe").build());
+        Employee emp3 = addEmployeeToRepository(anEmployee().withLastName("Doe").build());
+
+        List<Employee> emps = businessDataRepository.findByIdentifiers(Employee.class,
+                Arrays.asList(emp3.getPersistenceId(), -1L, emp1.getPersistenceId(), null, emp3.getPersistenceId()));
+
+        assertThat(emps).containsExactly(emp3, emp1, emp3);
+        assertThat(emps).doesNotContain(emp2);
+    }
+
     @Test
     public void should_return_an_empty_list_when_getting_entities_with_empty_ids_list() throws Exception {
         ArrayList<Long> emptyIdsList = new ArrayList<>();
@@ -22,7 +22,9 @@ import static org.mockito.Mockito.*;
 import java.io.Serializable;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.stream.Stream;
 
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
@@ -41,6 +43,7 @@ import org.bonitasoft.engine.classloader.ClassLoaderService;
 import org.bonitasoft.engine.commons.exceptions.SRetryableException;
 import org.bonitasoft.engine.dependency.model.ScopeType;
 import org.bonitasoft.engine.transaction.UserTransactionService;
+import org.hibernate.annotations.QueryHints;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -300,6 +303,27 @@ public class JPABusinessDataRepositoryImplTest {
                 .checkParameterValue(new Byte[] { 0x1, 0x2 });
     }
 
+    @Test
+    public void should_detach_streamed_entities_once_the_next_one_is_read() {
+        final Address address1 = new Address(1L);
+        final Address address2 = new Address(2L);
+        final TypedQuery<Address> query = mock(TypedQuery.class);
+        doReturn(query).when(manager).createNamedQuery("Address.findAll", Address.class);
+        doReturn(Stream.of(address1, address2)).when(query).getResultStream();
+        doReturn(true).when(manager).isOpen();
+
+        try (Stream<Address> addresses = repository.streamByNamedQuery("Address.findAll", Address.class, null, 0,
+                10)) {
+            final Iterator<Address> iterator = addresses.iterator();
+            assertThat(iterator.next()).isEqualTo(address1);
+            verify(manager, never()).detach(any());
+            assertThat(iterator.next()).isEqualTo(address2);
+            verify(manager).detach(address1);
+        }
+        verify(manager).detach(address2);
+        verify(query).setHint(QueryHints.FETCH_SIZE, 10);
+    }
+
     class Address implements Entity {
 
         private static final long serialVersionUID = 2603989953326533907L;
@@ -17,6 +17,7 @@ import static net.javacrumbs.jsonunit.fluent.JsonFluentAssert.assertThatJson;
 import static org.mockito.Mockito.mock;
 
 import java.io.IOException;
+import java.io.StringWriter;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.OffsetDateTime;
@@ -27,6 +28,7 @@ import java.util.Date;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import java.util.stream.Stream;
 import javassist.util.proxy.MethodHandler;
 
 import com.company.model.Address;
@@ -94,6 +96,32 @@ public class JsonBusinessDataSerializerImplTest {
         assertThatJson(jsonPersonList).as("entity list serialization").isEqualTo(getJsonContent("multiplePerson.json"));
     }
 
+    @Test
+    public void entity_stream_should_be_serialized_as_entity_list() throws Exception {
+        // given
+        StringWriter writer = new StringWriter();
+
+        // when
+        jsonBusinessDataSerializer.serializeEntities(IntStream.range(1, 3).mapToObj(i -> initPerson(i)),
+                PARAMETER_BUSINESSDATA_CLASS_URI_VALUE, writer);
+
+        // then
+        assertThatJson(writer.toString()).as("entity stream serialization")
+                .isEqualTo(getJsonContent("multiplePerson.json"));
+    }
+
+    @Test
+    public void empty_entity_stream_should_be_serialized_as_empty_list() throws Exception {
+        // given
+        StringWriter writer = new StringWriter();
+
+        // when
+        jsonBusinessDataSerializer.serializeEntities(Stream.empty(), PARAMETER_BUSINESSDATA_CLASS_URI_VALUE, writer);
+
+        // then
+        assertThatJson(writer.toString()).isEqualTo("[]");
+    }
+
     @Test
     public void serialization_of_entity_should_use_fields_and_not_getters() throws Exception {
         //given
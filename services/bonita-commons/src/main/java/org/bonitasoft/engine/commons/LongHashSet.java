@@ -0,0 +1,110 @@
+/**
+ * Copyright (C) 2019 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.commons;
+
+/**
+ * Set of primitive longs using open addressing with linear probing: no boxing and no entry object per element.
+ * Not thread safe.
+ */
+public class LongHashSet {
+
+    private static final long EMPTY = 0L;
+
+    private long[] elements;
+    // 0 is used to mark empty slots, it is tracked separately
+    private boolean containsZero;
+    private int size;
+
+    public LongHashSet() {
+        this(16);
+    }
+
+    public LongHashSet(int expectedSize) {
+        int capacity = 16;
+        while (capacity * 3 / 4 < expectedSize) {
+            capacity <<= 1;
+        }
+        elements = new long[capacity];
+    }
+
+    /**
+     * @return true if the element was not already in the set
+     */
+    public boolean add(long element) {
+        if (element == EMPTY) {
+            if (containsZero) {
+                return false;
+            }
+            containsZero = true;
+            size++;
+            return true;
+        }
+        int mask = elements.length - 1;
+        int index = hash(element) & mask;
+        while (elements[index] != EMPTY) {
+            if (elements[index] == element) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+        elements[index] = element;
+        if (++size > elements.length * 3 / 4) {
+            resize();
+        }
+        return true;
+    }
+
+    public boolean contains(long element) {
+        if (element == EMPTY) {
+            return containsZero;
+        }
+        int mask = elements.length - 1;
+        int index = hash(element) & mask;
+        while (elements[index] != EMPTY) {
+            if (elements[index] == element) {
+                return true;
+            }
+            index = (index + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private void resize() {
+        long[] oldElements = elements;
+        elements = new long[oldElements.length * 2];
+        int mask = elements.length - 1;
+        for (long element : oldElements) {
+            if (element != EMPTY) {
+                int index = hash(element) & mask;
+                while (elements[index] != EMPTY) {
+                    index = (index + 1) & mask;
+                }
+                elements[index] = element;
+            }
+        }
+    }
+
+    private static int hash(long element) {
+        long h = element * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,52 @@
+/**
+ * Copyright (C) 2019 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.commons;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+public class LongHashSetTest {
+
+    @Test
+    public void should_add_elements_only_once() {
+        LongHashSet set = new LongHashSet();
+
+        assertThat(set.add(5L)).isTrue();
+        assertThat(set.add(5L)).isFalse();
+        assertThat(set.add(0L)).isTrue();
+        assertThat(set.add(0L)).isFalse();
+        assertThat(set.add(-3L)).isTrue();
+
+        assertThat(set.size()).isEqualTo(3);
+        assertThat(set.contains(5L)).isTrue();
+        assertThat(set.contains(0L)).isTrue();
+        assertThat(set.contains(-3L)).isTrue();
+        assertThat(set.contains(6L)).isFalse();
+    }
+
+    @Test
+    public void should_keep_all_elements_when_growing() {
+        LongHashSet set = new LongHashSet(4);
+        for (long i = 1; i <= 10_000; i++) {
+            set.add(i * 31);
+        }
+
+        assertThat(set.size()).isEqualTo(10_000);
+        for (long i = 1; i <= 10_000; i++) {
+            assertThat(set.contains(i * 31)).isTrue();
+            assertThat(set.contains(i * 31 + 1)).isFalse();
+        }
+    }
+}
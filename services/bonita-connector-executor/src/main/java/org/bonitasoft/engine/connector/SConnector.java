@@ -63,4 +63,12 @@ public interface SConnector {
      * @throws SConnectorException
      */
     void disconnect() throws SConnectorException;
+
+    /**
+     * @return the name of the implementation of this connector, connectors having the same name share the same
+     *         concurrency limit, see ConnectorExecutorImpl
+     */
+    default String getImplementationName() {
+        return getClass().getName();
+    }
 }
@@ -22,9 +22,15 @@ import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
@@ -81,7 +87,15 @@ public class ConnectorExecutorImpl implements ConnectorExecutor {
     private long tenantId;
     private ExecutorServiceMetricsProvider executorServiceMetricsProvider;
 
+    private boolean virtualThreads;
+    private boolean onVirtualThreads;
+    private int maxConcurrentExecutionsPerConnector;
+    private long timeoutSeconds;
+    private ScheduledExecutorService timeoutScheduler;
+    private final Map<String, Semaphore> concurrencyLimiters = new ConcurrentHashMap<>();
+
     private final AtomicLong runningWorks = new AtomicLong();
+    private final AtomicLong pendingWorks = new AtomicLong();
     private Counter executedWorkCounter;
     private Gauge numberOfConnectorsPending;
     private Gauge numberOfConnectorsRunning;
@@ -124,6 +138,31 @@ public class ConnectorExecutorImpl implements ConnectorExecutor {
         this.executorServiceMetricsProvider = executorServiceMetricsProvider;
     }
 
+    /**
+     * @param virtualThreads when true, each connector is executed by its own virtual thread instead of by the pool of
+     *        threads, so that connectors waiting for I/O do not hold a platform thread. Requires Java 21 or later,
+     *        otherwise the pool of threads is used.
+     */
+    public void setVirtualThreads(final boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
+    /**
+     * @param maxConcurrentExecutionsPerConnector when executing connectors on virtual threads, maximum number of
+     *        connectors of the same implementation executed at the same time (0 for no limit). Other ones wait,
+     *        counted as pending.
+     */
+    public void setMaxConcurrentExecutionsPerConnector(final int maxConcurrentExecutionsPerConnector) {
+        this.maxConcurrentExecutionsPerConnector = maxConcurrentExecutionsPerConnector;
+    }
+
+    /**
+     * @param timeoutSeconds time after which the execution of a connector is interrupted and fails (0 for no timeout)
+     */
+    public void setTimeoutSeconds(final long timeoutSeconds) {
+        this.timeoutSeconds = timeoutSeconds;
+    }
+
     @Override
     public CompletableFuture<ConnectorExecutionResult> execute(final SConnector sConnector,
             final Map<String, Object> inputParameters, final ClassLoader classLoader) throws SConnectorException {
@@ -145,14 +184,98 @@ public class ConnectorExecutorImpl implements ConnectorExecutor {
 
     protected CompletableFuture<ConnectorExecutionResult> execute(SConnector sConnector,
             InterruptibleCallable<Map<String, Object>> task) {
-        return CompletableFuture.supplyAsync(() -> {
+        final CompletableFuture<ConnectorExecutionResult> future = new CompletableFuture<>();
+        final Runnable execution = () -> {
+            if (future.isDone()) {
+                // e.g. cancelled while waiting to be executed
+                return;
+            }
+            ScheduledFuture<?> timeout = null;
             try {
-                return wrapForStats(task).call();
+                // the timeout only counts the execution, not the time spent waiting to be executed
+                timeout = scheduleTimeout(sConnector, task, future);
+                future.complete(wrapForStats(task).call());
             } catch (Throwable e) {
                 disconnectSilently(sConnector);
-                throw new SBonitaRuntimeException(e);
+                failWith(future, e);
+            } finally {
+                if (timeout != null) {
+                    timeout.cancel(false);
+                }
             }
-        }, executorService);
+        };
+        if (onVirtualThreads) {
+            final Semaphore concurrencyLimiter = getConcurrencyLimiter(sConnector);
+            pendingWorks.incrementAndGet();
+            try {
+                executorService.execute(() -> executeWithConcurrencyLimit(concurrencyLimiter, execution, future));
+            } catch (final RejectedExecutionException e) {
+                pendingWorks.decrementAndGet();
+                throw e;
+            }
+        } else {
+            executorService.execute(execution);
+        }
+        return future;
+    }
+
+    /**
+     * Fail the future as {@link CompletableFuture#supplyAsync} does when the supplier throws an exception
+     */
+    private static void failWith(final CompletableFuture<ConnectorExecutionResult> future, final Throwable e) {
+        future.completeExceptionally(new CompletionException(new SBonitaRuntimeException(e)));
+    }
+
+    private Semaphore getConcurrencyLimiter(final SConnector sConnector) {
+        if (maxConcurrentExecutionsPerConnector <= 0) {
+            return null;
+        }
+        return concurrencyLimiters.computeIfAbsent(sConnector.getImplementationName(),
+                name -> new Semaphore(maxConcurrentExecutionsPerConnector));
+    }
+
+    private void executeWithConcurrencyLimit(final Semaphore concurrencyLimiter, final Runnable execution,
+            final CompletableFuture<ConnectorExecutionResult> future) {
+        try {
+            if (concurrencyLimiter != null) {
+                concurrencyLimiter.acquire();
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failWith(future, e);
+            return;
+        } finally {
+            pendingWorks.decrementAndGet();
+        }
+        try {
+            execution.run();
+        } finally {
+            if (concurrencyLimiter != null) {
+                concurrencyLimiter.release();
+            }
+        }
+    }
+
+    /**
+     * @return the scheduled timeout, null when connectors have no timeout
+     */
+    private ScheduledFuture<?> scheduleTimeout(final SConnector sConnector,
+            final InterruptibleCallable<Map<String, Object>> task,
+            final CompletableFuture<ConnectorExecutionResult> future) {
+        final ScheduledExecutorService scheduler = timeoutScheduler;
+        if (scheduler == null) {
+            return null;
+        }
+        return scheduler.schedule(() -> {
+            if (!task.isCompleted()) {
+                log.warn("Connector {} did not complete within {} seconds, interrupting it",
+                        sConnector.getImplementationName(), timeoutSeconds);
+                task.interrupt();
+                future.completeExceptionally(new SConnectorException("Connector "
+                        + sConnector.getImplementationName() + " did not complete within " + timeoutSeconds
+                        + " seconds"));
+            }
+        }, timeoutSeconds, TimeUnit.SECONDS);
     }
 
     private Callable<ConnectorExecutionResult> wrapForStats(final Callable<Map<String, Object>> task) {
@@ -214,9 +337,9 @@ public class ConnectorExecutorImpl implements ConnectorExecutor {
         private final long tenantId;
 
         private final ClassLoader loader;
-        private Thread thread;
-        private boolean interrupted;
-        private boolean completed;
+        private volatile Thread thread;
+        private volatile boolean interrupted;
+        private volatile boolean completed;
 
         private ExecuteConnectorCallable(final Map<String, Object> inputParameters, final SConnector sConnector,
                 final long tenantId,
@@ -264,16 +387,19 @@ public class ConnectorExecutorImpl implements ConnectorExecutor {
         @Override
         public void interrupt() {
             interrupted = true;
-            if (thread != null) {
-                StackTraceElement[] stackTrace = thread.getStackTrace();
+            // read once: the connector can complete and clear it concurrently
+            final Thread connectorThread = thread;
+            if (connectorThread != null) {
+                StackTraceElement[] stackTrace = connectorThread.getStackTrace();
                 String stack = Arrays.stream(stackTrace).map(StackTraceElement::toString)
                         .collect(Collectors.joining("\n"));
                 log.warn(
                         "Interrupt thread of connector {}, thread is {}, {}, connectors was doing :\n {}, activate debug logs to have the full execution stacktrace.",
-                        sConnector.getClass(), thread.getName(), thread.getId(), stackTrace[0].toString());
+                        sConnector.getClass(), connectorThread.getName(), connectorThread.getId(),
+                        stackTrace[0].toString());
                 log.debug("Interrupt thread of connector {}, thread is {}, {}, stack is:\n {}",
-                        sConnector.getClass(), thread.getName(), thread.getId(), stack);
-                thread.interrupt();
+                        sConnector.getClass(), connectorThread.getName(), connectorThread.getId(), stack);
+                connectorThread.interrupt();
             }
         }
 
@@ -304,20 +430,33 @@ public class ConnectorExecutorImpl implements ConnectorExecutor {
     @Override
     public void start() {
         if (executorService == null) {
-            final BlockingQueue<Runnable> workQueue = new ArrayBlockingQueue<>(queueCapacity);
-            final RejectedExecutionHandler handler = new QueueRejectedExecutionHandler();
-            final ConnectorExecutorThreadFactory threadFactory = new ConnectorExecutorThreadFactory(
-                    "ConnectorExecutor");
-            executorService = executorServiceMetricsProvider
-                    .bind(meterRegistry,
-                            new ThreadPoolExecutor(corePoolSize, maximumPoolSize, keepAliveTimeSeconds,
-                                    TimeUnit.SECONDS,
-                                    workQueue, threadFactory, handler),
-                            "bonita-connector-executor", tenantId);
             Tags tags = Tags.of("tenant", String.valueOf(tenantId));
-            numberOfConnectorsPending = Gauge.builder(NUMBER_OF_CONNECTORS_PENDING, workQueue, Collection::size)
-                    .tags(tags).baseUnit("connectors").description("Connectors pending in the execution queue")
-                    .register(meterRegistry);
+            final ExecutorService virtualThreadExecutor = virtualThreads ? createVirtualThreadExecutor() : null;
+            onVirtualThreads = virtualThreadExecutor != null;
+            if (onVirtualThreads) {
+                executorService = virtualThreadExecutor;
+                numberOfConnectorsPending = Gauge.builder(NUMBER_OF_CONNECTORS_PENDING, pendingWorks, AtomicLong::get)
+                        .tags(tags).baseUnit("connectors")
+                        .description("Connectors pending in the execution queue").register(meterRegistry);
+            } else {
+                final BlockingQueue<Runnable> workQueue = new ArrayBlockingQueue<>(queueCapacity);
+                final RejectedExecutionHandler handler = new QueueRejectedExecutionHandler();
+                final ConnectorExecutorThreadFactory threadFactory = new ConnectorExecutorThreadFactory(
+                        "ConnectorExecutor");
+                executorService = executorServiceMetricsProvider
+                        .bind(meterRegistry,
+                                new ThreadPoolExecutor(corePoolSize, maximumPoolSize, keepAliveTimeSeconds,
+                                        TimeUnit.SECONDS,
+                                        workQueue, threadFactory, handler),
+                                "bonita-connector-executor", tenantId);
+                numberOfConnectorsPending = Gauge.builder(NUMBER_OF_CONNECTORS_PENDING, workQueue, Collection::size)
+                        .tags(tags).baseUnit("connectors").description("Connectors pending in the execution queue")
+                        .register(meterRegistry);
+            }
+            if (timeoutSeconds > 0) {
+                timeoutScheduler = Executors.newSingleThreadScheduledExecutor(
+                        new ConnectorExecutorThreadFactory("ConnectorExecutorTimeout"));
+            }
             numberOfConnectorsRunning = Gauge.builder(NUMBER_OF_CONNECTORS_RUNNING, runningWorks, AtomicLong::get)
                     .tags(tags).baseUnit("connectors").description("Connectors currently executing")
                     .register(meterRegistry);
@@ -327,6 +466,20 @@ public class ConnectorExecutorImpl implements ConnectorExecutor {
         }
     }
 
+    /**
+     * @return an executor starting a new virtual thread for each task, or null if the JVM does not support them
+     */
+    ExecutorService createVirtualThreadExecutor() {
+        try {
+            // the engine is built for Java 11: virtual threads can only be created by reflection
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (final ReflectiveOperationException e) {
+            log.warn("Virtual threads are not supported by this JVM (Java 21 or later is required), "
+                    + "connectors are executed by a pool of {} threads", maximumPoolSize);
+            return null;
+        }
+    }
+
     // For unit tests
     ExecutorService getExecutorService() {
         return executorService;
@@ -339,6 +492,10 @@ public class ConnectorExecutorImpl implements ConnectorExecutor {
             meterRegistry.remove(numberOfConnectorsRunning);
             meterRegistry.remove(numberOfConnectorsPending);
             executorServiceMetricsProvider.unbind(meterRegistry, "bonita-connector-executor", tenantId);
+            if (timeoutScheduler != null) {
+                timeoutScheduler.shutdownNow();
+                timeoutScheduler = null;
+            }
 
             executorService.shutdown();
             try {
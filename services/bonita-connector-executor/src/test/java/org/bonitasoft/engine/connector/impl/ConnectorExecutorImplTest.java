@@ -14,14 +14,20 @@
 package org.bonitasoft.engine.connector.impl;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.assertj.core.api.Assertions.fail;
 import static org.mockito.Mockito.*;
 
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 import io.micrometer.core.instrument.Clock;
@@ -262,6 +268,87 @@ public class ConnectorExecutorImplTest {
                 .as("Pending connectors number").isEqualTo(1);
     }
 
+    @Test
+    public void should_limit_concurrent_executions_of_a_connector_when_executing_on_virtual_threads()
+            throws Exception {
+        //given
+        connectorExecutorImpl.stop();
+        connectorExecutorImpl = new ConnectorExecutorImpl(1, 1, 1, 1, sessionAccessor, sessionService, timeTracker,
+                meterRegistry, TENANT_ID, new DefaultExecutorServiceMetricsProvider()) {
+
+            @Override
+            ExecutorService createVirtualThreadExecutor() {
+                // a thread per task, as virtual threads, but available on all JVMs
+                return Executors.newCachedThreadPool();
+            }
+        };
+        connectorExecutorImpl.setVirtualThreads(true);
+        connectorExecutorImpl.setMaxConcurrentExecutionsPerConnector(2);
+        connectorExecutorImpl.start();
+
+        //when
+        for (int i = 0; i < 3; i++) {
+            connectorExecutorImpl.execute(new LocalSConnector(2), new HashMap<>(),
+                    Thread.currentThread().getContextClassLoader());
+        }
+        TimeUnit.MILLISECONDS.sleep(100); // give some time to consider the connector to process
+
+        //then: 2 connectors are executed at the same time, not limited by the pool size, the third one waits
+        assertThat(meterRegistry.find(ConnectorExecutorImpl.NUMBER_OF_CONNECTORS_RUNNING).gauge().value())
+                .as("Running connectors number").isEqualTo(2);
+        assertThat(meterRegistry.find(ConnectorExecutorImpl.NUMBER_OF_CONNECTORS_PENDING).gauge().value())
+                .as("Pending connectors number").isEqualTo(1);
+    }
+
+    @Test
+    public void should_interrupt_and_fail_connector_taking_longer_than_the_timeout() throws Exception {
+        //given
+        connectorExecutorImpl.stop();
+        connectorExecutorImpl.setTimeoutSeconds(1);
+        connectorExecutorImpl.start();
+
+        //when
+        final CompletableFuture<ConnectorExecutionResult> future = connectorExecutorImpl.execute(
+                new LocalSConnector(10), new HashMap<>(), Thread.currentThread().getContextClassLoader());
+
+        //then
+        assertThatThrownBy(() -> future.get(5, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(SConnectorException.class);
+        TimeUnit.MILLISECONDS.sleep(100); // give some time to the interrupted connector to finish
+        assertThat(meterRegistry.find(ConnectorExecutorImpl.NUMBER_OF_CONNECTORS_RUNNING).gauge().value())
+                .as("Running connectors number").isEqualTo(0);
+    }
+
+    @Test
+    public void should_not_count_time_waiting_for_the_concurrency_limit_in_the_timeout() throws Exception {
+        //given
+        connectorExecutorImpl.stop();
+        connectorExecutorImpl = new ConnectorExecutorImpl(1, 1, 1, 1, sessionAccessor, sessionService, timeTracker,
+                meterRegistry, TENANT_ID, new DefaultExecutorServiceMetricsProvider()) {
+
+            @Override
+            ExecutorService createVirtualThreadExecutor() {
+                return Executors.newCachedThreadPool();
+            }
+        };
+        connectorExecutorImpl.setVirtualThreads(true);
+        connectorExecutorImpl.setMaxConcurrentExecutionsPerConnector(1);
+        connectorExecutorImpl.setTimeoutSeconds(2);
+        connectorExecutorImpl.start();
+
+        //when: the third connector waits 2 seconds for the two other ones to be executed
+        final List<CompletableFuture<ConnectorExecutionResult>> futures = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            futures.add(connectorExecutorImpl.execute(new LocalSConnector(1), new HashMap<>(),
+                    Thread.currentThread().getContextClassLoader()));
+        }
+
+        //then
+        for (CompletableFuture<ConnectorExecutionResult> future : futures) {
+            assertThat(future.get(10, TimeUnit.SECONDS)).isNotNull();
+        }
+    }
+
     @Test
     public void createExecutorService_should_register_ExecutorServiceMetrics() {
         assertThat(
@@ -19,6 +19,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -41,6 +42,7 @@ import org.bonitasoft.engine.data.instance.exception.SDataInstanceReadException;
 import org.bonitasoft.engine.data.instance.exception.SDeleteDataInstanceException;
 import org.bonitasoft.engine.data.instance.exception.SUpdateDataInstanceException;
 import org.bonitasoft.engine.data.instance.model.SDataInstance;
+import org.bonitasoft.engine.data.instance.model.archive.SABlobDataInstance;
 import org.bonitasoft.engine.data.instance.model.archive.SADataInstance;
 import org.bonitasoft.engine.data.instance.model.archive.builder.SADataInstanceBuilder;
 import org.bonitasoft.engine.persistence.OrderByOption;
@@ -57,6 +59,8 @@ import org.bonitasoft.engine.recorder.model.DeleteRecord;
 import org.bonitasoft.engine.recorder.model.EntityUpdateDescriptor;
 import org.bonitasoft.engine.recorder.model.InsertRecord;
 import org.bonitasoft.engine.recorder.model.UpdateRecord;
+import org.bonitasoft.engine.transaction.STransactionNotFoundException;
+import org.bonitasoft.engine.transaction.UserTransactionService;
 
 /**
  * General mechanism for lookup is to look in specific flow node to search a data instance. When referring to "local"
@@ -81,23 +85,118 @@ public class DataInstanceServiceImpl implements DataInstanceService {
 
     protected final ArchiveService archiveService;
 
+    private final UserTransactionService transactionService;
+
+    private final ThreadLocal<DataInstanceTransactionContext> transactionContexts = new ThreadLocal<>();
+
+    private boolean coalesceArchivedUpdates;
+
+    private boolean compressArchivedBlobs;
+
     public DataInstanceServiceImpl(final Recorder recorder, final ReadPersistenceService persistenceService,
             final ArchiveService archiveService) {
+        this(recorder, persistenceService, archiveService, null);
+    }
+
+    /**
+     * @param transactionService when given, data instances read during a transaction are kept until its end, see
+     *        {@link DataInstanceTransactionContext}
+     */
+    public DataInstanceServiceImpl(final Recorder recorder, final ReadPersistenceService persistenceService,
+            final ArchiveService archiveService, final UserTransactionService transactionService) {
         this.recorder = recorder;
         this.persistenceService = persistenceService;
         this.archiveService = archiveService;
+        this.transactionService = transactionService;
     }
 
-    private void archiveDataInstance(final SDataInstance sDataInstance) throws SDataInstanceException {
-        if (!sDataInstance.isTransientData()) {
+    /**
+     * @param coalesceArchivedUpdates when true, a data instance changed several times in a transaction is archived only
+     *        once, with its value and date at the end of the transaction, instead of once per change. Requires the
+     *        transaction service.
+     */
+    public void setCoalesceArchivedUpdates(final boolean coalesceArchivedUpdates) {
+        this.coalesceArchivedUpdates = coalesceArchivedUpdates;
+    }
+
+    /**
+     * @param compressArchivedBlobs when true, the serialized values of archived {@link SABlobDataInstance}s are
+     *        compressed. Values archived before remain readable.
+     */
+    public void setCompressArchivedBlobs(final boolean compressArchivedBlobs) {
+        this.compressArchivedBlobs = compressArchivedBlobs;
+    }
+
+    private DataInstanceTransactionContext getTransactionContext() {
+        DataInstanceTransactionContext transactionContext = transactionContexts.get();
+        if (transactionContext == null && transactionService != null && transactionService.isTransactionActive()) {
+            transactionContext = new DataInstanceTransactionContext(this);
             try {
-                final SADataInstance saDataInstance = new SADataInstanceBuilder().createNewInstance(sDataInstance);
-                final ArchiveInsertRecord archiveInsertRecord = new ArchiveInsertRecord(saDataInstance);
-                archiveService.recordInsert(System.currentTimeMillis(), archiveInsertRecord);
-            } catch (final SRecorderException e) {
-                logOnExceptionMethod("updateDataInstance", e);
-                throw new SDataInstanceException("Unable to create SADataInstance", e);
+                transactionService.registerBonitaSynchronization(transactionContext);
+            } catch (final STransactionNotFoundException e) {
+                return null;
+            }
+            transactionContexts.set(transactionContext);
+        }
+        return transactionContext;
+    }
+
+    void clearTransactionContext() {
+        transactionContexts.remove();
+    }
+
+    private void invalidateTransactionContext() {
+        final DataInstanceTransactionContext transactionContext = transactionContexts.get();
+        if (transactionContext != null) {
+            transactionContext.invalidateDataInstances();
+        }
+    }
+
+    private void archiveDataInstance(final SDataInstance sDataInstance) throws SDataInstanceException {
+        if (sDataInstance.isTransientData()) {
+            return;
+        }
+        final long archiveDate = System.currentTimeMillis();
+        if (coalesceArchivedUpdates) {
+            final DataInstanceTransactionContext transactionContext = getTransactionContext();
+            if (transactionContext != null) {
+                if (transactionContext.addPendingArchive(sDataInstance, archiveDate)) {
+                    try {
+                        transactionService.registerBeforeCommitCallable(() -> {
+                            archivePendingDataInstances(transactionContext);
+                            return null;
+                        });
+                    } catch (final STransactionNotFoundException e) {
+                        transactionContext.pollPendingArchives();
+                        insertArchivedDataInstance(sDataInstance, archiveDate);
+                    }
+                }
+                return;
+            }
+        }
+        insertArchivedDataInstance(sDataInstance, archiveDate);
+    }
+
+    private void archivePendingDataInstances(final DataInstanceTransactionContext transactionContext)
+            throws SDataInstanceException {
+        for (final DataInstanceTransactionContext.PendingArchive pendingArchive : transactionContext
+                .pollPendingArchives()) {
+            insertArchivedDataInstance(pendingArchive.getDataInstance(), pendingArchive.getArchiveDate());
+        }
+    }
+
+    private void insertArchivedDataInstance(final SDataInstance sDataInstance, final long archiveDate)
+            throws SDataInstanceException {
+        try {
+            final SADataInstance saDataInstance = new SADataInstanceBuilder().createNewInstance(sDataInstance);
+            if (compressArchivedBlobs && saDataInstance instanceof SABlobDataInstance) {
+                ((SABlobDataInstance) saDataInstance).compressValue();
             }
+            final ArchiveInsertRecord archiveInsertRecord = new ArchiveInsertRecord(saDataInstance);
+            archiveService.recordInsert(archiveDate, archiveInsertRecord);
+        } catch (final SRecorderException e) {
+            logOnExceptionMethod("updateDataInstance", e);
+            throw new SDataInstanceException("Unable to create SADataInstance", e);
         }
     }
 
@@ -106,6 +205,17 @@ public class DataInstanceServiceImpl implements DataInstanceService {
             final ParentContainerResolver parentContainerResolver) throws SDataInstanceException {
         NullCheckingUtil.checkArgsNotNull(dataName, containerType);
 
+        final DataInstanceTransactionContext transactionContext = getTransactionContext();
+        if (transactionContext != null) {
+            final SDataInstance dataInstance = getVisibleDataInstances(transactionContext, containerId, containerType,
+                    parentContainerResolver).get(dataName);
+            if (dataInstance == null) {
+                throw new SDataInstanceNotFoundException(
+                        "DataInstance with name not found: [name: " + dataName + ", container type: " + containerType
+                                + ", container id: " + containerId + ']');
+            }
+            return dataInstance;
+        }
         final String queryName = "getDataInstancesWithNames";
         final Map<String, Object> inputParameters = new HashMap<String, Object>();
         inputParameters.put("dataNames", Collections.singletonList(dataName));
@@ -131,10 +241,17 @@ public class DataInstanceServiceImpl implements DataInstanceService {
             throws SDataInstanceException {
         NullCheckingUtil.checkArgsNotNull(containerType);
 
-        final String queryName = "getDataInstances";
-        final Map<String, Object> inputParameters = new HashMap<String, Object>();
-        final List<SDataInstance> dataInstances = getSDatainstanceOfContainers(containerId, containerType,
-                parentContainerResolver, queryName, inputParameters);
+        final List<SDataInstance> dataInstances;
+        final DataInstanceTransactionContext transactionContext = getTransactionContext();
+        if (transactionContext != null) {
+            dataInstances = new ArrayList<>(getVisibleDataInstances(transactionContext, containerId, containerType,
+                    parentContainerResolver).values());
+        } else {
+            final String queryName = "getDataInstances";
+            final Map<String, Object> inputParameters = new HashMap<String, Object>();
+            dataInstances = getSDatainstanceOfContainers(containerId, containerType,
+                    parentContainerResolver, queryName, inputParameters);
+        }
 
         //apply pagination here because we could not do the request only in database cause of a post data's processing to remove duplicate variable
         final int startIndex = Math.max(0, fromIndex);
@@ -161,18 +278,52 @@ public class DataInstanceServiceImpl implements DataInstanceService {
         return containers;
     }
 
+    /**
+     * Load, once per transaction and container, all data instances visible from the container
+     */
+    private Map<String, SDataInstance> getVisibleDataInstances(DataInstanceTransactionContext transactionContext,
+            long containerId, String containerType, ParentContainerResolver parentContainerResolver)
+            throws SDataInstanceNotFoundException, SDataInstanceReadException {
+        final DataContainer container = new DataContainer(containerId, containerType);
+        Map<String, SDataInstance> visibleDataInstances = transactionContext.getVisibleDataInstances(container);
+        if (visibleDataInstances == null) {
+            visibleDataInstances = new LinkedHashMap<>();
+            for (SDataInstance dataInstance : getSDatainstanceOfContainers(containerId, containerType,
+                    parentContainerResolver, "getDataInstances", new HashMap<>())) {
+                visibleDataInstances.put(dataInstance.getName(), dataInstance);
+            }
+            transactionContext.putVisibleDataInstances(container, visibleDataInstances);
+        }
+        return visibleDataInstances;
+    }
+
+    private List<DataContainer> getContainerHierarchy(long containerId, String containerType,
+            ParentContainerResolver parentContainerResolver) throws SDataInstanceNotFoundException {
+        final DataContainer container = new DataContainer(containerId, containerType);
+        final DataInstanceTransactionContext transactionContext = transactionContexts.get();
+        List<DataContainer> containerHierarchy = transactionContext != null
+                ? transactionContext.getContainerHierarchy(container)
+                : null;
+        if (containerHierarchy == null) {
+            try {
+                containerHierarchy = parentContainerResolver.getContainerHierarchy(container);
+            } catch (SObjectNotFoundException | SObjectReadException e) {
+                throw new SDataInstanceNotFoundException(e);
+            }
+            if (transactionContext != null) {
+                transactionContext.putContainerHierarchy(container, containerHierarchy);
+            }
+        }
+        return containerHierarchy;
+    }
+
     private List<SDataInstance> getSDatainstanceOfContainers(long containerId, String containerType,
             ParentContainerResolver parentContainerResolver,
             String queryName, Map<String, Object> inputParameters)
             throws SDataInstanceNotFoundException, SDataInstanceReadException {
         //getAllContainers from me to root
-        final List<DataContainer> containerHierarchy;
-        try {
-            containerHierarchy = parentContainerResolver
-                    .getContainerHierarchy(new DataContainer(containerId, containerType));
-        } catch (SObjectNotFoundException | SObjectReadException e) {
-            throw new SDataInstanceNotFoundException(e);
-        }
+        final List<DataContainer> containerHierarchy = getContainerHierarchy(containerId, containerType,
+                parentContainerResolver);
 
         final Map<String, List<Long>> containers = buildContainersMap(containerHierarchy, inputParameters);
 
@@ -419,6 +570,17 @@ public class DataInstanceServiceImpl implements DataInstanceService {
         if (dataNames.isEmpty()) {
             return Collections.emptyList();
         }
+        final DataInstanceTransactionContext transactionContext = getTransactionContext();
+        if (transactionContext != null) {
+            final List<SDataInstance> dataInstances = new ArrayList<>(dataNames.size());
+            for (final SDataInstance dataInstance : getVisibleDataInstances(transactionContext, containerId,
+                    containerType, parentContainerResolver).values()) {
+                if (dataNames.contains(dataInstance.getName())) {
+                    dataInstances.add(dataInstance);
+                }
+            }
+            return dataInstances;
+        }
 
         final String queryName = "getDataInstancesWithNames";
         final Map<String, Object> inputParameters = new HashMap<String, Object>();
@@ -515,6 +677,7 @@ public class DataInstanceServiceImpl implements DataInstanceService {
     public void createDataInstance(final SDataInstance dataInstance) throws SDataInstanceException {
         try {
             recorder.recordInsert(new InsertRecord(dataInstance), DATA_INSTANCE);
+            invalidateTransactionContext();
         } catch (final SRecorderException e) {
             throw new SCreateDataInstanceException("Impossible to create data instance.", e);
         }
@@ -539,6 +702,7 @@ public class DataInstanceServiceImpl implements DataInstanceService {
         NullCheckingUtil.checkArgsNotNull(dataInstance);
         try {
             recorder.recordDelete(new DeleteRecord(dataInstance), DATA_INSTANCE);
+            invalidateTransactionContext();
         } catch (final SRecorderException e) {
             throw new SDeleteDataInstanceException("Impossible to delete data instance", e);
         }
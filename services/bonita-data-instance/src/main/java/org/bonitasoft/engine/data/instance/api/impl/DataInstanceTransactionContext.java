@@ -0,0 +1,119 @@
+/**
+ * Copyright (C) 2019 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.data.instance.api.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bonitasoft.engine.data.instance.api.DataContainer;
+import org.bonitasoft.engine.data.instance.model.SDataInstance;
+import org.bonitasoft.engine.transaction.BonitaTransactionSynchronization;
+
+/**
+ * Data instances read during a transaction: the container hierarchy of each container and all data instances visible
+ * from it, by name.
+ * <p>
+ * Data instances are entities attached to the persistence session of the transaction: updates made on them are seen
+ * by the next reads of the transaction and flushed once at commit. Only creations and deletions invalidate the context.
+ * <p>
+ * When archived updates are coalesced, it also holds the data instances to archive at the end of the transaction.
+ */
+class DataInstanceTransactionContext implements BonitaTransactionSynchronization {
+
+    private final DataInstanceServiceImpl dataInstanceService;
+    private final Map<DataContainer, List<DataContainer>> containerHierarchies = new HashMap<>();
+    private final Map<DataContainer, Map<String, SDataInstance>> visibleDataInstances = new HashMap<>();
+    private final Map<Long, PendingArchive> pendingArchives = new LinkedHashMap<>();
+
+    DataInstanceTransactionContext(DataInstanceServiceImpl dataInstanceService) {
+        this.dataInstanceService = dataInstanceService;
+    }
+
+    List<DataContainer> getContainerHierarchy(DataContainer container) {
+        return containerHierarchies.get(container);
+    }
+
+    void putContainerHierarchy(DataContainer container, List<DataContainer> containerHierarchy) {
+        containerHierarchies.put(container, containerHierarchy);
+    }
+
+    /**
+     * @return data instances visible from the container, by name, ordered from the closest container to the root
+     *         one, or null if not loaded yet
+     */
+    Map<String, SDataInstance> getVisibleDataInstances(DataContainer container) {
+        return visibleDataInstances.get(container);
+    }
+
+    void putVisibleDataInstances(DataContainer container, Map<String, SDataInstance> dataInstances) {
+        visibleDataInstances.put(container, dataInstances);
+    }
+
+    /**
+     * A data instance was created or deleted: it can hide or reveal data instances of parent containers.
+     */
+    void invalidateDataInstances() {
+        visibleDataInstances.clear();
+    }
+
+    /**
+     * @return true if it is the first data instance to archive in this transaction
+     */
+    boolean addPendingArchive(SDataInstance dataInstance, long archiveDate) {
+        final boolean first = pendingArchives.isEmpty();
+        // keep the position of the first change but the date of the last one
+        final PendingArchive pendingArchive = pendingArchives.get(dataInstance.getId());
+        if (pendingArchive != null) {
+            pendingArchive.dataInstance = dataInstance;
+            pendingArchive.archiveDate = archiveDate;
+        } else {
+            pendingArchives.put(dataInstance.getId(), new PendingArchive(dataInstance, archiveDate));
+        }
+        return first;
+    }
+
+    Collection<PendingArchive> pollPendingArchives() {
+        final Collection<PendingArchive> archives = new ArrayList<>(pendingArchives.values());
+        pendingArchives.clear();
+        return archives;
+    }
+
+    @Override
+    public void afterCompletion(int transactionState) {
+        dataInstanceService.clearTransactionContext();
+    }
+
+    static final class PendingArchive {
+
+        private SDataInstance dataInstance;
+        private long archiveDate;
+
+        private PendingArchive(SDataInstance dataInstance, long archiveDate) {
+            this.dataInstance = dataInstance;
+            this.archiveDate = archiveDate;
+        }
+
+        SDataInstance getDataInstance() {
+            return dataInstance;
+        }
+
+        long getArchiveDate() {
+            return archiveDate;
+        }
+    }
+}
@@ -16,10 +16,13 @@ package org.bonitasoft.engine.data.instance.model.archive;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.ObjectStreamClass;
 import java.io.Serializable;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 import javax.persistence.Column;
 import javax.persistence.DiscriminatorValue;
@@ -61,6 +64,30 @@ public class SABlobDataInstance extends SADataInstance {
         this.value = convert(value);
     }
 
+    /**
+     * Compress the serialized value with gzip. Compressed and uncompressed values are both read by
+     * {@link #getValue()}: serialized values never start with the gzip magic number.
+     */
+    public void compressValue() {
+        if (value == null || isCompressed(value)) {
+            return;
+        }
+        try {
+            final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            try (GZIPOutputStream gzos = new GZIPOutputStream(baos)) {
+                gzos.write(value);
+            }
+            value = baos.toByteArray();
+        } catch (final IOException ioe) {
+            throw new SBonitaRuntimeException(ioe);
+        }
+    }
+
+    private static boolean isCompressed(final byte[] bytes) {
+        return bytes.length >= 2 && bytes[0] == (byte) GZIPInputStream.GZIP_MAGIC
+                && bytes[1] == (byte) (GZIPInputStream.GZIP_MAGIC >> 8);
+    }
+
     @Override
     public Class<? extends PersistentObject> getPersistentObjectInterface() {
         return SDataInstance.class;
@@ -93,7 +120,10 @@ public class SABlobDataInstance extends SADataInstance {
         }
         ObjectInputStream ois = null;
         try {
-            final ByteArrayInputStream bais = new ByteArrayInputStream(bytes);
+            InputStream bais = new ByteArrayInputStream(bytes);
+            if (isCompressed(bytes)) {
+                bais = new GZIPInputStream(bais);
+            }
             ois = new ObjectInputStream(bais) {
 
                 @Override
@@ -14,6 +14,7 @@
 package org.bonitasoft.engine.data.instance.api.impl;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 
@@ -21,6 +22,9 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
+
+import javax.transaction.Status;
 
 import org.bonitasoft.engine.archive.ArchiveInsertRecord;
 import org.bonitasoft.engine.archive.ArchiveService;
@@ -39,6 +43,8 @@ import org.bonitasoft.engine.persistence.SBonitaReadException;
 import org.bonitasoft.engine.persistence.SelectListDescriptor;
 import org.bonitasoft.engine.recorder.Recorder;
 import org.bonitasoft.engine.recorder.model.EntityUpdateDescriptor;
+import org.bonitasoft.engine.transaction.BonitaTransactionSynchronization;
+import org.bonitasoft.engine.transaction.UserTransactionService;
 import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -61,6 +67,8 @@ public class DataInstanceServiceImplTest {
 
     @Mock
     private ParentContainerResolver parentContainerResolver;
+    @Mock
+    private UserTransactionService transactionService;
     @Captor
     private ArgumentCaptor<ArchiveInsertRecord> archiveInsertRecordArgumentCaptor;
     @InjectMocks
@@ -226,4 +234,82 @@ public class DataInstanceServiceImplTest {
         //then
         assertThat(dataInstance.getValue()).isEqualTo("SUBTASK_VALUE");
     }
+
+    @Test
+    public void should_load_all_visible_data_once_per_transaction() throws Exception {
+        //given
+        DataInstanceServiceImpl dataInstanceService = new DataInstanceServiceImpl(recorder, persistenceService,
+                archiveService, transactionService);
+        doReturn(true).when(transactionService).isTransactionActive();
+        SLongTextDataInstance procData = createDataInstance(1, 66L, "PROC", "PROC_VALUE");
+        procData.setName("procData");
+        SLongTextDataInstance taskData = createDataInstance(2, 67L, "TASK", "TASK_VALUE");
+        taskData.setName("taskData");
+        doReturn(new ArrayList<>(Arrays.asList(procData, taskData))).when(persistenceService)
+                .selectList(any(SelectListDescriptor.class));
+        doReturn(Arrays.asList(new DataContainer(67L, "TASK"), new DataContainer(66L, "PROC")))
+                .when(parentContainerResolver).getContainerHierarchy(new DataContainer(67L, "TASK"));
+        //when
+        SDataInstance first = dataInstanceService.getDataInstance("procData", 67L, "TASK", parentContainerResolver);
+        SDataInstance second = dataInstanceService.getDataInstance("taskData", 67L, "TASK", parentContainerResolver);
+        //then
+        assertThat(first).isSameAs(procData);
+        assertThat(second).isSameAs(taskData);
+        verify(persistenceService, times(1)).selectList(any(SelectListDescriptor.class));
+        verify(parentContainerResolver, times(1)).getContainerHierarchy(any());
+    }
+
+    @Test
+    public void should_reload_visible_data_when_a_data_is_created_and_at_the_end_of_the_transaction()
+            throws Exception {
+        //given
+        DataInstanceServiceImpl dataInstanceService = new DataInstanceServiceImpl(recorder, persistenceService,
+                archiveService, transactionService);
+        doReturn(true).when(transactionService).isTransactionActive();
+        ArgumentCaptor<BonitaTransactionSynchronization> synchronization = ArgumentCaptor
+                .forClass(BonitaTransactionSynchronization.class);
+        SLongTextDataInstance procData = createDataInstance(1, 66L, "PROC", "PROC_VALUE");
+        procData.setName("procData");
+        doReturn(new ArrayList<>(Collections.singletonList(procData))).when(persistenceService)
+                .selectList(any(SelectListDescriptor.class));
+        doReturn(Collections.singletonList(new DataContainer(66L, "PROC")))
+                .when(parentContainerResolver).getContainerHierarchy(new DataContainer(66L, "PROC"));
+        //when
+        dataInstanceService.getDataInstance("procData", 66L, "PROC", parentContainerResolver);
+        dataInstanceService.createDataInstance(createDataInstance(2, 66L, "PROC", "OTHER_VALUE"));
+        dataInstanceService.getDataInstance("procData", 66L, "PROC", parentContainerResolver);
+        verify(transactionService).registerBonitaSynchronization(synchronization.capture());
+        synchronization.getValue().afterCompletion(Status.STATUS_COMMITTED);
+        dataInstanceService.getDataInstance("procData", 66L, "PROC", parentContainerResolver);
+        //then
+        verify(persistenceService, times(3)).selectList(any(SelectListDescriptor.class));
+        verify(parentContainerResolver, times(2)).getContainerHierarchy(any());
+    }
+
+    @Test
+    public void should_archive_data_instance_once_with_its_last_value_when_updates_are_coalesced() throws Exception {
+        //given
+        DataInstanceServiceImpl dataInstanceService = new DataInstanceServiceImpl(recorder, persistenceService,
+                archiveService, transactionService);
+        dataInstanceService.setCoalesceArchivedUpdates(true);
+        doReturn(true).when(transactionService).isTransactionActive();
+        ArgumentCaptor<Callable<Void>> beforeCommit = ArgumentCaptor.forClass(Callable.class);
+        SLongTextDataInstance data = createDataInstance(1, 66L, "PROC", "initial");
+        SLongTextDataInstance otherData = createDataInstance(2, 66L, "PROC", "other");
+        //when
+        dataInstanceService.createDataInstance(data);
+        data.setValue("updated");
+        dataInstanceService.updateDataInstance(data, new EntityUpdateDescriptor());
+        dataInstanceService.updateDataInstance(otherData, new EntityUpdateDescriptor());
+        data.setValue("final");
+        dataInstanceService.updateDataInstance(data, new EntityUpdateDescriptor());
+        //then
+        verify(archiveService, never()).recordInsert(anyLong(), any(ArchiveInsertRecord.class));
+        verify(transactionService).registerBeforeCommitCallable(beforeCommit.capture());
+        beforeCommit.getValue().call();
+        verify(archiveService, times(2)).recordInsert(anyLong(), archiveInsertRecordArgumentCaptor.capture());
+        assertThat(archiveInsertRecordArgumentCaptor.getAllValues()).extracting(ArchiveInsertRecord::getEntity)
+                .extracting("sourceObjectId", "value")
+                .containsExactly(tuple(1L, "final"), tuple(2L, "other"));
+    }
 }
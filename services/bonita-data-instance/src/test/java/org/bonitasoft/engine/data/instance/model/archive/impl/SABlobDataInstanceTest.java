@@ -0,0 +1,54 @@
+/**
+ * Copyright (C) 2019 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.data.instance.model.archive.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+
+import org.bonitasoft.engine.data.instance.model.archive.SABlobDataInstance;
+import org.junit.Test;
+
+public class SABlobDataInstanceTest {
+
+    @Test
+    public void should_return_the_value_once_compressed() {
+        //given
+        final ArrayList<String> givenValue = new ArrayList<>(Collections.nCopies(1000, "same value"));
+        final SABlobDataInstance dataInstance = new SABlobDataInstance();
+        dataInstance.setValue(givenValue);
+
+        //when
+        dataInstance.compressValue();
+        dataInstance.compressValue();
+
+        //then
+        final Serializable returnedValue = dataInstance.getValue();
+        assertThat(returnedValue).isEqualTo(givenValue);
+    }
+
+    @Test
+    public void should_keep_null_value_when_compressed() {
+        //given
+        final SABlobDataInstance dataInstance = new SABlobDataInstance();
+
+        //when
+        dataInstance.compressValue();
+
+        //then
+        assertThat(dataInstance.getValue()).isNull();
+    }
+}
@@ -15,19 +15,28 @@ package org.bonitasoft.engine.events.impl;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.bonitasoft.engine.events.model.HandlerRegistrationException;
 import org.bonitasoft.engine.events.model.HandlerUnregistrationException;
 import org.bonitasoft.engine.events.model.SEvent;
+import org.bonitasoft.engine.events.model.SFireEventException;
 import org.bonitasoft.engine.events.model.SHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
+ * Handlers are kept in an immutable map that is copied and replaced on each registration: registrations are rare and
+ * happen at startup whereas events are fired on every insert, update and delete. Firing an event is then a single
+ * lookup without any lock.
+ *
  * @author Christophe Havard
  * @author Matthieu Chaffotte
  * @author Laurent Vaills
@@ -35,11 +44,14 @@ import org.slf4j.LoggerFactory;
 
 public class EventServiceImpl extends AbstractEventServiceImpl {
 
+    public static final String EVENTS_DISPATCHED = "bonita.bpmengine.event.dispatched";
+
     private Logger logger = LoggerFactory.getLogger(EventServiceImpl.class);
+    private final MeterRegistry meterRegistry;
     /**
-     * Contains a list of all events type and their registered handlers
+     * Contains a list of all events type and their registered handlers. Never modified, only replaced.
      */
-    protected Map<String, List<SHandler<SEvent>>> registeredHandlers;
+    private volatile Map<String, RegisteredHandlers> registeredHandlers = Collections.emptyMap();
 
     @Override
     protected Logger getLogger() {
@@ -47,8 +59,24 @@ public class EventServiceImpl extends AbstractEventServiceImpl {
     }
 
     public EventServiceImpl() {
+        this(new SimpleMeterRegistry());
+    }
+
+    public EventServiceImpl(MeterRegistry meterRegistry) {
         super();
-        registeredHandlers = new HashMap<String, List<SHandler<SEvent>>>();
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void fireEvent(final SEvent event) throws SFireEventException {
+        if (event != null) {
+            RegisteredHandlers handlers = registeredHandlers.get(event.getType());
+            if (handlers == null) {
+                return;
+            }
+            handlers.dispatched.increment();
+        }
+        super.fireEvent(event);
     }
 
     @Override
@@ -58,17 +86,16 @@ public class EventServiceImpl extends AbstractEventServiceImpl {
 
     @Override
     protected Collection<SHandler<SEvent>> getHandlersFor(final String eventType) {
-        return registeredHandlers.get(eventType);
+        RegisteredHandlers handlers = registeredHandlers.get(eventType);
+        return handlers != null ? handlers.handlers : null;
     }
 
     @Override
-    protected void addHandlerFor(final String eventType, final SHandler<SEvent> handler)
+    protected synchronized void addHandlerFor(final String eventType, final SHandler<SEvent> handler)
             throws HandlerRegistrationException {
-        // check if the given event type is already registered in the Event Service
-        if (containsHandlerFor(eventType)) {
-            // if the handler already exists for the same eventType, an Exception is thrown
-            final List<SHandler<SEvent>> handlers = registeredHandlers.get(eventType);
-
+        final List<SHandler<SEvent>> newHandlerList = new ArrayList<>(3);
+        Collection<SHandler<SEvent>> handlers = getHandlersFor(eventType);
+        if (handlers != null) {
             // Check if another handler of the same class is already registered
             for (SHandler<SEvent> tmpHandler : handlers) {
                 if (tmpHandler.getIdentifier().equals(handler.getIdentifier())) {
@@ -76,18 +103,14 @@ public class EventServiceImpl extends AbstractEventServiceImpl {
                             + " is already registered for the event " + eventType);
                 }
             }
-
-            handlers.add(handler);
-        } else {
-            // if the given type doesn't already exist in the eventFilters list, we create it
-            final List<SHandler<SEvent>> newHandlerList = new ArrayList<SHandler<SEvent>>(3);
-            newHandlerList.add(handler);
-            registeredHandlers.put(eventType, newHandlerList);
+            newHandlerList.addAll(handlers);
         }
+        newHandlerList.add(handler);
+        replaceHandlers(eventType, newHandlerList);
     }
 
     @Override
-    protected void removeAllHandlersFor(final SHandler<SEvent> handler) {
+    protected synchronized void removeAllHandlersFor(final SHandler<SEvent> handler) {
         for (final String eventType : registeredHandlers.keySet()) {
             try {
                 removeHandler(eventType, handler);
@@ -98,22 +121,44 @@ public class EventServiceImpl extends AbstractEventServiceImpl {
     }
 
     @Override
-    protected void removeHandlerFor(final String eventType, final SHandler<SEvent> h)
+    protected synchronized void removeHandlerFor(final String eventType, final SHandler<SEvent> h)
             throws HandlerUnregistrationException {
-        boolean removed = false;
         Collection<SHandler<SEvent>> handlers = getHandlersFor(eventType);
         if (handlers != null) {
-            Iterator<SHandler<SEvent>> it = handlers.iterator();
-            while (!removed && it.hasNext()) {
-                SHandler<SEvent> handler = it.next();
+            final List<SHandler<SEvent>> newHandlerList = new ArrayList<>(handlers);
+            for (SHandler<SEvent> handler : handlers) {
                 if (h.getIdentifier().equals(handler.getIdentifier())) {
-                    it.remove();
-                    removed = true;
+                    newHandlerList.remove(handler);
+                    replaceHandlers(eventType, newHandlerList);
+                    return;
                 }
             }
         }
-        if (!removed) {
-            throw new HandlerUnregistrationException("Handler did not exists");
+        throw new HandlerUnregistrationException("Handler did not exists");
+    }
+
+    private void replaceHandlers(String eventType, List<SHandler<SEvent>> handlers) {
+        Map<String, RegisteredHandlers> newRegisteredHandlers = new HashMap<>(registeredHandlers);
+        if (handlers.isEmpty()) {
+            // so that events having no more handlers are not even created, see hasHandlers
+            newRegisteredHandlers.remove(eventType);
+        } else {
+            newRegisteredHandlers.put(eventType, new RegisteredHandlers(Collections.unmodifiableList(handlers),
+                    Counter.builder(EVENTS_DISPATCHED).tags(Tags.of("type", eventType))
+                            .baseUnit("events").description("Events dispatched to handlers")
+                            .register(meterRegistry)));
+        }
+        registeredHandlers = Collections.unmodifiableMap(newRegisteredHandlers);
+    }
+
+    private static final class RegisteredHandlers {
+
+        private final List<SHandler<SEvent>> handlers;
+        private final Counter dispatched;
+
+        private RegisteredHandlers(List<SHandler<SEvent>> handlers, Counter dispatched) {
+            this.handlers = handlers;
+            this.dispatched = dispatched;
         }
     }
 }
@@ -15,8 +15,10 @@ package org.bonitasoft.engine.events;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.bonitasoft.engine.events.impl.EventServiceImpl;
 import org.bonitasoft.engine.events.model.HandlerRegistrationException;
 import org.bonitasoft.engine.events.model.HandlerUnregistrationException;
@@ -149,4 +151,31 @@ public class EventServiceImplTest {
         eventSvc.removeHandler(EVT_INTERESTING, h2);
     }
 
+    @Test
+    public void should_not_have_handlers_once_the_last_one_is_removed() throws Exception {
+        final TestHandler h = new TestHandler();
+        eventSvc.addHandler(EVT_INTERESTING, h);
+        assertTrue(eventSvc.hasHandlers(EVT_INTERESTING, null));
+
+        eventSvc.removeHandler(EVT_INTERESTING, h);
+
+        assertFalse(eventSvc.hasHandlers(EVT_INTERESTING, null));
+    }
+
+    @Test
+    public void should_count_events_dispatched_by_type() throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        EventServiceImpl eventService = new EventServiceImpl(meterRegistry);
+        eventService.addHandler(EVT_INTERESTING, new TestHandlerCallback());
+
+        eventService.fireEvent(new TestEvent(EVT_INTERESTING));
+        eventService.fireEvent(new TestEvent(EVT_INTERESTING));
+        eventService.fireEvent(new TestEvent(EVT_IRRELEVANT));
+
+        assertEquals(2.0, meterRegistry.find(EventServiceImpl.EVENTS_DISPATCHED).tag("type", EVT_INTERESTING)
+                .counter().count(), 0);
+        assertNull(meterRegistry.find(EventServiceImpl.EVENTS_DISPATCHED).tag("type", EVT_IRRELEVANT)
+                .counter());
+    }
+
 }
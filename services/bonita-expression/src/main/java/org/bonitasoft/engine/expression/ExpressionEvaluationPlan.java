@@ -0,0 +1,235 @@
+/**
+ * Copyright (C) 2019 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.expression;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.bonitasoft.engine.expression.exception.SExpressionDependencyMissingException;
+import org.bonitasoft.engine.expression.exception.SExpressionEvaluationException;
+import org.bonitasoft.engine.expression.exception.SExpressionTypeUnknownException;
+import org.bonitasoft.engine.expression.exception.SInvalidExpressionException;
+import org.bonitasoft.engine.expression.model.ExpressionKind;
+import org.bonitasoft.engine.expression.model.SExpression;
+
+/**
+ * Immutable evaluation order of a list of expressions and of all their dependencies:
+ * <ul>
+ * <li>first, all expressions having a kind of
+ * {@link ExpressionExecutorStrategy#NO_DEPENDENCY_EXPRESSION_EVALUATION_ORDER}, evaluated in one call per kind,</li>
+ * <li>then, all other expressions one by one, each one after its dependencies.</li>
+ * </ul>
+ * The plan only depends on the structure of the expressions, so it is computed once and evaluated with the values
+ * of each evaluation. Discriminants of the expressions are also computed once.
+ *
+ * @since 7.16
+ */
+public final class ExpressionEvaluationPlan {
+
+    private static final ExpressionKind KIND_VARIABLE = new ExpressionKind(SExpression.TYPE_VARIABLE);
+
+    private final SExpression[] expressions;
+    private final int[] resultKeys;
+    private final List<Batch> batches;
+    private final List<Step> steps;
+    private final List<SExpression> variableExpressions;
+    private final int numberOfResolvedExpressions;
+
+    private ExpressionEvaluationPlan(SExpression[] expressions, int[] resultKeys, List<Batch> batches,
+            List<Step> steps, List<SExpression> variableExpressions, int numberOfResolvedExpressions) {
+        this.expressions = expressions;
+        this.resultKeys = resultKeys;
+        this.batches = batches;
+        this.steps = steps;
+        this.variableExpressions = variableExpressions;
+        this.numberOfResolvedExpressions = numberOfResolvedExpressions;
+    }
+
+    public static ExpressionEvaluationPlan compile(List<SExpression> expressions) {
+        final Map<ExpressionKind, List<SExpression>> expressionsByKind = new LinkedHashMap<>();
+        flattenDependencies(expressions, expressionsByKind);
+
+        final Set<Integer> resolved = new HashSet<>();
+        final List<Batch> batches = new ArrayList<>();
+        for (final ExpressionKind kind : ExpressionExecutorStrategy.NO_DEPENDENCY_EXPRESSION_EVALUATION_ORDER) {
+            final List<SExpression> expressionsOfKind = expressionsByKind.get(kind);
+            if (expressionsOfKind != null) {
+                final Batch batch = new Batch(kind, expressionsOfKind);
+                for (final int discriminant : batch.discriminants) {
+                    resolved.add(discriminant);
+                }
+                batches.add(batch);
+            }
+        }
+        final List<Step> steps = new ArrayList<>();
+        for (final SExpression expression : expressions) {
+            if (expression != null) {
+                addSteps(expression, resolved, steps);
+            }
+        }
+        final SExpression[] expressionArray = expressions.toArray(new SExpression[0]);
+        final int[] resultKeys = new int[expressionArray.length];
+        for (int i = 0; i < expressionArray.length; i++) {
+            if (expressionArray[i] != null) {
+                resultKeys[i] = expressionArray[i].getDiscriminant();
+            }
+        }
+        final List<SExpression> variableExpressions = expressionsByKind.get(KIND_VARIABLE);
+        return new ExpressionEvaluationPlan(expressionArray, resultKeys, Collections.unmodifiableList(batches),
+                Collections.unmodifiableList(steps),
+                variableExpressions != null ? Collections.unmodifiableList(variableExpressions)
+                        : Collections.emptyList(),
+                resolved.size());
+    }
+
+    private static void flattenDependencies(final Collection<SExpression> expressions,
+            final Map<ExpressionKind, List<SExpression>> expressionsByKind) {
+        for (final SExpression expression : expressions) {
+            if (expression == null) {
+                continue;
+            }
+            final List<SExpression> expressionsOfKind = expressionsByKind
+                    .computeIfAbsent(expression.getExpressionKind(), k -> new ArrayList<>());
+            if (!expressionsOfKind.contains(expression)) {
+                expressionsOfKind.add(expression);
+            }
+            if (expression.getDependencies() != null) {
+                flattenDependencies(expression.getDependencies(), expressionsByKind);
+            }
+        }
+    }
+
+    private static void addSteps(final SExpression expression, final Set<Integer> resolved,
+            final List<Step> steps) {
+        for (final SExpression dependency : expression.getDependencies()) {
+            addSteps(dependency, resolved, steps);
+        }
+        final int discriminant = expression.getDiscriminant();
+        // evaluate an expression only once, even if several expressions depend on it
+        if (resolved.add(discriminant)) {
+            steps.add(new Step(expression, discriminant));
+        }
+    }
+
+    /**
+     * @return true if this plan was compiled from these very expression instances
+     */
+    public boolean isPlanOf(List<SExpression> expressions) {
+        if (expressions.size() != this.expressions.length) {
+            return false;
+        }
+        int i = 0;
+        for (final SExpression expression : expressions) {
+            if (expression != this.expressions[i++]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return expressions of type VARIABLE, the expressions themselves or one of their dependencies
+     */
+    public List<SExpression> getVariableExpressions() {
+        return variableExpressions;
+    }
+
+    /**
+     * Evaluate the expressions of this plan
+     *
+     * @param dependencyValues values available to the expressions, values of the evaluated expressions that must be
+     *        put in context are added to it
+     * @return the results, in the order of the expressions the plan was compiled from
+     */
+    public List<Object> evaluate(ExpressionService expressionService, Map<String, Object> dependencyValues,
+            ContainerState containerState)
+            throws SExpressionTypeUnknownException, SExpressionEvaluationException,
+            SExpressionDependencyMissingException, SInvalidExpressionException {
+        final Map<Integer, Object> resolvedExpressions = new HashMap<>(
+                Math.max(16, numberOfResolvedExpressions * 4 / 3 + 1));
+        for (final Batch batch : batches) {
+            final List<Object> results = expressionService.evaluate(batch.kind, batch.expressions, dependencyValues,
+                    resolvedExpressions, containerState);
+            final Iterator<Object> resultIterator = results.iterator();
+            for (int i = 0; i < batch.discriminants.length && resultIterator.hasNext(); i++) {
+                addResult(expressionService, resolvedExpressions, dependencyValues, batch.expressions.get(i),
+                        batch.discriminants[i], resultIterator.next());
+            }
+        }
+        for (final Step step : steps) {
+            final Object result = expressionService.evaluate(step.expression, dependencyValues, resolvedExpressions,
+                    containerState);
+            addResult(expressionService, resolvedExpressions, dependencyValues, step.expression, step.discriminant,
+                    result);
+        }
+        final List<Object> results = new ArrayList<>(expressions.length);
+        for (int i = 0; i < expressions.length; i++) {
+            if (expressions[i] != null) {
+                final Object result = resolvedExpressions.get(resultKeys[i]);
+                if (result == null && !resolvedExpressions.containsKey(resultKeys[i])) {
+                    throw new SExpressionEvaluationException("No result found for the expression " + expressions[i],
+                            expressions[i].getName());
+                }
+                results.add(result);
+            } else {
+                results.add(null);
+            }
+        }
+        return results;
+    }
+
+    private static void addResult(ExpressionService expressionService, Map<Integer, Object> resolvedExpressions,
+            Map<String, Object> dependencyValues, SExpression expression, int discriminant, Object result) {
+        resolvedExpressions.put(discriminant, result);
+        if (expressionService.mustPutEvaluatedExpressionInContext(expression.getExpressionKind())) {
+            dependencyValues.put(expression.getContent(), result);
+        }
+    }
+
+    private static final class Batch {
+
+        private final ExpressionKind kind;
+        private final List<SExpression> expressions;
+        private final int[] discriminants;
+
+        private Batch(ExpressionKind kind, List<SExpression> expressions) {
+            this.kind = kind;
+            this.expressions = Collections.unmodifiableList(expressions);
+            discriminants = new int[expressions.size()];
+            for (int i = 0; i < discriminants.length; i++) {
+                discriminants[i] = expressions.get(i).getDiscriminant();
+            }
+        }
+    }
+
+    private static final class Step {
+
+        private final SExpression expression;
+        private final int discriminant;
+
+        private Step(SExpression expression, int discriminant) {
+            this.expression = expression;
+            this.discriminant = discriminant;
+        }
+    }
+
+}
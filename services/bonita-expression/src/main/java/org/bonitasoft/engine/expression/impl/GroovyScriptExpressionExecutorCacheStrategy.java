@@ -15,22 +15,41 @@ package org.bonitasoft.engine.expression.impl;
 
 import static org.bonitasoft.engine.classloader.ClassLoaderIdentifier.identifier;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.security.AccessController;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.security.PrivilegedAction;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.atomic.AtomicLong;
 
 import groovy.lang.Binding;
+import groovy.lang.GroovyClassLoader;
 import groovy.lang.GroovyCodeSource;
 import groovy.lang.GroovyRuntimeException;
 import groovy.lang.GroovyShell;
+import groovy.lang.GroovySystem;
 import groovy.lang.MissingPropertyException;
 import groovy.lang.Script;
+import org.apache.commons.io.FileUtils;
 import org.bonitasoft.engine.cache.CacheService;
 import org.bonitasoft.engine.cache.SCacheException;
+import org.bonitasoft.engine.classloader.BonitaClassLoader;
+import org.bonitasoft.engine.classloader.ClassLoaderIdentifier;
 import org.bonitasoft.engine.classloader.ClassLoaderService;
 import org.bonitasoft.engine.classloader.SClassLoaderException;
 import org.bonitasoft.engine.classloader.SingleClassLoaderListener;
@@ -42,10 +61,15 @@ import org.bonitasoft.engine.expression.exception.SExpressionDependencyMissingEx
 import org.bonitasoft.engine.expression.exception.SExpressionEvaluationException;
 import org.bonitasoft.engine.expression.model.ExpressionKind;
 import org.bonitasoft.engine.expression.model.SExpression;
+import org.codehaus.groovy.control.CompilationUnit;
+import org.codehaus.groovy.control.CompilerConfiguration;
+import org.codehaus.groovy.control.Phases;
 import org.codehaus.groovy.runtime.InvokerHelper;
 import org.codehaus.groovy.runtime.typehandling.GroovyCastException;
+import org.codehaus.groovy.tools.GroovyClass;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 
 public class GroovyScriptExpressionExecutorCacheStrategy extends NonEmptyContentExpressionExecutorStrategy
         implements SingleClassLoaderListener {
@@ -56,11 +80,17 @@ public class GroovyScriptExpressionExecutorCacheStrategy extends NonEmptyContent
     public static final String SCRIPT_KEY = "SCRIPT_";
     public static final String COERCION_SCRIPT_KEY = "COERCION_SCRIPT_";
     public static final String SHELL_KEY = "SHELL_";
+    public static final String COMPILED_SCRIPT_KEY = "COMPILED_SCRIPT_";
+
+    private static final String SCRIPT_CLASS_PREFIX = "BScript_";
+    private static final String PERSISTED_SCRIPT_EXTENSION = ".classes";
 
     private final CacheService cacheService;
 
     private final ClassLoaderService classLoaderService;
     private static final AtomicLong counter = new AtomicLong();
+    private boolean precompileOnEnable;
+    private File compiledScriptsFolder;
 
     public GroovyScriptExpressionExecutorCacheStrategy(final CacheService cacheService,
             final ClassLoaderService classLoaderService) {
@@ -68,6 +98,30 @@ public class GroovyScriptExpressionExecutorCacheStrategy extends NonEmptyContent
         this.classLoaderService = classLoaderService;
     }
 
+    /**
+     * Compile all Groovy scripts of a process when it is enabled, so that its first instances do not pay the
+     * compilation of the scripts.
+     */
+    @Value("${bonita.tenant.expression.groovy.precompileOnEnable:false}")
+    public void setPrecompileOnEnable(boolean precompileOnEnable) {
+        this.precompileOnEnable = precompileOnEnable;
+    }
+
+    public boolean isPrecompileOnEnable() {
+        return precompileOnEnable;
+    }
+
+    /**
+     * Folder where compiled scripts are written, so that they are loaded instead of being compiled again after a
+     * restart. Compiled scripts are not persisted if empty.
+     */
+    @Value("${bonita.tenant.expression.groovy.compiledScriptsFolder:}")
+    public void setCompiledScriptsFolder(String compiledScriptsFolder) {
+        this.compiledScriptsFolder = compiledScriptsFolder == null || compiledScriptsFolder.trim().isEmpty() ? null
+                // compiled classes are only valid for the version of Groovy that compiled them
+                : Paths.get(compiledScriptsFolder, "groovy-" + GroovySystem.getVersion()).toFile();
+    }
+
     private String generateScriptName() {
         return String.format("BScript%s.groovy", counter.incrementAndGet());
     }
@@ -77,12 +131,145 @@ public class GroovyScriptExpressionExecutorCacheStrategy extends NonEmptyContent
         if (definitionId == null) {
             throw new SBonitaRuntimeException("Unable to evaluate expression without a definitionId");
         }
-        final GroovyShell shell = getShell(definitionId);
+        final String key = COMPILED_SCRIPT_KEY + definitionId + "_" + expressionContent.hashCode();
+        CompiledScript compiledScript = (CompiledScript) cacheService.get(GROOVY_SCRIPT_CACHE_NAME, key);
+        // the content is compared in case of hash collision
+        if (compiledScript == null || !compiledScript.content.equals(expressionContent)) {
+            compiledScript = new CompiledScript(expressionContent,
+                    loadOrCompileScript(expressionContent, definitionId));
+            cacheService.store(GROOVY_SCRIPT_CACHE_NAME, key, compiledScript);
+        }
+        return compiledScript.scriptClass;
+    }
 
-        GroovyCodeSource gcs = getOrCreateGroovyCodeSource(SCRIPT_KEY + expressionContent.hashCode(),
+    /**
+     * Compile the given scripts of a definition and put them in the cache. Scripts that do not compile are ignored,
+     * their evaluation will fail later with the compilation error.
+     *
+     * @param definitionId the id of the definition the scripts belong to
+     * @param scriptContents the contents of the Groovy scripts of the definition
+     */
+    public void precompile(long definitionId, Collection<String> scriptContents) {
+        for (String scriptContent : scriptContents) {
+            try {
+                getScriptFromCache(scriptContent, definitionId);
+            } catch (SCacheException | SClassLoaderException e) {
+                log.warn("Unable to precompile the Groovy scripts of definition {}: {}", definitionId,
+                        e.getMessage());
+                return;
+            } catch (GroovyRuntimeException e) {
+                log.debug("Unable to precompile a Groovy script of definition {}", definitionId, e);
+            }
+        }
+    }
+
+    private Class<?> loadOrCompileScript(String expressionContent, long definitionId)
+            throws SCacheException, SClassLoaderException {
+        final GroovyClassLoader shellClassLoader = getShell(definitionId).getClassLoader();
+        final String scriptHash = sha256(expressionContent);
+        final File persistedScript = getPersistedScript(definitionId, scriptHash);
+        if (persistedScript != null && persistedScript.exists()) {
+            try {
+                return defineClasses(shellClassLoader, SCRIPT_CLASS_PREFIX + scriptHash,
+                        readPersistedScript(persistedScript));
+            } catch (IOException | LinkageError e) {
+                log.warn("Unable to load the compiled Groovy script {}, it will be compiled again: {}",
+                        persistedScript, e.getMessage());
+            }
+        }
+        final Map<String, byte[]> classes = compileScript(shellClassLoader, SCRIPT_CLASS_PREFIX + scriptHash,
                 expressionContent);
-        // parse the groovy source code with cache set to true
-        return shell.getClassLoader().parseClass(gcs, true);
+        if (persistedScript != null) {
+            try {
+                writePersistedScript(persistedScript, classes);
+            } catch (IOException e) {
+                log.warn("Unable to persist the compiled Groovy script {}: {}", persistedScript, e.getMessage());
+            }
+        }
+        return defineClasses(shellClassLoader, SCRIPT_CLASS_PREFIX + scriptHash, classes);
+    }
+
+    /**
+     * @return the bytecode of the classes of the script (the script class and its closures) by class name
+     */
+    Map<String, byte[]> compileScript(GroovyClassLoader shellClassLoader, String scriptClassName,
+            String expressionContent) {
+        final CompilationUnit compilationUnit = new CompilationUnit(
+                new CompilerConfiguration(CompilerConfiguration.DEFAULT), null, shellClassLoader);
+        compilationUnit.addSource(scriptClassName + ".groovy", expressionContent);
+        compilationUnit.compile(Phases.CLASS_GENERATION);
+        final Map<String, byte[]> classes = new LinkedHashMap<>();
+        for (GroovyClass groovyClass : compilationUnit.getClasses()) {
+            classes.put(groovyClass.getName(), groovyClass.getBytes());
+        }
+        return classes;
+    }
+
+    private Class<?> defineClasses(GroovyClassLoader shellClassLoader, String scriptClassName,
+            Map<String, byte[]> classes) {
+        // each script has its own loader, like scripts parsed by the GroovyClassLoader
+        final GroovyClassLoader.InnerLoader loader = AccessController.doPrivileged(
+                (PrivilegedAction<GroovyClassLoader.InnerLoader>) () -> new GroovyClassLoader.InnerLoader(
+                        shellClassLoader));
+        Class<?> scriptClass = null;
+        for (Map.Entry<String, byte[]> compiledClass : classes.entrySet()) {
+            final Class<?> definedClass = loader.defineClass(compiledClass.getKey(), compiledClass.getValue());
+            if (compiledClass.getKey().equals(scriptClassName)) {
+                scriptClass = definedClass;
+            }
+        }
+        if (scriptClass == null) {
+            throw new IllegalStateException("No class " + scriptClassName + " in the compiled script");
+        }
+        return scriptClass;
+    }
+
+    private static String sha256(String content) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return String.format("%064x",
+                    new BigInteger(1, digest.digest(content.getBytes(StandardCharsets.UTF_8))));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private File getPersistedScript(long definitionId, String scriptHash) {
+        if (compiledScriptsFolder == null) {
+            return null;
+        }
+        return new File(new File(compiledScriptsFolder, String.valueOf(definitionId)),
+                scriptHash + PERSISTED_SCRIPT_EXTENSION);
+    }
+
+    private Map<String, byte[]> readPersistedScript(File persistedScript) throws IOException {
+        try (DataInputStream input = new DataInputStream(Files.newInputStream(persistedScript.toPath()))) {
+            final int numberOfClasses = input.readInt();
+            final Map<String, byte[]> classes = new LinkedHashMap<>();
+            for (int i = 0; i < numberOfClasses; i++) {
+                final String className = input.readUTF();
+                final byte[] bytes = new byte[input.readInt()];
+                input.readFully(bytes);
+                classes.put(className, bytes);
+            }
+            return classes;
+        }
+    }
+
+    private void writePersistedScript(File persistedScript, Map<String, byte[]> classes) throws IOException {
+        Files.createDirectories(persistedScript.getParentFile().toPath());
+        // written in a temporary file first so that other nodes or threads never read a partially written file
+        final Path temporaryFile = Files.createTempFile(persistedScript.getParentFile().toPath(), "script", ".tmp");
+        try (DataOutputStream output = new DataOutputStream(Files.newOutputStream(temporaryFile))) {
+            output.writeInt(classes.size());
+            for (Map.Entry<String, byte[]> compiledClass : classes.entrySet()) {
+                output.writeUTF(compiledClass.getKey());
+                output.writeInt(compiledClass.getValue().length);
+                output.write(compiledClass.getValue());
+            }
+        }
+        Files.move(temporaryFile, persistedScript.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
     }
 
     private GroovyCodeSource getOrCreateGroovyCodeSource(String key, String scriptContent) throws SCacheException {
@@ -172,6 +359,11 @@ public class GroovyScriptExpressionExecutorCacheStrategy extends NonEmptyContent
     public void onUpdate(ClassLoader newClassLoader) {
         log.debug("Groovy cache cleared after update on {}", newClassLoader);
         clearCache();
+        // dependencies of the definition changed, its scripts must be compiled again
+        if (compiledScriptsFolder != null && newClassLoader instanceof BonitaClassLoader) {
+            final ClassLoaderIdentifier identifier = ((BonitaClassLoader) newClassLoader).getIdentifier();
+            FileUtils.deleteQuietly(new File(compiledScriptsFolder, String.valueOf(identifier.getId())));
+        }
     }
 
     @Override
@@ -245,4 +437,15 @@ public class GroovyScriptExpressionExecutorCacheStrategy extends NonEmptyContent
     public boolean mustPutEvaluatedExpressionInContext() {
         return false;
     }
+
+    private static final class CompiledScript {
+
+        private final String content;
+        private final Class<?> scriptClass;
+
+        private CompiledScript(String content, Class<?> scriptClass) {
+            this.content = content;
+            this.scriptClass = scriptClass;
+        }
+    }
 }
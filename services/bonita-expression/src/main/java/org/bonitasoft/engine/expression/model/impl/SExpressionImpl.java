@@ -17,6 +17,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 
+import org.bonitasoft.engine.expression.ExpressionEvaluationPlan;
 import org.bonitasoft.engine.expression.model.ExpressionKind;
 import org.bonitasoft.engine.expression.model.SExpression;
 
@@ -40,6 +41,12 @@ public class SExpressionImpl implements SExpression {
 
     private final ExpressionKind expressionKind = new ExpressionKind();
 
+    /**
+     * Evaluation plan of the last list of expressions, starting with this one, that was evaluated. It is kept with the
+     * expression, and thus with the process definition it belongs to.
+     */
+    private transient volatile ExpressionEvaluationPlan evaluationPlan;
+
     public SExpressionImpl() {
         super();
     }
@@ -56,22 +63,27 @@ public class SExpressionImpl implements SExpression {
     }
 
     public void setContent(final String content) {
+        evaluationPlan = null;
         this.content = content;
     }
 
     public void setExpressionType(final String expressionType) {
+        evaluationPlan = null;
         expressionKind.setType(expressionType);
     }
 
     public void setReturnType(final String returnType) {
+        evaluationPlan = null;
         this.returnType = returnType;
     }
 
     public void setInterpreter(final String interpreter) {
+        evaluationPlan = null;
         expressionKind.setInterpreter(interpreter);
     }
 
     public void setDependencies(final List<SExpression> dependencies) {
+        evaluationPlan = null;
         this.dependencies = dependencies;
     }
 
@@ -81,6 +93,7 @@ public class SExpressionImpl implements SExpression {
     }
 
     public void setName(final String name) {
+        evaluationPlan = null;
         this.name = name;
     }
 
@@ -122,6 +135,14 @@ public class SExpressionImpl implements SExpression {
         return expressionKind;
     }
 
+    public ExpressionEvaluationPlan getEvaluationPlan() {
+        return evaluationPlan;
+    }
+
+    public void setEvaluationPlan(ExpressionEvaluationPlan evaluationPlan) {
+        this.evaluationPlan = evaluationPlan;
+    }
+
     @Override
     public int hashCode() {
         return Objects.hash(name, content, returnType, dependencies, expressionKind);
@@ -0,0 +1,111 @@
+/**
+ * Copyright (C) 2019 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.expression;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bonitasoft.engine.expression.model.ExpressionKind;
+import org.bonitasoft.engine.expression.model.SExpression;
+import org.bonitasoft.engine.expression.model.impl.SExpressionImpl;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ExpressionEvaluationPlanTest {
+
+    @Mock
+    private ExpressionService expressionService;
+
+    private final SExpression constant1 = expression("1", SExpression.TYPE_CONSTANT);
+    private final SExpression constant2 = expression("2", SExpression.TYPE_CONSTANT);
+    private final SExpression condition = expression(">", SExpression.TYPE_CONDITION, constant1, constant2);
+    private final SExpression script = expression("a + b", SExpression.TYPE_READ_ONLY_SCRIPT, condition, constant1);
+
+    @Test
+    public void should_evaluate_expressions_without_dependencies_first_then_others_after_their_dependencies()
+            throws Exception {
+        doAnswer(invocation -> ((List<?>) invocation.getArgument(1)).subList(0, 2)).when(expressionService)
+                .evaluate(any(ExpressionKind.class), any(), anyMap(), anyMap(), any());
+        doAnswer(invocation -> "result of " + ((SExpression) invocation.getArgument(0)).getContent())
+                .when(expressionService).evaluate(any(SExpression.class), anyMap(), anyMap(), any());
+
+        List<Object> results = ExpressionEvaluationPlan.compile(asList(script, null, constant1))
+                .evaluate(expressionService, new HashMap<>(), null);
+
+        assertThat(results).containsExactly("result of a + b", null, constant1);
+        InOrder inOrder = inOrder(expressionService);
+        inOrder.verify(expressionService).evaluate(eq(constant1.getExpressionKind()),
+                eq(asList(constant1, constant2)), anyMap(), anyMap(), any());
+        inOrder.verify(expressionService).evaluate(eq(condition), anyMap(), anyMap(), any());
+        inOrder.verify(expressionService).evaluate(eq(script), anyMap(), anyMap(), any());
+    }
+
+    @Test
+    public void should_evaluate_expressions_used_several_times_only_once() throws Exception {
+        SExpression other = expression("c", SExpression.TYPE_READ_ONLY_SCRIPT, condition);
+
+        ExpressionEvaluationPlan.compile(asList(script, other)).evaluate(expressionService, new HashMap<>(), null);
+
+        verify(expressionService, times(1)).evaluate(eq(condition), anyMap(), anyMap(), any());
+    }
+
+    @Test
+    public void should_put_result_in_context_when_expression_service_requires_it() throws Exception {
+        SExpression variable = expression("myData", SExpression.TYPE_VARIABLE);
+        doAnswer(invocation -> Collections.singletonList("value")).when(expressionService)
+                .evaluate(any(ExpressionKind.class), any(), anyMap(), anyMap(), any());
+        doReturn(true).when(expressionService)
+                .mustPutEvaluatedExpressionInContext(variable.getExpressionKind());
+        Map<String, Object> dependencyValues = new HashMap<>();
+
+        ExpressionEvaluationPlan plan = ExpressionEvaluationPlan.compile(singletonList(variable));
+        plan.evaluate(expressionService, dependencyValues, null);
+
+        assertThat(dependencyValues).containsEntry("myData", "value");
+        assertThat(plan.getVariableExpressions()).containsExactly(variable);
+    }
+
+    @Test
+    public void should_only_be_the_plan_of_the_same_expression_instances() {
+        ExpressionEvaluationPlan plan = ExpressionEvaluationPlan.compile(asList(script, constant1));
+
+        assertThat(plan.isPlanOf(asList(script, constant1))).isTrue();
+        assertThat(plan.isPlanOf(new ArrayList<>(asList(script, expression("1", SExpression.TYPE_CONSTANT)))))
+                .isFalse();
+        assertThat(plan.isPlanOf(singletonList(script))).isFalse();
+    }
+
+    private static SExpression expression(String content, String type, SExpression... dependencies) {
+        return new SExpressionImpl(content, content, type, String.class.getName(), null, asList(dependencies));
+    }
+}
@@ -20,15 +20,21 @@ import static org.bonitasoft.engine.expression.ExpressionExecutorStrategy.DEFINI
 import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.IsInstanceOf.instanceOf;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import groovy.lang.Binding;
 import groovy.lang.GroovyShell;
 import org.bonitasoft.engine.bpm.contract.FileInputValue;
 import org.bonitasoft.engine.bpm.document.Document;
@@ -48,6 +54,7 @@ import org.bonitasoft.engine.expression.model.builder.SExpressionBuilder;
 import org.bonitasoft.engine.expression.model.builder.impl.SExpressionBuilderFactoryImpl;
 import org.bonitasoft.engine.expression.model.impl.SExpressionImpl;
 import org.bonitasoft.engine.sessionaccessor.ReadSessionAccessor;
+import org.codehaus.groovy.runtime.InvokerHelper;
 import org.codehaus.groovy.runtime.typehandling.GroovyCastException;
 import org.junit.After;
 import org.junit.AfterClass;
@@ -55,6 +62,7 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
@@ -80,6 +88,9 @@ public class GroovyScriptExpressionExecutorCacheStrategyTest {
     private Class script2;
     private Map<String, Object> context;
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @Before
     public void setup() throws Exception {
         final CacheConfiguration cacheConfiguration = new CacheConfiguration();
@@ -233,6 +244,38 @@ public class GroovyScriptExpressionExecutorCacheStrategyTest {
         //exception
     }
 
+    @Test
+    public void precompile_should_put_compiled_scripts_in_cache_and_ignore_invalid_scripts() throws Exception {
+        // when
+        groovyScriptExpressionExecutorCacheStrategy.precompile(12L,
+                Arrays.asList("return 1", "this is not { a valid script", "return 2"));
+
+        // then
+        assertThat(cacheService.get("GROOVY_SCRIPT_CACHE_NAME",
+                GroovyScriptExpressionExecutorCacheStrategy.COMPILED_SCRIPT_KEY + 12L + "_" + "return 2".hashCode()))
+                        .isNotNull();
+    }
+
+    @Test
+    public void should_load_persisted_compiled_script_instead_of_compiling_it_again() throws Exception {
+        // given
+        String compiledScriptsFolder = temporaryFolder.newFolder().getAbsolutePath();
+        groovyScriptExpressionExecutorCacheStrategy.setCompiledScriptsFolder(compiledScriptsFolder);
+        groovyScriptExpressionExecutorCacheStrategy.getScriptFromCache("[1, 2].collect { it * 21 }.last()", 12L);
+        // simulate a restart
+        cacheService.clear("GROOVY_SCRIPT_CACHE_NAME");
+        GroovyScriptExpressionExecutorCacheStrategy restartedStrategy = spy(
+                new GroovyScriptExpressionExecutorCacheStrategy(cacheService, classLoaderService));
+        restartedStrategy.setCompiledScriptsFolder(compiledScriptsFolder);
+
+        // when
+        Class scriptClass = restartedStrategy.getScriptFromCache("[1, 2].collect { it * 21 }.last()", 12L);
+
+        // then
+        verify(restartedStrategy, never()).compileScript(any(), anyString(), anyString());
+        assertThat(InvokerHelper.createScript(scriptClass, new Binding()).run()).isEqualTo(42);
+    }
+
     @Test
     public void should_evaluate_return_the_evaluation() throws Exception {
         //given
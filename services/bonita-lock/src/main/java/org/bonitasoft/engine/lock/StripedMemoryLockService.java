@@ -0,0 +1,245 @@
+/**
+ * Copyright (C) 2019 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.lock;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnSingleCandidate;
+import org.springframework.stereotype.Component;
+
+/**
+ * In memory {@link LockService} that does not build any key object when locking and unlocking.
+ * <p>
+ * Locks are identified by the (object type ordinal, object id, tenant id) triple: object types are interned once into
+ * an ordinal, then entries are stored in primitive-keyed hash tables split in {@value #NUMBER_OF_STRIPES} stripes.
+ * A stripe monitor is only held while looking up or releasing an entry, never while waiting for the lock itself.
+ * Entries are reference counted by the threads using them, so they are removed only when no thread holds or waits
+ * for them, and they are pooled to be reused by subsequent locks.
+ * <p>
+ * Activated using {@code bonita.platform.lock.memory.striped=true}
+ */
+@Component
+@ConditionalOnSingleCandidate(LockService.class)
+@ConditionalOnProperty(value = "bonita.platform.lock.memory.striped", havingValue = "true")
+public class StripedMemoryLockService implements LockService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StripedMemoryLockService.class);
+    static final int NUMBER_OF_STRIPES = 64;
+    private static final int MAX_POOLED_ENTRIES_PER_STRIPE = 64;
+
+    private final ConcurrentHashMap<String, Integer> objectTypeOrdinals = new ConcurrentHashMap<>();
+    private final AtomicInteger nextObjectTypeOrdinal = new AtomicInteger();
+    private final Stripe[] stripes = new Stripe[NUMBER_OF_STRIPES];
+    private final int lockTimeoutSeconds;
+
+    public StripedMemoryLockService(@Value("${bonita.platform.lock.memory.timeout}") int lockTimeoutSeconds) {
+        this.lockTimeoutSeconds = lockTimeoutSeconds;
+        for (int i = 0; i < NUMBER_OF_STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    @Override
+    public BonitaLock lock(long objectToLockId, String objectType, long tenantId)
+            throws SLockException, SLockTimeoutException {
+        BonitaLock bonitaLock = tryLock(objectToLockId, objectType, lockTimeoutSeconds, SECONDS, tenantId);
+        if (bonitaLock == null) {
+            throw new SLockTimeoutException(String.format("Unable to acquire lock %s,%s,%s in %s seconds",
+                    objectToLockId, objectType, tenantId, lockTimeoutSeconds));
+        }
+        return bonitaLock;
+    }
+
+    @Override
+    public BonitaLock tryLock(long objectToLockId, String objectType, long timeout, TimeUnit timeUnit, long tenantId)
+            throws SLockException {
+        int type = getObjectTypeOrdinal(objectType);
+        int hash = hash(type, objectToLockId, tenantId);
+        Stripe stripe = stripes[hash & (NUMBER_OF_STRIPES - 1)];
+        LockEntry entry = stripe.acquire(hash, type, objectToLockId, tenantId);
+        try {
+            if (entry.lock.tryLock(timeout, timeUnit)) {
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Lock acquired for {} {} of tenant {}", objectType, objectToLockId, tenantId);
+                }
+                return new BonitaLock(objectType, objectToLockId);
+            }
+            if (logger.isDebugEnabled()) {
+                logger.debug("Lock was not acquired for {} {} of tenant {}", objectType, objectToLockId, tenantId);
+            }
+            stripe.release(entry);
+            return null;
+        } catch (InterruptedException e) {
+            stripe.release(entry);
+            throw new SLockException("interrupted while trying to get the lock", e);
+        }
+    }
+
+    @Override
+    public void unlock(BonitaLock lock, long tenantId) throws SLockException {
+        int type = getObjectTypeOrdinal(lock.getObjectType());
+        int hash = hash(type, lock.getObjectToLockId(), tenantId);
+        stripes[hash & (NUMBER_OF_STRIPES - 1)].unlock(hash, type, lock.getObjectToLockId(), tenantId);
+        logger.debug("Lock released {}", lock);
+    }
+
+    private int getObjectTypeOrdinal(String objectType) {
+        Integer ordinal = objectTypeOrdinals.get(objectType);
+        if (ordinal == null) {
+            ordinal = objectTypeOrdinals.computeIfAbsent(objectType, t -> nextObjectTypeOrdinal.getAndIncrement());
+        }
+        return ordinal;
+    }
+
+    private static int hash(int type, long objectToLockId, long tenantId) {
+        long h = objectToLockId * 0x9E3779B97F4A7C15L;
+        h ^= tenantId * 0xC2B2AE3D27D4EB4FL;
+        h ^= type * 0x165667B19E3779F9L;
+        h ^= (h >>> 32);
+        h ^= (h >>> 16);
+        return (int) h;
+    }
+
+    /**
+     * Chained hash table of lock entries, every access is done holding the monitor of the stripe
+     */
+    private static final class Stripe {
+
+        private LockEntry[] buckets = new LockEntry[16];
+        private int size;
+        private LockEntry pool;
+        private int pooled;
+
+        synchronized LockEntry acquire(int hash, int type, long objectToLockId, long tenantId) {
+            LockEntry entry = find(hash, type, objectToLockId, tenantId);
+            if (entry == null) {
+                entry = newEntry(hash, type, objectToLockId, tenantId);
+                int index = (hash >>> 6) & (buckets.length - 1);
+                entry.next = buckets[index];
+                buckets[index] = entry;
+                if (++size > buckets.length * 3 / 4) {
+                    resize();
+                }
+            }
+            entry.users++;
+            return entry;
+        }
+
+        synchronized void unlock(int hash, int type, long objectToLockId, long tenantId) {
+            LockEntry entry = find(hash, type, objectToLockId, tenantId);
+            if (entry == null) {
+                return;
+            }
+            entry.lock.unlock();
+            releaseInternal(entry);
+        }
+
+        synchronized void release(LockEntry entry) {
+            releaseInternal(entry);
+        }
+
+        private void releaseInternal(LockEntry entry) {
+            if (--entry.users > 0) {
+                return;
+            }
+            int index = (entry.hash >>> 6) & (buckets.length - 1);
+            LockEntry previous = null;
+            for (LockEntry e = buckets[index]; e != null; previous = e, e = e.next) {
+                if (e == entry) {
+                    if (previous == null) {
+                        buckets[index] = e.next;
+                    } else {
+                        previous.next = e.next;
+                    }
+                    size--;
+                    break;
+                }
+            }
+            if (pooled < MAX_POOLED_ENTRIES_PER_STRIPE) {
+                entry.next = pool;
+                pool = entry;
+                pooled++;
+            } else {
+                entry.next = null;
+            }
+        }
+
+        private LockEntry find(int hash, int type, long objectToLockId, long tenantId) {
+            for (LockEntry e = buckets[(hash >>> 6) & (buckets.length - 1)]; e != null; e = e.next) {
+                if (e.hash == hash && e.objectToLockId == objectToLockId && e.type == type
+                        && e.tenantId == tenantId) {
+                    return e;
+                }
+            }
+            return null;
+        }
+
+        private LockEntry newEntry(int hash, int type, long objectToLockId, long tenantId) {
+            LockEntry entry = pool;
+            if (entry != null) {
+                pool = entry.next;
+                pooled--;
+            } else {
+                entry = new LockEntry();
+            }
+            entry.hash = hash;
+            entry.type = type;
+            entry.objectToLockId = objectToLockId;
+            entry.tenantId = tenantId;
+            entry.users = 0;
+            entry.next = null;
+            return entry;
+        }
+
+        private void resize() {
+            LockEntry[] newBuckets = new LockEntry[buckets.length * 2];
+            for (LockEntry head : buckets) {
+                LockEntry e = head;
+                while (e != null) {
+                    LockEntry next = e.next;
+                    int index = (e.hash >>> 6) & (newBuckets.length - 1);
+                    e.next = newBuckets[index];
+                    newBuckets[index] = e;
+                    e = next;
+                }
+            }
+            buckets = newBuckets;
+        }
+    }
+
+    /**
+     * A lock and its identifier. The {@link ReentrantLock} is kept when the entry is pooled: it is not held by any
+     * thread at that time.
+     */
+    private static final class LockEntry {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private int hash;
+        private int type;
+        private long objectToLockId;
+        private long tenantId;
+        private int users;
+        private LockEntry next;
+    }
+
+}
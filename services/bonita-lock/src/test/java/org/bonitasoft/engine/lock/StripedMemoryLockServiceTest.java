@@ -0,0 +1,117 @@
+/**
+ * Copyright (C) 2019 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.lock;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class StripedMemoryLockServiceTest {
+
+    private static final long TENANT_ID = 1L;
+    private final ExecutorService executorService = Executors.newFixedThreadPool(8);
+    private StripedMemoryLockService lockService;
+
+    @Before
+    public void before() {
+        lockService = new StripedMemoryLockService(1);
+    }
+
+    @After
+    public void after() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void should_not_be_able_to_lock_in_an_other_thread_until_unlocked() throws Exception {
+        BonitaLock lock = lockService.lock(5, "a", TENANT_ID);
+
+        assertThat(tryLockInAnOtherThread(5, "a", TENANT_ID)).isNull();
+        lockService.unlock(lock, TENANT_ID);
+        assertThat(tryLockInAnOtherThread(5, "a", TENANT_ID)).isNotNull();
+    }
+
+    @Test
+    public void should_lock_different_objects_independently() throws Exception {
+        lockService.lock(5, "a", TENANT_ID);
+
+        assertThat(tryLockInAnOtherThread(6, "a", TENANT_ID)).isNotNull();
+        assertThat(tryLockInAnOtherThread(5, "b", TENANT_ID)).isNotNull();
+        assertThat(tryLockInAnOtherThread(5, "a", 2L)).isNotNull();
+    }
+
+    @Test
+    public void should_lock_multiple_times_on_the_same_thread() throws Exception {
+        BonitaLock bonitaLock = lockService.lock(123, "abc", TENANT_ID);
+        lockService.lock(123, "abc", TENANT_ID);
+
+        lockService.unlock(bonitaLock, TENANT_ID);
+        assertThat(tryLockInAnOtherThread(123, "abc", TENANT_ID)).isNull();
+
+        lockService.unlock(bonitaLock, TENANT_ID);
+        assertThat(tryLockInAnOtherThread(123, "abc", TENANT_ID)).isNotNull();
+    }
+
+    @Test
+    public void should_throw_timeout_exception_when_lock_is_not_obtained() throws Exception {
+        lockService.lock(2, "a", TENANT_ID);
+
+        assertThatThrownBy(() -> executorService.submit(() -> lockService.lock(2, "a", TENANT_ID)).get())
+                .hasCauseInstanceOf(SLockTimeoutException.class);
+    }
+
+    @Test
+    public void should_never_give_the_same_lock_to_two_threads() throws Exception {
+        AtomicInteger holders = new AtomicInteger();
+        AtomicInteger maxHolders = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            futures.add(executorService.submit(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    BonitaLock lock = lockService.lock(i % 3, "PROCESS", TENANT_ID);
+                    if (i % 3 == 0) {
+                        maxHolders.accumulateAndGet(holders.incrementAndGet(), Math::max);
+                        holders.decrementAndGet();
+                    }
+                    lockService.unlock(lock, TENANT_ID);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+
+        assertThat(maxHolders.get()).isEqualTo(1);
+    }
+
+    private BonitaLock tryLockInAnOtherThread(long objectToLockId, String objectType, long tenantId)
+            throws Exception {
+        return executorService
+                .submit(() -> lockService.tryLock(objectToLockId, objectType, 10, TimeUnit.MILLISECONDS, tenantId))
+                .get();
+    }
+
+}
@@ -251,6 +251,18 @@ public abstract class AbstractHibernatePersistenceService extends AbstractDBPers
         }
     }
 
+    @Override
+    public <T> T executeWithConnection(final ConnectionCallback<T> callback) throws SBonitaReadException {
+        try {
+            final Session session = getSession(true);
+            // the work does not go through Hibernate: make entities created in this transaction visible to it
+            session.flush();
+            return session.doReturningWork(callback::doInConnection);
+        } catch (final SPersistenceException | HibernateException e) {
+            throw new SBonitaReadException(e);
+        }
+    }
+
     Class<? extends PersistentObject> getMappedClass(final Class<? extends PersistentObject> entityClass)
             throws SPersistenceException {
         if (classMapping.contains(entityClass)) {
@@ -23,6 +23,8 @@ public interface ArchivedPersistentObject extends PersistentObject {
 
     long getArchiveDate();
 
+    void setArchiveDate(long archiveDate);
+
     /**
      * Get the source object id from which this <code>ArchivedPersistentObject</code> originates.
      *
@@ -0,0 +1,32 @@
+/**
+ * Copyright (C) 2019 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.persistence;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Work done with the JDBC connection of the current persistence session, e.g. to stream binary columns instead of
+ * loading them as a whole.
+ *
+ * @since 7.16
+ */
+@FunctionalInterface
+public interface ConnectionCallback<T> {
+
+    /**
+     * @param connection connection of the current transaction, it must not be closed
+     */
+    T doInConnection(Connection connection) throws SQLException;
+}
@@ -101,6 +101,17 @@ public interface ReadPersistenceService {
             Map<String, Object> parameters)
             throws SBonitaReadException;
 
+    /**
+     * Execute JDBC work using the connection of the current session, once pending changes of the session are flushed.
+     *
+     * @param callback
+     *        work to execute, it must not close the connection
+     * @return the result of the callback
+     * @throws SBonitaReadException
+     * @since 7.16
+     */
+    <T> T executeWithConnection(ConnectionCallback<T> callback) throws SBonitaReadException;
+
     /**
      * @return
      *         the name of the persistence service
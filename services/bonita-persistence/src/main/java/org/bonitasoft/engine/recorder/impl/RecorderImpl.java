@@ -15,6 +15,7 @@ package org.bonitasoft.engine.recorder.impl;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import lombok.extern.slf4j.Slf4j;
 import org.bonitasoft.engine.commons.ExceptionUtils;
@@ -46,6 +47,11 @@ public class RecorderImpl implements Recorder {
 
     private final EventService eventService;
 
+    /**
+     * Event types by record type, so that they are not concatenated on each record
+     */
+    private final Map<String, EventTypes> eventTypes = new ConcurrentHashMap<>();
+
     public RecorderImpl(final PersistenceService persistenceService,
             final EventService eventService) {
         this.persistenceService = persistenceService;
@@ -56,27 +62,42 @@ public class RecorderImpl implements Recorder {
     public void recordInsert(final InsertRecord record, String type) throws SRecorderException {
         try {
             persistenceService.insert(record.getEntity());
-            eventService.fireEvent(createInsertEvent(record.getEntity(), type));
+            String eventType = getEventTypes(type).created;
+            if (eventService.hasHandlers(eventType, null)) {
+                eventService.fireEvent(createInsertEvent(record.getEntity(), eventType));
+            }
         } catch (final Exception e) {
             logExceptionsFromHandlers(e);
             throw new SRecorderException(e);
         }
     }
 
-    private SInsertEvent createInsertEvent(PersistentObject entity, String type) {
-        SInsertEvent sInsertEvent = new SInsertEvent(type + SEvent.CREATED);
+    private EventTypes getEventTypes(String type) {
+        return eventTypes.computeIfAbsent(String.valueOf(type), EventTypes::new);
+    }
+
+    private void fireUpdateEvent(UpdateRecord record, String type) throws SFireEventException {
+        String eventType = getEventTypes(type).updated;
+        if (eventService.hasHandlers(eventType, null)) {
+            eventService.fireEvent(createUpdateEvent(record.getEntity(), record.getFields(), eventType));
+        }
+    }
+
+    private SInsertEvent createInsertEvent(PersistentObject entity, String eventType) {
+        SInsertEvent sInsertEvent = new SInsertEvent(eventType);
         sInsertEvent.setObject(entity);
         return sInsertEvent;
     }
 
-    private SDeleteEvent createDeleteEvent(PersistentObject entity, String type) {
-        SDeleteEvent sDeleteEvent = new SDeleteEvent(type + SEvent.DELETED);
+    private SDeleteEvent createDeleteEvent(PersistentObject entity, String eventType) {
+        SDeleteEvent sDeleteEvent = new SDeleteEvent(eventType);
         sDeleteEvent.setObject(entity);
         return sDeleteEvent;
     }
 
-    private SUpdateEvent createUpdateEvent(PersistentObject entity, Map<String, Object> updatedFields, String type) {
-        SUpdateEvent sUpdateEvent = new SUpdateEvent(type + SEvent.UPDATED);
+    private SUpdateEvent createUpdateEvent(PersistentObject entity, Map<String, Object> updatedFields,
+            String eventType) {
+        SUpdateEvent sUpdateEvent = new SUpdateEvent(eventType);
         sUpdateEvent.setObject(entity);
         sUpdateEvent.setUpdatedFields(updatedFields);
         return sUpdateEvent;
@@ -86,7 +107,10 @@ public class RecorderImpl implements Recorder {
     public void recordDelete(final DeleteRecord record, String type) throws SRecorderException {
         try {
             persistenceService.delete(record.getEntity());
-            eventService.fireEvent(createDeleteEvent(record.getEntity(), type));
+            String eventType = getEventTypes(type).deleted;
+            if (eventService.hasHandlers(eventType, null)) {
+                eventService.fireEvent(createDeleteEvent(record.getEntity(), eventType));
+            }
         } catch (final Exception e) {
             logExceptionsFromHandlers(e);
             throw new SRecorderException(e);
@@ -108,7 +132,7 @@ public class RecorderImpl implements Recorder {
         final UpdateDescriptor desc = UpdateDescriptor.buildSetFields(record.getEntity(), record.getFields());
         try {
             persistenceService.update(desc);
-            eventService.fireEvent(createUpdateEvent(record.getEntity(), record.getFields(), type));
+            fireUpdateEvent(record, type);
         } catch (final Exception e) {
             logExceptionsFromHandlers(e);
             throw new SRecorderException(e);
@@ -121,7 +145,7 @@ public class RecorderImpl implements Recorder {
         try {
             int updateCount = persistenceService.update(query, record.getFields());
             if (updateCount > 0)
-                eventService.fireEvent(createUpdateEvent(record.getEntity(), record.getFields(), type));
+                fireUpdateEvent(record, type);
             return updateCount;
         } catch (final Exception e) {
             logExceptionsFromHandlers(e);
@@ -141,4 +165,17 @@ public class RecorderImpl implements Recorder {
         }
     }
 
+    private static final class EventTypes {
+
+        private final String created;
+        private final String updated;
+        private final String deleted;
+
+        private EventTypes(String type) {
+            created = type + SEvent.CREATED;
+            updated = type + SEvent.UPDATED;
+            deleted = type + SEvent.DELETED;
+        }
+    }
+
 }
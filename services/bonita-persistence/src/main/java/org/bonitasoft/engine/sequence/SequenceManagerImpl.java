@@ -15,6 +15,7 @@ package org.bonitasoft.engine.sequence;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.sql.DataSource;
 
@@ -40,7 +41,7 @@ public class SequenceManagerImpl implements SequenceManager {
 
     private final LockService lockService;
 
-    private final Map<Long, TenantSequenceManagerImpl> sequenceManagers = new HashMap<>();
+    private final Map<Long, TenantSequenceManagerImpl> sequenceManagers = new ConcurrentHashMap<>();
 
     public SequenceManagerImpl(final LockService lockService,
             final SequenceMappingProvider sequenceMappingProvider,
@@ -64,14 +65,7 @@ public class SequenceManagerImpl implements SequenceManager {
     }
 
     private TenantSequenceManagerImpl getTenantSequenceManager(long tenantId) {
-        if (sequenceManagers.get(tenantId) == null) {
-            synchronized (this) {
-                if (sequenceManagers.get(tenantId) == null) {
-                    this.sequenceManagers.put(tenantId, createTenantSequenceManager(tenantId));
-                }
-            }
-        }
-        return sequenceManagers.get(tenantId);
+        return sequenceManagers.computeIfAbsent(tenantId, this::createTenantSequenceManager);
     }
 
     TenantSequenceManagerImpl createTenantSequenceManager(long tenantId) {
@@ -14,38 +14,130 @@
 package org.bonitasoft.engine.sequence;
 
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
+/**
+ * Ids of a sequence reserved in database and not yet given.
+ * <p>
+ * Ids are taken from the current block using a single atomic increment. The size of the next block adapts to the rate
+ * at which ids are consumed: it aims at reserving ids for {@link #TARGET_RANGE_DURATION_NANOS}, between the configured
+ * range size and {@link #MAX_RANGE_SIZE_FACTOR} times this size.
+ */
 public class SequenceRange {
 
-    private AtomicLong nextAvailableId;
-    private long lastIdInRange;
-    private final int rangeSize;
+    static final int MAX_RANGE_SIZE_FACTOR = 16;
+    static final long TARGET_RANGE_DURATION_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final int minRangeSize;
+    private final int maxRangeSize;
+    private volatile IdBlock current = new IdBlock(0, 0);
+    private volatile long currentStartNanos;
+    private final AtomicReference<CompletableFuture<IdBlock>> nextBlock = new AtomicReference<>();
 
     public SequenceRange(int rangeSize) {
-        this.rangeSize = rangeSize;
+        this(rangeSize, rangeSize * MAX_RANGE_SIZE_FACTOR);
+    }
+
+    SequenceRange(int minRangeSize, int maxRangeSize) {
+        this.minRangeSize = minRangeSize;
+        this.maxRangeSize = Math.max(minRangeSize, maxRangeSize);
     }
 
     public Optional<Long> getNextAvailableId() {
-        if (nextAvailableId == null) {
-            // Range is not initialized yet:
-            return Optional.empty();
-        }
-        long nextId = nextAvailableId.getAndUpdate(current -> {
-            if (current == -1 || current >= lastIdInRange) {
-                return -1; // -1 means no more Id available
-            } else {
-                return current + 1;
-            }
-        });
+        long nextId = nextId();
         if (nextId < 0) {
             return Optional.empty();
         }
         return Optional.of(nextId);
     }
 
+    /**
+     * @return the next id of the current block, or -1 when the block is exhausted or not initialized yet
+     */
+    long nextId() {
+        return current.nextId();
+    }
+
     public void updateToNextRange(long nextAvailableIdFromDatabase) {
-        nextAvailableId = new AtomicLong(nextAvailableIdFromDatabase);
-        lastIdInRange = nextAvailableIdFromDatabase + rangeSize - 1;
+        updateToNextRange(new IdBlock(nextAvailableIdFromDatabase, minRangeSize));
+    }
+
+    void updateToNextRange(IdBlock block) {
+        currentStartNanos = System.nanoTime();
+        current = block;
+    }
+
+    /**
+     * @return the size of the next block to reserve, computed from the consumption rate of the current one
+     */
+    int computeNextRangeSize() {
+        IdBlock block = current;
+        long consumed = block.consumed();
+        if (consumed <= 0) {
+            return minRangeSize;
+        }
+        long elapsed = System.nanoTime() - currentStartNanos;
+        long wanted = elapsed <= 0 ? maxRangeSize : consumed * TARGET_RANGE_DURATION_NANOS / elapsed;
+        // shrink progressively so that a short pause does not collapse the size of the range
+        wanted = Math.max(wanted, block.size / 2);
+        return (int) Math.min(maxRangeSize, Math.max(minRangeSize, wanted));
+    }
+
+    /**
+     * @return true when the current block is almost exhausted and the next one is not being reserved yet
+     */
+    boolean needsPrefetch() {
+        IdBlock block = current;
+        return block.size > 0 && block.remaining() <= Math.max(1, block.size / 4) && nextBlock.get() == null;
+    }
+
+    /**
+     * @return true if the given future is now the one reserving the next block, false if another one already is
+     */
+    boolean startPrefetch(CompletableFuture<IdBlock> futureBlock) {
+        return nextBlock.compareAndSet(null, futureBlock);
+    }
+
+    CompletableFuture<IdBlock> getPrefetchedBlock() {
+        return nextBlock.get();
+    }
+
+    void clearPrefetchedBlock(CompletableFuture<IdBlock> futureBlock) {
+        nextBlock.compareAndSet(futureBlock, null);
+    }
+
+    static final class IdBlock {
+
+        private final long first;
+        private final long last;
+        private final int size;
+        private final AtomicLong next;
+
+        IdBlock(long first, int size) {
+            this.first = first;
+            this.last = first + size - 1;
+            this.size = size;
+            this.next = new AtomicLong(first);
+        }
+
+        private long nextId() {
+            if (next.get() > last) {
+                // avoid incrementing an exhausted block
+                return -1;
+            }
+            long id = next.getAndIncrement();
+            return id <= last ? id : -1;
+        }
+
+        private long remaining() {
+            return Math.max(0, last - next.get() + 1);
+        }
+
+        private long consumed() {
+            return Math.min(next.get(), last + 1) - first;
+        }
     }
 }
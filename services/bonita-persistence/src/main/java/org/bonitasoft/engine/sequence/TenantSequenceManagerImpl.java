@@ -15,9 +15,16 @@ package org.bonitasoft.engine.sequence;
 
 import java.sql.Connection;
 import java.sql.SQLException;
-import java.util.HashMap;
 import java.util.Map;
-import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import javax.sql.DataSource;
 
@@ -27,10 +34,17 @@ import org.bonitasoft.engine.lock.BonitaLock;
 import org.bonitasoft.engine.lock.LockService;
 import org.bonitasoft.engine.lock.SLockException;
 import org.bonitasoft.engine.lock.SLockTimeoutException;
+import org.bonitasoft.engine.sequence.SequenceRange.IdBlock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
+ * Give ids of the sequences of a tenant.
+ * <p>
+ * Ids are given from ranges reserved in database. Getting an id is an atomic increment on the current range, and the
+ * next range is reserved asynchronously when the current one is almost exhausted, so that works do not wait on the
+ * database round-trip to get an id. See {@link SequenceRange} for how the size of ranges adapts to the consumption.
+ *
  * @author Charles Souillard
  * @author Matthieu Chaffotte
  * @author Baptiste Mesta
@@ -42,7 +56,7 @@ public class TenantSequenceManagerImpl {
     static final String SEQUENCE = "SEQUENCE";
 
     private final Long tenantId;
-    private final Map<Long, SequenceRange> sequences = new HashMap<>();
+    private final Map<Long, SequenceRange> sequences = new ConcurrentHashMap<>();
     private final Map<Long, Integer> sequenceIdToRangeSize;
     private final Map<String, Long> classNameToSequenceId;
 
@@ -56,10 +70,21 @@ public class TenantSequenceManagerImpl {
 
     private final LockService lockService;
 
+    private final Executor prefetchExecutor;
+
     public TenantSequenceManagerImpl(final long tenantId, final LockService lockService,
             final Map<Long, Integer> sequenceIdToRangeSize,
             final Map<String, Long> classNameToSequenceId,
             final DataSource datasource, final int retries, final int delay, final int delayFactor) {
+        this(tenantId, lockService, sequenceIdToRangeSize, classNameToSequenceId, datasource, retries, delay,
+                delayFactor, createPrefetchExecutor(tenantId));
+    }
+
+    TenantSequenceManagerImpl(final long tenantId, final LockService lockService,
+            final Map<Long, Integer> sequenceIdToRangeSize,
+            final Map<String, Long> classNameToSequenceId,
+            final DataSource datasource, final int retries, final int delay, final int delayFactor,
+            final Executor prefetchExecutor) {
         this.tenantId = tenantId;
         this.lockService = lockService;
         this.sequenceIdToRangeSize = sequenceIdToRangeSize;
@@ -68,42 +93,94 @@ public class TenantSequenceManagerImpl {
         this.delay = delay;
         this.delayFactor = delayFactor;
         this.datasource = datasource;
+        this.prefetchExecutor = prefetchExecutor;
+    }
+
+    private static Executor createPrefetchExecutor(long tenantId) {
+        // single thread, stopped when idle: there is nothing to shutdown when the tenant sequence manager is dropped
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                r -> {
+                    Thread thread = new Thread(r, "Bonita-Sequence-Prefetch-" + tenantId);
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
     }
 
     public long getNextId(final String entityName) throws SObjectNotFoundException {
         final Long sequenceId = getSequenceId(entityName);
         SequenceRange sequence = getSequence(sequenceId);
-        Optional<Long> nextAvailableId = sequence.getNextAvailableId();
-        if (nextAvailableId.isPresent()) {
-            return nextAvailableId.get();
+        long nextId = sequence.nextId();
+        if (nextId < 0) {
+            nextId = getNextIdFromNextRange(entityName, sequenceId, sequence);
+        }
+        if (sequence.needsPrefetch()) {
+            prefetchNextRange(sequenceId, sequence);
         }
+        return nextId;
+    }
+
+    private long getNextIdFromNextRange(String entityName, Long sequenceId, SequenceRange sequence)
+            throws SObjectNotFoundException {
         //synchronize on the sequence object itself (we will read/update only on this one)
         synchronized (sequence) {
-            nextAvailableId = sequence.getNextAvailableId();
+            long nextId = sequence.nextId();
             int loopCounter = 0;
             // set a max number of retries to 100:
-            while (!nextAvailableId.isPresent() && loopCounter < 100) {
+            while (nextId < 0 && loopCounter < 100) {
                 if (loopCounter > 0) {
                     logger.debug("Could not get an Id after updating to next range. Retrying...");
                 }
-                sequence.updateToNextRange(setNewRange(sequenceId));
-                nextAvailableId = sequence.getNextAvailableId();
+                updateToNextRange(sequenceId, sequence);
+                nextId = sequence.nextId();
                 loopCounter++;
             }
-            return nextAvailableId.orElseThrow(
-                    () -> new IllegalStateException("No new available id found for sequence " + entityName));
+            if (nextId < 0) {
+                throw new IllegalStateException("No new available id found for sequence " + entityName);
+            }
+            return nextId;
         }
     }
 
-    private SequenceRange getSequence(Long sequenceId) {
-        if (!sequences.containsKey(sequenceId)) {
-            synchronized (this) {
-                if (!sequences.containsKey(sequenceId)) {
-                    sequences.put(sequenceId, new SequenceRange(sequenceIdToRangeSize.get(sequenceId)));
-                }
+    private void updateToNextRange(long sequenceId, SequenceRange sequence) throws SObjectNotFoundException {
+        CompletableFuture<IdBlock> prefetchedBlock = sequence.getPrefetchedBlock();
+        if (prefetchedBlock != null) {
+            try {
+                sequence.updateToNextRange(prefetchedBlock.join());
+                return;
+            } catch (CompletionException | CancellationException e) {
+                logger.debug("Unable to prefetch the next range of sequence {}, getting it now", sequenceId, e);
+            } finally {
+                // cleared only once the new range is used, so that no other prefetch starts in between
+                sequence.clearPrefetchedBlock(prefetchedBlock);
             }
         }
-        return sequences.get(sequenceId);
+        int rangeSize = sequence.computeNextRangeSize();
+        sequence.updateToNextRange(new IdBlock(setNewRange(sequenceId, rangeSize), rangeSize));
+    }
+
+    private void prefetchNextRange(long sequenceId, SequenceRange sequence) {
+        CompletableFuture<IdBlock> futureBlock = new CompletableFuture<>();
+        if (!sequence.startPrefetch(futureBlock)) {
+            return;
+        }
+        int rangeSize = sequence.computeNextRangeSize();
+        try {
+            prefetchExecutor.execute(() -> {
+                try {
+                    futureBlock.complete(new IdBlock(setNewRange(sequenceId, rangeSize), rangeSize));
+                } catch (Throwable t) {
+                    futureBlock.completeExceptionally(t);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            futureBlock.completeExceptionally(e);
+        }
+    }
+
+    private SequenceRange getSequence(Long sequenceId) {
+        return sequences.computeIfAbsent(sequenceId, id -> new SequenceRange(sequenceIdToRangeSize.get(id)));
     }
 
     private Long getSequenceId(String entityName) throws SObjectNotFoundException {
@@ -117,9 +194,10 @@ public class TenantSequenceManagerImpl {
     /**
      * get the next available id of a sequence and update in database its value
      *
+     * @param rangeSize number of ids to reserve
      * @return the next available id of the sequence
      */
-    private long setNewRange(final long sequenceId) throws SObjectNotFoundException {
+    private long setNewRange(final long sequenceId, final int rangeSize) throws SObjectNotFoundException {
         BonitaLock lock = createLock(sequenceId);
         Exception lastException = null;
         try {
@@ -134,7 +212,7 @@ public class TenantSequenceManagerImpl {
                     connection.setAutoCommit(false);
                     SequenceDAO sequenceDAO = createDao(connection, tenantId);
                     long nextAvailableId = sequenceDAO.selectById(sequenceId);
-                    sequenceDAO.updateSequence(nextAvailableId + sequenceIdToRangeSize.get(sequenceId), sequenceId);
+                    sequenceDAO.updateSequence(nextAvailableId + rangeSize, sequenceId);
                     connection.commit();
                     return nextAvailableId;
                 } catch (final SObjectNotFoundException t) {
@@ -13,7 +13,10 @@
  **/
 package org.bonitasoft.engine.recorder.impl;
 
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 
 import java.util.Collections;
@@ -48,6 +51,7 @@ public class RecorderImplTest {
 
     @Test
     public void should_fire_event_when_recording_an_insert() throws Exception {
+        doReturn(true).when(eventService).hasHandlers("theEvent_CREATED", null);
         MyPersistentObject entity = entity();
         recorder.recordInsert(insertRecord(entity), "theEvent");
 
@@ -56,6 +60,7 @@ public class RecorderImplTest {
 
     @Test
     public void should_fire_event_when_recording_an_update() throws Exception {
+        doReturn(true).when(eventService).hasHandlers("theEvent_UPDATED", null);
         MyPersistentObject entity = entity();
         recorder.recordUpdate(updateRecord(entity), "theEvent");
 
@@ -64,12 +69,22 @@ public class RecorderImplTest {
 
     @Test
     public void should_fire_event_when_recording_a_delete() throws Exception {
+        doReturn(true).when(eventService).hasHandlers("theEvent_DELETED", null);
         MyPersistentObject entity = entity();
         recorder.recordDelete(deleteRecord(entity), "theEvent");
 
         verify(eventService).fireEvent(argThat(match("theEvent_DELETED", entity)));
     }
 
+    @Test
+    public void should_not_fire_event_when_no_handler_listens_to_it() throws Exception {
+        recorder.recordInsert(insertRecord(entity()), "theEvent");
+        recorder.recordUpdate(updateRecord(entity()), "theEvent");
+        recorder.recordDelete(deleteRecord(entity()), "theEvent");
+
+        verify(eventService, never()).fireEvent(any());
+    }
+
     protected ArgumentMatcher<SEvent> match(String type, Object entity) {
         return sEvent -> sEvent.getType().equals(type) && sEvent.getObject().equals(entity);
     }
@@ -16,6 +16,7 @@ package org.bonitasoft.engine.sequence;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import org.junit.Test;
 
@@ -63,4 +64,51 @@ public class SequenceRangeTest {
         assertThat(sequenceRange.getNextAvailableId()).isNotPresent();
         assertThat(sequenceRange.getNextAvailableId()).isNotPresent();
     }
+
+    @Test
+    public void should_use_configured_size_for_the_first_range() {
+        SequenceRange sequenceRange = new SequenceRange(10);
+
+        assertThat(sequenceRange.computeNextRangeSize()).isEqualTo(10);
+    }
+
+    @Test
+    public void should_increase_range_size_when_ids_are_consumed_quickly_up_to_the_maximum() {
+        SequenceRange sequenceRange = new SequenceRange(10, 50);
+        sequenceRange.updateToNextRange(1);
+        for (int i = 0; i < 10; i++) {
+            sequenceRange.getNextAvailableId();
+        }
+
+        assertThat(sequenceRange.computeNextRangeSize()).isEqualTo(50);
+    }
+
+    @Test
+    public void should_give_all_ids_of_a_range_with_an_adapted_size() {
+        SequenceRange sequenceRange = new SequenceRange(2, 50);
+        sequenceRange.updateToNextRange(new SequenceRange.IdBlock(100, 3));
+
+        assertThat(sequenceRange.getNextAvailableId()).contains(100L);
+        assertThat(sequenceRange.getNextAvailableId()).contains(101L);
+        assertThat(sequenceRange.getNextAvailableId()).contains(102L);
+        assertThat(sequenceRange.getNextAvailableId()).isNotPresent();
+    }
+
+    @Test
+    public void should_need_prefetch_only_when_range_is_almost_exhausted() {
+        SequenceRange sequenceRange = new SequenceRange(8);
+        assertThat(sequenceRange.needsPrefetch()).isFalse();
+        sequenceRange.updateToNextRange(1);
+
+        for (int i = 0; i < 5; i++) {
+            sequenceRange.getNextAvailableId();
+            assertThat(sequenceRange.needsPrefetch()).isFalse();
+        }
+        sequenceRange.getNextAvailableId();
+
+        assertThat(sequenceRange.needsPrefetch()).isTrue();
+        assertThat(sequenceRange.startPrefetch(new CompletableFuture<>())).isTrue();
+        assertThat(sequenceRange.needsPrefetch()).isFalse();
+        assertThat(sequenceRange.startPrefetch(new CompletableFuture<>())).isFalse();
+    }
 }
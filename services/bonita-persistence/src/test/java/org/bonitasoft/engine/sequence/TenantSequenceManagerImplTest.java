@@ -22,6 +22,7 @@ import static org.mockito.Mockito.*;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 
@@ -269,4 +270,47 @@ public class TenantSequenceManagerImplTest {
         assertThatThrownBy(() -> tenantSequenceManager.getNextId(OBJECT_w_5))
                 .hasMessage("Unable to get a sequence id for 554");
     }
+
+    @Test
+    public void should_prefetch_next_range_before_current_one_is_exhausted() throws Exception {
+        doReturn(100L, 200L).when(sequenceDAO).selectById(SEQUENCE_w_5);
+        TenantSequenceManagerImpl sequenceManager = new TenantSequenceManagerImpl(TENANT_ID, lockService,
+                Collections.singletonMap(SEQUENCE_w_5, 5), Collections.singletonMap(OBJECT_w_5, SEQUENCE_w_5),
+                dataSource, RETRIES, 1, 1, Runnable::run) {
+
+            @Override
+            SequenceDAO createDao(Connection connection, Long tenantId) {
+                return sequenceDAO;
+            }
+        };
+
+        for (long expectedId = 100; expectedId <= 103; expectedId++) {
+            assertThat(sequenceManager.getNextId(OBJECT_w_5)).isEqualTo(expectedId);
+        }
+
+        // next range is already reserved while ids of the current one remain
+        verify(sequenceDAO, times(2)).selectById(SEQUENCE_w_5);
+        assertThat(sequenceManager.getNextId(OBJECT_w_5)).isEqualTo(104L);
+        assertThat(sequenceManager.getNextId(OBJECT_w_5)).isEqualTo(200L);
+        verify(sequenceDAO, times(2)).selectById(SEQUENCE_w_5);
+    }
+
+    @Test
+    public void should_get_next_range_synchronously_when_prefetch_failed() throws Exception {
+        doReturn(100L).doThrow(new SQLException("SQL error")).doThrow(new SQLException("SQL error"))
+                .doReturn(300L).when(sequenceDAO).selectById(SEQUENCE_w_2);
+        TenantSequenceManagerImpl sequenceManager = new TenantSequenceManagerImpl(TENANT_ID, lockService,
+                Collections.singletonMap(SEQUENCE_w_2, 2), Collections.singletonMap(OBJECT_w_2, SEQUENCE_w_2),
+                dataSource, RETRIES, 1, 1, Runnable::run) {
+
+            @Override
+            SequenceDAO createDao(Connection connection, Long tenantId) {
+                return sequenceDAO;
+            }
+        };
+
+        assertThat(sequenceManager.getNextId(OBJECT_w_2)).isEqualTo(100L);
+        assertThat(sequenceManager.getNextId(OBJECT_w_2)).isEqualTo(101L);
+        assertThat(sequenceManager.getNextId(OBJECT_w_2)).isEqualTo(300L);
+    }
 }
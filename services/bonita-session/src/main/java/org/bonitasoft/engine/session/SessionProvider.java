@@ -13,12 +13,23 @@
  **/
 package org.bonitasoft.engine.session;
 
+import java.util.Date;
+
 import org.bonitasoft.engine.session.model.SSession;
 
 public interface SessionProvider {
 
     void updateSession(SSession session) throws SSessionNotFoundException;
 
+    /**
+     * Set the last renew date of the session to now.
+     *
+     * @since 7.16
+     */
+    default void renewSession(long sessionId) throws SSessionNotFoundException {
+        updateSession(getSession(sessionId).toBuilder().lastRenewDate(new Date()).build());
+    }
+
     void cleanInvalidSessions();
 
     void removeSessions();
@@ -13,23 +13,299 @@
  **/
 package org.bonitasoft.engine.session.impl;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.bonitasoft.engine.session.SSessionAlreadyExistsException;
+import org.bonitasoft.engine.session.SSessionNotFoundException;
 import org.bonitasoft.engine.session.SessionProvider;
 import org.bonitasoft.engine.session.model.SSession;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnSingleCandidate;
 import org.springframework.stereotype.Component;
 
+/**
+ * Sessions of this node, in a concurrent map: no operation takes a lock shared by all sessions.
+ * <p>
+ * Renewing a session only sets its last renew timestamp, the {@link SSession} returned by
+ * {@link #getSession(long)} is rebuilt when the timestamp changed since it was last read.
+ * <p>
+ * Invalid sessions are removed using a hashed timing wheel, see {@link ExpiryWheel}: each cleaning only looks at the
+ * sessions that could have expired since the previous one. The wheel is also advanced when sessions are added, so
+ * that expired sessions do not pile up between two scheduled cleanings.
+ */
 @Component
 @ConditionalOnSingleCandidate(SessionProvider.class)
-public final class SessionProviderImpl extends AbstractSessionProvider {
+public final class SessionProviderImpl implements SessionProvider {
+
+    static final long TICK_DURATION = 60_000L;
+    static final int NUMBER_OF_BUCKETS = 128;
+
+    private static final String CONTENTION = "bonita.bpmengine.session.contention";
+    private static final String CONTENTION_DESCRIPTION = "Number of times an operation on sessions had to retry,"
+            + " or was skipped, because another thread was doing it concurrently";
+
+    private final Map<Long, SessionEntry> sessions = new ConcurrentHashMap<>();
+    private final LongSupplier clock;
+    private final ExpiryWheel expiryWheel;
+    private final Counter renewedCounter;
+    private final Counter expiredCounter;
+    private final Counter renewContentionCounter;
+    private final Counter expiryContentionCounter;
+
+    @Autowired
+    public SessionProviderImpl(MeterRegistry meterRegistry) {
+        this(meterRegistry, System::currentTimeMillis);
+    }
+
+    SessionProviderImpl(MeterRegistry meterRegistry, LongSupplier clock) {
+        this.clock = clock;
+        this.expiryWheel = new ExpiryWheel(clock.getAsLong());
+        Gauge.builder("bonita.bpmengine.session.active", sessions, Map::size)
+                .description("Number of sessions of the node, including the expired ones not yet removed")
+                .register(meterRegistry);
+        renewedCounter = Counter.builder("bonita.bpmengine.session.renewed")
+                .description("Number of session renewals").register(meterRegistry);
+        expiredCounter = Counter.builder("bonita.bpmengine.session.expired")
+                .description("Number of sessions removed because they expired").register(meterRegistry);
+        renewContentionCounter = Counter.builder(CONTENTION).tag("operation", "renew")
+                .description(CONTENTION_DESCRIPTION).register(meterRegistry);
+        expiryContentionCounter = Counter.builder(CONTENTION).tag("operation", "expiry")
+                .description(CONTENTION_DESCRIPTION).register(meterRegistry);
+    }
+
+    @Override
+    public void addSession(final SSession session) throws SSessionAlreadyExistsException {
+        final long id = session.getId();
+        SessionEntry entry = new SessionEntry(session);
+        if (sessions.putIfAbsent(id, entry) != null) {
+            throw new SSessionAlreadyExistsException("A session wih id \"" + id + "\" already exists");
+        }
+        expiryWheel.schedule(entry);
+        long now = clock.getAsLong();
+        if (expiryWheel.isBehind(now)) {
+            expireSessions(now);
+        }
+    }
+
+    @Override
+    public void removeSession(final long sessionId) throws SSessionNotFoundException {
+        final SessionEntry entry = sessions.remove(sessionId);
+        if (entry == null) {
+            throw new SSessionNotFoundException("No session found with id \"" + sessionId + "\"");
+        }
+        entry.removed = true;
+    }
+
+    @Override
+    public SSession getSession(final long sessionId) throws SSessionNotFoundException {
+        return getEntry(sessionId).getSession();
+    }
+
+    @Override
+    public void updateSession(final SSession session) throws SSessionNotFoundException {
+        getEntry(session.getId()).update(session);
+    }
+
+    @Override
+    public void renewSession(final long sessionId) throws SSessionNotFoundException {
+        SessionEntry entry = getEntry(sessionId);
+        long now = clock.getAsLong();
+        long lastRenewDate = entry.lastRenewDate.get();
+        // never move the renew date backward when concurrent renewals are not applied in order
+        while (lastRenewDate < now && !entry.lastRenewDate.compareAndSet(lastRenewDate, now)) {
+            renewContentionCounter.increment();
+            lastRenewDate = entry.lastRenewDate.get();
+        }
+        if (lastRenewDate == SessionEntry.NO_RENEW_DATE) {
+            // sessions without renew date do not expire, they are not in the wheel yet
+            expiryWheel.schedule(entry);
+        }
+        renewedCounter.increment();
+    }
+
+    private SessionEntry getEntry(long sessionId) throws SSessionNotFoundException {
+        final SessionEntry entry = sessions.get(sessionId);
+        if (entry == null) {
+            throw new SSessionNotFoundException("No session found with id \"" + sessionId + "\"");
+        }
+        return entry;
+    }
+
+    @Override
+    public void cleanInvalidSessions() {
+        expireSessions(clock.getAsLong());
+    }
+
+    private void expireSessions(long now) {
+        int expired = expiryWheel.advance(now, entry -> {
+            if (sessions.remove(entry.id, entry)) {
+                entry.removed = true;
+                return true;
+            }
+            return false;
+        });
+        if (expired < 0) {
+            expiryContentionCounter.increment();
+        } else {
+            expiredCounter.increment(expired);
+        }
+    }
 
-    private final Map<Long, SSession> sessions = new HashMap<>();
+    @Override
+    public void removeSessions() {
+        Iterator<SessionEntry> iterator = sessions.values().iterator();
+        while (iterator.hasNext()) {
+            iterator.next().removed = true;
+            iterator.remove();
+        }
+    }
 
     @Override
-    protected Map<Long, SSession> getSessions() {
-        return sessions;
+    public void deleteSessionsOfTenant(final long tenantId, final boolean keepTechnicalSessions) {
+        Iterator<SessionEntry> iterator = sessions.values().iterator();
+        while (iterator.hasNext()) {
+            SessionEntry entry = iterator.next();
+            SSession sSession = entry.getSession();
+            if (tenantId == sSession.getTenantId() && (!keepTechnicalSessions || !sSession.isTechnicalUser())) {
+                entry.removed = true;
+                iterator.remove();
+            }
+        }
+    }
+
+    private static final class SessionEntry {
+
+        private static final long NO_RENEW_DATE = Long.MIN_VALUE;
+
+        private final long id;
+        private final AtomicReference<SSession> session;
+        private final AtomicLong lastRenewDate;
+        private volatile boolean removed;
+
+        private SessionEntry(SSession session) {
+            this.id = session.getId();
+            this.session = new AtomicReference<>(session);
+            this.lastRenewDate = new AtomicLong(renewDateOf(session));
+        }
+
+        private static long renewDateOf(SSession session) {
+            return session.getLastRenewDate() == null ? NO_RENEW_DATE : session.getLastRenewDate().getTime();
+        }
+
+        private SSession getSession() {
+            SSession current = session.get();
+            long renewDate = lastRenewDate.get();
+            if (renewDate == renewDateOf(current)) {
+                return current;
+            }
+            SSession renewed = current.toBuilder().lastRenewDate(new Date(renewDate)).build();
+            // if another thread refreshed or updated it meanwhile, its value is as good as this one
+            session.compareAndSet(current, renewed);
+            return renewed;
+        }
+
+        private void update(SSession updated) {
+            session.set(updated);
+            lastRenewDate.set(renewDateOf(updated));
+        }
+
+        /**
+         * @return the expiration time, {@link Long#MAX_VALUE} if the session has no renew date
+         */
+        private long getExpirationTime() {
+            long renewDate = lastRenewDate.get();
+            return renewDate == NO_RENEW_DATE ? Long.MAX_VALUE : renewDate + session.get().getDuration();
+        }
+    }
+
+    /**
+     * Hashed timing wheel of the sessions: {@link #NUMBER_OF_BUCKETS} buckets of {@link #TICK_DURATION} ms each.
+     * <p>
+     * A session is put in the bucket of the tick it expires at. Renewing a session does not move it: when its bucket is
+     * reached, a session renewed in the meantime, or that expires in a later round of the wheel, is put in the bucket
+     * of its current expiration time, and the other sessions are expired.
+     */
+    private static final class ExpiryWheel {
+
+        private final Queue<SessionEntry>[] buckets;
+        private final AtomicBoolean advancing = new AtomicBoolean();
+        private volatile long lastProcessedTick;
+
+        @SuppressWarnings("unchecked")
+        private ExpiryWheel(long now) {
+            buckets = new Queue[NUMBER_OF_BUCKETS];
+            for (int i = 0; i < NUMBER_OF_BUCKETS; i++) {
+                buckets[i] = new ConcurrentLinkedQueue<>();
+            }
+            lastProcessedTick = now / TICK_DURATION;
+        }
+
+        private void schedule(SessionEntry entry) {
+            long expirationTime = entry.getExpirationTime();
+            if (expirationTime == Long.MAX_VALUE) {
+                return;
+            }
+            // a tick already processed would only be looked at in the next round
+            long tick = Math.max(expirationTime / TICK_DURATION, lastProcessedTick + 1);
+            buckets[(int) (tick % NUMBER_OF_BUCKETS)].add(entry);
+        }
+
+        private boolean isBehind(long now) {
+            return now / TICK_DURATION > lastProcessedTick;
+        }
+
+        /**
+         * Process the buckets of the ticks elapsed since the last call.
+         *
+         * @param expire called for each expired session, returns true if it was removed
+         * @return the number of expired sessions, -1 if another thread is already advancing the wheel
+         */
+        private int advance(long now, Predicate<SessionEntry> expire) {
+            if (!advancing.compareAndSet(false, true)) {
+                return -1;
+            }
+            try {
+                long currentTick = now / TICK_DURATION;
+                // past one round, each bucket is processed only once
+                long firstTick = Math.max(lastProcessedTick + 1, currentTick - NUMBER_OF_BUCKETS + 1);
+                int expired = 0;
+                List<SessionEntry> notExpired = new ArrayList<>();
+                for (long tick = firstTick; tick <= currentTick; tick++) {
+                    Queue<SessionEntry> bucket = buckets[(int) (tick % NUMBER_OF_BUCKETS)];
+                    SessionEntry entry;
+                    while ((entry = bucket.poll()) != null) {
+                        if (entry.removed) {
+                            continue;
+                        }
+                        if (entry.getExpirationTime() > now) {
+                            notExpired.add(entry);
+                        } else if (expire.test(entry)) {
+                            expired++;
+                        }
+                    }
+                }
+                lastProcessedTick = Math.max(lastProcessedTick, currentTick);
+                notExpired.forEach(this::schedule);
+                return expired;
+            } finally {
+                advancing.set(false);
+            }
+        }
     }
 
 }
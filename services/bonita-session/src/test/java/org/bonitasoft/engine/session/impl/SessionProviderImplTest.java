@@ -13,9 +13,16 @@
  **/
 package org.bonitasoft.engine.session.impl;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.bonitasoft.engine.session.impl.SessionProviderImpl.TICK_DURATION;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.fail;
 
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.bonitasoft.engine.session.SSessionNotFoundException;
 import org.bonitasoft.engine.session.SessionProvider;
 import org.bonitasoft.engine.session.model.SSession;
@@ -24,7 +31,11 @@ import org.junit.Test;
 
 public class SessionProviderImplTest {
 
-    private final SessionProvider sessionProvider = new SessionProviderImpl();
+    private static final long NOW = 10 * TICK_DURATION;
+
+    private final AtomicLong clock = new AtomicLong(NOW);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SessionProvider sessionProvider = new SessionProviderImpl(meterRegistry, clock::get);
 
     @Before
     public void cleanSession() {
@@ -40,8 +51,8 @@ public class SessionProviderImplTest {
 
     @Test(expected = SSessionNotFoundException.class)
     public void removeSession_should_not_be_able_to_delete_sessions_of_other_tenants() throws Exception {
-        final SessionProvider sessionProvider1 = new SessionProviderImpl();
-        final SessionProvider sessionProvider2 = new SessionProviderImpl();
+        final SessionProvider sessionProvider1 = new SessionProviderImpl(new SimpleMeterRegistry());
+        final SessionProvider sessionProvider2 = new SessionProviderImpl(new SimpleMeterRegistry());
 
         sessionProvider1.addSession(SSession.builder().id(19L).tenantId(1).userName("john").userId(12).build());
         sessionProvider2.addSession(SSession.builder().id(20L).tenantId(2).userName("john").userId(12).build());
@@ -102,4 +113,59 @@ public class SessionProviderImplTest {
         }
     }
 
+    @Test
+    public void renewSession_should_only_change_the_last_renew_date() throws Exception {
+        sessionProvider.addSession(session(12L, 3 * TICK_DURATION));
+        clock.addAndGet(1000);
+
+        sessionProvider.renewSession(12L);
+
+        SSession session = sessionProvider.getSession(12L);
+        assertThat(session.getLastRenewDate()).isEqualTo(new Date(NOW + 1000));
+        assertThat(session.getUserName()).isEqualTo("john");
+        assertThat(meterRegistry.counter("bonita.bpmengine.session.renewed").count()).isEqualTo(1);
+    }
+
+    @Test
+    public void renewSession_should_throw_not_found_when_session_does_not_exist() {
+        assertThatThrownBy(() -> sessionProvider.renewSession(10L)).isInstanceOf(SSessionNotFoundException.class);
+    }
+
+    @Test
+    public void cleanInvalidSessions_should_remove_expired_sessions_only() throws Exception {
+        sessionProvider.addSession(session(1L, 3 * TICK_DURATION));
+        sessionProvider.addSession(session(2L, 3 * TICK_DURATION));
+        clock.set(NOW + 2 * TICK_DURATION);
+        sessionProvider.renewSession(2L);
+
+        clock.set(NOW + 3 * TICK_DURATION + 1);
+        sessionProvider.cleanInvalidSessions();
+
+        assertThatThrownBy(() -> sessionProvider.getSession(1L)).isInstanceOf(SSessionNotFoundException.class);
+        assertThat(sessionProvider.getSession(2L).getLastRenewDate()).isEqualTo(new Date(NOW + 2 * TICK_DURATION));
+
+        clock.set(NOW + 5 * TICK_DURATION + 1);
+        sessionProvider.cleanInvalidSessions();
+
+        assertThatThrownBy(() -> sessionProvider.getSession(2L)).isInstanceOf(SSessionNotFoundException.class);
+        assertThat(meterRegistry.counter("bonita.bpmengine.session.expired").count()).isEqualTo(2);
+    }
+
+    @Test
+    public void addSession_should_remove_sessions_expired_since_last_tick() throws Exception {
+        sessionProvider.addSession(session(1L, TICK_DURATION));
+        clock.set(NOW + 2 * TICK_DURATION);
+
+        sessionProvider.addSession(session(2L, TICK_DURATION));
+
+        assertThatThrownBy(() -> sessionProvider.getSession(1L)).isInstanceOf(SSessionNotFoundException.class);
+        assertNotNull(sessionProvider.getSession(2L));
+    }
+
+    private SSession session(long id, long duration) {
+        Date now = new Date(clock.get());
+        return SSession.builder().id(id).tenantId(1).userName("john").userId(12).duration(duration)
+                .creationDate(now).lastRenewDate(now).build();
+    }
+
 }
@@ -0,0 +1,190 @@
+/**
+ * Copyright (C) 2019 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.tracking.profiling;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MultiGauge;
+import io.micrometer.core.instrument.Tags;
+
+/**
+ * Profiler of the expressions and connectors executed by the engine, enabled by default.
+ * <p>
+ * Only one execution out of {@link #setSampleRate(int) sampleRate} is measured, and a measure only updates the
+ * {@link LatencyHistogram} of its element, so that profiling can stay activated in production. Each histogram takes
+ * about 4 KB, so at most about 8 MB with the default {@link #setMaxElements(int) maxElements}. Elements of deleted
+ * process definitions are removed, and when maxElements is reached, elements not measured since the previous
+ * publication are evicted at publication. Unlike the
+ * {@link org.bonitasoft.engine.tracking.TimeTracker}, nothing describing the execution is built or kept: elements are
+ * only identified by their type, process definition and name.
+ * <p>
+ * The slowest elements are published as a Micrometer {@link MultiGauge} each time {@link #publishSlowestElements()}
+ * is called, and can be retrieved using {@link #getSlowestElements(int)}.
+ */
+public class ElementProfiler {
+
+    public static final String SLOWEST_ELEMENTS_P99 = "bonita.bpmengine.profiler.slowest.p99";
+    public static final String NUMBER_OF_PROFILED_ELEMENTS = "bonita.bpmengine.profiler.elements";
+
+    /**
+     * returned by {@link #startSample()} when the execution must not be measured
+     */
+    public static final long NOT_SAMPLED = Long.MIN_VALUE;
+
+    private final Map<ProfiledElement, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private final LongAdder droppedSamples = new LongAdder();
+    private final MultiGauge slowestElementsGauge;
+
+    private boolean enabled = true;
+    private int sampleRate = 16;
+    private int maxElements = 2_000;
+    private int numberOfPublishedElements = 10;
+
+    public ElementProfiler(MeterRegistry meterRegistry, long tenantId) {
+        Tags tags = Tags.of("tenant", String.valueOf(tenantId));
+        slowestElementsGauge = MultiGauge.builder(SLOWEST_ELEMENTS_P99).tags(tags).baseUnit("ms")
+                .description("99th percentile of the execution time of the slowest expressions and connectors")
+                .register(meterRegistry);
+        Gauge.builder(NUMBER_OF_PROFILED_ELEMENTS, histograms, Map::size).tags(tags)
+                .baseUnit("elements").description("Number of expressions and connectors profiled")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @param enabled when false, no execution is measured
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @param sampleRate one execution out of sampleRate is measured (1 to measure all executions)
+     */
+    public void setSampleRate(int sampleRate) {
+        this.sampleRate = Math.max(1, sampleRate);
+    }
+
+    /**
+     * @param maxElements maximum number of elements profiled, measures of other elements are dropped until elements
+     *        are evicted
+     */
+    public void setMaxElements(int maxElements) {
+        this.maxElements = maxElements;
+    }
+
+    /**
+     * @param numberOfPublishedElements number of slowest elements published by {@link #publishSlowestElements()}
+     */
+    public void setNumberOfPublishedElements(int numberOfPublishedElements) {
+        this.numberOfPublishedElements = numberOfPublishedElements;
+    }
+
+    /**
+     * Decide whether the execution about to start is measured.
+     *
+     * @return the start time to give to {@link #stopSample}, or {@link #NOT_SAMPLED}
+     */
+    public long startSample() {
+        if (!enabled || (sampleRate > 1 && ThreadLocalRandom.current().nextInt(sampleRate) != 0)) {
+            return NOT_SAMPLED;
+        }
+        return System.nanoTime();
+    }
+
+    public void stopSample(ProfiledElementType type, long processDefinitionId, String name, long startTime) {
+        if (startTime == NOT_SAMPLED) {
+            return;
+        }
+        record(type, processDefinitionId, name, System.nanoTime() - startTime);
+    }
+
+    /**
+     * Record the duration of an execution that was already measured. Sampling is also applied.
+     */
+    public void recordMeasured(ProfiledElementType type, long processDefinitionId, String name,
+            long durationInNanos) {
+        if (startSample() == NOT_SAMPLED) {
+            return;
+        }
+        record(type, processDefinitionId, name, durationInNanos);
+    }
+
+    private void record(ProfiledElementType type, long processDefinitionId, String name, long durationInNanos) {
+        ProfiledElement element = new ProfiledElement(type, processDefinitionId, name);
+        LatencyHistogram histogram = histograms.get(element);
+        if (histogram == null) {
+            if (histograms.size() >= maxElements) {
+                droppedSamples.increment();
+                return;
+            }
+            histogram = histograms.computeIfAbsent(element, e -> new LatencyHistogram());
+        }
+        histogram.record(durationInNanos);
+    }
+
+    /**
+     * @return statistics of the elements having the highest 99th percentile, slowest first
+     */
+    public List<ElementStatistics> getSlowestElements(int numberOfElements) {
+        return histograms.entrySet().stream()
+                .map(e -> new ElementStatistics(e.getKey(), e.getValue()))
+                .sorted(Comparator.comparingDouble(ElementStatistics::getP99).reversed())
+                .limit(numberOfElements)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Replace the rows of the {@value #SLOWEST_ELEMENTS_P99} gauge with the current slowest elements.
+     * <p>
+     * When {@link #setMaxElements(int) maxElements} is reached, elements not measured since the previous publication
+     * are evicted first, so that new elements can be measured.
+     */
+    public void publishSlowestElements() {
+        boolean full = histograms.size() >= maxElements;
+        histograms.values().removeIf(histogram -> !histogram.resetRecentlyRecorded() && full);
+        slowestElementsGauge.register(getSlowestElements(numberOfPublishedElements).stream()
+                .<MultiGauge.Row<?>> map(s -> MultiGauge.Row.of(Tags.of("type", s.getType().name(),
+                        "processDefinitionId", String.valueOf(s.getProcessDefinitionId()),
+                        "element", String.valueOf(s.getName())), s.getP99()))
+                .collect(Collectors.toList()), true);
+    }
+
+    /**
+     * @return number of measures dropped because {@link #setMaxElements(int) maxElements} was reached
+     */
+    public long getNumberOfDroppedSamples() {
+        return droppedSamples.sum();
+    }
+
+    /**
+     * Remove the elements of a deleted process definition
+     */
+    public void removeProcessDefinition(long processDefinitionId) {
+        histograms.keySet().removeIf(element -> element.getProcessDefinitionId() == processDefinitionId);
+    }
+
+    public void reset() {
+        histograms.clear();
+        droppedSamples.reset();
+    }
+
+}
@@ -0,0 +1,90 @@
+/**
+ * Copyright (C) 2019 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.tracking.profiling;
+
+import java.io.Serializable;
+
+/**
+ * Latency statistics of a {@link ProfiledElement}, computed from its sampled executions. Durations are in
+ * milliseconds.
+ */
+public class ElementStatistics implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final ProfiledElementType type;
+    private final long processDefinitionId;
+    private final String name;
+    private final long count;
+    private final double mean;
+    private final double p50;
+    private final double p99;
+    private final double max;
+
+    ElementStatistics(ProfiledElement element, LatencyHistogram histogram) {
+        this.type = element.getType();
+        this.processDefinitionId = element.getProcessDefinitionId();
+        this.name = element.getName();
+        this.count = histogram.getCount();
+        this.mean = toMillis(histogram.getMean());
+        this.p50 = toMillis(histogram.getValueAtPercentile(0.5));
+        this.p99 = toMillis(histogram.getValueAtPercentile(0.99));
+        this.max = toMillis(histogram.getMax());
+    }
+
+    private static double toMillis(double nanos) {
+        return nanos / 1_000_000d;
+    }
+
+    public ProfiledElementType getType() {
+        return type;
+    }
+
+    public long getProcessDefinitionId() {
+        return processDefinitionId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return number of sampled executions
+     */
+    public long getCount() {
+        return count;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public double getP50() {
+        return p50;
+    }
+
+    public double getP99() {
+        return p99;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + name + " of process definition " + processDefinitionId + ": count=" + count + ", mean="
+                + mean + "ms, p50=" + p50 + "ms, p99=" + p99 + "ms, max=" + max + "ms";
+    }
+}
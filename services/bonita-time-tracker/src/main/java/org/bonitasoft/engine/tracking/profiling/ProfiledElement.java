@@ -0,0 +1,77 @@
+/**
+ * Copyright (C) 2019 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.tracking.profiling;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Identifies what is profiled: an expression or a connector of a process definition.
+ */
+public class ProfiledElement implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * used as process definition id of elements not evaluated in the context of a process
+     */
+    public static final long NO_PROCESS_DEFINITION = -1L;
+
+    private final ProfiledElementType type;
+    private final long processDefinitionId;
+    private final String name;
+    private final int hash;
+
+    public ProfiledElement(ProfiledElementType type, long processDefinitionId, String name) {
+        this.type = type;
+        this.processDefinitionId = processDefinitionId;
+        this.name = name;
+        this.hash = Objects.hash(type, processDefinitionId, name);
+    }
+
+    public ProfiledElementType getType() {
+        return type;
+    }
+
+    public long getProcessDefinitionId() {
+        return processDefinitionId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+        ProfiledElement that = (ProfiledElement) o;
+        return hash == that.hash
+                && processDefinitionId == that.processDefinitionId
+                && type == that.type
+                && Objects.equals(name, that.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + name + " of process definition " + processDefinitionId;
+    }
+}
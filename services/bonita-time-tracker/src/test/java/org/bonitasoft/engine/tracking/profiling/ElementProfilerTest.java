@@ -0,0 +1,141 @@
+/**
+ * Copyright (C) 2019 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.tracking.profiling;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.bonitasoft.engine.tracking.profiling.ProfiledElementType.CONNECTOR;
+import static org.bonitasoft.engine.tracking.profiling.ProfiledElementType.EXPRESSION;
+
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ElementProfilerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ElementProfiler profiler = new ElementProfiler(meterRegistry, 1L);
+
+    @Before
+    public void before() {
+        profiler.setEnabled(true);
+        profiler.setSampleRate(1);
+    }
+
+    @Test
+    public void should_return_slowest_elements_first() {
+        profiler.recordMeasured(EXPRESSION, 12L, "fast", TimeUnit.MILLISECONDS.toNanos(1));
+        profiler.recordMeasured(CONNECTOR, 12L, "slow", TimeUnit.MILLISECONDS.toNanos(500));
+        profiler.recordMeasured(EXPRESSION, 13L, "medium", TimeUnit.MILLISECONDS.toNanos(40));
+
+        assertThat(profiler.getSlowestElements(2))
+                .extracting(ElementStatistics::getType, ElementStatistics::getProcessDefinitionId,
+                        ElementStatistics::getName)
+                .containsExactly(tuple(CONNECTOR, 12L, "slow"), tuple(EXPRESSION, 13L, "medium"));
+    }
+
+    @Test
+    public void should_aggregate_executions_of_the_same_element() {
+        profiler.recordMeasured(EXPRESSION, 12L, "expr", TimeUnit.MILLISECONDS.toNanos(10));
+        profiler.recordMeasured(EXPRESSION, 12L, "expr", TimeUnit.MILLISECONDS.toNanos(30));
+
+        assertThat(profiler.getSlowestElements(10)).singleElement()
+                .satisfies(s -> {
+                    assertThat(s.getCount()).isEqualTo(2);
+                    assertThat(s.getMean()).isEqualTo(20d);
+                    assertThat(s.getMax()).isEqualTo(30d);
+                });
+    }
+
+    @Test
+    public void should_not_measure_when_disabled() {
+        profiler.setEnabled(false);
+
+        long start = profiler.startSample();
+        profiler.stopSample(EXPRESSION, 12L, "expr", start);
+
+        assertThat(start).isEqualTo(ElementProfiler.NOT_SAMPLED);
+        assertThat(profiler.getSlowestElements(10)).isEmpty();
+    }
+
+    @Test
+    public void should_drop_measures_of_new_elements_when_max_elements_is_reached() {
+        profiler.setMaxElements(1);
+
+        profiler.recordMeasured(EXPRESSION, 12L, "expr1", 10);
+        profiler.recordMeasured(EXPRESSION, 12L, "expr2", 10);
+        profiler.recordMeasured(EXPRESSION, 12L, "expr1", 10);
+
+        assertThat(profiler.getSlowestElements(10)).extracting(ElementStatistics::getName).containsExactly("expr1");
+        assertThat(profiler.getNumberOfDroppedSamples()).isEqualTo(1);
+    }
+
+    @Test
+    public void should_measure_by_default() {
+        ElementProfiler defaultProfiler = new ElementProfiler(new SimpleMeterRegistry(), 1L);
+        defaultProfiler.setSampleRate(1);
+
+        assertThat(defaultProfiler.startSample()).isNotEqualTo(ElementProfiler.NOT_SAMPLED);
+    }
+
+    @Test
+    public void should_remove_elements_of_deleted_process_definition() {
+        profiler.recordMeasured(EXPRESSION, 12L, "expr1", 10);
+        profiler.recordMeasured(EXPRESSION, 13L, "expr2", 10);
+
+        profiler.removeProcessDefinition(12L);
+
+        assertThat(profiler.getSlowestElements(10)).extracting(ElementStatistics::getName).containsExactly("expr2");
+    }
+
+    @Test
+    public void should_evict_elements_not_measured_since_previous_publication_when_max_elements_is_reached() {
+        profiler.setMaxElements(2);
+        profiler.recordMeasured(EXPRESSION, 12L, "expr1", 10);
+        profiler.recordMeasured(EXPRESSION, 12L, "expr2", 10);
+        profiler.publishSlowestElements();
+        profiler.recordMeasured(EXPRESSION, 12L, "expr1", 10);
+
+        profiler.publishSlowestElements();
+        profiler.recordMeasured(EXPRESSION, 12L, "expr3", 10);
+
+        assertThat(profiler.getSlowestElements(10)).extracting(ElementStatistics::getName)
+                .containsExactlyInAnyOrder("expr1", "expr3");
+    }
+
+    @Test
+    public void should_keep_elements_not_measured_since_previous_publication_when_max_elements_is_not_reached() {
+        profiler.recordMeasured(EXPRESSION, 12L, "expr1", 10);
+        profiler.publishSlowestElements();
+
+        profiler.publishSlowestElements();
+
+        assertThat(profiler.getSlowestElements(10)).extracting(ElementStatistics::getName).containsExactly("expr1");
+    }
+
+    @Test
+    public void should_publish_slowest_elements_as_gauges() {
+        profiler.setNumberOfPublishedElements(1);
+        profiler.recordMeasured(EXPRESSION, 12L, "fast", TimeUnit.MILLISECONDS.toNanos(1));
+        profiler.recordMeasured(CONNECTOR, 12L, "slow", TimeUnit.MILLISECONDS.toNanos(500));
+
+        profiler.publishSlowestElements();
+
+        assertThat(meterRegistry.find(ElementProfiler.SLOWEST_ELEMENTS_P99).gauges())
+                .extracting(g -> g.getId().getTag("element")).containsExactly("slow");
+        assertThat(meterRegistry.find(ElementProfiler.NUMBER_OF_PROFILED_ELEMENTS).gauge().value()).isEqualTo(2);
+    }
+}
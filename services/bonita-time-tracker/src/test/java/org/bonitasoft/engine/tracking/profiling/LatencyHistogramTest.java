@@ -0,0 +1,57 @@
+/**
+ * Copyright (C) 2019 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.tracking.profiling;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    @Test
+    public void should_compute_percentiles_with_bounded_relative_error() {
+        for (long i = 1; i <= 1000; i++) {
+            histogram.record(i * 1_000);
+        }
+
+        assertThat(histogram.getCount()).isEqualTo(1000);
+        assertThat(histogram.getMax()).isEqualTo(1_000_000);
+        assertThat(histogram.getMean()).isEqualTo(500_500d);
+        assertThat((double) histogram.getValueAtPercentile(0.5)).isCloseTo(500_000d, within(500_000 * 0.125));
+        assertThat((double) histogram.getValueAtPercentile(0.99)).isCloseTo(990_000d, within(990_000 * 0.125));
+        assertThat(histogram.getValueAtPercentile(1)).isEqualTo(1_000_000);
+    }
+
+    @Test
+    public void should_put_each_value_in_a_bucket_containing_it() {
+        long[] values = { 0, 1, 7, 8, 15, 16, 17, 1_000, 123_456_789, Long.MAX_VALUE };
+        for (long value : values) {
+            int index = LatencyHistogram.bucketIndex(value);
+
+            assertThat(LatencyHistogram.highestValueOfBucket(index)).isGreaterThanOrEqualTo(value);
+            if (index > 0) {
+                assertThat(LatencyHistogram.highestValueOfBucket(index - 1)).isLessThan(value);
+            }
+        }
+    }
+
+    @Test
+    public void should_return_zero_when_empty() {
+        assertThat(histogram.getValueAtPercentile(0.99)).isZero();
+        assertThat(histogram.getMean()).isZero();
+    }
+}
@@ -176,9 +176,10 @@ public class JTATransactionServiceImpl implements TransactionService {
 
     private void executeBeforeCommitCallables(TransactionServiceContext txContext) throws STransactionCommitException {
         final List<Callable<Void>> callables = txContext.beforeCommitCallables;
-        for (final Callable<Void> callable : callables) {
+        // callables can register other callables, e.g. to archive what they insert: iterate by index to run them too
+        for (int i = 0; i < callables.size(); i++) {
             try {
-                callable.call();
+                callables.get(i).call();
             } catch (Exception e) {
                 throw new STransactionCommitException("Exception while executing callable in beforeCommit phase", e);
             }
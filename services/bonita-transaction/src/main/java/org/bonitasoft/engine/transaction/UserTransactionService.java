@@ -16,6 +16,7 @@ package org.bonitasoft.engine.transaction;
 import java.util.Optional;
 import java.util.concurrent.Callable;
 
+import javax.transaction.Status;
 import javax.transaction.Synchronization;
 
 public interface UserTransactionService {
@@ -56,6 +57,30 @@ public interface UserTransactionService {
 
     boolean isTransactionActive();
 
+    /**
+     * Run an action once the current transaction is committed, e.g. to update a state kept outside of the database
+     * that must only reflect committed changes. The action is run directly when there is no active transaction, and
+     * is not run when the transaction is rolled back.
+     *
+     * @param action the action to run
+     * @since 7.16
+     */
+    default void runAfterCommit(Runnable action) {
+        if (!isTransactionActive()) {
+            action.run();
+            return;
+        }
+        try {
+            registerBonitaSynchronization((BonitaTransactionSynchronization) txState -> {
+                if (txState == Status.STATUS_COMMITTED) {
+                    action.run();
+                }
+            });
+        } catch (STransactionNotFoundException e) {
+            action.run();
+        }
+    }
+
     Optional<Boolean> hasMultipleResources();
 
 }
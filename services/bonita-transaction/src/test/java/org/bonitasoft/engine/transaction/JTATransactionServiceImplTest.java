@@ -188,6 +188,19 @@ public class JTATransactionServiceImplTest {
         verify(beforeCommitCallable).call();
     }
 
+    @Test
+    public void should_call_beforeCommitCallable_registered_by_another_beforeCommitCallable() throws Exception {
+        doReturn(Status.STATUS_ACTIVE).when(txManager).getStatus();
+        txService.registerBeforeCommitCallable(() -> {
+            txService.registerBeforeCommitCallable(beforeCommitCallable);
+            return null;
+        });
+
+        txService.complete();
+
+        verify(beforeCommitCallable).call();
+    }
+
     @Test
     public void should_not_call_beforeCommitCallable_when_transaction_is_rollbacked() throws Exception {
         doReturn(Status.STATUS_MARKED_ROLLBACK).when(txManager).getStatus();
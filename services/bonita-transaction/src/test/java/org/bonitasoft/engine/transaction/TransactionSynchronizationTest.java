@@ -15,6 +15,8 @@ package org.bonitasoft.engine.transaction;
 
 import static org.junit.Assert.*;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+
 import javax.transaction.Status;
 import javax.transaction.TransactionManager;
 
@@ -160,4 +162,37 @@ public class TransactionSynchronizationTest {
         testRegisteredSynchronizationsOrderOnFailure(false, true, true);
     }
 
+    @Test
+    public void runAfterCommit_should_run_action_once_transaction_is_committed() throws Exception {
+        final AtomicBoolean run = new AtomicBoolean();
+        txService.begin();
+
+        txService.runAfterCommit(() -> run.set(true));
+
+        assertFalse(run.get());
+        txService.complete();
+        assertTrue(run.get());
+    }
+
+    @Test
+    public void runAfterCommit_should_not_run_action_when_transaction_is_rolled_back() throws Exception {
+        final AtomicBoolean run = new AtomicBoolean();
+        txService.begin();
+
+        txService.runAfterCommit(() -> run.set(true));
+        txService.setRollbackOnly();
+        txService.complete();
+
+        assertFalse(run.get());
+    }
+
+    @Test
+    public void runAfterCommit_should_run_action_directly_without_transaction() {
+        final AtomicBoolean run = new AtomicBoolean();
+
+        txService.runAfterCommit(() -> run.set(true));
+
+        assertTrue(run.get());
+    }
+
 }
@@ -45,8 +45,10 @@ public class BonitaThreadPoolExecutor extends ThreadPoolExecutor implements Boni
     public static final String NUMBER_OF_WORKS_PENDING = "bonita.bpmengine.work.pending";
     public static final String NUMBER_OF_WORKS_RUNNING = "bonita.bpmengine.work.running";
     public static final String NUMBER_OF_WORKS_EXECUTED = "bonita.bpmengine.work.executed";
+    public static final String NUMBER_OF_WORKS_PENDING_DELAYED = "bonita.bpmengine.work.pending.delayed";
 
     private final BlockingQueue<Runnable> workQueue;
+    private final DelayedWorkStage delayedWorkStage;
     private final WorkFactory workFactory;
     private final EngineClock engineClock;
     private final WorkExecutionCallback workExecutionCallback;
@@ -57,6 +59,7 @@ public class BonitaThreadPoolExecutor extends ThreadPoolExecutor implements Boni
     private final Counter executedWorkCounter;
     private final Gauge numberOfWorksPending;
     private final Gauge numberOfWorksRunning;
+    private final Gauge numberOfWorksPendingDelayed;
 
     public BonitaThreadPoolExecutor(final int corePoolSize,
             final int maximumPoolSize,
@@ -74,6 +77,8 @@ public class BonitaThreadPoolExecutor extends ThreadPoolExecutor implements Boni
         this.workExecutionCallback = workExecutionCallback;
         this.workExecutionAuditor = workExecutionAuditor;
         this.meterRegistry = meterRegistry;
+        this.delayedWorkStage = new DelayedWorkStage(engineClock, this::submit,
+                new WorkerThreadFactory("Bonita-Delayed-Works", tenantId, 1));
 
         Tags tags = Tags.of("tenant", String.valueOf(tenantId));
         numberOfWorksPending = Gauge.builder(NUMBER_OF_WORKS_PENDING, workQueue, Collection::size)
@@ -82,6 +87,10 @@ public class BonitaThreadPoolExecutor extends ThreadPoolExecutor implements Boni
         numberOfWorksRunning = Gauge.builder(NUMBER_OF_WORKS_RUNNING, runningWorks, AtomicLong::get)
                 .tags(tags).baseUnit("works").description("Works currently executing")
                 .register(meterRegistry);
+        numberOfWorksPendingDelayed = Gauge.builder(NUMBER_OF_WORKS_PENDING_DELAYED, delayedWorkStage,
+                DelayedWorkStage::size)
+                .tags(tags).baseUnit("works").description("Works waiting for their execution date before being queued")
+                .register(meterRegistry);
         executedWorkCounter = Counter.builder(NUMBER_OF_WORKS_EXECUTED)
                 .tags(tags).baseUnit("works").description("total works executed since last server start")
                 .register(meterRegistry);
@@ -90,6 +99,7 @@ public class BonitaThreadPoolExecutor extends ThreadPoolExecutor implements Boni
     @Override
     public void clearAllQueues() {
         workQueue.clear();
+        delayedWorkStage.clear();
     }
 
     @Override
@@ -104,55 +114,65 @@ public class BonitaThreadPoolExecutor extends ThreadPoolExecutor implements Boni
     @Override
     public void shutdownAndEmptyQueue() {
         super.shutdown();
-        log.info("Clearing queue of work, had {} elements", workQueue.size());
+        log.info("Clearing queue of work, had {} elements and {} delayed elements", workQueue.size(),
+                delayedWorkStage.size());
+        delayedWorkStage.stop();
         workQueue.clear();
         meterRegistry.remove(numberOfWorksPending);
         meterRegistry.remove(numberOfWorksRunning);
+        meterRegistry.remove(numberOfWorksPendingDelayed);
         meterRegistry.remove(executedWorkCounter);
     }
 
     @Override
     public void submit(WorkDescriptor work) {
-        submit(() -> {
-            if (isRequiringDelayedExecution(work)) {
-                // Future implementation should use a real delay e.g. using a ScheduledThreadPoolExecutor
-                // Will be executed later
-                submit(work);
-                return;
-            }
-            work.incrementExecutionCount();
-            workExecutionAuditor.detectAbnormalExecutionAndNotify(work);
-
-            BonitaWork bonitaWork = workFactory.create(work);
-            HashMap<String, Object> context = new HashMap<>();
-            CompletableFuture<Void> asyncResult;
-            runningWorks.incrementAndGet();
-            try {
-                asyncResult = bonitaWork.work(context);
-            } catch (Exception e) {
-                executedWorkCounter.increment();
-                runningWorks.decrementAndGet();
-                workExecutionCallback.onFailure(work, bonitaWork, context, e);
-                return;
-            }
+        if (isRequiringDelayedExecution(work)) {
+            // submitted again by the delayed work stage once the execution threshold is reached
+            delayedWorkStage.add(work);
+            return;
+        }
+        submit(() -> executeWork(work));
+    }
+
+    /**
+     * Execute the work in the current thread and call the {@link WorkExecutionCallback}
+     *
+     * @param work the work to execute
+     * @return a future that completes once the work and its callback are done
+     */
+    protected CompletableFuture<Void> executeWork(WorkDescriptor work) {
+        work.incrementExecutionCount();
+        workExecutionAuditor.detectAbnormalExecutionAndNotify(work);
+
+        BonitaWork bonitaWork = workFactory.create(work);
+        HashMap<String, Object> context = new HashMap<>();
+        CompletableFuture<Void> asyncResult;
+        runningWorks.incrementAndGet();
+        try {
+            asyncResult = bonitaWork.work(context);
+        } catch (Exception e) {
+            executedWorkCounter.increment();
+            runningWorks.decrementAndGet();
+            workExecutionCallback.onFailure(work, bonitaWork, context, e);
+            return CompletableFuture.completedFuture(null);
+        }
 
-            asyncResult.handle((result, error) -> {
-                executedWorkCounter.increment();
-                runningWorks.decrementAndGet();
-                if (error != null) {
-                    if (error instanceof CompletionException) {
-                        error = error.getCause();
-                    }
-                    workExecutionCallback.onFailure(work, bonitaWork, context, error);
-                } else {
-                    workExecutionCallback.onSuccess(work);
+        return asyncResult.handle((result, error) -> {
+            executedWorkCounter.increment();
+            runningWorks.decrementAndGet();
+            if (error != null) {
+                if (error instanceof CompletionException) {
+                    error = error.getCause();
                 }
-                return null;
-            });
+                workExecutionCallback.onFailure(work, bonitaWork, context, error);
+            } else {
+                workExecutionCallback.onSuccess(work);
+            }
+            return null;
         });
     }
 
-    private boolean isRequiringDelayedExecution(WorkDescriptor work) {
+    protected boolean isRequiringDelayedExecution(WorkDescriptor work) {
         return work.getExecutionThreshold() != null && work.getExecutionThreshold().isAfter(engineClock.now());
     }
 }
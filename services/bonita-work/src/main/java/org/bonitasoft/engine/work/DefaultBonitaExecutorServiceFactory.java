@@ -56,6 +56,7 @@ public class DefaultBonitaExecutorServiceFactory implements BonitaExecutorServic
     private final WorkExecutionAuditor workExecutionAuditor;
     private final MeterRegistry meterRegistry;
     private final ExecutorServiceMetricsProvider executorServiceMetricsProvider;
+    private boolean mailboxEnabled = false;
 
     public DefaultBonitaExecutorServiceFactory(
             WorkFactory workFactory,
@@ -80,16 +81,29 @@ public class DefaultBonitaExecutorServiceFactory implements BonitaExecutorServic
         this.executorServiceMetricsProvider = executorServiceMetricsProvider;
     }
 
+    @Value("${bonita.tenant.work.mailbox.enabled:false}")
+    public void setMailboxEnabled(boolean mailboxEnabled) {
+        this.mailboxEnabled = mailboxEnabled;
+    }
+
     @Override
     public BonitaExecutorService createExecutorService(WorkExecutionCallback workExecutionCallback) {
         final BlockingQueue<Runnable> workQueue = new ArrayBlockingQueue<>(queueCapacity);
         final RejectedExecutionHandler handler = new QueueRejectedExecutionHandler();
         final WorkerThreadFactory threadFactory = new WorkerThreadFactory("Bonita-Worker", tenantId, maximumPoolSize);
 
-        final BonitaThreadPoolExecutor bonitaThreadPoolExecutor = new BonitaThreadPoolExecutor(corePoolSize,
-                maximumPoolSize, keepAliveTimeSeconds, TimeUnit.SECONDS,
-                workQueue, threadFactory, handler, workFactory, engineClock, workExecutionCallback,
-                workExecutionAuditor, meterRegistry, tenantId);
+        final BonitaThreadPoolExecutor bonitaThreadPoolExecutor;
+        if (mailboxEnabled) {
+            bonitaThreadPoolExecutor = new MailboxBonitaThreadPoolExecutor(corePoolSize,
+                    maximumPoolSize, keepAliveTimeSeconds, TimeUnit.SECONDS,
+                    workQueue, threadFactory, handler, workFactory, engineClock, workExecutionCallback,
+                    workExecutionAuditor, meterRegistry, tenantId);
+        } else {
+            bonitaThreadPoolExecutor = new BonitaThreadPoolExecutor(corePoolSize,
+                    maximumPoolSize, keepAliveTimeSeconds, TimeUnit.SECONDS,
+                    workQueue, threadFactory, handler, workFactory, engineClock, workExecutionCallback,
+                    workExecutionAuditor, meterRegistry, tenantId);
+        }
         logger.info(
                 "Creating a new Thread pool to handle works: " + bonitaThreadPoolExecutor);
 
@@ -0,0 +1,121 @@
+/**
+ * Copyright (C) 2019 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.work;
+
+import java.time.Duration;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import org.bonitasoft.engine.commons.time.EngineClock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Holds works that must not be executed before their {@link WorkDescriptor#getExecutionThreshold()} (e.g. retried
+ * works) in a {@link DelayQueue}. A single thread hands them over to the given consumer once they are ready, so that
+ * waiting works do not use worker threads.
+ * <p>
+ * Delays are computed using the {@link EngineClock}. The waiting thread wakes up at least every
+ * {@value #MAX_WAIT_MILLIS} ms to take into account changes of the engine clock.
+ *
+ * @author Baptiste Mesta
+ */
+public class DelayedWorkStage {
+
+    private static final Logger log = LoggerFactory.getLogger(DelayedWorkStage.class);
+    static final long MAX_WAIT_MILLIS = 100;
+
+    private final DelayQueue<DelayedWork> delayedWorks = new DelayQueue<>();
+    private final EngineClock engineClock;
+    private final Consumer<WorkDescriptor> readyWorkConsumer;
+    private final Thread thread;
+    private final AtomicBoolean started = new AtomicBoolean(false);
+    private volatile boolean stopped = false;
+
+    public DelayedWorkStage(EngineClock engineClock, Consumer<WorkDescriptor> readyWorkConsumer,
+            ThreadFactory threadFactory) {
+        this.engineClock = engineClock;
+        this.readyWorkConsumer = readyWorkConsumer;
+        this.thread = threadFactory.newThread(this::handOverReadyWorks);
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Keep the work until its execution threshold is reached
+     */
+    public void add(WorkDescriptor work) {
+        if (stopped) {
+            return;
+        }
+        delayedWorks.add(new DelayedWork(work));
+        if (started.compareAndSet(false, true)) {
+            thread.start();
+        }
+    }
+
+    public int size() {
+        return delayedWorks.size();
+    }
+
+    public void clear() {
+        delayedWorks.clear();
+    }
+
+    public void stop() {
+        stopped = true;
+        thread.interrupt();
+        delayedWorks.clear();
+    }
+
+    private void handOverReadyWorks() {
+        while (!stopped) {
+            try {
+                DelayedWork readyWork = delayedWorks.poll(MAX_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+                if (readyWork != null) {
+                    readyWorkConsumer.accept(readyWork.work);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Unable to submit delayed work, it will be restarted by the recovery mechanism", e);
+            }
+        }
+    }
+
+    private class DelayedWork implements Delayed {
+
+        private final WorkDescriptor work;
+
+        private DelayedWork(WorkDescriptor work) {
+            this.work = work;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(Duration.between(engineClock.now(), work.getExecutionThreshold()).toMillis(),
+                    TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return work.getExecutionThreshold().compareTo(((DelayedWork) other).work.getExecutionThreshold());
+        }
+    }
+
+}
@@ -0,0 +1,195 @@
+/**
+ * Copyright (C) 2019 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.work;
+
+import java.util.ArrayDeque;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.bonitasoft.engine.commons.time.EngineClock;
+import org.bonitasoft.engine.work.audit.WorkExecutionAuditor;
+
+/**
+ * {@link BonitaThreadPoolExecutor} that keeps works having the same mailbox key (see
+ * {@link WorkFactory#getMailboxKey(WorkDescriptor)}) in a FIFO mailbox.
+ * Only one worker drains a given mailbox at a time: works of a same process instance are never executed concurrently
+ * on this node, so they do not compete for the process instance lock and are not re-queued on lock timeout.
+ * <p>
+ * A mailbox is present in {@link #mailboxes} as long as a drain task is scheduled or running for it. After each work,
+ * the drain task is re-submitted at the end of the executor queue so that busy process instances do not starve others.
+ *
+ * @author Baptiste Mesta
+ */
+public class MailboxBonitaThreadPoolExecutor extends BonitaThreadPoolExecutor {
+
+    public static final String NUMBER_OF_MAILBOXES = "bonita.bpmengine.work.mailbox.active";
+    public static final String NUMBER_OF_WORKS_IN_MAILBOXES = "bonita.bpmengine.work.mailbox.pending";
+    public static final String MAX_MAILBOX_DEPTH = "bonita.bpmengine.work.mailbox.depth.max";
+
+    private final WorkFactory workFactory;
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentHashMap<Long, Mailbox> mailboxes = new ConcurrentHashMap<>();
+    private final AtomicLong worksInMailboxes = new AtomicLong();
+    private final Gauge numberOfMailboxes;
+    private final Gauge numberOfWorksInMailboxes;
+    private final Gauge maxMailboxDepth;
+
+    public MailboxBonitaThreadPoolExecutor(final int corePoolSize,
+            final int maximumPoolSize,
+            final long keepAliveTime,
+            final TimeUnit unit,
+            final BlockingQueue<Runnable> workQueue,
+            final ThreadFactory threadFactory,
+            final RejectedExecutionHandler handler, WorkFactory workFactory, EngineClock engineClock,
+            WorkExecutionCallback workExecutionCallback,
+            WorkExecutionAuditor workExecutionAuditor, MeterRegistry meterRegistry, long tenantId) {
+        super(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue, threadFactory, handler, workFactory,
+                engineClock, workExecutionCallback, workExecutionAuditor, meterRegistry, tenantId);
+        this.workFactory = workFactory;
+        this.meterRegistry = meterRegistry;
+
+        Tags tags = Tags.of("tenant", String.valueOf(tenantId));
+        numberOfMailboxes = Gauge.builder(NUMBER_OF_MAILBOXES, mailboxes, ConcurrentHashMap::size)
+                .tags(tags).baseUnit("mailboxes").description("Mailboxes currently being drained")
+                .register(meterRegistry);
+        numberOfWorksInMailboxes = Gauge.builder(NUMBER_OF_WORKS_IN_MAILBOXES, worksInMailboxes, AtomicLong::get)
+                .tags(tags).baseUnit("works").description("Works waiting in a mailbox for their turn to be executed")
+                .register(meterRegistry);
+        maxMailboxDepth = Gauge.builder(MAX_MAILBOX_DEPTH, mailboxes,
+                m -> m.values().stream().mapToInt(Mailbox::getDepth).max().orElse(0))
+                .tags(tags).baseUnit("works").description("Number of works waiting in the deepest mailbox")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void submit(WorkDescriptor work) {
+        Optional<Long> mailboxKey = workFactory.getMailboxKey(work);
+        if (!mailboxKey.isPresent() || isRequiringDelayedExecution(work)) {
+            // delayed works are submitted again by the delayed work stage once they are ready to be executed
+            super.submit(work);
+            return;
+        }
+        long key = mailboxKey.get();
+        AtomicBoolean mustScheduleDrain = new AtomicBoolean(false);
+        mailboxes.compute(key, (k, mailbox) -> {
+            if (mailbox == null) {
+                mailbox = new Mailbox();
+                mustScheduleDrain.set(true);
+            }
+            mailbox.add(work);
+            return mailbox;
+        });
+        worksInMailboxes.incrementAndGet();
+        if (mustScheduleDrain.get()) {
+            scheduleDrain(key);
+        }
+    }
+
+    private void scheduleDrain(long key) {
+        submit(() -> drain(key));
+    }
+
+    private void drain(long key) {
+        AtomicReference<WorkDescriptor> next = new AtomicReference<>();
+        Mailbox mailbox = mailboxes.computeIfPresent(key, (k, m) -> {
+            next.set(m.poll());
+            return m;
+        });
+        if (mailbox == null) {
+            // mailboxes were cleared
+            return;
+        }
+        WorkDescriptor work = next.get();
+        if (work == null) {
+            releaseOrReschedule(key);
+            return;
+        }
+        worksInMailboxes.decrementAndGet();
+        CompletableFuture<Void> execution;
+        try {
+            execution = executeWork(work);
+        } catch (RuntimeException e) {
+            releaseOrReschedule(key);
+            throw e;
+        }
+        execution.whenComplete((result, error) -> releaseOrReschedule(key));
+    }
+
+    private void releaseOrReschedule(long key) {
+        Mailbox mailbox = mailboxes.computeIfPresent(key, (k, m) -> m.isEmpty() ? null : m);
+        if (mailbox != null) {
+            scheduleDrain(key);
+        }
+    }
+
+    @Override
+    public void clearAllQueues() {
+        super.clearAllQueues();
+        clearMailboxes();
+    }
+
+    @Override
+    public void shutdownAndEmptyQueue() {
+        super.shutdownAndEmptyQueue();
+        clearMailboxes();
+        meterRegistry.remove(numberOfMailboxes);
+        meterRegistry.remove(numberOfWorksInMailboxes);
+        meterRegistry.remove(maxMailboxDepth);
+    }
+
+    private void clearMailboxes() {
+        mailboxes.clear();
+        worksInMailboxes.set(0);
+    }
+
+    /**
+     * Queue of works of a mailbox, only modified inside {@link ConcurrentHashMap#compute} calls on its key
+     */
+    private static class Mailbox {
+
+        private final ArrayDeque<WorkDescriptor> works = new ArrayDeque<>();
+        private volatile int depth;
+
+        void add(WorkDescriptor work) {
+            works.add(work);
+            depth = works.size();
+        }
+
+        WorkDescriptor poll() {
+            WorkDescriptor work = works.poll();
+            depth = works.size();
+            return work;
+        }
+
+        boolean isEmpty() {
+            return works.isEmpty();
+        }
+
+        int getDepth() {
+            return depth;
+        }
+    }
+
+}
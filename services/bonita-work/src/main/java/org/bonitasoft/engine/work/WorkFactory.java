@@ -13,6 +13,8 @@
  **/
 package org.bonitasoft.engine.work;
 
+import java.util.Optional;
+
 /**
  * @author Baptiste Mesta.
  */
@@ -20,4 +22,16 @@ public interface WorkFactory {
 
     BonitaWork create(WorkDescriptor workDescriptor);
 
+    /**
+     * Get the key of the mailbox the work must be queued in when the executor runs in mailbox mode.
+     * Works sharing the same key are executed one after the other, in submission order.
+     *
+     * @param workDescriptor the descriptor of the work
+     * @return the mailbox key (e.g. the id of the process instance the work locks), or empty if the work can be
+     *         executed concurrently with any other work
+     */
+    default Optional<Long> getMailboxKey(WorkDescriptor workDescriptor) {
+        return Optional.empty();
+    }
+
 }
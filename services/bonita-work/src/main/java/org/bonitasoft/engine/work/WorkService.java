@@ -13,6 +13,8 @@
  **/
 package org.bonitasoft.engine.work;
 
+import java.util.List;
+
 import org.bonitasoft.engine.commons.TenantLifecycleService;
 
 /**
@@ -34,6 +36,15 @@ public interface WorkService extends TenantLifecycleService {
      */
     void registerWork(WorkDescriptor workDescriptor) throws SWorkRegisterException;
 
+    /**
+     * Same as {@link #registerWork(WorkDescriptor)} for several works, using a single transaction synchronization.
+     *
+     * @param workDescriptors
+     * @throws SWorkRegisterException
+     * @since 7.16
+     */
+    void registerWorks(List<WorkDescriptor> workDescriptors) throws SWorkRegisterException;
+
     /**
      * @return true if the work service is stopped
      * @since 6.3
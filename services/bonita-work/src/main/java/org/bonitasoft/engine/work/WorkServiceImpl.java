@@ -13,6 +13,10 @@
  **/
 package org.bonitasoft.engine.work;
 
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+
 import org.bonitasoft.engine.commons.time.EngineClock;
 import org.bonitasoft.engine.sessionaccessor.SessionAccessor;
 import org.bonitasoft.engine.transaction.STransactionNotFoundException;
@@ -60,14 +64,32 @@ public class WorkServiceImpl implements WorkService {
         }
         workDescriptor.setRegistrationDate(engineClock.now());
         log.debug("Registering work {}", workDescriptor);
-        createAndRegisterNewSynchronization(workDescriptor);
+        createAndRegisterNewSynchronization(Collections.singletonList(workDescriptor));
         log.debug("Work registered");
     }
 
-    private WorkSynchronization createAndRegisterNewSynchronization(WorkDescriptor workDescriptor)
+    @Override
+    public void registerWorks(List<WorkDescriptor> workDescriptors) throws SWorkRegisterException {
+        if (workDescriptors.isEmpty()) {
+            return;
+        }
+        if (isStopped()) {
+            log.warn("Tried to register {} works, but the work service is stopped.", workDescriptors.size());
+            return;
+        }
+        Instant now = engineClock.now();
+        for (WorkDescriptor workDescriptor : workDescriptors) {
+            workDescriptor.setRegistrationDate(now);
+        }
+        log.debug("Registering {} works", workDescriptors.size());
+        createAndRegisterNewSynchronization(workDescriptors);
+        log.debug("Works registered");
+    }
+
+    private WorkSynchronization createAndRegisterNewSynchronization(List<WorkDescriptor> workDescriptors)
             throws SWorkRegisterException {
         WorkSynchronization synchro = new WorkSynchronization(transactionService, workExecutorService, sessionAccessor,
-                workDescriptor, workDelayOnMultipleXAResource);
+                workDescriptors, workDelayOnMultipleXAResource);
         try {
             transactionService.registerBonitaSynchronization(synchro);
         } catch (final STransactionNotFoundException e) {
@@ -14,6 +14,8 @@
 package org.bonitasoft.engine.work;
 
 import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 
 import javax.transaction.Status;
@@ -29,7 +31,7 @@ public class WorkSynchronization implements BonitaTransactionSynchronization {
 
     private static final Logger LOG = LoggerFactory.getLogger(WorkSynchronization.class);
 
-    private final WorkDescriptor work;
+    private final List<WorkDescriptor> works;
 
     private final WorkExecutorService workExecutorService;
 
@@ -40,6 +42,13 @@ public class WorkSynchronization implements BonitaTransactionSynchronization {
     WorkSynchronization(final UserTransactionService transactionService, final WorkExecutorService workExecutorService,
             final SessionAccessor sessionAccessor,
             WorkDescriptor work, int workDelayOnMultipleXAResource) {
+        this(transactionService, workExecutorService, sessionAccessor, Collections.singletonList(work),
+                workDelayOnMultipleXAResource);
+    }
+
+    WorkSynchronization(final UserTransactionService transactionService, final WorkExecutorService workExecutorService,
+            final SessionAccessor sessionAccessor,
+            List<WorkDescriptor> works, int workDelayOnMultipleXAResource) {
         this.transactionService = transactionService;
         this.workDelayOnMultipleXAResource = workDelayOnMultipleXAResource;
         try {
@@ -49,29 +58,39 @@ public class WorkSynchronization implements BonitaTransactionSynchronization {
             // We are not in a tenant
             tenantId = -1L;
         }
-        this.work = work;
+        this.works = works;
         this.workExecutorService = workExecutorService;
     }
 
     WorkDescriptor getWork() {
-        return work;
+        return works.get(0);
+    }
+
+    List<WorkDescriptor> getWorks() {
+        return works;
     }
 
     @Override
     public void afterCompletion(final int transactionStatus) {
         if (Status.STATUS_COMMITTED == transactionStatus) {
-            work.setTenantId(tenantId);
+            Instant executeAfter = null;
             if (workDelayOnMultipleXAResource > 0) {
                 Optional<Boolean> hasMultipleResources = transactionService.hasMultipleResources();
                 // to be safe, if we are unable to know if there are multiple resources, we add the delay anyway.
                 if (!hasMultipleResources.isPresent() || hasMultipleResources.get()) {
-                    work.mustBeExecutedAfter(Instant.now().plusMillis(workDelayOnMultipleXAResource));
+                    executeAfter = Instant.now().plusMillis(workDelayOnMultipleXAResource);
+                }
+            }
+            for (WorkDescriptor work : works) {
+                work.setTenantId(tenantId);
+                if (executeAfter != null) {
+                    work.mustBeExecutedAfter(executeAfter);
                 }
+                workExecutorService.execute(work);
             }
-            workExecutorService.execute(work);
         } else {
-            LOG.debug("Transaction completion with state {} != COMMITTED. Not triggering the work: {}",
-                    transactionStatus, work);
+            LOG.debug("Transaction completion with state {} != COMMITTED. Not triggering the works: {}",
+                    transactionStatus, works);
         }
     }
 
@@ -108,6 +108,26 @@ public class BonitaThreadPoolExecutorTest {
         await().until(() -> workExecutionCallback.isOnSuccessCalled());
     }
 
+    @Test
+    public void should_keep_delayed_work_out_of_the_work_queue_until_its_execution_date() throws Exception {
+        WorkDescriptor workDescriptor = WorkDescriptor.create("NORMAL");
+        workDescriptor.mustBeExecutedAfter(engineClock.now().plus(5, SECONDS));
+
+        bonitaThreadPoolExecutor.submit(workDescriptor);
+
+        Thread.sleep(50);
+        assertThat(meterRegistry.find(BonitaThreadPoolExecutor.NUMBER_OF_WORKS_PENDING_DELAYED).gauge().value())
+                .isEqualTo(1);
+        assertThat(meterRegistry.find(BonitaThreadPoolExecutor.NUMBER_OF_WORKS_PENDING).gauge().value())
+                .isEqualTo(0);
+        assertThat(bonitaThreadPoolExecutor.getCompletedTaskCount()).isEqualTo(0);
+
+        engineClock.addTime(5, SECONDS);
+        await().until(() -> workExecutionCallback.isOnSuccessCalled());
+        assertThat(meterRegistry.find(BonitaThreadPoolExecutor.NUMBER_OF_WORKS_PENDING_DELAYED).gauge().value())
+                .isEqualTo(0);
+    }
+
     @Test
     public void should_update_meter_when_work_executes() {
         Gauge currentWorkQueue = meterRegistry.find(BonitaThreadPoolExecutor.NUMBER_OF_WORKS_PENDING).gauge();
@@ -161,6 +181,8 @@ public class BonitaThreadPoolExecutorTest {
                 .tag("tenant", String.valueOf(TENANT_ID)).gauge()).isNotNull();
         assertThat(meterRegistry.find(BonitaThreadPoolExecutor.NUMBER_OF_WORKS_PENDING)
                 .tag("tenant", String.valueOf(TENANT_ID)).gauge()).isNotNull();
+        assertThat(meterRegistry.find(BonitaThreadPoolExecutor.NUMBER_OF_WORKS_PENDING_DELAYED)
+                .tag("tenant", String.valueOf(TENANT_ID)).gauge()).isNotNull();
     }
 
     @Test
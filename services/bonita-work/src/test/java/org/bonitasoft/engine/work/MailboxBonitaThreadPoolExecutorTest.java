@@ -0,0 +1,192 @@
+/**
+ * Copyright (C) 2019 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.work;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bonitasoft.engine.commons.time.FixedEngineClock;
+import org.bonitasoft.engine.work.audit.WorkExecutionAuditor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+public class MailboxBonitaThreadPoolExecutorTest {
+
+    private static final long TENANT_ID = 13L;
+    private static final int THREAD_NUMBER = 4;
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+    @Mock
+    private WorkExecutionAuditor workExecutionAuditor;
+    private final KeyedWorkFactory workFactory = new KeyedWorkFactory();
+    private final List<WorkDescriptor> executedWorks = new CopyOnWriteArrayList<>();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private MailboxBonitaThreadPoolExecutor executor;
+
+    @Before
+    public void before() {
+        executor = new MailboxBonitaThreadPoolExecutor(THREAD_NUMBER, THREAD_NUMBER,
+                1_000, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(1_000),
+                new WorkerThreadFactory("test-worker", 1, THREAD_NUMBER),
+                (r, e) -> {
+                },
+                workFactory, new FixedEngineClock(Instant.now()), new WorkExecutionCallback() {
+
+                    @Override
+                    public void onSuccess(WorkDescriptor workDescriptor) {
+                        executedWorks.add(workDescriptor);
+                    }
+
+                    @Override
+                    public void onFailure(WorkDescriptor work, BonitaWork bonitaWork, Map<String, Object> context,
+                            Throwable thrown) {
+                        executedWorks.add(work);
+                    }
+                }, workExecutionAuditor, meterRegistry, TENANT_ID);
+    }
+
+    @After
+    public void after() {
+        executor.shutdownAndEmptyQueue();
+    }
+
+    @Test
+    public void should_never_execute_works_of_the_same_mailbox_concurrently() {
+        for (int i = 0; i < 20; i++) {
+            executor.submit(work(1L, i));
+        }
+
+        await().until(() -> executedWorks.size() == 20);
+        assertThat(workFactory.maxConcurrency.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void should_execute_works_of_a_mailbox_in_submission_order() {
+        for (int i = 0; i < 20; i++) {
+            executor.submit(work(1L, i));
+        }
+
+        await().until(() -> executedWorks.size() == 20);
+        assertThat(executedWorks).extracting(w -> w.getInteger("index"))
+                .containsExactly(0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19);
+    }
+
+    @Test
+    public void should_execute_works_of_different_mailboxes_concurrently() {
+        for (int i = 0; i < THREAD_NUMBER; i++) {
+            executor.submit(work((long) i, i));
+        }
+
+        await().until(() -> executedWorks.size() == THREAD_NUMBER);
+        assertThat(workFactory.maxConcurrency.get()).isGreaterThan(1);
+    }
+
+    @Test
+    public void should_execute_works_without_mailbox_key() {
+        executor.submit(work(null, 0));
+
+        await().until(() -> executedWorks.size() == 1);
+    }
+
+    @Test
+    public void should_expose_mailbox_depth_in_meters() {
+        for (int i = 0; i < 10; i++) {
+            executor.submit(work(1L, i));
+        }
+
+        assertThat(meterRegistry.find(MailboxBonitaThreadPoolExecutor.NUMBER_OF_WORKS_IN_MAILBOXES)
+                .tag("tenant", String.valueOf(TENANT_ID)).gauge().value()).isGreaterThan(0);
+        assertThat(meterRegistry.find(MailboxBonitaThreadPoolExecutor.MAX_MAILBOX_DEPTH)
+                .tag("tenant", String.valueOf(TENANT_ID)).gauge().value()).isGreaterThan(0);
+        await().until(() -> executedWorks.size() == 10);
+        assertThat(meterRegistry.find(MailboxBonitaThreadPoolExecutor.NUMBER_OF_WORKS_IN_MAILBOXES).gauge().value())
+                .isEqualTo(0);
+        await().until(() -> meterRegistry.find(MailboxBonitaThreadPoolExecutor.NUMBER_OF_MAILBOXES).gauge()
+                .value() == 0);
+    }
+
+    @Test
+    public void should_have_no_meters_after_shutdown() {
+        executor.shutdownAndEmptyQueue();
+
+        assertThat(meterRegistry.getMeters()).isEmpty();
+    }
+
+    private WorkDescriptor work(Long mailboxKey, int index) {
+        return WorkDescriptor.create("WORK")
+                .withParameter("mailboxKey", mailboxKey)
+                .withParameter("index", index);
+    }
+
+    private static class KeyedWorkFactory implements WorkFactory {
+
+        private final Map<Long, AtomicInteger> running = new ConcurrentHashMap<>();
+        private final AtomicInteger runningOverall = new AtomicInteger();
+        private final AtomicInteger maxConcurrency = new AtomicInteger();
+
+        @Override
+        public Optional<Long> getMailboxKey(WorkDescriptor workDescriptor) {
+            return Optional.ofNullable(workDescriptor.getLong("mailboxKey"));
+        }
+
+        @Override
+        public BonitaWork create(WorkDescriptor workDescriptor) {
+            return new BonitaWork() {
+
+                @Override
+                public String getDescription() {
+                    return workDescriptor.toString();
+                }
+
+                @Override
+                public CompletableFuture<Void> work(Map<String, Object> context) throws Exception {
+                    Long key = workDescriptor.getLong("mailboxKey");
+                    AtomicInteger counter = key == null ? new AtomicInteger()
+                            : running.computeIfAbsent(key, k -> new AtomicInteger());
+                    if (counter.incrementAndGet() > 1) {
+                        maxConcurrency.set(Integer.MAX_VALUE);
+                    }
+                    maxConcurrency.accumulateAndGet(runningOverall.incrementAndGet(), Math::max);
+                    TimeUnit.MILLISECONDS.sleep(20);
+                    runningOverall.decrementAndGet();
+                    counter.decrementAndGet();
+                    return CompletableFuture.completedFuture(null);
+                }
+
+                @Override
+                public void handleFailure(Throwable e, Map<String, Object> context) {
+                }
+            };
+        }
+    }
+
+}
@@ -18,6 +18,7 @@ import static org.mockito.Mockito.*;
 
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
 
 import org.bonitasoft.engine.commons.exceptions.SBonitaException;
 import org.bonitasoft.engine.commons.time.EngineClock;
@@ -81,4 +82,20 @@ public class WorkServiceImplTest {
                 argThat(s -> ((WorkSynchronization) s).getWork().getType().equals("MY_WORK2")));
     }
 
+    @Test
+    public void should_register_a_single_synchronization_for_works_registered_together() throws SBonitaException {
+        Instant registrationInstant = Instant.now();
+        doReturn(registrationInstant).when(engineClock).now();
+        WorkDescriptor workDescriptor1 = WorkDescriptor.create("MY_WORK1");
+        WorkDescriptor workDescriptor2 = WorkDescriptor.create("MY_WORK2");
+
+        workService.registerWorks(Arrays.asList(workDescriptor1, workDescriptor2));
+
+        verify(transactionService).registerBonitaSynchronization(
+                argThat(s -> ((WorkSynchronization) s).getWorks().equals(
+                        Arrays.asList(workDescriptor1, workDescriptor2))));
+        assertThat(workDescriptor1.getRegistrationDate()).isEqualTo(registrationInstant);
+        assertThat(workDescriptor2.getRegistrationDate()).isEqualTo(registrationInstant);
+    }
+
 }